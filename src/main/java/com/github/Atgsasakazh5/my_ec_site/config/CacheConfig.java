@@ -0,0 +1,120 @@
+package com.github.Atgsasakazh5.my_ec_site.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.Atgsasakazh5.my_ec_site.dto.InventoryDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.ProductDetailDto;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * アプリケーション内で使用するインプロセスキャッシュ（Caffeine）の定義
+ * <p>
+ * 各キャッシュは統計情報を記録し、Micrometer経由でヒット/ミス数などのメトリクスを公開する。
+ */
+@Configuration
+public class CacheConfig {
+
+    /**
+     * 署名検証済みのJWTとそのClaimsを保持するキャッシュ
+     * <p>
+     * エントリはトークン自体の有効期限(exp)に合わせて失効するため、期限切れのトークンが返ることはない。
+     */
+    @Bean
+    public Cache<String, Claims> verifiedTokenCache(MeterRegistry meterRegistry,
+                                                    @Value("${app.cache.jwt.maximum-size:10000}") long maximumSize) {
+        Cache<String, Claims> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(Expiry.creating((String token, Claims claims) -> untilExpiration(claims)))
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verifiedTokens");
+    }
+
+    /**
+     * ユーザーIDごとの現在のトークンバージョンを保持するキャッシュ
+     * <p>
+     * 失効(バージョン更新)は同一インスタンス内では即時に、他インスタンスではTTL経過後に反映される。
+     */
+    @Bean
+    public Cache<Long, Integer> tokenVersionCache(MeterRegistry meterRegistry,
+                                                  @Value("${app.cache.token-version.maximum-size:10000}") long maximumSize,
+                                                  @Value("${app.cache.token-version.ttl:30s}") Duration ttl) {
+        Cache<Long, Integer> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.tokenVersions");
+    }
+
+    /**
+     * メールアドレスごとのUserDetailsを保持するキャッシュ
+     * <p>
+     * ユーザー情報の更新時には明示的に破棄されるが、他インスタンスでの更新はTTL経過後に反映される。
+     */
+    @Bean
+    public Cache<String, UserDetails> userDetailsCache(MeterRegistry meterRegistry,
+                                                       @Value("${app.cache.user-details.maximum-size:10000}") long maximumSize,
+                                                       @Value("${app.cache.user-details.ttl:5m}") Duration ttl) {
+        Cache<String, UserDetails> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "security.userDetails");
+    }
+
+    /**
+     * 商品IDごとの商品詳細(在庫数を除く)を保持するキャッシュ
+     * <p>
+     * 商品・SKUの更新時には明示的に破棄される。TTLは他インスタンスでの更新を反映するための上限。
+     */
+    @Bean
+    public Cache<Long, ProductDetailDto> productDetailCaffeineCache(MeterRegistry meterRegistry,
+                                                             @Value("${app.cache.product-detail.maximum-size:1000}") long maximumSize,
+                                                             @Value("${app.cache.product-detail.ttl:10m}") Duration ttl) {
+        Cache<Long, ProductDetailDto> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "catalog.productDetails");
+    }
+
+    /**
+     * SKU IDごとの在庫数のスナップショットを保持するキャッシュ
+     * <p>
+     * 在庫の更新時には明示的に破棄される。他インスタンスでの注文による在庫変動もTTL(数秒)以内に反映される。
+     */
+    @Bean
+    public Cache<Long, InventoryDto> stockSnapshotCache(MeterRegistry meterRegistry,
+                                                        @Value("${app.cache.stock.maximum-size:10000}") long maximumSize,
+                                                        @Value("${app.cache.stock.ttl:2s}") Duration ttl) {
+        Cache<Long, InventoryDto> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "catalog.stockSnapshots");
+    }
+
+    // Claimsのexpから残りの有効期間を計算する（expがない場合は即時失効）
+    private static Duration untilExpiration(Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            return Duration.ZERO;
+        }
+        Duration remaining = Duration.ofMillis(expiration.getTime() - System.currentTimeMillis());
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+}
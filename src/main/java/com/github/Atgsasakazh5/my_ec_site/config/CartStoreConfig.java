@@ -0,0 +1,41 @@
+package com.github.Atgsasakazh5.my_ec_site.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.Atgsasakazh5.my_ec_site.service.CartStore;
+import com.github.Atgsasakazh5.my_ec_site.service.InMemoryCartStore;
+import com.github.Atgsasakazh5.my_ec_site.service.RedisCartStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * カートの内容を保持するストア({@link CartStore})の定義
+ * <p>
+ * app.cart.store.typeで実装を選択する。memory(既定)は単一インスタンス向け、redisは複数インスタンスで共有する場合に使用する。
+ */
+@Configuration
+public class CartStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cart.store.type", havingValue = "memory", matchIfMissing = true)
+    public CartStore inMemoryCartStore(@Value("${app.cart.store.ttl:30m}") Duration ttl) {
+        return new InMemoryCartStore(ttl);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cart.store.type", havingValue = "redis")
+    public CartStore redisCartStore(ObjectMapper objectMapper,
+                                    @Value("${app.cart.store.ttl:30m}") Duration ttl,
+                                    @Value("${app.cart.store.redis.host:localhost}") String host,
+                                    @Value("${app.cart.store.redis.port:6379}") int port,
+                                    @Value("${app.cart.store.redis.ssl:false}") boolean ssl,
+                                    @Value("${app.cart.store.redis.password:}") String password,
+                                    @Value("${app.cart.store.redis.database:0}") int database,
+                                    @Value("${app.cart.store.redis.timeout:2s}") Duration timeout,
+                                    @Value("${app.cart.store.redis.max-idle-connections:8}") int maxIdleConnections) {
+        return new RedisCartStore(host, port, ssl, password, database, timeout, maxIdleConnections, ttl, objectMapper);
+    }
+}
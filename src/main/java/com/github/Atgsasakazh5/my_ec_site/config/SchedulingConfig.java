@@ -0,0 +1,13 @@
+package com.github.Atgsasakazh5.my_ec_site.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定期実行タスク(@Scheduled)を有効にする
+ * （スレッド数はspring.task.scheduling.pool.sizeで設定する）
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -59,10 +59,16 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         // 認証不要でリクエストを許可するパスを指定
                         .requestMatchers("/api/auth/**", "/api/products/**", "/api/categories/**", "/error").permitAll()
+                        // ゲストカート（トークンで識別する）
+                        .requestMatchers("/api/guest-cart", "/api/guest-cart/**").permitAll()
                         // "/api/admin/**"へのリクエストはADMINロールを持つユーザーのみ許可
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                        // 監視用エンドポイント（ヘルスチェック以外はADMINのみ）
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .requestMatchers(
                                 "/api/users/me",
+                                "/api/users/me/**",
                                 "/api/cart/**",
                                 "/api/orders/**",
                                 "/api/cart",
@@ -89,7 +95,10 @@ public class SecurityConfig {
         // 許可するHTTPメソッド
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         // 許可するヘッダー
-        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-XSRF-TOKEN"));
+        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-XSRF-TOKEN", "If-None-Match",
+                "X-Guest-Cart-Token", "Idempotency-Key"));
+        // フロントエンドから読み取れるようにするヘッダー（カートの条件付きリクエストに使用）
+        configuration.setExposedHeaders(List.of("ETag"));
         configuration.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -2,8 +2,12 @@ package com.github.Atgsasakazh5.my_ec_site.controller;
 
 import com.github.Atgsasakazh5.my_ec_site.dto.*;
 import com.github.Atgsasakazh5.my_ec_site.security.JwtProvider;
+import com.github.Atgsasakazh5.my_ec_site.security.UserPrincipal;
+import com.github.Atgsasakazh5.my_ec_site.service.GuestCartService;
 import com.github.Atgsasakazh5.my_ec_site.service.UserService;
 import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -12,6 +16,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -20,18 +25,24 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/auth")
 public class AuthController {
 
+    private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
+
     private final UserService userService;
 
     private final AuthenticationManager authenticationManager;
 
     private final JwtProvider jwtProvider;
 
+    private final GuestCartService guestCartService;
+
     public AuthController(UserService userService,
                           AuthenticationManager authenticationManager,
-                          JwtProvider jwtProvider) {
+                          JwtProvider jwtProvider,
+                          GuestCartService guestCartService) {
         this.userService = userService;
         this.authenticationManager = authenticationManager;
         this.jwtProvider = jwtProvider;
+        this.guestCartService = guestCartService;
     }
 
     // ユーザー登録のエンドポイント
@@ -44,11 +55,24 @@ public class AuthController {
 
     // ユーザーログインのエンドポイント
     @PostMapping("/login")
-    public ResponseEntity<JwtAuthenticationResponseDto> loginUser(@Valid @RequestBody LoginRequestDto loginRequestDto) {
+    public ResponseEntity<JwtAuthenticationResponseDto> loginUser(
+            @Valid @RequestBody LoginRequestDto loginRequestDto,
+            @RequestHeader(value = GuestCartController.TOKEN_HEADER, required = false) String guestCartToken) {
         UsernamePasswordAuthenticationToken authenticationToken =
                 new UsernamePasswordAuthenticationToken(loginRequestDto.email(), loginRequestDto.password());
         // 認証を実行
         Authentication authentication = authenticationManager.authenticate(authenticationToken);
+        // ゲストカートのトークンがある場合、ゲストカートの内容をユーザーのカートに1回でまとめて統合する
+        // 統合に失敗してもログインは成功させる（ゲストカートは残るため、次回のログインで統合できる）
+        if (guestCartToken != null
+                && authentication.getPrincipal() instanceof UserPrincipal principal
+                && principal.getCartId() != null) {
+            try {
+                guestCartService.mergeIntoUserCart(guestCartToken, principal.getCartId());
+            } catch (RuntimeException e) {
+                logger.warn("ゲストカートの統合に失敗しました: カートID {}", principal.getCartId(), e);
+            }
+        }
         // 認証が成功した場合、JWTトークンを生成
         String jwt = jwtProvider.generateToken(authentication);
         // レスポンスとしてJWTトークンを返す
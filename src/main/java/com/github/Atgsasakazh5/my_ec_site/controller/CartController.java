@@ -1,13 +1,17 @@
 package com.github.Atgsasakazh5.my_ec_site.controller;
 
 import com.github.Atgsasakazh5.my_ec_site.dto.AddCartItemRequestDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.CartBatchRequestDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.CartDetailDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.UpdateCartItemRequestDto;
+import com.github.Atgsasakazh5.my_ec_site.security.UserPrincipal;
 import com.github.Atgsasakazh5.my_ec_site.service.CartService;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/cart")
@@ -20,36 +24,52 @@ public class CartController {
     }
 
     @PostMapping("/items")
-    public ResponseEntity<CartDetailDto> addCartItem(Authentication authentication,
+    public ResponseEntity<CartDetailDto> addCartItem(@AuthenticationPrincipal UserPrincipal principal,
                                                      @Valid @RequestBody AddCartItemRequestDto request) {
 
-        var email = authentication.getName();
-        var cartDetail = cartService.addItemToCart(email, request);
+        var cartDetail = cartService.addItemToCart(principal.getCartId(), request);
         return ResponseEntity.ok(cartDetail);
     }
 
+    // カートのリビジョンをETagとして返し、If-None-Matchが一致する場合はカートの詳細を取得せずに304を返す
+    // リビジョンは詳細より先に読む（カートの変更時はリビジョンを加算したトランザクションのコミット前にストアを更新するため、
+    // 読み込んだリビジョンがコミット済みであれば、その後に取得する詳細がそれより古い内容になることはない）
     @GetMapping
-    public ResponseEntity<CartDetailDto> getCartDetail(Authentication authentication) {
-        var email = authentication.getName();
-        var cartDetail = cartService.getCartDetail(email);
-        return ResponseEntity.ok(cartDetail);
+    public ResponseEntity<CartDetailDto> getCartDetail(@AuthenticationPrincipal UserPrincipal principal,
+                                                       WebRequest webRequest) {
+        String eTag = "\"" + cartService.getCartRevision(principal.getCartId()) + "\"";
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        var cartDetail = cartService.getCartDetail(principal.getCartId());
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(cartDetail);
     }
 
     @PutMapping("/items/{cartItemId}")
-    public ResponseEntity<CartDetailDto> updateCartItem(Authentication authentication,
+    public ResponseEntity<CartDetailDto> updateCartItem(@AuthenticationPrincipal UserPrincipal principal,
                                                         @PathVariable Long cartItemId,
                                                         @Valid @RequestBody UpdateCartItemRequestDto request) {
-        var email = authentication.getName();
-        var cartDetail = cartService.updateCartItemQuantity(email, cartItemId, request);
+        var cartDetail = cartService.updateCartItemQuantity(principal.getCartId(), cartItemId, request);
         return ResponseEntity.ok(cartDetail);
     }
 
     @DeleteMapping("/items/{cartItemId}")
-    public ResponseEntity<Void> deleteCartItem(Authentication authentication,
+    public ResponseEntity<Void> deleteCartItem(@AuthenticationPrincipal UserPrincipal principal,
                                                @PathVariable Long cartItemId) {
-        var email = authentication.getName();
-        cartService.deleteItemFromCart(email, cartItemId);
+        cartService.deleteItemFromCart(principal.getCartId(), cartItemId);
         return ResponseEntity.noContent().build();
     }
+
+    // 追加・数量の変更・削除をまとめて1つのトランザクションで適用する（いずれかが失敗した場合は全て取り消す）
+    @PostMapping("/items/batch")
+    public ResponseEntity<CartDetailDto> applyCartOperations(@AuthenticationPrincipal UserPrincipal principal,
+                                                             @Valid @RequestBody CartBatchRequestDto request) {
+        var cartDetail = cartService.applyOperations(principal.getCartId(), request);
+        return ResponseEntity.ok(cartDetail);
+    }
     
 }
@@ -1,6 +1,7 @@
 package com.github.Atgsasakazh5.my_ec_site.controller;
 
 import com.github.Atgsasakazh5.my_ec_site.dto.CategoryDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.CursorPageResponseDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.PageResponseDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.ProductSummaryDto;
 import com.github.Atgsasakazh5.my_ec_site.service.CategoryService;
@@ -33,8 +34,21 @@ public class CategoryController {
     public ResponseEntity<PageResponseDto<ProductSummaryDto>> getProductsByCategoryId(
             @PathVariable int categoryId,
             @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "true") boolean includeTotal) {
+        PageResponseDto<ProductSummaryDto> products =
+                productService.searchProductsByCategory(categoryId, page, size, includeTotal);
+        return ResponseEntity.ok(products);
+    }
+
+    // カーソル方式のページネーション（深いページでもOFFSETによる読み飛ばしが発生しない）
+    @GetMapping("/{categoryId}/products/cursor")
+    public ResponseEntity<CursorPageResponseDto<ProductSummaryDto>> getProductsByCategoryIdAndCursor(
+            @PathVariable int categoryId,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size) {
-        PageResponseDto<ProductSummaryDto> products = productService.searchProductsByCategory(categoryId, page, size);
+        CursorPageResponseDto<ProductSummaryDto> products =
+                productService.searchProductsByCategoryAndCursor(categoryId, cursor, size);
         return ResponseEntity.ok(products);
     }
 
@@ -0,0 +1,76 @@
+package com.github.Atgsasakazh5.my_ec_site.controller;
+
+import com.github.Atgsasakazh5.my_ec_site.dto.AddCartItemRequestDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.CartBatchRequestDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.CartDetailDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.GuestCartDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.UpdateCartItemRequestDto;
+import com.github.Atgsasakazh5.my_ec_site.service.CartService;
+import com.github.Atgsasakazh5.my_ec_site.service.GuestCartService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * ログインしていないユーザーのカート（ゲストカート）
+ * <p>
+ * 作成時に返すトークンを{@value #TOKEN_HEADER}ヘッダーで送り、カートを識別する。
+ * カートの操作はユーザーのカートと同じだが、在庫は確保せず販売可能数と比較するのみ（匿名のクライアントが在庫を押さえられないようにする）。
+ * ログイン時にトークンを送るとユーザーのカートに統合され、その時点で在庫を確保する。
+ */
+@RestController
+@RequestMapping("/api/guest-cart")
+public class GuestCartController {
+
+    public static final String TOKEN_HEADER = "X-Guest-Cart-Token";
+
+    private final GuestCartService guestCartService;
+
+    private final CartService cartService;
+
+    public GuestCartController(GuestCartService guestCartService, CartService cartService) {
+        this.guestCartService = guestCartService;
+        this.cartService = cartService;
+    }
+
+    @PostMapping
+    public ResponseEntity<GuestCartDto> createGuestCart() {
+        return new ResponseEntity<>(guestCartService.createGuestCart(), HttpStatus.CREATED);
+    }
+
+    @GetMapping
+    public ResponseEntity<CartDetailDto> getCartDetail(@RequestHeader(TOKEN_HEADER) String token) {
+        var cartDetail = cartService.getCartDetail(guestCartService.resolveCartId(token));
+        return ResponseEntity.ok(cartDetail);
+    }
+
+    @PostMapping("/items")
+    public ResponseEntity<CartDetailDto> addCartItem(@RequestHeader(TOKEN_HEADER) String token,
+                                                     @Valid @RequestBody AddCartItemRequestDto request) {
+        var cartDetail = cartService.addItemToGuestCart(guestCartService.resolveCartId(token), request);
+        return ResponseEntity.ok(cartDetail);
+    }
+
+    @PutMapping("/items/{cartItemId}")
+    public ResponseEntity<CartDetailDto> updateCartItem(@RequestHeader(TOKEN_HEADER) String token,
+                                                        @PathVariable Long cartItemId,
+                                                        @Valid @RequestBody UpdateCartItemRequestDto request) {
+        var cartDetail = cartService.updateGuestCartItemQuantity(guestCartService.resolveCartId(token), cartItemId, request);
+        return ResponseEntity.ok(cartDetail);
+    }
+
+    @DeleteMapping("/items/{cartItemId}")
+    public ResponseEntity<Void> deleteCartItem(@RequestHeader(TOKEN_HEADER) String token,
+                                               @PathVariable Long cartItemId) {
+        cartService.deleteItemFromCart(guestCartService.resolveCartId(token), cartItemId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/items/batch")
+    public ResponseEntity<CartDetailDto> applyCartOperations(@RequestHeader(TOKEN_HEADER) String token,
+                                                             @Valid @RequestBody CartBatchRequestDto request) {
+        var cartDetail = cartService.applyGuestCartOperations(guestCartService.resolveCartId(token), request);
+        return ResponseEntity.ok(cartDetail);
+    }
+}
@@ -1,14 +1,20 @@
 package com.github.Atgsasakazh5.my_ec_site.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.github.Atgsasakazh5.my_ec_site.dto.*;
+import com.github.Atgsasakazh5.my_ec_site.entity.OrderStatus;
+import com.github.Atgsasakazh5.my_ec_site.security.UserPrincipal;
+import com.github.Atgsasakazh5.my_ec_site.service.IdempotencyService;
 import com.github.Atgsasakazh5.my_ec_site.service.OrderService;
 import com.github.Atgsasakazh5.my_ec_site.service.PaymentService;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -19,36 +25,57 @@ public class OrderController {
 
     private final PaymentService paymentService;
 
-    public OrderController(OrderService orderService, PaymentService paymentService) {
+    private final IdempotencyService idempotencyService;
+
+    public OrderController(OrderService orderService, PaymentService paymentService, IdempotencyService idempotencyService) {
         this.orderService = orderService;
         this.paymentService = paymentService;
+        this.idempotencyService = idempotencyService;
     }
 
+    // Idempotency-Keyを指定した場合、同じキーで再送されたリクエストには注文を作り直さずに最初の結果を返す
     @PostMapping
     public ResponseEntity<List<OrderDetailDto>> createOrder(
-            Authentication authentication,
+            @AuthenticationPrincipal UserPrincipal principal,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Valid @RequestBody CreateOrderRequestDto createOrderRequestDto) {
 
-        var email = authentication.getName();
-        List<OrderDetailDto> orderDetails = orderService.placeOrder(email, createOrderRequestDto);
+        List<OrderDetailDto> orderDetails = idempotencyKey == null
+                ? orderService.placeOrder(principal.getId(), principal.getCartId(), createOrderRequestDto)
+                : idempotencyService.execute(principal.getId(), idempotencyKey, createOrderRequestDto,
+                        new TypeReference<>() {
+                        },
+                        () -> orderService.placeOrder(principal.getId(), principal.getCartId(), createOrderRequestDto));
         return new ResponseEntity<>(orderDetails, HttpStatus.CREATED);
 
     }
 
     @GetMapping
     public ResponseEntity<List<OrderSummaryDto>> getOrderSummaries(
-            Authentication authentication) {
-        String email = authentication.getName();
-        List<OrderSummaryDto> orders = orderService.getOrderSummaries(email);
+            @AuthenticationPrincipal UserPrincipal principal) {
+        List<OrderSummaryDto> orders = orderService.getOrderSummaries(principal.getId());
+        return ResponseEntity.ok(orders);
+    }
+
+    // カーソル方式のページネーション。status・from・to(yyyy-MM-dd)で注文の状態・注文日を絞り込める
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageResponseDto<OrderSummaryDto>> getOrderSummariesByCursor(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        CursorPageResponseDto<OrderSummaryDto> orders =
+                orderService.getOrderSummariesByCursor(principal.getId(), status, from, to, cursor, size);
         return ResponseEntity.ok(orders);
     }
 
     @GetMapping("/{orderId}")
     public ResponseEntity<OrderDetailResponseDto> getOrderDetails(
-            Authentication authentication,
+            @AuthenticationPrincipal UserPrincipal principal,
             @PathVariable Long orderId) {
-        String email = authentication.getName();
-        var orderDetail = orderService.getOrderDetail(email, orderId);
+        var orderDetail = orderService.getOrderDetail(principal.getId(), orderId);
         return ResponseEntity.ok(orderDetail);
     }
 }
@@ -1,7 +1,9 @@
 package com.github.Atgsasakazh5.my_ec_site.controller;
 
+import com.github.Atgsasakazh5.my_ec_site.dto.CursorPageResponseDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.PageResponseDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.ProductDetailDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.ProductStockDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.ProductSummaryDto;
 import com.github.Atgsasakazh5.my_ec_site.service.ProductService;
 import org.springframework.http.ResponseEntity;
@@ -20,9 +22,20 @@ public class ProductController {
     @GetMapping
     public ResponseEntity<PageResponseDto<ProductSummaryDto>> getProductSummaries(
             @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "true") boolean includeTotal) {
+
+        PageResponseDto<ProductSummaryDto> productSummaries = productService.findAllPaginated(page, size, includeTotal);
+        return ResponseEntity.ok(productSummaries);
+    }
+
+    // カーソル方式のページネーション（深いページでもOFFSETによる読み飛ばしが発生しない）
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageResponseDto<ProductSummaryDto>> getProductSummariesByCursor(
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size) {
 
-        PageResponseDto<ProductSummaryDto> productSummaries = productService.findAllPaginated(page, size);
+        CursorPageResponseDto<ProductSummaryDto> productSummaries = productService.findAllByCursor(cursor, size);
         return ResponseEntity.ok(productSummaries);
     }
 
@@ -33,4 +46,13 @@ public class ProductController {
         ProductDetailDto productDetail = productService.getProductDetail(productId);
         return ResponseEntity.ok(productDetail);
     }
+
+    // 在庫数のみを返す（商品情報はキャッシュしておき、在庫数だけを頻繁に取得する用途）
+    @GetMapping("/{productId}/stock")
+    public ResponseEntity<ProductStockDto> getProductStock(
+            @PathVariable Long productId) {
+
+        ProductStockDto productStock = productService.getProductStock(productId);
+        return ResponseEntity.ok(productStock);
+    }
 }
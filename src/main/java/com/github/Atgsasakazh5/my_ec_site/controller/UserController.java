@@ -1,10 +1,14 @@
 package com.github.Atgsasakazh5.my_ec_site.controller;
 
 import com.github.Atgsasakazh5.my_ec_site.dto.UserDto;
+import com.github.Atgsasakazh5.my_ec_site.security.UserPrincipal;
+import com.github.Atgsasakazh5.my_ec_site.service.TokenRevocationService;
 import com.github.Atgsasakazh5.my_ec_site.service.UserService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -14,8 +18,11 @@ public class UserController {
 
     private final UserService userService;
 
-    public UserController(UserService userService) {
+    private final TokenRevocationService tokenRevocationService;
+
+    public UserController(UserService userService, TokenRevocationService tokenRevocationService) {
         this.userService = userService;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @GetMapping("/me")
@@ -25,4 +32,11 @@ public class UserController {
         UserDto userDto = userService.findByEmail(currentUserEmail);
         return ResponseEntity.ok(userDto);
     }
+
+    // 発行済みのトークンをすべて失効させる（全端末からログアウト）
+    @PostMapping("/me/logout-all")
+    public ResponseEntity<Void> logoutAll(@AuthenticationPrincipal UserPrincipal principal) {
+        tokenRevocationService.revokeAll(principal.getId());
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -0,0 +1,12 @@
+package com.github.Atgsasakazh5.my_ec_site.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record CartBatchRequestDto(
+        @NotEmpty @Size(max = 100) List<@Valid CartOperationDto> operations
+) {
+}
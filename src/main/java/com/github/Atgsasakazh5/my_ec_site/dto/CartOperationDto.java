@@ -0,0 +1,24 @@
+package com.github.Atgsasakazh5.my_ec_site.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * カートの一括操作の1件分
+ * <ul>
+ *     <li>ADD: skuIdの商品をquantity個追加する（カートにある場合は数量に加算）</li>
+ *     <li>UPDATE: cartItemIdの数量をquantityにする</li>
+ *     <li>REMOVE: cartItemIdを削除する</li>
+ * </ul>
+ */
+public record CartOperationDto(
+        @NotNull Type type,
+        @Positive Long skuId,
+        @Positive Long cartItemId,
+        @Positive Integer quantity
+) {
+
+    public enum Type {
+        ADD, UPDATE, REMOVE
+    }
+}
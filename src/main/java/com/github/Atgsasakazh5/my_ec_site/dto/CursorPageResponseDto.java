@@ -0,0 +1,15 @@
+package com.github.Atgsasakazh5.my_ec_site.dto;
+
+import java.util.List;
+
+/**
+ * カーソル(キーセット)方式のページネーションのレスポンス
+ * <p>
+ * nextCursorを次のリクエストのcursorに指定すると続きを取得できる。最後のページの場合はnull。
+ */
+public record CursorPageResponseDto<T>(
+        List<T> content,
+        int size,
+        String nextCursor
+) {
+}
@@ -0,0 +1,8 @@
+package com.github.Atgsasakazh5.my_ec_site.dto;
+
+// ゲストカートの作成結果。tokenは以降のリクエストとログイン時にX-Guest-Cart-Tokenヘッダーで送る
+public record GuestCartDto(
+        String token,
+        CartDetailDto cart
+) {
+}
@@ -0,0 +1,13 @@
+package com.github.Atgsasakazh5.my_ec_site.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record OrderPlacedEventDto(
+        Long orderId,
+        Long userId,
+        int totalPrice,
+        LocalDateTime orderedAt,
+        List<OrderDetailDto> orderDetails
+) {
+}
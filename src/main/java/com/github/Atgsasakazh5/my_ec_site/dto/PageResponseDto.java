@@ -6,11 +6,16 @@ public record PageResponseDto<T>(
         List<T> content,
         int page,
         int size,
-        int totalElements,
-        int totalPages
+        Integer totalElements, // 総件数を要求しなかった場合はnull
+        Integer totalPages
 ) {
     // 総ページ数を計算する
     public PageResponseDto(List<T> content, int page, int size, int totalElements) {
         this(content, page, size, totalElements, (int) Math.ceil((double) totalElements / size));
     }
+
+    // 総件数を含まないページ
+    public PageResponseDto(List<T> content, int page, int size) {
+        this(content, page, size, null, null);
+    }
 }
@@ -0,0 +1,7 @@
+package com.github.Atgsasakazh5.my_ec_site.dto;
+
+import java.util.List;
+
+public record ProductStockDto(Long productId,
+                              List<SkuStockDto> skus) {
+}
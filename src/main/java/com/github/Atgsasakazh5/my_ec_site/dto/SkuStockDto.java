@@ -0,0 +1,5 @@
+package com.github.Atgsasakazh5.my_ec_site.dto;
+
+public record SkuStockDto(Long skuId,
+                          Integer quantity) {
+}
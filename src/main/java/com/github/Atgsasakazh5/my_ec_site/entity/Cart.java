@@ -2,6 +2,8 @@ package com.github.Atgsasakazh5.my_ec_site.entity;
 
 import lombok.*;
 
+import java.time.LocalDateTime;
+
 @Getter
 @Setter
 @NoArgsConstructor
@@ -10,5 +12,10 @@ import lombok.*;
 @EqualsAndHashCode(of = "id")
 public class Cart {
     private Long id;
-    private Long userId; // 外部キー
+    private Long userId; // 外部キー（ゲストカートの場合はnull）
+    private LocalDateTime expiresAt; // ゲストカートの有効期限（ユーザーのカートの場合はnull）
+
+    public Cart(Long id, Long userId) {
+        this(id, userId, null);
+    }
 }
@@ -0,0 +1,25 @@
+package com.github.Atgsasakazh5.my_ec_site.entity;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString(exclude = "body")
+@EqualsAndHashCode(of = "id")
+public class EmailMessage {
+
+    private Long id;
+    private String recipient;
+    private String subject;
+    private String body;
+    private EmailMessageStatus status;
+    private int attempts; // 送信を試みた回数
+    private LocalDateTime nextAttemptAt; // 次に送信できる日時
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+}
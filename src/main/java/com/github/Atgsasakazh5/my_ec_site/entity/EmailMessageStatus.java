@@ -0,0 +1,17 @@
+package com.github.Atgsasakazh5.my_ec_site.entity;
+
+public enum EmailMessageStatus {
+    PENDING("送信待ち"),
+    SENT("送信済み"),
+    FAILED("送信失敗");
+
+    private final String description;
+
+    EmailMessageStatus(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
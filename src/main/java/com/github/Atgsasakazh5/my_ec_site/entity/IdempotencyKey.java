@@ -0,0 +1,37 @@
+package com.github.Atgsasakazh5.my_ec_site.entity;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode(of = "id")
+public class IdempotencyKey {
+
+    private Long id;
+    private Long userId; // 外部キー
+    private String idempotencyKey;
+    private String requestHash; // リクエストボディのSHA-256
+    private String responseBody; // 処理結果のJSON（処理中はnull）
+    private Long pendingOrderId; // 決済の結果を確認中の注文ID（請求された可能性がある場合のみ）
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+
+    public IdempotencyKey(Long id, Long userId, String idempotencyKey, String requestHash, String responseBody,
+                          LocalDateTime createdAt, LocalDateTime expiresAt) {
+        this(id, userId, idempotencyKey, requestHash, responseBody, null, createdAt, expiresAt);
+    }
+
+    public boolean isCompleted() {
+        return responseBody != null || pendingOrderId != null;
+    }
+
+    // 決済の結果を確認中のまま処理が終了した記録（再送されたリクエストで処理をやり直さない）
+    public boolean isPaymentPending() {
+        return pendingOrderId != null;
+    }
+}
@@ -15,5 +15,15 @@ public class Inventory {
     private Long id;
     private Long skuId; // 外部キー
     private Integer quantity;
+    private int reservedQuantity; // カートで一時確保されている数量
     private LocalDateTime updatedAt;
+
+    public Inventory(Long id, Long skuId, Integer quantity, LocalDateTime updatedAt) {
+        this(id, skuId, quantity, 0, updatedAt);
+    }
+
+    // 販売可能数（在庫数からカートで確保されている数量を差し引いた値。管理画面で在庫数を減らした場合も0未満にはしない）
+    public int getAvailableQuantity() {
+        return Math.max(quantity - reservedQuantity, 0);
+    }
 }
@@ -20,5 +20,10 @@ public class Order {
     private String postalCode;
     private String shippingName;
     private LocalDateTime orderedAt;
+    private String paymentIntentId; // Stripeの決済(PaymentIntent)のID（決済の結果の照合に使用する。作成前はnull）
 
+    public Order(Long id, Long userId, OrderStatus status, Integer totalPrice, String shippingAddress,
+                 String postalCode, String shippingName, LocalDateTime orderedAt) {
+        this(id, userId, status, totalPrice, shippingAddress, postalCode, shippingName, orderedAt, null);
+    }
 }
@@ -2,6 +2,7 @@ package com.github.Atgsasakazh5.my_ec_site.entity;
 
 public enum OrderStatus {
     PENDING("保留中"),
+    PAYMENT_REVIEW("決済確認中"),
     PAID("支払い済み"),
     SHIPPED("発送済み"),
     DELIVERED("配達済み"),
@@ -0,0 +1,25 @@
+package com.github.Atgsasakazh5.my_ec_site.entity;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode(of = "id")
+public class OutboxEvent {
+
+    private Long id;
+    private OutboxEventType eventType;
+    private Long aggregateId; // イベントの対象（注文IDなど）
+    private String payload; // イベントの内容（JSON）
+    private OutboxEventStatus status;
+    private int attempts; // 配信を試みた回数
+    private LocalDateTime nextAttemptAt; // 次に配信できる日時
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime processedAt;
+}
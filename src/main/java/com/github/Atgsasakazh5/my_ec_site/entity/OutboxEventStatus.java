@@ -0,0 +1,17 @@
+package com.github.Atgsasakazh5.my_ec_site.entity;
+
+public enum OutboxEventStatus {
+    PENDING("配信待ち"),
+    PROCESSED("配信済み"),
+    FAILED("配信失敗");
+
+    private final String description;
+
+    OutboxEventStatus(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.Atgsasakazh5.my_ec_site.entity;
+
+public enum OutboxEventType {
+    ORDER_PLACED("注文確定");
+
+    private final String description;
+
+    OutboxEventType(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.Atgsasakazh5.my_ec_site.entity;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode(of = "id")
+public class StockReservation {
+
+    private Long id;
+    private Long cartId; // 外部キー
+    private Long skuId; // 外部キー
+    private Integer quantity; // 確保している数量
+    private LocalDateTime expiresAt; // 確保の有効期限
+}
@@ -29,6 +29,8 @@ public class User {
 
     private boolean subscribingNewsletter;
 
+    private int tokenVersion;  // 発行済みJWTを失効させる際にインクリメントする
+
     private LocalDateTime createdAt;
 
     private LocalDateTime updatedAt;
@@ -2,6 +2,7 @@ package com.github.Atgsasakazh5.my_ec_site.exception;
 
 import com.github.Atgsasakazh5.my_ec_site.dto.ApiResponse;
 import com.stripe.exception.CardException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -65,4 +66,22 @@ public class GlobalExceptionHandler {
                 HttpStatus.BAD_REQUEST
         );
     }
+
+    // 請求されたかどうかがわからない決済は、注文を確認中として受け付けたことを返す（再注文による二重請求を避ける）
+    @ExceptionHandler(PaymentPendingException.class)
+    public ResponseEntity<ApiResponse> handlePaymentPendingException(PaymentPendingException e) {
+        return new ResponseEntity<>(
+                new ApiResponse(false, "決済の結果を確認しています。注文履歴で状況をご確認ください（注文ID: " + e.getOrderId() + "）"),
+                HttpStatus.ACCEPTED
+        );
+    }
+
+    // 再試行してもデッドロック・ロック待ちタイムアウトが解消しなかった場合は、時間をおいて再試行できるよう503を返す
+    @ExceptionHandler(PessimisticLockingFailureException.class)
+    public ResponseEntity<ApiResponse> handlePessimisticLockingFailureException(PessimisticLockingFailureException e) {
+        return new ResponseEntity<>(
+                new ApiResponse(false, "アクセスが集中しているため処理できませんでした。しばらくしてから再度お試しください"),
+                HttpStatus.SERVICE_UNAVAILABLE
+        );
+    }
 }
@@ -0,0 +1,12 @@
+package com.github.Atgsasakazh5.my_ec_site.exception;
+
+// 決済が拒否された（請求されていないことが確定している）場合の例外
+public class PaymentDeclinedException extends IllegalStateException {
+    public PaymentDeclinedException(String message) {
+        super(message);
+    }
+
+    public PaymentDeclinedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
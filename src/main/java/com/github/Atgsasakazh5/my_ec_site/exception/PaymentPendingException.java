@@ -0,0 +1,17 @@
+package com.github.Atgsasakazh5.my_ec_site.exception;
+
+// 決済の結果が確定していない（請求された可能性がある）場合の例外
+public class PaymentPendingException extends RuntimeException {
+
+    // 結果を確認中の注文のID
+    private final Long orderId;
+
+    public PaymentPendingException(String message, Long orderId, Throwable cause) {
+        super(message, cause);
+        this.orderId = orderId;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+}
@@ -2,6 +2,8 @@ package com.github.Atgsasakazh5.my_ec_site.repository;
 
 import com.github.Atgsasakazh5.my_ec_site.entity.Cart;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface CartDao {
@@ -11,4 +13,26 @@ public interface CartDao {
     Optional<Cart> findCartByUserId(Long userId);
 
     Optional<Cart> findCartByEmail(String email);
+
+    // カートのリビジョンを取得する（カートの内容を読まずに変更の有無を判定するため）
+    Optional<Long> findRevisionById(Long cartId);
+
+    // カートのリビジョンを1加算する
+    void incrementRevision(Long cartId);
+
+    // ゲストカートを作成する（トークンはハッシュ値のみを保存する）
+    Cart saveGuestCart(String tokenHash, LocalDateTime expiresAt);
+
+    // トークンのハッシュ値でゲストカートを取得する（有効期限は呼び出し側で判定する）
+    Optional<Cart> findGuestCartByTokenHash(String tokenHash);
+
+    // トークンのハッシュ値でゲストカートを、行ロックを取得して取得する
+    Optional<Cart> findGuestCartByTokenHashWithLock(String tokenHash);
+
+    void updateExpiresAt(Long cartId, LocalDateTime expiresAt);
+
+    // 有効期限が切れたゲストカートのIDを期限の古い順に最大limit件、行ロックを取得して取得する
+    List<Long> findExpiredGuestCartIdsWithLock(LocalDateTime now, int limit);
+
+    void deleteByIds(List<Long> ids);
 }
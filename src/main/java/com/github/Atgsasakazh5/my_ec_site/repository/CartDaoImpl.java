@@ -3,12 +3,16 @@ package com.github.Atgsasakazh5.my_ec_site.repository;
 import com.github.Atgsasakazh5.my_ec_site.entity.Cart;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -20,6 +24,9 @@ public class CartDaoImpl implements CartDao {
         this.jdbcTemplate = jdbcTemplate;
     }
 
+    private final RowMapper<Cart> guestCartRowMapper = (rs, rowNum) ->
+            new Cart(rs.getLong("id"), null, rs.getTimestamp("expires_at").toLocalDateTime());
+
     @Override
     public Cart saveCart(Long userId) {
 
@@ -59,4 +66,73 @@ public class CartDaoImpl implements CartDao {
             return Optional.empty();
         }
     }
+
+    @Override
+    public Optional<Long> findRevisionById(Long cartId) {
+        String sql = "SELECT revision FROM carts WHERE id = ?";
+        try {
+            return Optional.ofNullable(jdbcTemplate.queryForObject(sql, Long.class, cartId));
+        } catch (EmptyResultDataAccessException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void incrementRevision(Long cartId) {
+        String sql = "UPDATE carts SET revision = revision + 1 WHERE id = ?";
+        jdbcTemplate.update(sql, cartId);
+    }
+
+    @Override
+    public Cart saveGuestCart(String tokenHash, LocalDateTime expiresAt) {
+        String sql = "INSERT INTO carts (guest_token_hash, expires_at) VALUES (?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, tokenHash);
+            ps.setTimestamp(2, Timestamp.valueOf(expiresAt));
+            return ps;
+        }, keyHolder);
+
+        Long cartId = keyHolder.getKey().longValue();
+        return new Cart(cartId, null, expiresAt);
+    }
+
+    @Override
+    public Optional<Cart> findGuestCartByTokenHash(String tokenHash) {
+        String sql = "SELECT id, expires_at FROM carts WHERE guest_token_hash = ?";
+        return jdbcTemplate.query(sql, guestCartRowMapper, tokenHash).stream().findFirst();
+    }
+
+    @Override
+    public Optional<Cart> findGuestCartByTokenHashWithLock(String tokenHash) {
+        String sql = "SELECT id, expires_at FROM carts WHERE guest_token_hash = ? FOR UPDATE";
+        return jdbcTemplate.query(sql, guestCartRowMapper, tokenHash).stream().findFirst();
+    }
+
+    @Override
+    public void updateExpiresAt(Long cartId, LocalDateTime expiresAt) {
+        String sql = "UPDATE carts SET expires_at = ? WHERE id = ?";
+        jdbcTemplate.update(sql, Timestamp.valueOf(expiresAt), cartId);
+    }
+
+    @Override
+    public List<Long> findExpiredGuestCartIdsWithLock(LocalDateTime now, int limit) {
+        // ユーザーのカートはexpires_atがNULLのため対象にならない
+        String sql = "SELECT id FROM carts WHERE expires_at <= ? ORDER BY expires_at LIMIT ? FOR UPDATE";
+        return jdbcTemplate.queryForList(sql, Long.class, Timestamp.valueOf(now), limit);
+    }
+
+    @Override
+    public void deleteByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM carts WHERE id = ?";
+        List<Object[]> batchArgs = ids.stream()
+                .map(id -> new Object[]{id})
+                .toList();
+        jdbcTemplate.batchUpdate(sql, batchArgs);
+    }
 }
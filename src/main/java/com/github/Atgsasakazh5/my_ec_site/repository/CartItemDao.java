@@ -4,23 +4,42 @@ import com.github.Atgsasakazh5.my_ec_site.dto.CartItemDto;
 import com.github.Atgsasakazh5.my_ec_site.entity.CartItem;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface CartItemDao {
 
     CartItem save(CartItem cartItem);
 
+    // 複数のカートアイテムをまとめて追加する（生成されたIDは設定しない）
+    void saveAll(List<CartItem> cartItems);
+
     Optional<CartItem> findById(Long id);
 
     Optional<CartItem> findByCartIdAndSkuId(Long cartId, Long skuId);
 
+    // カート内の数量に加算する（カートにないSKUは追加する）。加算後の数量が販売可能数を超える場合、
+    // またはSKUの在庫レコードがない場合は何もせずfalseを返す
+    boolean addQuantity(Long cartId, Long skuId, int quantity);
+
     List<CartItem> findByCartId(Long cartId);
 
     void deleteById(Long id);
 
+    void deleteByIds(List<Long> ids);
+
     void deleteByCartId(Long cartId);
 
+    void deleteByCartIds(List<Long> cartIds);
+
     CartItem update(CartItem cartItem);
 
+    // カートアイテムIDごとに数量をまとめて更新する
+    void updateQuantities(Map<Long, Integer> quantitiesById);
+
     List<CartItemDto> findDetailedItemsByCartId(Long cartId);
+
+    // カートアイテム(ID・SKU ID・数量)に商品名・価格・在庫数を結合して返す（cart_itemsテーブルは参照しない）
+    // 順序はcartItemsの順。在庫情報のないSKUは含まない
+    List<CartItemDto> findDetailedItems(Long cartId, List<CartItem> cartItems);
 }
@@ -5,13 +5,18 @@ import com.github.Atgsasakazh5.my_ec_site.entity.CartItem;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Repository
@@ -19,8 +24,11 @@ public class CartItemDaoImpl implements CartItemDao {
 
     private final JdbcTemplate jdbcTemplate;
 
-    public CartItemDaoImpl(JdbcTemplate jdbcTemplate) {
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public CartItemDaoImpl(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
     }
 
     private final RowMapper<CartItem> cartItemRowMapper = (rs, rowNum) ->
@@ -44,6 +52,18 @@ public class CartItemDaoImpl implements CartItemDao {
         return cartItem;
     }
 
+    @Override
+    public void saveAll(List<CartItem> cartItems) {
+        if (cartItems == null || cartItems.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO cart_items (cart_id, sku_id, quantity) VALUES (?, ?, ?)";
+        List<Object[]> batchArgs = cartItems.stream()
+                .map(cartItem -> new Object[]{cartItem.getCartId(), cartItem.getSkuId(), cartItem.getQuantity()})
+                .toList();
+        jdbcTemplate.batchUpdate(sql, batchArgs);
+    }
+
     @Override
     public Optional<CartItem> findById(Long id) {
         String sql = "SELECT * FROM cart_items WHERE id = ?";
@@ -66,6 +86,24 @@ public class CartItemDaoImpl implements CartItemDao {
         }
     }
 
+    @Override
+    public boolean addQuantity(Long cartId, Long skuId, int quantity) {
+        // 在庫の検証と追加・加算を1文で行う。同じSKUを同時に追加しても一意制約(cart_id, sku_id)の違反にならない
+        // 販売可能数は、このカート自身が確保している数量を含めた値（findDetailedItemsByCartIdの在庫数と同じ）
+        String sql = """
+                INSERT INTO cart_items (cart_id, sku_id, quantity)
+                SELECT ?, i.sku_id, ?
+                FROM inventories i
+                WHERE i.sku_id = ?
+                  AND ? + COALESCE((SELECT ci.quantity FROM cart_items ci WHERE ci.cart_id = ? AND ci.sku_id = i.sku_id), 0)
+                      <= GREATEST(i.quantity - i.reserved_quantity, 0)
+                         + COALESCE((SELECT r.quantity FROM stock_reservations r WHERE r.cart_id = ? AND r.sku_id = i.sku_id), 0)
+                ON DUPLICATE KEY UPDATE cart_items.quantity = cart_items.quantity + ?
+                """;
+        // 加算する数量はVALUES()(MySQL 8.0.20以降で非推奨)ではなく、パラメータで渡す
+        return jdbcTemplate.update(sql, cartId, quantity, skuId, quantity, cartId, cartId, quantity) > 0;
+    }
+
     @Override
     public List<CartItem> findByCartId(Long cartId) {
         String sql = "SELECT * FROM cart_items WHERE cart_id = ?";
@@ -78,12 +116,36 @@ public class CartItemDaoImpl implements CartItemDao {
         jdbcTemplate.update(sql, id);
     }
 
+    @Override
+    public void deleteByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM cart_items WHERE id = ?";
+        List<Object[]> batchArgs = ids.stream()
+                .map(id -> new Object[]{id})
+                .toList();
+        jdbcTemplate.batchUpdate(sql, batchArgs);
+    }
+
     @Override
     public void deleteByCartId(Long cartId) {
         String sql = "DELETE FROM cart_items WHERE cart_id = ?";
         jdbcTemplate.update(sql, cartId);
     }
 
+    @Override
+    public void deleteByCartIds(List<Long> cartIds) {
+        if (cartIds == null || cartIds.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM cart_items WHERE cart_id = ?";
+        List<Object[]> batchArgs = cartIds.stream()
+                .map(cartId -> new Object[]{cartId})
+                .toList();
+        jdbcTemplate.batchUpdate(sql, batchArgs);
+    }
+
     @Override
     public CartItem update(CartItem cartItem) {
         String sql = "UPDATE cart_items SET quantity = ? WHERE id = ?";
@@ -91,9 +153,22 @@ public class CartItemDaoImpl implements CartItemDao {
         return cartItem;
     }
 
+    @Override
+    public void updateQuantities(Map<Long, Integer> quantitiesById) {
+        if (quantitiesById == null || quantitiesById.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE cart_items SET quantity = ? WHERE id = ?";
+        List<Object[]> batchArgs = quantitiesById.entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                .toList();
+        jdbcTemplate.batchUpdate(sql, batchArgs);
+    }
+
     @Override
     public List<CartItemDto> findDetailedItemsByCartId(Long cartId) {
         // inventoriesテーブルへのJOINを追加
+        // 在庫数は、このカート自身が確保している数量を含めた販売可能数（他のカートの確保分を差し引く）
         String sql = """
                 SELECT
                     ci.id AS cart_item_id,
@@ -104,7 +179,7 @@ public class CartItemDaoImpl implements CartItemDao {
                     s.color,
                     (p.price + s.extra_price) AS final_price,
                     ci.quantity,
-                    i.quantity AS stock_quantity
+                    GREATEST(i.quantity - i.reserved_quantity, 0) + COALESCE(r.quantity, 0) AS stock_quantity
                 FROM
                     cart_items ci
                 JOIN
@@ -113,6 +188,8 @@ public class CartItemDaoImpl implements CartItemDao {
                     products p ON s.product_id = p.id
                 JOIN
                     inventories i ON s.id = i.sku_id
+                LEFT JOIN
+                    stock_reservations r ON r.cart_id = ci.cart_id AND r.sku_id = ci.sku_id
                 WHERE
                     ci.cart_id = ?
                 """;
@@ -131,4 +208,60 @@ public class CartItemDaoImpl implements CartItemDao {
 
         return jdbcTemplate.query(sql, rowMapper, cartId);
     }
+
+    @Override
+    public List<CartItemDto> findDetailedItems(Long cartId, List<CartItem> cartItems) {
+        if (cartItems == null || cartItems.isEmpty()) {
+            return List.of();
+        }
+        // 在庫数はfindDetailedItemsByCartIdと同じく、このカート自身が確保している数量を含めた販売可能数
+        String sql = """
+                SELECT
+                    s.id AS sku_id,
+                    p.name AS product_name,
+                    p.image_url,
+                    s.size,
+                    s.color,
+                    (p.price + s.extra_price) AS final_price,
+                    GREATEST(i.quantity - i.reserved_quantity, 0) + COALESCE(r.quantity, 0) AS stock_quantity
+                FROM
+                    skus s
+                JOIN
+                    products p ON s.product_id = p.id
+                JOIN
+                    inventories i ON s.id = i.sku_id
+                LEFT JOIN
+                    stock_reservations r ON r.cart_id = :cartId AND r.sku_id = s.id
+                WHERE
+                    s.id IN (:skuIds)
+                """;
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cartId", cartId)
+                .addValue("skuIds", cartItems.stream().map(CartItem::getSkuId).distinct().toList());
+
+        // SKUごとの詳細をカートアイテムの数量と組み合わせる
+        Map<Long, CartItemDto> detailsBySkuId = new HashMap<>();
+        namedParameterJdbcTemplate.query(sql, params, rs -> {
+            detailsBySkuId.put(rs.getLong("sku_id"), new CartItemDto(
+                    null,
+                    rs.getString("product_name"),
+                    rs.getString("image_url"),
+                    rs.getLong("sku_id"),
+                    rs.getString("size"),
+                    rs.getString("color"),
+                    rs.getInt("final_price"),
+                    0,
+                    rs.getInt("stock_quantity")
+            ));
+        });
+        return cartItems.stream()
+                .map(cartItem -> {
+                    CartItemDto detail = detailsBySkuId.get(cartItem.getSkuId());
+                    return detail == null ? null : new CartItemDto(cartItem.getId(), detail.productName(),
+                            detail.imageUrl(), detail.skuId(), detail.size(), detail.color(), detail.price(),
+                            cartItem.getQuantity(), detail.stockQuantity());
+                })
+                .filter(Objects::nonNull)
+                .toList();
+    }
 }
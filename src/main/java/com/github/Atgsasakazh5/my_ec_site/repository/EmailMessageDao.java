@@ -0,0 +1,24 @@
+package com.github.Atgsasakazh5.my_ec_site.repository;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.EmailMessage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EmailMessageDao {
+
+    EmailMessage save(EmailMessage message);
+
+    // 送信できるメールを最大limit件取得し、leaseUntilまで他の送信処理が取得しないよう確保する
+    List<EmailMessage> claimSendable(LocalDateTime now, LocalDateTime leaseUntil, int limit);
+
+    void markSent(List<Long> ids, LocalDateTime sentAt);
+
+    // 送信に失敗したメールの試行回数・次回の送信日時・ステータスをまとめて更新する
+    void markFailed(List<EmailMessage> messages);
+
+    int countPending();
+
+    // 指定日時より前に送信済みになったメールを削除し、削除した件数を返す
+    int deleteSentBefore(LocalDateTime cutoff);
+}
@@ -0,0 +1,149 @@
+package com.github.Atgsasakazh5.my_ec_site.repository;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.EmailMessage;
+import com.github.Atgsasakazh5.my_ec_site.entity.EmailMessageStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class EmailMessageDaoImpl implements EmailMessageDao {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public EmailMessageDaoImpl(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    private final RowMapper<EmailMessage> emailMessageRowMapper = (rs, rowNum) -> {
+        Timestamp sentAt = rs.getTimestamp("sent_at");
+        return new EmailMessage(rs.getLong("id"),
+                rs.getString("recipient"),
+                rs.getString("subject"),
+                rs.getString("body"),
+                EmailMessageStatus.valueOf(rs.getString("status")),
+                rs.getInt("attempts"),
+                rs.getTimestamp("next_attempt_at").toLocalDateTime(),
+                rs.getString("last_error"),
+                rs.getTimestamp("created_at").toLocalDateTime(),
+                sentAt != null ? sentAt.toLocalDateTime() : null);
+    };
+
+    @Override
+    public EmailMessage save(EmailMessage message) {
+        String sql = "INSERT INTO email_messages (recipient, subject, body, status, attempts, next_attempt_at, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, message.getRecipient());
+            ps.setString(2, message.getSubject());
+            ps.setString(3, message.getBody());
+            ps.setString(4, message.getStatus().name());
+            ps.setInt(5, message.getAttempts());
+            ps.setTimestamp(6, Timestamp.valueOf(message.getNextAttemptAt()));
+            ps.setTimestamp(7, Timestamp.valueOf(message.getCreatedAt()));
+            return ps;
+        }, keyHolder);
+        message.setId(keyHolder.getKey().longValue());
+        return message;
+    }
+
+    @Override
+    public List<EmailMessage> claimSendable(LocalDateTime now, LocalDateTime leaseUntil, int limit) {
+        String selectSql = "SELECT * FROM email_messages WHERE status = ? AND next_attempt_at <= ? " +
+                "ORDER BY next_attempt_at, id LIMIT ?";
+        List<EmailMessage> candidates = jdbcTemplate.query(selectSql, emailMessageRowMapper,
+                EmailMessageStatus.PENDING.name(), Timestamp.valueOf(now), limit);
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        // 取得時と次回の送信日時が変わっていないメールだけを確保する（他のインスタンスが先に確保した場合は更新件数が0）
+        String claimSql = "UPDATE email_messages SET next_attempt_at = :leaseUntil " +
+                "WHERE id = :id AND status = :status AND next_attempt_at = :nextAttemptAt";
+        List<Map<String, Object>> batchValues = candidates.stream()
+                .map(message -> {
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("leaseUntil", Timestamp.valueOf(leaseUntil));
+                    map.put("id", message.getId());
+                    map.put("status", EmailMessageStatus.PENDING.name());
+                    map.put("nextAttemptAt", Timestamp.valueOf(message.getNextAttemptAt()));
+                    return map;
+                })
+                .toList();
+        int[] updateCounts = namedParameterJdbcTemplate.batchUpdate(claimSql, batchValues.toArray(new Map[0]));
+
+        List<EmailMessage> claimed = new ArrayList<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] > 0) {
+                EmailMessage message = candidates.get(i);
+                message.setNextAttemptAt(leaseUntil);
+                claimed.add(message);
+            }
+        }
+        return claimed;
+    }
+
+    @Override
+    public void markSent(List<Long> ids, LocalDateTime sentAt) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE email_messages SET status = :status, attempts = attempts + 1, sent_at = :sentAt " +
+                "WHERE id IN (:ids)";
+        Map<String, Object> params = new HashMap<>();
+        params.put("status", EmailMessageStatus.SENT.name());
+        params.put("sentAt", Timestamp.valueOf(sentAt));
+        params.put("ids", ids);
+        namedParameterJdbcTemplate.update(sql, params);
+    }
+
+    @Override
+    public void markFailed(List<EmailMessage> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE email_messages SET status = :status, attempts = :attempts, " +
+                "next_attempt_at = :nextAttemptAt, last_error = :lastError WHERE id = :id";
+        List<Map<String, Object>> batchValues = messages.stream()
+                .map(message -> {
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("status", message.getStatus().name());
+                    map.put("attempts", message.getAttempts());
+                    map.put("nextAttemptAt", Timestamp.valueOf(message.getNextAttemptAt()));
+                    map.put("lastError", message.getLastError());
+                    map.put("id", message.getId());
+                    return map;
+                })
+                .toList();
+        namedParameterJdbcTemplate.batchUpdate(sql, batchValues.toArray(new Map[0]));
+    }
+
+    @Override
+    public int countPending() {
+        String sql = "SELECT COUNT(*) FROM email_messages WHERE status = ?";
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, EmailMessageStatus.PENDING.name());
+        return count != null ? count : 0;
+    }
+
+    @Override
+    public int deleteSentBefore(LocalDateTime cutoff) {
+        String sql = "DELETE FROM email_messages WHERE status = ? AND sent_at < ?";
+        return jdbcTemplate.update(sql, EmailMessageStatus.SENT.name(), Timestamp.valueOf(cutoff));
+    }
+}
@@ -0,0 +1,23 @@
+package com.github.Atgsasakazh5.my_ec_site.repository;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.IdempotencyKey;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface IdempotencyKeyDao {
+
+    // 同じユーザー・キーの記録が既にある場合はDuplicateKeyExceptionをスローする
+    IdempotencyKey save(IdempotencyKey idempotencyKey);
+
+    Optional<IdempotencyKey> findByUserIdAndKey(Long userId, String idempotencyKey);
+
+    void updateResponseBody(Long id, String responseBody);
+
+    void updatePendingOrderId(Long id, Long pendingOrderId);
+
+    void deleteById(Long id);
+
+    // 有効期限が切れた記録を削除し、削除した件数を返す
+    int deleteExpired(LocalDateTime now);
+}
@@ -0,0 +1,87 @@
+package com.github.Atgsasakazh5.my_ec_site.repository;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.IdempotencyKey;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public class IdempotencyKeyDaoImpl implements IdempotencyKeyDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyDaoImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    private final RowMapper<IdempotencyKey> idempotencyKeyRowMapper = (rs, rowNum) ->
+            new IdempotencyKey(rs.getLong("id"),
+                    rs.getLong("user_id"),
+                    rs.getString("idempotency_key"),
+                    rs.getString("request_hash"),
+                    rs.getString("response_body"),
+                    rs.getObject("pending_order_id", Long.class),
+                    rs.getTimestamp("created_at").toLocalDateTime(),
+                    rs.getTimestamp("expires_at").toLocalDateTime());
+
+    @Override
+    public IdempotencyKey save(IdempotencyKey idempotencyKey) {
+        String sql = "INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash, created_at, expires_at) " +
+                "VALUES (?, ?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            ps.setLong(1, idempotencyKey.getUserId());
+            ps.setString(2, idempotencyKey.getIdempotencyKey());
+            ps.setString(3, idempotencyKey.getRequestHash());
+            ps.setTimestamp(4, Timestamp.valueOf(idempotencyKey.getCreatedAt()));
+            ps.setTimestamp(5, Timestamp.valueOf(idempotencyKey.getExpiresAt()));
+            return ps;
+        }, keyHolder);
+        idempotencyKey.setId(keyHolder.getKey().longValue());
+        return idempotencyKey;
+    }
+
+    @Override
+    public Optional<IdempotencyKey> findByUserIdAndKey(Long userId, String idempotencyKey) {
+        String sql = "SELECT * FROM idempotency_keys WHERE user_id = ? AND idempotency_key = ?";
+        try {
+            return Optional.ofNullable(jdbcTemplate.queryForObject(sql, idempotencyKeyRowMapper, userId, idempotencyKey));
+        } catch (EmptyResultDataAccessException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void updateResponseBody(Long id, String responseBody) {
+        String sql = "UPDATE idempotency_keys SET response_body = ? WHERE id = ?";
+        jdbcTemplate.update(sql, responseBody, id);
+    }
+
+    @Override
+    public void updatePendingOrderId(Long id, Long pendingOrderId) {
+        String sql = "UPDATE idempotency_keys SET pending_order_id = ? WHERE id = ?";
+        jdbcTemplate.update(sql, pendingOrderId, id);
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        String sql = "DELETE FROM idempotency_keys WHERE id = ?";
+        jdbcTemplate.update(sql, id);
+    }
+
+    @Override
+    public int deleteExpired(LocalDateTime now) {
+        String sql = "DELETE FROM idempotency_keys WHERE expires_at <= ?";
+        return jdbcTemplate.update(sql, Timestamp.valueOf(now));
+    }
+}
@@ -3,6 +3,7 @@ package com.github.Atgsasakazh5.my_ec_site.repository;
 import com.github.Atgsasakazh5.my_ec_site.entity.Inventory;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface InventoryDao {
@@ -24,5 +25,18 @@ public interface InventoryDao {
     // 複数のSKU IDに対応する在庫を一括で取得する
     List<Inventory> findBySkuIdIn(List<Long> skuIds);
 
+    // SKU ID順に行ロックを取得して在庫を取得する
     List<Inventory> findBySkuIdsWithLock(List<Long> skuIds);
+
+    // SKU IDごとに指定した数量を現在の在庫数に加算する（確保した在庫の解放に使用。負の値を指定した場合は差し引く）
+    void increaseQuantities(Map<Long, Integer> quantitiesBySkuId);
+
+    // SKU IDごとに指定した数量を在庫から差し引く（販売可能数が足りるSKUのみ）。在庫不足で差し引けなかったSKU IDを返す
+    List<Long> decreaseQuantities(Map<Long, Integer> quantitiesBySkuId);
+
+    // カートでの確保数を加算する（販売可能数が足りる場合のみ）。在庫不足(または在庫レコードなし)の場合はfalse
+    boolean reserveQuantity(Long skuId, int quantity);
+
+    // SKU IDごとに指定した数量をカートでの確保数から差し引く
+    void releaseReservedQuantities(Map<Long, Integer> quantitiesBySkuId);
 }
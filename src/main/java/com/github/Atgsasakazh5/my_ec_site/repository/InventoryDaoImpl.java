@@ -13,6 +13,8 @@ import java.sql.PreparedStatement;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +35,7 @@ public class InventoryDaoImpl implements InventoryDao {
             new Inventory(rs.getLong("id"),
                     rs.getLong("sku_id"),
                     rs.getInt("quantity"),
+                    rs.getInt("reserved_quantity"),
                     rs.getTimestamp("updated_at").toLocalDateTime());
 
     @Override
@@ -72,8 +75,9 @@ public class InventoryDaoImpl implements InventoryDao {
 
         String sql = "UPDATE inventories SET quantity = :quantity, updated_at = :updatedAt WHERE sku_id = :skuId";
 
-        // 各Inventoryオブジェクトを、SQLのパラメータ名にマッピングしたMapのリストに変換
+        // 各Inventoryオブジェクトを、SQLのパラメータ名にマッピングしたMapのリストに変換（ロックの取得順を揃えるためSKU ID順）
         List<Map<String, Object>> batchValues = inventories.stream()
+                .sorted(Comparator.comparing(Inventory::getSkuId))
                 .map(inventory -> {
                     Map<String, Object> map = new HashMap<>();
                     map.put("quantity", inventory.getQuantity());
@@ -142,10 +146,103 @@ public class InventoryDaoImpl implements InventoryDao {
             return List.of();
         }
 
-        String sql = "SELECT * FROM inventories WHERE sku_id IN (:skuIds) FOR UPDATE";
+        // 複数のトランザクションが同じ順序でロックを取得するよう、SKU ID順にロックする（デッドロック防止）
+        String sql = "SELECT * FROM inventories WHERE sku_id IN (:skuIds) ORDER BY sku_id FOR UPDATE";
 
-        Map<String, List<Long>> params = Map.of("skuIds", skuIds);
+        Map<String, List<Long>> params = Map.of("skuIds", skuIds.stream().sorted().distinct().toList());
 
         return namedParameterJdbcTemplate.query(sql, params, inventoryRowMapper);
     }
+
+    @Override
+    public void increaseQuantities(Map<Long, Integer> quantitiesBySkuId) {
+        if (quantitiesBySkuId == null || quantitiesBySkuId.isEmpty()) {
+            return;
+        }
+
+        // 読み込んだ値で上書きせず、現在の在庫数に加算する
+        String sql = "UPDATE inventories SET quantity = quantity + :quantity, updated_at = :updatedAt WHERE sku_id = :skuId";
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Map<String, Object>> batchValues = quantitiesBySkuId.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> {
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("quantity", entry.getValue());
+                    map.put("updatedAt", now);
+                    map.put("skuId", entry.getKey());
+                    return map;
+                })
+                .toList();
+
+        namedParameterJdbcTemplate.batchUpdate(sql, batchValues.toArray(new Map[0]));
+    }
+
+    @Override
+    public List<Long> decreaseQuantities(Map<Long, Integer> quantitiesBySkuId) {
+        if (quantitiesBySkuId == null || quantitiesBySkuId.isEmpty()) {
+            return List.of();
+        }
+
+        // 在庫数の確認と減算を1つのUPDATE文で行うため、事前に行ロックを取得する必要がない
+        // 他のカートで確保されている数量には手を付けない
+        String sql = "UPDATE inventories SET quantity = quantity - :quantity, updated_at = :updatedAt " +
+                "WHERE sku_id = :skuId AND quantity - reserved_quantity >= :quantity";
+
+        // 文ごとに行ロックを取得するため、SKU ID順に実行して他の注文とロックの取得順を揃える（デッドロック防止）
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> skuIds = quantitiesBySkuId.keySet().stream().sorted().toList();
+        List<Map<String, Object>> batchValues = skuIds.stream()
+                .map(skuId -> {
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("quantity", quantitiesBySkuId.get(skuId));
+                    map.put("updatedAt", now);
+                    map.put("skuId", skuId);
+                    return map;
+                })
+                .toList();
+
+        int[] updateCounts = namedParameterJdbcTemplate.batchUpdate(sql, batchValues.toArray(new Map[0]));
+
+        // sku_idは一意のため、差し引けた文の更新件数は必ず1になる。0は在庫不足(または在庫レコードなし)で条件に一致しなかったSKU。
+        // ドライバが件数を返さない場合(rewriteBatchedStatements=trueのSUCCESS_NO_INFOなど)も、差し引けたか確認できないため失敗として扱う
+        List<Long> failedSkuIds = new ArrayList<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] != 1) {
+                failedSkuIds.add(skuIds.get(i));
+            }
+        }
+        return failedSkuIds;
+    }
+
+    @Override
+    public boolean reserveQuantity(Long skuId, int quantity) {
+        // 販売可能数の確認と確保数の加算を1つのUPDATE文で行う
+        String sql = "UPDATE inventories SET reserved_quantity = reserved_quantity + ? " +
+                "WHERE sku_id = ? AND quantity - reserved_quantity >= ?";
+        return jdbcTemplate.update(sql, quantity, skuId, quantity) > 0;
+    }
+
+    @Override
+    public void releaseReservedQuantities(Map<Long, Integer> quantitiesBySkuId) {
+        if (quantitiesBySkuId == null || quantitiesBySkuId.isEmpty()) {
+            return;
+        }
+
+        // 集計値がずれていても確保数が負にならないようにする
+        String sql = "UPDATE inventories SET reserved_quantity = GREATEST(reserved_quantity - :quantity, 0) " +
+                "WHERE sku_id = :skuId";
+
+        List<Map<String, Object>> batchValues = quantitiesBySkuId.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> {
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("quantity", entry.getValue());
+                    map.put("skuId", entry.getKey());
+                    return map;
+                })
+                .toList();
+
+        namedParameterJdbcTemplate.batchUpdate(sql, batchValues.toArray(new Map[0]));
+    }
 }
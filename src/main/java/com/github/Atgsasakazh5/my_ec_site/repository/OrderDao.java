@@ -2,7 +2,9 @@ package com.github.Atgsasakazh5.my_ec_site.repository;
 
 import com.github.Atgsasakazh5.my_ec_site.dto.OrderSummaryDto;
 import com.github.Atgsasakazh5.my_ec_site.entity.Order;
+import com.github.Atgsasakazh5.my_ec_site.entity.OrderStatus;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,5 +18,19 @@ public interface OrderDao {
 
     Order updateOrder(Order order);
 
+    void updatePaymentIntentId(Long orderId, String paymentIntentId);
+
+    // ステータスがexpectedStatusesのいずれかの場合のみ更新する。更新した場合はtrue（同じ注文を二重に確定・取り消さないようにする）
+    boolean updateStatusIfIn(Long orderId, List<OrderStatus> expectedStatuses, OrderStatus newStatus);
+
+    // 決済の結果が確定していない(PENDING・PAYMENT_REVIEW)注文のうち、orderedBeforeより前の注文を古い順に最大limit件取得する
+    List<Order> findUnsettledOrders(LocalDateTime orderedBefore, int limit);
+
     List<OrderSummaryDto> findOrderSummariesByUserId(Long userId);
+
+    // ユーザーの注文を新しい順に最大limit件取得する。lastOrderedAt・lastSeenIdを指定した場合はその注文より後ろから取得する
+    // status・orderedFrom(以上)・orderedTo(未満)がnullの場合は絞り込まない
+    List<OrderSummaryDto> findOrderSummariesByCursor(Long userId, OrderStatus status,
+                                                     LocalDateTime orderedFrom, LocalDateTime orderedTo,
+                                                     LocalDateTime lastOrderedAt, Long lastSeenId, int limit);
 }
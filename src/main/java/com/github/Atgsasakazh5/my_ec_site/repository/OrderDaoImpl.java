@@ -14,6 +14,8 @@ import org.springframework.stereotype.Repository;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -31,6 +33,14 @@ public class OrderDaoImpl implements OrderDao {
         this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
     }
 
+    private final RowMapper<OrderSummaryDto> orderSummaryRowMapper = (rs, rowNum) ->
+            new OrderSummaryDto(
+                    rs.getLong("id"),
+                    rs.getTimestamp("ordered_at").toLocalDateTime(),
+                    rs.getInt("total_price"),
+                    OrderStatus.valueOf(rs.getString("status"))
+            );
+
     private final RowMapper<Order> orderRowMapper = (rs, rowNum) ->
             new Order(
                     rs.getLong("id"),
@@ -40,12 +50,14 @@ public class OrderDaoImpl implements OrderDao {
                     rs.getString("shipping_address"),
                     rs.getString("shipping_postal_code"),
                     rs.getString("shipping_name"),
-                    rs.getTimestamp("ordered_at").toLocalDateTime()
+                    rs.getTimestamp("ordered_at").toLocalDateTime(),
+                    rs.getString("payment_intent_id")
             );
 
     @Override
     public Order saveOrder(Order order) {
-        LocalDateTime now = LocalDateTime.now();
+        // 返却する値とDBに保存される値を一致させるため、秒未満を切り捨てる
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
         order.setOrderedAt(now);
         String sql = "INSERT INTO orders (user_id, status, total_price, shipping_address, shipping_postal_code, shipping_name, ordered_at) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?)";
@@ -68,10 +80,9 @@ public class OrderDaoImpl implements OrderDao {
         } else {
             throw new IllegalStateException("データベースから生成されたIDの取得に失敗しました。");
         }
-        Long generatedId = keyHolder.getKey().longValue();
 
-        return findOrderById(generatedId)
-                .orElseThrow(() -> new IllegalStateException("保存した注文の取得に失敗しました"));
+        // 保存した値はすべて手元にあるため、再取得せずに返す
+        return order;
     }
 
     @Override
@@ -113,6 +124,33 @@ public class OrderDaoImpl implements OrderDao {
         return order;
     }
 
+    @Override
+    public void updatePaymentIntentId(Long orderId, String paymentIntentId) {
+        String sql = "UPDATE orders SET payment_intent_id = ? WHERE id = ?";
+        jdbcTemplate.update(sql, paymentIntentId, orderId);
+    }
+
+    @Override
+    public boolean updateStatusIfIn(Long orderId, List<OrderStatus> expectedStatuses, OrderStatus newStatus) {
+        String sql = "UPDATE orders SET status = :newStatus WHERE id = :orderId AND status IN (:expectedStatuses)";
+        Map<String, Object> params = Map.of(
+                "newStatus", newStatus.name(),
+                "orderId", orderId,
+                "expectedStatuses", expectedStatuses.stream().map(OrderStatus::name).toList());
+        return namedParameterJdbcTemplate.update(sql, params) > 0;
+    }
+
+    @Override
+    public List<Order> findUnsettledOrders(LocalDateTime orderedBefore, int limit) {
+        String sql = "SELECT * FROM orders WHERE status IN (:statuses) AND ordered_at < :orderedBefore " +
+                "ORDER BY ordered_at, id LIMIT :limit";
+        Map<String, Object> params = Map.of(
+                "statuses", List.of(OrderStatus.PENDING.name(), OrderStatus.PAYMENT_REVIEW.name()),
+                "orderedBefore", Timestamp.valueOf(orderedBefore),
+                "limit", limit);
+        return namedParameterJdbcTemplate.query(sql, params, orderRowMapper);
+    }
+
     @Override
     public List<OrderSummaryDto> findOrderSummariesByUserId(Long userId) {
         String sql = """
@@ -131,13 +169,48 @@ public class OrderDaoImpl implements OrderDao {
 
         Map<String, Object> params = Map.of("userId", userId);
 
-        RowMapper<OrderSummaryDto> rowMapper = (rs, rowNum) -> new OrderSummaryDto(
-                rs.getLong("id"),
-                rs.getTimestamp("ordered_at").toLocalDateTime(),
-                rs.getInt("total_price"),
-                OrderStatus.valueOf(rs.getString("status"))
-        );
+        return namedParameterJdbcTemplate.query(sql, params, orderSummaryRowMapper);
+    }
+
+    @Override
+    public List<OrderSummaryDto> findOrderSummariesByCursor(Long userId, OrderStatus status,
+                                                            LocalDateTime orderedFrom, LocalDateTime orderedTo,
+                                                            LocalDateTime lastOrderedAt, Long lastSeenId, int limit) {
+        // 参照する列をすべて idx_orders_user_id_ordered_at_id_covering に含め、ordersの行を読まずにインデックスだけで返す
+        StringBuilder sql = new StringBuilder("""
+                SELECT
+                    o.id,
+                    o.ordered_at,
+                    o.total_price,
+                    o.status
+                FROM
+                    orders o
+                WHERE
+                    o.user_id = :userId
+                """);
+        Map<String, Object> params = new HashMap<>();
+        params.put("userId", userId);
+        if (status != null) {
+            sql.append("    AND o.status = :status\n");
+            params.put("status", status.name());
+        }
+        if (orderedFrom != null) {
+            sql.append("    AND o.ordered_at >= :orderedFrom\n");
+            params.put("orderedFrom", Timestamp.valueOf(orderedFrom));
+        }
+        if (orderedTo != null) {
+            sql.append("    AND o.ordered_at < :orderedTo\n");
+            params.put("orderedTo", Timestamp.valueOf(orderedTo));
+        }
+        if (lastSeenId != null) {
+            // OFFSETを使わず、前のページの最後の注文(注文日時, ID)より後ろだけをインデックスの範囲検索で読む
+            sql.append("    AND (o.ordered_at < :lastOrderedAt OR (o.ordered_at = :lastOrderedAt AND o.id < :lastSeenId))\n");
+            params.put("lastOrderedAt", Timestamp.valueOf(lastOrderedAt));
+            params.put("lastSeenId", lastSeenId);
+        }
+        sql.append("ORDER BY o.ordered_at DESC, o.id DESC LIMIT :limit");
+        params.put("limit", limit);
 
-        return namedParameterJdbcTemplate.query(sql, params, rowMapper);
+        return namedParameterJdbcTemplate.query(sql.toString(), params, orderSummaryRowMapper);
     }
 }
@@ -7,7 +7,8 @@ import java.util.List;
 
 public interface OrderDetailDao {
 
-    void save(List<OrderDetail> orderDetails);
+    // 注文明細をまとめて保存し、採番されたIDを設定して返す
+    List<OrderDetail> save(List<OrderDetail> orderDetails);
 
     List<OrderDetailDto> findByOrderId(Long orderId);
 }
@@ -3,7 +3,11 @@ package com.github.Atgsasakazh5.my_ec_site.repository;
 import com.github.Atgsasakazh5.my_ec_site.dto.OrderDetailDto;
 import com.github.Atgsasakazh5.my_ec_site.entity.OrderDetail;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 import java.util.HashMap;
@@ -25,22 +29,33 @@ public class OrderDetailDaoImpl implements OrderDetailDao {
                     rs.getInt("price_at_order"));
 
     @Override
-    public void save(List<OrderDetail> orderDetails) { // 戻り値をvoidに変更
+    public List<OrderDetail> save(List<OrderDetail> orderDetails) {
+        if (orderDetails == null || orderDetails.isEmpty()) {
+            return List.of();
+        }
+
         String sql = "INSERT INTO order_details (order_id, sku_id, quantity, price_at_order) " +
                 "VALUES (:orderId, :skuId, :quantity, :priceAtOrder)";
 
-        List<Map<String, Number>> batchValues = orderDetails.stream()
-                .map(detail -> {
-                    Map<String, Number> map = new HashMap<>();
-                    map.put("orderId", detail.getOrderId());
-                    map.put("skuId", detail.getSkuId());
-                    map.put("quantity", detail.getQuantity());
-                    map.put("priceAtOrder", detail.getPriceAtOrder());
-                    return map;
-                })
-                .toList();
+        SqlParameterSource[] batchValues = orderDetails.stream()
+                .map(detail -> new MapSqlParameterSource()
+                        .addValue("orderId", detail.getOrderId())
+                        .addValue("skuId", detail.getSkuId())
+                        .addValue("quantity", detail.getQuantity())
+                        .addValue("priceAtOrder", detail.getPriceAtOrder()))
+                .toArray(SqlParameterSource[]::new);
 
-        namedParameterJdbcTemplate.batchUpdate(sql, batchValues.toArray(new Map[0]));
+        // 採番されたIDはINSERTした順に返されるため、再取得せずにそのまま設定する
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        namedParameterJdbcTemplate.batchUpdate(sql, batchValues, keyHolder, new String[]{"id"});
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != orderDetails.size()) {
+            throw new IllegalStateException("データベースから生成されたIDの取得に失敗しました。");
+        }
+        for (int i = 0; i < orderDetails.size(); i++) {
+            orderDetails.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+        return orderDetails;
     }
 
     @Override
@@ -0,0 +1,24 @@
+package com.github.Atgsasakazh5.my_ec_site.repository;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEvent;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxEventDao {
+
+    OutboxEvent save(OutboxEvent event);
+
+    // 配信できるイベントを最大limit件取得し、leaseUntilまで他の配信処理が取得しないよう確保する
+    List<OutboxEvent> claimDispatchable(LocalDateTime now, LocalDateTime leaseUntil, int limit);
+
+    void markProcessed(List<Long> ids, LocalDateTime processedAt);
+
+    // 配信に失敗したイベントの試行回数・次回の配信日時・ステータスを更新する
+    void markFailed(OutboxEvent event);
+
+    int countPending();
+
+    // 指定日時より前に配信済みになったイベントを削除し、削除した件数を返す
+    int deleteProcessedBefore(LocalDateTime cutoff);
+}
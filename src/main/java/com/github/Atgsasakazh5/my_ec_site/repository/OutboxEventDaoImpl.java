@@ -0,0 +1,136 @@
+package com.github.Atgsasakazh5.my_ec_site.repository;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEvent;
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEventStatus;
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEventType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class OutboxEventDaoImpl implements OutboxEventDao {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public OutboxEventDaoImpl(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    private final RowMapper<OutboxEvent> outboxEventRowMapper = (rs, rowNum) -> {
+        Timestamp processedAt = rs.getTimestamp("processed_at");
+        return new OutboxEvent(rs.getLong("id"),
+                OutboxEventType.valueOf(rs.getString("event_type")),
+                rs.getLong("aggregate_id"),
+                rs.getString("payload"),
+                OutboxEventStatus.valueOf(rs.getString("status")),
+                rs.getInt("attempts"),
+                rs.getTimestamp("next_attempt_at").toLocalDateTime(),
+                rs.getString("last_error"),
+                rs.getTimestamp("created_at").toLocalDateTime(),
+                processedAt != null ? processedAt.toLocalDateTime() : null);
+    };
+
+    @Override
+    public OutboxEvent save(OutboxEvent event) {
+        String sql = "INSERT INTO outbox_events (event_type, aggregate_id, payload, status, attempts, next_attempt_at, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, event.getEventType().name());
+            ps.setLong(2, event.getAggregateId());
+            ps.setString(3, event.getPayload());
+            ps.setString(4, event.getStatus().name());
+            ps.setInt(5, event.getAttempts());
+            ps.setTimestamp(6, Timestamp.valueOf(event.getNextAttemptAt()));
+            ps.setTimestamp(7, Timestamp.valueOf(event.getCreatedAt()));
+            return ps;
+        }, keyHolder);
+        event.setId(keyHolder.getKey().longValue());
+        return event;
+    }
+
+    @Override
+    public List<OutboxEvent> claimDispatchable(LocalDateTime now, LocalDateTime leaseUntil, int limit) {
+        String selectSql = "SELECT * FROM outbox_events WHERE status = ? AND next_attempt_at <= ? " +
+                "ORDER BY next_attempt_at, id LIMIT ?";
+        List<OutboxEvent> candidates = jdbcTemplate.query(selectSql, outboxEventRowMapper,
+                OutboxEventStatus.PENDING.name(), Timestamp.valueOf(now), limit);
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        // 次回の配信日時をリース期限まで進めて確保する。他のインスタンスが先に確保したイベントは更新件数が0になる
+        String claimSql = "UPDATE outbox_events SET next_attempt_at = :leaseUntil " +
+                "WHERE id = :id AND status = :status AND next_attempt_at = :nextAttemptAt";
+        List<Map<String, Object>> batchValues = candidates.stream()
+                .map(event -> {
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("leaseUntil", Timestamp.valueOf(leaseUntil));
+                    map.put("id", event.getId());
+                    map.put("status", OutboxEventStatus.PENDING.name());
+                    map.put("nextAttemptAt", Timestamp.valueOf(event.getNextAttemptAt()));
+                    return map;
+                })
+                .toList();
+        int[] updateCounts = namedParameterJdbcTemplate.batchUpdate(claimSql, batchValues.toArray(new Map[0]));
+
+        List<OutboxEvent> claimed = new ArrayList<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] > 0) {
+                OutboxEvent event = candidates.get(i);
+                event.setNextAttemptAt(leaseUntil);
+                claimed.add(event);
+            }
+        }
+        return claimed;
+    }
+
+    @Override
+    public void markProcessed(List<Long> ids, LocalDateTime processedAt) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE outbox_events SET status = :status, attempts = attempts + 1, processed_at = :processedAt " +
+                "WHERE id IN (:ids)";
+        Map<String, Object> params = new HashMap<>();
+        params.put("status", OutboxEventStatus.PROCESSED.name());
+        params.put("processedAt", Timestamp.valueOf(processedAt));
+        params.put("ids", ids);
+        namedParameterJdbcTemplate.update(sql, params);
+    }
+
+    @Override
+    public void markFailed(OutboxEvent event) {
+        String sql = "UPDATE outbox_events SET status = ?, attempts = ?, next_attempt_at = ?, last_error = ? WHERE id = ?";
+        jdbcTemplate.update(sql, event.getStatus().name(), event.getAttempts(),
+                Timestamp.valueOf(event.getNextAttemptAt()), event.getLastError(), event.getId());
+    }
+
+    @Override
+    public int countPending() {
+        String sql = "SELECT COUNT(*) FROM outbox_events WHERE status = ?";
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, OutboxEventStatus.PENDING.name());
+        return count != null ? count : 0;
+    }
+
+    @Override
+    public int deleteProcessedBefore(LocalDateTime cutoff) {
+        String sql = "DELETE FROM outbox_events WHERE status = ? AND processed_at < ?";
+        return jdbcTemplate.update(sql, OutboxEventStatus.PROCESSED.name(), Timestamp.valueOf(cutoff));
+    }
+}
@@ -3,6 +3,7 @@ package com.github.Atgsasakazh5.my_ec_site.repository;
 import com.github.Atgsasakazh5.my_ec_site.entity.Product;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface ProductDao {
@@ -25,4 +26,12 @@ public interface ProductDao {
 
     int countByCategoryId(int categoryId);
 
+    // カテゴリID → 商品数（商品が存在しないカテゴリは含まない）
+    Map<Integer, Integer> countGroupByCategoryId();
+
+    // lastSeenIdより小さいIDの商品をID降順で取得する（lastSeenIdがnullの場合は先頭から）
+    List<Product> findAllByCursor(Long lastSeenId, int limit);
+
+    List<Product> findByCategoryIdAndCursor(int categoryId, Long lastSeenId, int limit);
+
 }
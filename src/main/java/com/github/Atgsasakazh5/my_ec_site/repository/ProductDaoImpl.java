@@ -12,7 +12,9 @@ import java.sql.PreparedStatement;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
@@ -123,4 +125,35 @@ public class ProductDaoImpl implements ProductDao {
         Integer count = jdbcTemplate.queryForObject(sql, Integer.class, categoryId);
         return (count != null) ? count : 0;
     }
+
+    @Override
+    public Map<Integer, Integer> countGroupByCategoryId() {
+        String sql = "SELECT category_id, COUNT(*) AS product_count FROM products GROUP BY category_id";
+        Map<Integer, Integer> counts = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            counts.put(rs.getInt("category_id"), rs.getInt("product_count"));
+        });
+        return counts;
+    }
+
+    @Override
+    public List<Product> findAllByCursor(Long lastSeenId, int limit) {
+        // OFFSETを使わず、主キーの範囲検索で読み飛ばしを発生させない
+        if (lastSeenId == null) {
+            String sql = "SELECT * FROM products ORDER BY id DESC LIMIT ?";
+            return jdbcTemplate.query(sql, productRowMapper, limit);
+        }
+        String sql = "SELECT * FROM products WHERE id < ? ORDER BY id DESC LIMIT ?";
+        return jdbcTemplate.query(sql, productRowMapper, lastSeenId, limit);
+    }
+
+    @Override
+    public List<Product> findByCategoryIdAndCursor(int categoryId, Long lastSeenId, int limit) {
+        if (lastSeenId == null) {
+            String sql = "SELECT * FROM products WHERE category_id = ? ORDER BY id DESC LIMIT ?";
+            return jdbcTemplate.query(sql, productRowMapper, categoryId, limit);
+        }
+        String sql = "SELECT * FROM products WHERE category_id = ? AND id < ? ORDER BY id DESC LIMIT ?";
+        return jdbcTemplate.query(sql, productRowMapper, categoryId, lastSeenId, limit);
+    }
 }
@@ -0,0 +1,28 @@
+package com.github.Atgsasakazh5.my_ec_site.repository;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.StockReservation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface StockReservationDao {
+
+    StockReservation save(StockReservation reservation);
+
+    StockReservation update(StockReservation reservation);
+
+    // カートとSKUの組み合わせの確保を、行ロックを取得して取得する
+    Optional<StockReservation> findByCartIdAndSkuIdWithLock(Long cartId, Long skuId);
+
+    // カートの確保をすべて、行ロックを取得して取得する
+    List<StockReservation> findByCartIdWithLock(Long cartId);
+
+    // 複数のカートの確保をすべて、行ロックを取得して取得する
+    List<StockReservation> findByCartIdsWithLock(List<Long> cartIds);
+
+    // 有効期限が切れた確保を期限の古い順に最大limit件、行ロックを取得して取得する
+    List<StockReservation> findExpiredWithLock(LocalDateTime now, int limit);
+
+    void deleteByIds(List<Long> ids);
+}
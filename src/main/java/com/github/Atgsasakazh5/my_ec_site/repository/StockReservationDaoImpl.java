@@ -0,0 +1,100 @@
+package com.github.Atgsasakazh5.my_ec_site.repository;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.StockReservation;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+public class StockReservationDaoImpl implements StockReservationDao {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public StockReservationDaoImpl(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    private final RowMapper<StockReservation> reservationRowMapper = (rs, rowNum) ->
+            new StockReservation(rs.getLong("id"),
+                    rs.getLong("cart_id"),
+                    rs.getLong("sku_id"),
+                    rs.getInt("quantity"),
+                    rs.getTimestamp("expires_at").toLocalDateTime());
+
+    @Override
+    public StockReservation save(StockReservation reservation) {
+        String sql = "INSERT INTO stock_reservations (cart_id, sku_id, quantity, expires_at) VALUES (?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            ps.setLong(1, reservation.getCartId());
+            ps.setLong(2, reservation.getSkuId());
+            ps.setInt(3, reservation.getQuantity());
+            ps.setTimestamp(4, Timestamp.valueOf(reservation.getExpiresAt()));
+            return ps;
+        }, keyHolder);
+        reservation.setId(keyHolder.getKey().longValue());
+        return reservation;
+    }
+
+    @Override
+    public StockReservation update(StockReservation reservation) {
+        String sql = "UPDATE stock_reservations SET quantity = ?, expires_at = ? WHERE id = ?";
+        jdbcTemplate.update(sql, reservation.getQuantity(), Timestamp.valueOf(reservation.getExpiresAt()), reservation.getId());
+        return reservation;
+    }
+
+    @Override
+    public Optional<StockReservation> findByCartIdAndSkuIdWithLock(Long cartId, Long skuId) {
+        String sql = "SELECT * FROM stock_reservations WHERE cart_id = ? AND sku_id = ? FOR UPDATE";
+        try {
+            return Optional.ofNullable(jdbcTemplate.queryForObject(sql, reservationRowMapper, cartId, skuId));
+        } catch (EmptyResultDataAccessException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public List<StockReservation> findByCartIdWithLock(Long cartId) {
+        String sql = "SELECT * FROM stock_reservations WHERE cart_id = ? ORDER BY sku_id FOR UPDATE";
+        return jdbcTemplate.query(sql, reservationRowMapper, cartId);
+    }
+
+    @Override
+    public List<StockReservation> findByCartIdsWithLock(List<Long> cartIds) {
+        if (cartIds == null || cartIds.isEmpty()) {
+            return List.of();
+        }
+        String sql = "SELECT * FROM stock_reservations WHERE cart_id IN (:cartIds) ORDER BY cart_id, sku_id FOR UPDATE";
+        return namedParameterJdbcTemplate.query(sql, Map.of("cartIds", cartIds), reservationRowMapper);
+    }
+
+    @Override
+    public List<StockReservation> findExpiredWithLock(LocalDateTime now, int limit) {
+        String sql = "SELECT * FROM stock_reservations WHERE expires_at <= ? ORDER BY expires_at LIMIT ? FOR UPDATE";
+        return jdbcTemplate.query(sql, reservationRowMapper, Timestamp.valueOf(now), limit);
+    }
+
+    @Override
+    public void deleteByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM stock_reservations WHERE id IN (:ids)";
+        namedParameterJdbcTemplate.update(sql, Map.of("ids", ids));
+    }
+}
@@ -3,6 +3,7 @@ package com.github.Atgsasakazh5.my_ec_site.repository;
 import com.github.Atgsasakazh5.my_ec_site.entity.Role;
 import com.github.Atgsasakazh5.my_ec_site.entity.User;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -15,9 +16,17 @@ public interface UserDao {
 
     Optional<User> findById(Long id);
 
+    List<User> findByIdIn(List<Long> ids);
+
     boolean existsByEmail(String email);
 
     User save(User user);
 
     void update(User user);
+
+    Optional<Integer> findTokenVersionById(Long id);
+
+    Optional<String> findEmailById(Long id);
+
+    void incrementTokenVersion(Long id);
 }
@@ -3,26 +3,39 @@ package com.github.Atgsasakazh5.my_ec_site.repository;
 import com.github.Atgsasakazh5.my_ec_site.entity.Role;
 import com.github.Atgsasakazh5.my_ec_site.entity.RoleName;
 import com.github.Atgsasakazh5.my_ec_site.entity.User;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
 @Repository
 public class UserRepository implements UserDao {
 
+    // ユーザーとロールを1回のクエリで取得するためのSELECT句（ロールを持たないユーザーも取得できるようLEFT JOINする）
+    private static final String SELECT_USER_WITH_ROLES = "SELECT u.*, r.id AS role_id, r.name AS role_name FROM users u " +
+            "LEFT JOIN user_roles ur ON u.id = ur.user_id " +
+            "LEFT JOIN roles r ON ur.role_id = r.id ";
+
     private final JdbcTemplate jdbcTemplate;
 
-    public UserRepository(JdbcTemplate jdbcTemplate) {
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public UserRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
     }
 
     // 再利用可能なRowMapperを定義
@@ -35,12 +48,31 @@ public class UserRepository implements UserDao {
         user.setAddress(rs.getString("address"));
         user.setEmailVerified(rs.getBoolean("email_verified"));
         user.setSubscribingNewsletter(rs.getBoolean("subscribing_newsletter"));
+        user.setTokenVersion(rs.getInt("token_version"));
         user.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
         user.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
-        // rolesは別途取得する必要がある
+        // rolesはusersWithRolesExtractorで集約してセットする
         return user;
     };
 
+    // JOINの結果（ユーザー×ロールの行）をユーザーごとに集約し、ロールをセットする
+    private final ResultSetExtractor<List<User>> usersWithRolesExtractor = rs -> {
+        Map<Long, User> users = new LinkedHashMap<>();
+        while (rs.next()) {
+            long userId = rs.getLong("id");
+            User user = users.get(userId);
+            if (user == null) {
+                user = userRowMapper.mapRow(rs, users.size());
+                users.put(userId, user);
+            }
+            String roleName = rs.getString("role_name");
+            if (roleName != null) {
+                user.getRoles().add(new Role(rs.getInt("role_id"), RoleName.valueOf(roleName)));
+            }
+        }
+        return new ArrayList<>(users.values());
+    };
+
     @Override
     public Set<Role> findRolesByUserId(Long userId) {
         String sql = "SELECT r.id, r.name FROM roles r " +
@@ -57,31 +89,16 @@ public class UserRepository implements UserDao {
 
     @Override
     public Optional<User> findByName(String name) {
-        String sql = "SELECT * FROM users WHERE name = ?";
-        try {
-            User user = jdbcTemplate.queryForObject(sql, userRowMapper, name);
-            if (user != null) {
-                user.setRoles(findRolesByUserId(user.getId()));
-            }
-            return Optional.ofNullable(user);
-        } catch (EmptyResultDataAccessException e) {
-            return Optional.empty();
-        }
+        String sql = SELECT_USER_WITH_ROLES + "WHERE u.name = ?";
+        List<User> users = jdbcTemplate.query(sql, usersWithRolesExtractor, name);
+        return users == null ? Optional.empty() : users.stream().findFirst();
     }
 
     @Override
     public Optional<User> findByEmail(String email) {
-        String sql = "SELECT * FROM users WHERE email = ?";
-        try {
-            User user = jdbcTemplate.queryForObject(sql, userRowMapper, email);
-            if (user != null) {
-                // ユーザーが見つかったら、ロール情報を取得してセットする
-                user.setRoles(findRolesByUserId(user.getId()));
-            }
-            return Optional.ofNullable(user);
-        } catch (EmptyResultDataAccessException e) {
-            return Optional.empty();
-        }
+        String sql = SELECT_USER_WITH_ROLES + "WHERE u.email = ?";
+        List<User> users = jdbcTemplate.query(sql, usersWithRolesExtractor, email);
+        return users == null ? Optional.empty() : users.stream().findFirst();
     }
 
     @Override
@@ -93,16 +110,20 @@ public class UserRepository implements UserDao {
 
     @Override
     public Optional<User> findById(Long id) {
-        String sql = "SELECT * FROM users WHERE id = ?";
-        try {
-            User user = jdbcTemplate.queryForObject(sql, userRowMapper, id);
-            if (user != null) {
-                user.setRoles(findRolesByUserId(user.getId()));
-            }
-            return Optional.ofNullable(user);
-        } catch (EmptyResultDataAccessException e) {
-            return Optional.empty();
+        String sql = SELECT_USER_WITH_ROLES + "WHERE u.id = ?";
+        List<User> users = jdbcTemplate.query(sql, usersWithRolesExtractor, id);
+        return users == null ? Optional.empty() : users.stream().findFirst();
+    }
+
+    @Override
+    public List<User> findByIdIn(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
         }
+        String sql = SELECT_USER_WITH_ROLES + "WHERE u.id IN (:ids)";
+        Map<String, List<Long>> params = Map.of("ids", ids);
+        List<User> users = namedParameterJdbcTemplate.query(sql, params, usersWithRolesExtractor);
+        return users == null ? List.of() : users;
     }
 
     @Override
@@ -141,4 +162,22 @@ public class UserRepository implements UserDao {
         jdbcTemplate.update(sql, user.getName(), user.getEmail(), user.getPassword(), user.getAddress(),
                 user.isEmailVerified(), user.isSubscribingNewsletter(), user.getId());
     }
-}
\ No newline at end of file
+
+    @Override
+    public Optional<Integer> findTokenVersionById(Long id) {
+        String sql = "SELECT token_version FROM users WHERE id = ?";
+        return jdbcTemplate.queryForList(sql, Integer.class, id).stream().findFirst();
+    }
+
+    @Override
+    public Optional<String> findEmailById(Long id) {
+        String sql = "SELECT email FROM users WHERE id = ?";
+        return jdbcTemplate.queryForList(sql, String.class, id).stream().findFirst();
+    }
+
+    @Override
+    public void incrementTokenVersion(Long id) {
+        String sql = "UPDATE users SET token_version = token_version + 1, updated_at = NOW() WHERE id = ?";
+        jdbcTemplate.update(sql, id);
+    }
+}
@@ -1,17 +1,21 @@
 package com.github.Atgsasakazh5.my_ec_site.security;
 
+import com.github.Atgsasakazh5.my_ec_site.service.TokenRevocationService;
 import com.github.Atgsasakazh5.my_ec_site.service.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.apache.tomcat.util.http.parser.Authorization;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
@@ -20,10 +24,20 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final UserDetailsServiceImpl userDetailsService;
 
+    private final TokenRevocationService tokenRevocationService;
 
-    public JwtAuthFilter(JwtProvider jwtProvider, UserDetailsServiceImpl userDetailsService) {
+    // trueの場合、トークンのClaimsだけで認証し、リクエストごとのユーザー検索を行わない
+    private final boolean claimsAuthentication;
+
+
+    public JwtAuthFilter(JwtProvider jwtProvider,
+                         UserDetailsServiceImpl userDetailsService,
+                         TokenRevocationService tokenRevocationService,
+                         @Value("${app.jwt.claims-authentication:false}") boolean claimsAuthentication) {
         this.jwtProvider = jwtProvider;
         this.userDetailsService = userDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.claimsAuthentication = claimsAuthentication;
     }
 
 
@@ -32,18 +46,47 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         String authorizationHeader = request.getHeader("Authorization");
 
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
             String jwtToken = authorizationHeader.substring(7);
-            if (jwtProvider.validateToken(jwtToken)) {
-                String username = jwtProvider.getUsernameFromToken(jwtToken);
-                if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    var userDetails = userDetailsService.loadUserByUsername(username);
-                    var authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
-                }
-            }
+            // 署名検証とClaimsの取得を一度の解析で行う
+            jwtProvider.parseClaims(jwtToken)
+                    .flatMap(this::resolvePrincipal)
+                    .ifPresent(userDetails -> {
+                        var authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                        SecurityContextHolder.getContext().setAuthentication(authentication);
+                    });
         }
 
         filterChain.doFilter(request, response);
     }
+
+    private Optional<UserDetails> resolvePrincipal(Claims claims) {
+        String username = claims.getSubject();
+        if (username == null) {
+            return Optional.empty();
+        }
+
+        // Claimsモード: ユーザーIDとロールを含むトークンはDBを参照せずに認証する（失効チェックはキャッシュ済み）
+        // ロールは発行時点のものを使うため、ロールを変更した場合はTokenRevocationService#revokeAllで
+        // 発行済みのトークンを失効させる（失効させない場合、変更はトークンの有効期限まで反映されない）
+        if (claimsAuthentication) {
+            Optional<UserPrincipal> principal = jwtProvider.toPrincipal(claims);
+            if (principal.isPresent()) {
+                return principal
+                        .filter(p -> tokenRevocationService.isCurrentVersion(p.getId(), p.getTokenVersion()))
+                        .map(UserDetails.class::cast);
+            }
+        }
+
+        var userDetails = userDetailsService.loadUserByUsername(username);
+
+        // トークンにバージョンが含まれる場合は、失効済みのトークンでないことを確認する
+        Integer tokenVersion = jwtProvider.getTokenVersion(claims);
+        if (tokenVersion != null && userDetails instanceof UserPrincipal principal
+                && principal.getTokenVersion() != tokenVersion) {
+            return Optional.empty();
+        }
+        return Optional.of(userDetails);
+    }
 }
@@ -1,58 +1,149 @@
 package com.github.Atgsasakazh5.my_ec_site.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 
 @Component
 public class JwtProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtProvider.class);
 
+    // Claimsモードの認証で使用するクレーム名
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_CART_ID = "cid";
+    static final String CLAIM_ROLES = "roles";
+    static final String CLAIM_TOKEN_VERSION = "ver";
+
     @Value("${app.jwtSecret}")
     private String jwtSecret;
 
     @Value("${app.jwtExpirationMs}")
     private int jwtExpirationMs;
 
+    // 検証済みトークンのキャッシュ（トークン → Claims）
+    private final Cache<String, Claims> verifiedTokenCache;
+
+    // 署名鍵とパーサーは起動時に一度だけ生成して使い回す
+    private SecretKey signingKey;
+
+    private JwtParser jwtParser;
+
+    public JwtProvider(Cache<String, Claims> verifiedTokenCache) {
+        this.verifiedTokenCache = verifiedTokenCache;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        this.jwtParser = Jwts.parser().verifyWith(signingKey).build();
+    }
+
     // トークンを発行
     public String generateToken(Authentication authentication) {
         UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
 
-        return Jwts.builder()
+        var builder = Jwts.builder()
                 .setSubject(userPrincipal.getUsername())
                 .setIssuedAt(now)
-                .setExpiration(expiryDate)
-                .signWith(key())
-                .compact();
+                .setExpiration(expiryDate);
+
+        // ユーザーID・カートID・ロール・トークンバージョンを埋め込み、リクエストごとのユーザー検索を不要にする
+        if (userPrincipal instanceof UserPrincipal principal) {
+            builder.claim(CLAIM_USER_ID, principal.getId())
+                    .claim(CLAIM_CART_ID, principal.getCartId())
+                    .claim(CLAIM_ROLES, principal.getAuthorities().stream()
+                            .map(GrantedAuthority::getAuthority)
+                            .toList())
+                    .claim(CLAIM_TOKEN_VERSION, principal.getTokenVersion());
+        }
+
+        return builder.signWith(signingKey).compact();
     }
 
-    // トークンからユーザー名を抽出するメソッド
+    /**
+     * 検証済みのClaimsからUserPrincipalを復元するメソッド
+     *
+     * @param claims 検証済みのClaims
+     * @return ユーザーID・ロール・トークンバージョンがすべて含まれる場合はUserPrincipal、それ以外は空のOptional
+     *         （カートIDはカートを持たないユーザーの場合は含まれないため任意）
+     */
+    public Optional<UserPrincipal> toPrincipal(Claims claims) {
+        Long userId = claims.get(CLAIM_USER_ID, Long.class);
+        Long cartId = claims.get(CLAIM_CART_ID, Long.class);
+        Integer tokenVersion = claims.get(CLAIM_TOKEN_VERSION, Integer.class);
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
+        if (claims.getSubject() == null || userId == null || tokenVersion == null || roles == null) {
+            return Optional.empty();
+        }
+
+        List<GrantedAuthority> authorities = roles.stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(String.valueOf(role)))
+                .toList();
+        return Optional.of(new UserPrincipal(userId, cartId, claims.getSubject(), null, tokenVersion, authorities));
+    }
+
+    // トークンに埋め込まれたバージョンを取得するメソッド（含まれない場合はnull）
+    public Integer getTokenVersion(Claims claims) {
+        return claims.get(CLAIM_TOKEN_VERSION, Integer.class);
+    }
+
+    // トークンからユーザー名を抽出するメソッド（無効なトークンの場合はnull）
     public String getUsernameFromToken(String token) {
-        return Jwts.parser().setSigningKey(key()).build()
-                .parseClaimsJws(token).getBody().getSubject();
+        return parseClaims(token).map(Claims::getSubject).orElse(null);
     }
 
     // トークンの有効性を検証するメソッド
     public boolean validateToken(String token) {
+        return parseClaims(token).isPresent();
+    }
+
+    /**
+     * トークンの署名と有効期限を一度だけ検証し、Claimsを返すメソッド
+     * <p>
+     * 検証に成功したトークンは有効期限までキャッシュされ、同じトークンでの再検証(HMAC計算)を省略する。
+     *
+     * @param token 検証するJWT
+     * @return 有効なトークンの場合はClaims、無効な場合は空のOptional
+     */
+    public Optional<Claims> parseClaims(String token) {
+        if (token == null || token.isBlank()) {
+            logger.error("JWT claims string is empty");
+            return Optional.empty();
+        }
+
+        Claims cached = verifiedTokenCache.getIfPresent(token);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
         try {
-            Jwts.parser().setSigningKey(key()).build().parseClaimsJws(token);
-            return true;
+            Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+            verifiedTokenCache.put(token, claims);
+            return Optional.of(claims);
         } catch (SignatureException e) {
             logger.error("Invalid JWT signature: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -64,10 +155,6 @@ public class JwtProvider {
         } catch (IllegalArgumentException e) {
             logger.error("JWT claims string is empty: {}", e.getMessage());
         }
-        return false;
-    }
-
-    private SecretKey key() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        return Optional.empty();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package com.github.Atgsasakazh5.my_ec_site.security;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 認証済みユーザーを表すプリンシパル
+ * <p>
+ * DBから読み込んだ場合もJWTのClaimsから復元した場合も、このクラスとしてAuthenticationに格納される。
+ * Claimsから復元した場合はパスワードを持たない(null)。
+ * コントローラーでは{@code @AuthenticationPrincipal}で受け取り、ユーザーIDやカートIDの再検索を省略する。
+ */
+@Getter
+@ToString
+@EqualsAndHashCode(of = "id")
+public class UserPrincipal implements UserDetails {
+
+    private final Long id;
+
+    // カートを持たないユーザー(管理者など)の場合はnull
+    private final Long cartId;
+
+    private final String email;
+
+    @ToString.Exclude   // ログにパスワードが出力されないようにする
+    private final String password;
+
+    // トークン失効判定に使用するバージョン
+    private final int tokenVersion;
+
+    private final List<GrantedAuthority> authorities;
+
+    public UserPrincipal(Long id, Long cartId, String email, String password, int tokenVersion,
+                         Collection<? extends GrantedAuthority> authorities) {
+        this.id = id;
+        this.cartId = cartId;
+        this.email = email;
+        this.password = password;
+        this.tokenVersion = tokenVersion;
+        this.authorities = List.copyOf(authorities);
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+}
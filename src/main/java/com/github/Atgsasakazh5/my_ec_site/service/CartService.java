@@ -1,15 +1,21 @@
 package com.github.Atgsasakazh5.my_ec_site.service;
 
 import com.github.Atgsasakazh5.my_ec_site.dto.AddCartItemRequestDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.CartBatchRequestDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.CartDetailDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.UpdateCartItemRequestDto;
 
 public interface CartService {
     CartDetailDto getCartDetail(Long cartId);
-    CartDetailDto getCartDetail(String email);
-    CartDetailDto addItemToCart(String email, AddCartItemRequestDto requestDto);
-    CartDetailDto updateCartItemQuantity(String email, Long cartItemId, UpdateCartItemRequestDto request);
-    void deleteItemFromCart(String email, Long cartItemId);
+    long getCartRevision(Long cartId);
+    CartDetailDto addItemToCart(Long cartId, AddCartItemRequestDto requestDto);
+    CartDetailDto updateCartItemQuantity(Long cartId, Long cartItemId, UpdateCartItemRequestDto request);
+    void deleteItemFromCart(Long cartId, Long cartItemId);
+    CartDetailDto applyOperations(Long cartId, CartBatchRequestDto request);
+    // ゲストカートの操作。在庫は確保せず、販売可能数と比較するのみ（匿名のクライアントが在庫を押さえられないようにする）
+    CartDetailDto addItemToGuestCart(Long cartId, AddCartItemRequestDto requestDto);
+    CartDetailDto updateGuestCartItemQuantity(Long cartId, Long cartItemId, UpdateCartItemRequestDto request);
+    CartDetailDto applyGuestCartOperations(Long cartId, CartBatchRequestDto request);
+    CartDetailDto mergeCart(Long sourceCartId, Long targetCartId);
     void deleteAllItems(Long cartId);
-    void validateCartInventory(String email);
 }
\ No newline at end of file
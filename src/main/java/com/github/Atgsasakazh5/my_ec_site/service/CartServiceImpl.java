@@ -1,13 +1,13 @@
 package com.github.Atgsasakazh5.my_ec_site.service;
 
 import com.github.Atgsasakazh5.my_ec_site.dto.AddCartItemRequestDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.CartBatchRequestDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.CartDetailDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.CartItemDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.CartOperationDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.UpdateCartItemRequestDto;
-import com.github.Atgsasakazh5.my_ec_site.entity.Cart;
 import com.github.Atgsasakazh5.my_ec_site.entity.CartItem;
 import com.github.Atgsasakazh5.my_ec_site.entity.Inventory;
-import com.github.Atgsasakazh5.my_ec_site.entity.Sku;
 import com.github.Atgsasakazh5.my_ec_site.exception.ResourceNotFoundException;
 import com.github.Atgsasakazh5.my_ec_site.repository.CartDao;
 import com.github.Atgsasakazh5.my_ec_site.repository.CartItemDao;
@@ -16,8 +16,11 @@ import com.github.Atgsasakazh5.my_ec_site.repository.SkuDao;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,180 +34,392 @@ public class CartServiceImpl implements CartService {
 
     private final InventoryDao inventoryDao;
 
-    public CartServiceImpl(CartDao cartDao, CartItemDao cartItemDao, SkuDao skuDao, InventoryDao inventoryDao) {
+    private final InventoryLedger inventoryLedger;
+
+    private final StockReservationService stockReservationService;
+
+    private final CartWriteBehind cartWriteBehind;
+
+    public CartServiceImpl(CartDao cartDao, CartItemDao cartItemDao, SkuDao skuDao, InventoryDao inventoryDao,
+                           InventoryLedger inventoryLedger, StockReservationService stockReservationService,
+                           CartWriteBehind cartWriteBehind) {
         this.cartDao = cartDao;
         this.cartItemDao = cartItemDao;
         this.skuDao = skuDao;
         this.inventoryDao = inventoryDao;
+        this.inventoryLedger = inventoryLedger;
+        this.stockReservationService = stockReservationService;
+        this.cartWriteBehind = cartWriteBehind;
     }
 
     @Override
-    @Transactional(readOnly = true)
     public CartDetailDto getCartDetail(Long cartId) {
-        // カートアイテムを取得
-        var cartItems = cartItemDao.findDetailedItemsByCartId(cartId);
-        if (cartItems.isEmpty()) {
-            return new CartDetailDto(cartId, List.of(), 0);
-        }
+        requireCart(cartId);
 
-        // 合計金額を計算
-        int totalPrice = cartItems.stream()
-                .mapToInt(item -> item.price() * item.quantity())
-                .sum();
-
-        return new CartDetailDto(cartId, cartItems, totalPrice);
+        // カートアイテムはカートストアから取得し（ストアにない場合のみDBから読み込む）、価格・在庫数はDBから結合する
+        return toCartDetail(cartId, cartWriteBehind.load(cartId));
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public CartDetailDto getCartDetail(String email) {
-        // メールアドレスからカートを取得
-        Cart cart = cartDao.findCartByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("カートが見つかりません: " + email));
+    public long getCartRevision(Long cartId) {
+        requireCart(cartId);
 
-        return getCartDetail(cart.getId());
+        // カートの行を主キーで1件読むのみ（カートアイテムの結合は行わない）
+        return cartDao.findRevisionById(cartId)
+                .orElseThrow(() -> new ResourceNotFoundException("カートが見つかりません"));
     }
 
     @Override
     @Transactional
-    public CartDetailDto addItemToCart(String email, AddCartItemRequestDto requestDto) {
-        // SKUの存在チェック
-        Sku sku = skuDao.findById(requestDto.skuId())
-                .orElseThrow(() -> new ResourceNotFoundException("存在しないSKUです: " + requestDto.skuId()));
-
-        // 在庫情報を取得
-        Inventory inventory = inventoryDao.findBySkuId(sku.getId())
-                .orElseThrow(() -> new ResourceNotFoundException("在庫情報が見つかりません: SKU ID " + sku.getId()));
-
-        // カートを取得
-        Cart cart = cartDao.findCartByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("カートが見つかりません: " + email));
-
-        // カート内の既存アイテムを探す
-        CartItem cartItem = cartItemDao.findByCartIdAndSkuId(cart.getId(), sku.getId())
-                .orElseGet(() -> {
-                    // 存在しない場合は、新しいCartItemを作成
-                    CartItem newItem = new CartItem();
-                    newItem.setCartId(cart.getId());
-                    newItem.setSkuId(sku.getId());
-                    newItem.setQuantity(0);
-                    return newItem;
-                });
-
-        int newQuantity = cartItem.getQuantity() + requestDto.quantity();
-
-        // 在庫チェック
-        if (inventory.getQuantity() < newQuantity) {
-            throw new IllegalStateException("在庫が不足しています。");
-        }
+    public CartDetailDto addItemToCart(Long cartId, AddCartItemRequestDto requestDto) {
+        return addItem(cartId, requestDto, true);
+    }
 
-        // 数量を更新
-        cartItem.setQuantity(newQuantity);
+    @Override
+    @Transactional
+    public CartDetailDto addItemToGuestCart(Long cartId, AddCartItemRequestDto requestDto) {
+        return addItem(cartId, requestDto, false);
+    }
 
-        // 新規か既存かでsave/updateを呼び分ける
-        if (cartItem.getId() == null) {
-            cartItemDao.save(cartItem);
-        } else {
-            cartItemDao.update(cartItem);
-        }
+    @Override
+    @Transactional
+    public CartDetailDto updateCartItemQuantity(Long cartId, Long cartItemId, UpdateCartItemRequestDto request) {
+        return updateQuantity(cartId, cartItemId, request, true);
+    }
 
-        // カート詳細を返す
-        return getCartDetail(cart.getId());
+    @Override
+    @Transactional
+    public CartDetailDto updateGuestCartItemQuantity(Long cartId, Long cartItemId, UpdateCartItemRequestDto request) {
+        return updateQuantity(cartId, cartItemId, request, false);
     }
 
     @Override
     @Transactional
-    public CartDetailDto updateCartItemQuantity(String email, Long cartItemId, UpdateCartItemRequestDto request) {
-        // メールアドレスからカートを取得
-        Cart cart = cartDao.findCartByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("カートが見つかりません: " + email));
-
-        // カートアイテムを取得
-        CartItem cartItem = cartItemDao.findById(cartItemId)
-                .orElseThrow(() -> new ResourceNotFoundException("カートアイテムが見つかりません: カートID " + cartItemId));
-
-        // カートが一致するか確認
-        if (!cartItem.getCartId().equals(cart.getId())) {
-            throw new SecurityException("他人のカートアイテムを操作する権限がありません。");
+    public CartDetailDto applyOperations(Long cartId, CartBatchRequestDto request) {
+        return applyOperations(cartId, request, true);
+    }
+
+    @Override
+    @Transactional
+    public CartDetailDto applyGuestCartOperations(Long cartId, CartBatchRequestDto request) {
+        return applyOperations(cartId, request, false);
+    }
+
+    // holdsStockがfalseの場合（ゲストカート）は在庫を確保せず、販売可能数と比較するのみ
+    private CartDetailDto addItem(Long cartId, AddCartItemRequestDto requestDto, boolean holdsStock) {
+        requireCart(cartId);
+        Long skuId = requestDto.skuId();
+
+        // DBの数量に加算するため、カートストアに未反映の変更があれば先に反映する
+        cartWriteBehind.flush(cartId);
+
+        // 販売可能数を超えない場合のみ、カート内の数量に加算する（カートにない場合は追加する）
+        if (!cartItemDao.addQuantity(cartId, skuId, requestDto.quantity())) {
+            // 追加できなかった場合のみ、原因を調べる
+            if (inventoryDao.findBySkuId(skuId).isPresent()) {
+                throw new IllegalStateException("在庫が不足しています。");
+            }
+            if (skuDao.findById(skuId).isEmpty()) {
+                throw new ResourceNotFoundException("存在しないSKUです: " + skuId);
+            }
+            throw new ResourceNotFoundException("在庫情報が見つかりません: SKU ID " + skuId);
+        }
+
+        // カート詳細を1回の結合で取得し、加算後の数量分の在庫を確保する
+        // 詳細の在庫数はこのカートの確保分を含むため、確保の前後で変わらない
+        List<CartItemDto> cartItems = cartItemDao.findDetailedItemsByCartId(cartId);
+        int newQuantity = cartItems.stream()
+                .filter(item -> item.skuId().equals(skuId))
+                .mapToInt(CartItemDto::quantity)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("カートに追加した商品が見つかりません: SKU ID " + skuId));
+        // ゲストカートは加算時の条件で販売可能数と比較済みのため、在庫台帳が無効であれば改めて比較しない
+        if (holdsStock || inventoryLedger.isEnabled()) {
+            holdStock(cartId, skuId, newQuantity, holdsStock);
         }
 
-        // 在庫情報を取得
-        Inventory inventory = inventoryDao.findBySkuId(cartItem.getSkuId())
-                .orElseThrow(() -> new ResourceNotFoundException("在庫情報が見つかりません: SKU ID " + cartItem.getSkuId()));
+        // 取得したカート詳細のカートアイテムをカートストアに保存し、そのまま返す（詳細を取得し直さない）
+        cartWriteBehind.save(cartId, cartItems.stream()
+                .map(item -> new CartItem(item.cartItemId(), cartId, item.skuId(), item.quantity()))
+                .toList());
+        return toCartDetailDto(cartId, cartItems);
+    }
+
+    private CartDetailDto updateQuantity(Long cartId, Long cartItemId, UpdateCartItemRequestDto request,
+                                         boolean holdsStock) {
+        requireCart(cartId);
+
+        // カートストアからカートアイテムを取得
+        List<CartItem> cartItems = cartWriteBehind.load(cartId);
+        CartItem cartItem = findCartItem(cartItems, cartItemId);
 
         // 要求数量を取得
         int requiredQty = request.quantity();
 
-        // 在庫チェック
-        if (inventory.getQuantity() < requiredQty) {
-            throw new IllegalStateException("在庫が不足しています。");
-        }
+        // 在庫チェックと確保
+        holdStock(cartId, cartItem.getSkuId(), requiredQty, holdsStock);
 
-        // 数量を更新
-        cartItem.setQuantity(requiredQty);
-        cartItemDao.update(cartItem);
+        // 数量の変更はこのカートアイテムのみをカートストアに保存し、DBへは後からまとめて反映する
+        // （カート全体を書き戻さないため、同じカートの他のカートアイテムへの同時の変更を上書きしない）
+        cartWriteBehind.stage(cartId, cartItemId, requiredQty);
 
         // カート詳細を返す
-        return getCartDetail(cart.getId());
+        List<CartItem> updatedItems = cartItems.stream()
+                .map(item -> item.getId().equals(cartItemId)
+                        ? new CartItem(item.getId(), item.getCartId(), item.getSkuId(), requiredQty)
+                        : item)
+                .toList();
+        return toCartDetail(cartId, updatedItems);
     }
 
     @Override
     @Transactional
-    public void deleteItemFromCart(String email, Long cartItemId) {
-        // メールアドレスからカートを取得
-        Cart cart = cartDao.findCartByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("カートが見つかりません: " + email));
-
-        // カートアイテムを取得
-        CartItem cartItem = cartItemDao.findById(cartItemId)
-                .orElseThrow(() -> new ResourceNotFoundException("カートアイテムが見つかりません: カートID " + cartItemId));
-
-        // カートが一致するか確認
-        if (!cartItem.getCartId().equals(cart.getId())) {
-            throw new SecurityException("他人のカートアイテムを操作する権限がありません。");
-        }
+    public void deleteItemFromCart(Long cartId, Long cartItemId) {
+        requireCart(cartId);
+
+        // カートストアからカートアイテムを取得
+        List<CartItem> cartItems = cartWriteBehind.load(cartId);
+        CartItem cartItem = findCartItem(cartItems, cartItemId);
 
-        // カートアイテムを削除
+        // カートアイテムを削除し、確保していた在庫を解放
         cartItemDao.deleteById(cartItemId);
+        stockReservationService.release(cartId, cartItem.getSkuId());
+
+        // カートストアからも取り除く
+        cartWriteBehind.save(cartId, cartItems.stream()
+                .filter(item -> !item.getId().equals(cartItemId))
+                .toList());
+    }
+
+    private CartDetailDto applyOperations(Long cartId, CartBatchRequestDto request, boolean holdsStock) {
+        requireCart(cartId);
+
+        // DBのカートに対して適用するため、カートストアに未反映の変更があれば先に反映する
+        cartWriteBehind.flush(cartId);
+
+        // 現在のカートアイテムに操作を順に適用し、SKUごとの最終的な数量を求める（0は削除）
+        List<CartItem> currentItems = cartItemDao.findByCartId(cartId);
+        Map<Long, CartItem> currentItemsById = currentItems.stream()
+                .collect(Collectors.toMap(CartItem::getId, item -> item));
+        Map<Long, CartItem> currentItemsBySkuId = currentItems.stream()
+                .collect(Collectors.toMap(CartItem::getSkuId, item -> item));
+        Map<Long, Integer> quantitiesBySkuId = new LinkedHashMap<>();
+        currentItems.forEach(item -> quantitiesBySkuId.put(item.getSkuId(), item.getQuantity()));
+
+        for (CartOperationDto operation : request.operations()) {
+            switch (operation.type()) {
+                case ADD -> quantitiesBySkuId.merge(required(operation.skuId(), "skuId"),
+                        required(operation.quantity(), "quantity"), Integer::sum);
+                case UPDATE -> quantitiesBySkuId.put(findCartItem(currentItemsById, operation).getSkuId(),
+                        required(operation.quantity(), "quantity"));
+                case REMOVE -> quantitiesBySkuId.put(findCartItem(currentItemsById, operation).getSkuId(), 0);
+            }
+        }
+
+        return applyQuantities(cartId, currentItemsBySkuId, quantitiesBySkuId, false, holdsStock);
     }
 
     @Override
     @Transactional
-    public void deleteAllItems(Long cartId) {
-        // カートアイテムを全て削除
-        cartItemDao.deleteByCartId(cartId);
+    public CartDetailDto mergeCart(Long sourceCartId, Long targetCartId) {
+        requireCart(targetCartId);
+
+        // 両方のカートのDBの行を使うため、カートストアに未反映の変更があれば先に反映する
+        cartWriteBehind.flush(sourceCartId);
+        cartWriteBehind.flush(targetCartId);
+
+        // 統合元のカートを空にして確保していた在庫を解放する（解放した数量を統合先の販売可能数に含めるため、先に行う）
+        List<CartItem> sourceItems = cartItemDao.findByCartId(sourceCartId);
+        stockReservationService.releaseAll(sourceCartId);
+        cartItemDao.deleteByCartId(sourceCartId);
+        cartWriteBehind.save(sourceCartId, List.of());
+
+        // 統合先のカートの数量に加算する（同じSKUは1件にまとめる）
+        Map<Long, CartItem> currentItemsBySkuId = cartItemDao.findByCartId(targetCartId).stream()
+                .collect(Collectors.toMap(CartItem::getSkuId, item -> item));
+        Map<Long, Integer> quantitiesBySkuId = new LinkedHashMap<>();
+        currentItemsBySkuId.values().forEach(item -> quantitiesBySkuId.put(item.getSkuId(), item.getQuantity()));
+        sourceItems.forEach(item -> quantitiesBySkuId.merge(item.getSkuId(), item.getQuantity(), Integer::sum));
+
+        // ログイン時の統合を在庫不足で失敗させないよう、販売可能数を超える分は統合しない
+        return applyQuantities(targetCartId, currentItemsBySkuId, quantitiesBySkuId, true, true);
     }
 
     @Override
     @Transactional
-    public void validateCartInventory(String email) {
-        Cart cart = cartDao.findCartByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("カートが見つかりません: " + email));
+    public void deleteAllItems(Long cartId) {
+        // カートアイテムを全て削除し、確保していた在庫を解放
+        cartItemDao.deleteByCartId(cartId);
+        stockReservationService.releaseAll(cartId);
+        cartWriteBehind.save(cartId, List.of());
+    }
 
-        // ロックなしでカートアイテムの詳細を取得
-        List<CartItemDto> detailedItems = cartItemDao.findDetailedItemsByCartId(cart.getId());
+    // カート内のアイテムを探す。見つからない場合のみDBを参照し、存在しないのか他人のカートのものかを判別する
+    private CartItem findCartItem(List<CartItem> cartItems, Long cartItemId) {
+        return cartItems.stream()
+                .filter(item -> item.getId().equals(cartItemId))
+                .findFirst()
+                .orElseThrow(() -> cartItemNotFound(cartItemId));
+    }
 
-        if (detailedItems.isEmpty()) {
-            return;
+    private CartItem findCartItem(Map<Long, CartItem> cartItemsById, CartOperationDto operation) {
+        Long cartItemId = required(operation.cartItemId(), "cartItemId");
+        CartItem cartItem = cartItemsById.get(cartItemId);
+        if (cartItem == null) {
+            throw cartItemNotFound(cartItemId);
         }
+        return cartItem;
+    }
+
+    private RuntimeException cartItemNotFound(Long cartItemId) {
+        return cartItemDao.findById(cartItemId).isPresent()
+                ? new SecurityException("他人のカートアイテムを操作する権限がありません。")
+                : new ResourceNotFoundException("カートアイテムが見つかりません: カートID " + cartItemId);
+    }
 
-        // 対象のSKU IDリストを作成
-        List<Long> skuIds = detailedItems.stream()
-                .map(CartItemDto::skuId)
+    // SKUごとの数量をカートに反映し、変更後のカート詳細を返す（0は削除）
+    private CartDetailDto applyQuantities(Long cartId, Map<Long, CartItem> currentItemsBySkuId,
+                                          Map<Long, Integer> quantitiesBySkuId, boolean capToStock,
+                                          boolean holdsStock) {
+        // 数量が変わるSKUのみを対象にする（SKU ID順に並べ、在庫の確保でロックを取得する順序を揃える）
+        Map<Long, Integer> changedQuantities = new TreeMap<>();
+        quantitiesBySkuId.forEach((skuId, quantity) -> {
+            CartItem current = currentItemsBySkuId.get(skuId);
+            if (quantity != (current == null ? 0 : current.getQuantity())) {
+                changedQuantities.put(skuId, quantity);
+            }
+        });
+        checkStock(changedQuantities, currentItemsBySkuId, capToStock, holdsStock);
+
+        // 削除・数量の更新・追加をそれぞれ1回のバッチで反映する
+        List<Long> deletedIds = new ArrayList<>();
+        Map<Long, Integer> updatedQuantities = new LinkedHashMap<>();
+        List<CartItem> addedItems = new ArrayList<>();
+        changedQuantities.forEach((skuId, quantity) -> {
+            CartItem current = currentItemsBySkuId.get(skuId);
+            if (current == null) {
+                addedItems.add(new CartItem(null, cartId, skuId, quantity));
+            } else if (quantity == 0) {
+                deletedIds.add(current.getId());
+            } else {
+                updatedQuantities.put(current.getId(), quantity);
+            }
+        });
+        cartItemDao.deleteByIds(deletedIds);
+        cartItemDao.updateQuantities(updatedQuantities);
+        cartItemDao.saveAll(addedItems);
+
+        // 変更後の数量に合わせて在庫を確保・解放する（同じトランザクションで行うため、確保に失敗した場合は全ての操作が取り消される）
+        // 在庫台帳が有効な場合・ゲストカートの場合は確保しない（checkStockで販売可能数と比較済み。holdStockを参照）
+        changedQuantities.forEach((skuId, quantity) -> {
+            if (quantity == 0) {
+                stockReservationService.release(cartId, skuId);
+            } else if (holdsStock && !inventoryLedger.isEnabled()) {
+                stockReservationService.hold(cartId, skuId, quantity);
+            }
+        });
+
+        // 変更後のカートアイテムを1回だけ取得し、カートストアに保存する
+        List<CartItem> cartItems = cartItemDao.findByCartId(cartId);
+        cartWriteBehind.save(cartId, cartItems);
+        return toCartDetail(cartId, cartItems);
+    }
+
+    // 数量を増やすSKUの在庫を1回のクエリでまとめて取得し、変更後の数量が販売可能数を超えないか検証する
+    // 販売可能数はこのカートの現在の数量（確保済みの数量）を含めた値。確保時にも改めて検証される
+    // 在庫を確保しないカート（ゲストカート）の数量は販売可能数に含めない
+    // capToStockの場合は例外にせず、販売可能数まで（在庫情報がない場合は現在の数量のまま）に減らす
+    private void checkStock(Map<Long, Integer> changedQuantities, Map<Long, CartItem> currentItemsBySkuId,
+                            boolean capToStock, boolean holdsStock) {
+        Map<Long, Integer> currentQuantities = new TreeMap<>();
+        changedQuantities.forEach((skuId, quantity) -> {
+            CartItem current = currentItemsBySkuId.get(skuId);
+            currentQuantities.put(skuId, current == null ? 0 : current.getQuantity());
+        });
+        List<Long> increasedSkuIds = changedQuantities.keySet().stream()
+                .filter(skuId -> changedQuantities.get(skuId) > currentQuantities.get(skuId))
                 .toList();
+        if (increasedSkuIds.isEmpty()) {
+            return;
+        }
 
-        // 在庫レコードをロックして最新の在庫情報を取得
-        Map<Long, Inventory> lockedInventories = inventoryDao.findBySkuIdsWithLock(skuIds).stream()
+        Map<Long, Inventory> inventories = inventoryDao.findBySkuIdIn(increasedSkuIds).stream()
                 .collect(Collectors.toMap(Inventory::getSkuId, inventory -> inventory));
+        for (Long skuId : increasedSkuIds) {
+            Inventory inventory = inventories.get(skuId);
+            int current = currentQuantities.get(skuId);
+            if (inventory == null) {
+                if (!capToStock) {
+                    throw new ResourceNotFoundException("在庫情報が見つかりません: SKU ID " + skuId);
+                }
+                changedQuantities.remove(skuId);
+                continue;
+            }
+            int available = inventoryLedger.isEnabled()
+                    ? inventoryLedger.getAvailableQuantity(skuId).orElse(0)
+                    : inventory.getAvailableQuantity() + (holdsStock ? current : 0);
+            if (changedQuantities.get(skuId) <= available) {
+                continue;
+            }
+            if (!capToStock) {
+                throw new IllegalStateException("在庫が不足しています: SKU ID " + skuId);
+            }
+            if (available > current) {
+                changedQuantities.put(skuId, available);
+            } else {
+                changedQuantities.remove(skuId);
+            }
+        }
+    }
 
-        // ロックした最新の在庫情報とカートの数量を比較
-        for (CartItemDto item : detailedItems) {
-            Inventory inventory = lockedInventories.get(item.skuId());
+    // 操作の種類ごとに必須の項目を検証する
+    private static <T> T required(T value, String field) {
+        if (value == null) {
+            throw new IllegalArgumentException(field + ": 必須項目です");
+        }
+        return value;
+    }
 
-            if (inventory == null || inventory.getQuantity() < item.quantity()) {
-                throw new IllegalStateException("在庫が不足しています: 商品 " + item.productName());
-            }
+    // カートアイテムに価格・在庫数を結合してカート詳細にする（価格・在庫数はカートストアに保持しない）
+    private CartDetailDto toCartDetail(Long cartId, List<CartItem> items) {
+        return toCartDetailDto(cartId, items.isEmpty() ? List.of() : cartItemDao.findDetailedItems(cartId, items));
+    }
+
+    private static CartDetailDto toCartDetailDto(Long cartId, List<CartItemDto> cartItems) {
+        if (cartItems.isEmpty()) {
+            return new CartDetailDto(cartId, List.of(), 0);
+        }
+
+        // 合計金額を計算
+        int totalPrice = cartItems.stream()
+                .mapToInt(item -> item.price() * item.quantity())
+                .sum();
+
+        return new CartDetailDto(cartId, cartItems, totalPrice);
+    }
+
+    // カート内の数量分の在庫を一定時間確保する
+    // 在庫台帳が有効な場合は確保せず、台帳の販売可能数と比較するのみ（注文の確定時に台帳で確保する）。
+    // そのため台帳の有効中は、カートに入れた商品が注文の確定までに売り切れることがある
+    // ゲストカート(holdsStockがfalse)も確保せず、販売可能数と比較するのみ（ログイン時の統合で確保する）
+    private void holdStock(Long cartId, Long skuId, int quantity, boolean holdsStock) {
+        if (holdsStock && !inventoryLedger.isEnabled()) {
+            stockReservationService.hold(cartId, skuId, quantity);
+            return;
+        }
+        int stock = (inventoryLedger.isEnabled()
+                ? inventoryLedger.getAvailableQuantity(skuId)
+                : inventoryDao.findBySkuId(skuId).map(Inventory::getAvailableQuantity))
+                .orElseThrow(() -> new ResourceNotFoundException("在庫情報が見つかりません: SKU ID " + skuId));
+        if (stock < quantity) {
+            throw new IllegalStateException("在庫が不足しています。");
         }
     }
 
+    // 認証情報のカートIDを検証する（カートを持たないユーザーの場合はnull）
+    private static void requireCart(Long cartId) {
+        if (cartId == null) {
+            throw new ResourceNotFoundException("カートが見つかりません");
+        }
+    }
 }
@@ -0,0 +1,41 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.CartItem;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 利用中のカートの内容(カートアイテムのID・SKU ID・数量)を保持するストア
+ * <p>
+ * カートの参照・数量の変更をcart_itemsテーブルを経由せずに処理するために使用する。価格・在庫数は変わるため保持せず、
+ * 参照時にDBから結合する。DBへの反映は{@link CartWriteBehind}が行い、DBに未反映の変更があるカートには印を付けて管理する。
+ * 実装はapp.cart.store.typeで選択する。
+ */
+public interface CartStore {
+
+    // カートの内容を返す。ストアにない(または有効期限切れの)場合は空
+    Optional<List<CartItem>> find(Long cartId);
+
+    // カートの内容を保存する（有効期限を延長する）
+    void put(Long cartId, List<CartItem> items);
+
+    // カートの内容がストアにない場合のみ保存する（DBから読み込んだ内容で、より新しい内容を上書きしないため）
+    void putIfAbsent(Long cartId, List<CartItem> items);
+
+    // カートアイテム1件の数量のみを変更する（他のカートアイテムは書き戻さない）。
+    // カートまたはカートアイテムがストアにない場合は何もせずfalseを返す
+    boolean updateQuantity(Long cartId, Long cartItemId, int quantity);
+
+    // カートの内容を削除する
+    void evict(Long cartId);
+
+    // DBに未反映の変更があるカートとして印を付ける
+    void markDirty(Long cartId);
+
+    // 未反映の印を外す。印が付いていた場合はtrue
+    boolean unmarkDirty(Long cartId);
+
+    // 未反映の印が付いたカートIDを最大limit件取り出す（取り出したカートの印は外れる）
+    List<Long> pollDirty(int limit);
+}
@@ -0,0 +1,221 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.CartItem;
+import com.github.Atgsasakazh5.my_ec_site.repository.CartDao;
+import com.github.Atgsasakazh5.my_ec_site.repository.CartItemDao;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 利用中のカートを{@link CartStore}から返し、数量の変更を後からまとめてcart_itemsテーブルに反映する（ライトビハインド）
+ * <p>
+ * DBは注文確定時に参照する正式な記録として扱う。カートの行を直接読み書きする処理(商品の追加・注文確定など)の前には
+ * {@link #flush(Long)}で未反映の変更を反映する。ストアに障害がある場合はDBを直接読み書きする。
+ * カートの内容を変更する場合は、呼び出し元のトランザクションでカートのリビジョン(carts.revision)を加算してから
+ * ストアを更新する（ロールバックされた場合はストアを元に戻す）。
+ * <ul>
+ *     <li>リビジョンの加算でカートの行ロックを取得するため、同じカートのストアの更新(ロールバック時に元に戻す処理を含む)は1件ずつ行われる</li>
+ *     <li>ストアはコミット前に更新するため、リビジョンを先に読んでから内容を取得する参照側で、古い内容に新しいリビジョンが付くことはない</li>
+ *     <li>ストアから返せた件数は{@code cart.store.requests}(result=hit/miss)、反映したカート数は{@code cart.store.flushed}として記録する</li>
+ *     <li>未反映の変更はストアにのみ存在するため、メモリのストアでは反映前にプロセスが停止すると失われる</li>
+ * </ul>
+ */
+@Component
+public class CartWriteBehind {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartWriteBehind.class);
+
+    private final CartStore cartStore;
+
+    private final CartItemDao cartItemDao;
+
+    private final CartDao cartDao;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    private final int batchSize;
+
+    public CartWriteBehind(CartStore cartStore, CartItemDao cartItemDao, CartDao cartDao,
+                           PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                           @Value("${app.cart.store.flush-batch-size:100}") int batchSize) {
+        this.cartStore = cartStore;
+        this.cartItemDao = cartItemDao;
+        this.cartDao = cartDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * カートの内容を返す（ストアになければDBから読み込んでストアに保存する）
+     */
+    public List<CartItem> load(Long cartId) {
+        try {
+            Optional<List<CartItem>> stored = cartStore.find(cartId);
+            if (stored.isPresent()) {
+                countRequest("hit");
+                return stored.get();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("カートストアからの読み込みに失敗したため、DBから読み込みます: {}", e.getMessage());
+            return cartItemDao.findByCartId(cartId);
+        }
+        countRequest("miss");
+        List<CartItem> items = cartItemDao.findByCartId(cartId);
+        try {
+            cartStore.putIfAbsent(cartId, items);
+        } catch (RuntimeException e) {
+            logger.warn("カートストアへの保存に失敗しました: {}", e.getMessage());
+        }
+        return items;
+    }
+
+    /**
+     * DBに反映済みのカートの内容をストアに保存する（カートを空にした場合は空のリストを渡す）
+     */
+    public void save(Long cartId, List<CartItem> items) {
+        cartDao.incrementRevision(cartId);
+        try {
+            Optional<List<CartItem>> previous = cartStore.find(cartId);
+            cartStore.put(cartId, items);
+            TransactionCallbacks.afterRollback(() -> restore(cartId, previous));
+        } catch (RuntimeException e) {
+            logger.warn("カートストアへの保存に失敗しました: {}", e.getMessage());
+            evictQuietly(cartId);
+        }
+    }
+
+    /**
+     * カートアイテム1件の数量の変更をストアに保存する。DBへは{@link #flushDirty()}でまとめて反映する
+     * <p>
+     * ストアにカートがない場合、またはストアに障害がある場合は、呼び出し元のトランザクションでDBに直接反映する。
+     */
+    public void stage(Long cartId, Long cartItemId, int quantity) {
+        cartDao.incrementRevision(cartId);
+        try {
+            // 保存してから印を付ける（印を外してから読み込む反映処理と組み合わせて、変更を取りこぼさない）
+            Optional<List<CartItem>> previous = cartStore.find(cartId);
+            if (previous.isPresent() && cartStore.updateQuantity(cartId, cartItemId, quantity)) {
+                cartStore.markDirty(cartId);
+                TransactionCallbacks.afterRollback(() -> restore(cartId, previous));
+                return;
+            }
+        } catch (RuntimeException e) {
+            logger.warn("カートストアへの保存に失敗したため、DBに直接反映します: {}", e.getMessage());
+            evictQuietly(cartId);
+        }
+        cartItemDao.updateQuantities(Map.of(cartItemId, quantity));
+    }
+
+    /**
+     * 未反映の変更があれば、呼び出し元のトランザクションでDBに反映する（ロールバックされた場合は再び未反映にする）
+     */
+    public void flush(Long cartId) {
+        Optional<List<CartItem>> items;
+        try {
+            if (!cartStore.unmarkDirty(cartId)) {
+                return;
+            }
+            TransactionCallbacks.afterRollback(() -> cartStore.markDirty(cartId));
+            items = cartStore.find(cartId);
+        } catch (RuntimeException e) {
+            logger.warn("カートストアの未反映の変更を確認できませんでした: {}", e.getMessage());
+            return;
+        }
+        items.ifPresent(cartItems -> cartItemDao.updateQuantities(quantitiesById(cartItems)));
+        countFlushed(1);
+    }
+
+    /**
+     * 未反映の変更があるカートを一定件数ずつDBに反映する
+     */
+    @Scheduled(initialDelayString = "${app.cart.store.flush-interval:1s}",
+            fixedDelayString = "${app.cart.store.flush-interval:1s}")
+    public void flushDirty() {
+        try {
+            List<Long> cartIds;
+            do {
+                cartIds = cartStore.pollDirty(batchSize);
+                flushAll(cartIds);
+            } while (cartIds.size() == batchSize);
+        } catch (RuntimeException e) {
+            logger.warn("カートの変更のDBへの反映に失敗しました: {}", e.getMessage());
+        }
+    }
+
+    // 取り出したカートの数量を1回のバッチ更新で反映する。失敗した場合は再び未反映にして次回に反映する
+    private void flushAll(List<Long> cartIds) {
+        if (cartIds.isEmpty()) {
+            return;
+        }
+        try {
+            Map<Long, Integer> quantitiesById = new HashMap<>();
+            for (Long cartId : cartIds) {
+                cartStore.find(cartId).ifPresent(items -> quantitiesById.putAll(quantitiesById(items)));
+            }
+            transactionTemplate.executeWithoutResult(status -> cartItemDao.updateQuantities(quantitiesById));
+            countFlushed(cartIds.size());
+        } catch (RuntimeException e) {
+            cartIds.forEach(cartStore::markDirty);
+            throw e;
+        }
+    }
+
+    // ロールバックされた変更の前の内容に戻す（ストアになかったカートは削除する）
+    // 変更後の数量がコミット前に定期実行でDBに反映されている場合があるため、未反映の印を付けて元の数量を反映し直す
+    // 同じトランザクションでは1つのカートの内容を1回だけ変更すること（元に戻す処理は登録順に実行されるため）
+    private void restore(Long cartId, Optional<List<CartItem>> previous) {
+        try {
+            if (previous.isPresent()) {
+                cartStore.put(cartId, previous.get());
+                cartStore.markDirty(cartId);
+            } else {
+                cartStore.evict(cartId);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("カートストアの内容を元に戻せませんでした: {}", e.getMessage());
+            evictQuietly(cartId);
+        }
+    }
+
+    private void evictQuietly(Long cartId) {
+        try {
+            cartStore.evict(cartId);
+        } catch (RuntimeException e) {
+            logger.warn("カートストアからの削除に失敗しました: {}", e.getMessage());
+        }
+    }
+
+    private void countRequest(String result) {
+        Counter.builder("cart.store.requests")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void countFlushed(int count) {
+        Counter.builder("cart.store.flushed")
+                .register(meterRegistry)
+                .increment(count);
+    }
+
+    private static Map<Long, Integer> quantitiesById(List<CartItem> items) {
+        Map<Long, Integer> quantitiesById = new HashMap<>();
+        items.forEach(item -> quantitiesById.put(item.getId(), item.getQuantity()));
+        return quantitiesById;
+    }
+}
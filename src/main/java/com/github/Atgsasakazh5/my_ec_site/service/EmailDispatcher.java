@@ -0,0 +1,286 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.EmailMessage;
+import com.github.Atgsasakazh5.my_ec_site.entity.EmailMessageStatus;
+import com.github.Atgsasakazh5.my_ec_site.repository.EmailMessageDao;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * email_messagesテーブルの送信待ちのメールをSMTPで送信する
+ * <p>
+ * 取得したメールは一定件数(app.mail.messages-per-connection)ごとに1つのSMTP接続でまとめて送信し、
+ * 接続・STARTTLS・認証のやり取りを1通ごとに繰り返さない。接続ごとの送信は上限付きのスレッドプールで並行して行う。
+ * <ul>
+ *     <li>メールを登録したトランザクションのコミット後に{@link #requestDispatch()}で送信を開始し、取りこぼしは定期実行で送信する</li>
+ *     <li>送信に失敗したメールは、上限付きの指数的な間隔を空けて再送する。最大回数に達した場合はFAILEDにする</li>
+ *     <li>送信件数は{@code mail.sent}、登録から送信までの遅延は{@code mail.lag}、送信待ちの件数は{@code mail.pending}として記録する</li>
+ * </ul>
+ */
+@Component
+public class EmailDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailDispatcher.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final EmailMessageDao emailMessageDao;
+
+    private final JavaMailSender mailSender;
+
+    private final MeterRegistry meterRegistry;
+
+    // SMTP接続ごとの送信を行うワーカー
+    private final ThreadPoolExecutor workers;
+
+    // コミット後の送信要求を受け付ける。実行中・待機中の要求がすでにあれば、新しい要求はそれに任せて破棄する
+    private final ThreadPoolExecutor trigger;
+
+    private final int batchSize;
+
+    private final int messagesPerConnection;
+
+    private final Duration lease;
+
+    private final int maxAttempts;
+
+    private final Duration initialBackoff;
+
+    private final Duration maxBackoff;
+
+    private final Duration retention;
+
+    private final AtomicLong pending = new AtomicLong();
+
+    public EmailDispatcher(EmailMessageDao emailMessageDao, JavaMailSender mailSender, MeterRegistry meterRegistry,
+                           @Value("${app.mail.worker-threads:2}") int workerThreads,
+                           @Value("${app.mail.batch-size:50}") int batchSize,
+                           @Value("${app.mail.messages-per-connection:20}") int messagesPerConnection,
+                           @Value("${app.mail.lease:5m}") Duration lease,
+                           @Value("${app.mail.max-attempts:8}") int maxAttempts,
+                           @Value("${app.mail.initial-backoff:30s}") Duration initialBackoff,
+                           @Value("${app.mail.max-backoff:1h}") Duration maxBackoff,
+                           @Value("${app.mail.retention:30d}") Duration retention) {
+        if (workerThreads < 1 || batchSize < 1 || messagesPerConnection < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException(
+                    "app.mail.worker-threads, batch-size, messages-per-connection, max-attempts は1以上を指定してください");
+        }
+        this.emailMessageDao = emailMessageDao;
+        this.mailSender = mailSender;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.messagesPerConnection = messagesPerConnection;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.retention = retention;
+
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workerThreads), threadFactory("mail-sender-"),
+                // キューが埋まった場合・停止処理中は呼び出し元のスレッドで送信する
+                (runnable, pool) -> runnable.run());
+        this.trigger = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1), threadFactory("mail-dispatch-"), new ThreadPoolExecutor.DiscardPolicy());
+
+        Gauge.builder("mail.pending", pending, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 送信待ちのメールの送信を別スレッドで開始する（呼び出し元は送信の完了を待たない）
+     */
+    public void requestDispatch() {
+        trigger.execute(this::dispatch);
+    }
+
+    /**
+     * 送信できるメールがなくなるまで、一定件数ずつ送信する
+     *
+     * @return 送信に成功したメールの件数
+     */
+    @Scheduled(initialDelayString = "${app.mail.poll-interval:30s}",
+            fixedDelayString = "${app.mail.poll-interval:30s}")
+    public int dispatch() {
+        int total = 0;
+        try {
+            List<EmailMessage> messages;
+            do {
+                LocalDateTime now = LocalDateTime.now();
+                messages = emailMessageDao.claimSendable(now, now.plus(lease), batchSize);
+                total += sendBatch(messages);
+            } while (messages.size() == batchSize);
+            pending.set(emailMessageDao.countPending());
+        } catch (RuntimeException e) {
+            // 確保済みのメールはリース期限の経過後に再送する
+            logger.warn("メールの送信処理に失敗しました: {}", e.getMessage());
+        }
+        return total;
+    }
+
+    /**
+     * 保持期間(app.mail.retention)を過ぎた送信済みのメールを削除する
+     */
+    @Scheduled(initialDelayString = "${app.mail.purge-interval:1h}",
+            fixedDelayString = "${app.mail.purge-interval:1h}")
+    public void purge() {
+        try {
+            int deleted = emailMessageDao.deleteSentBefore(LocalDateTime.now().minus(retention));
+            if (deleted > 0) {
+                logger.info("送信済みのメールを{}件削除しました", deleted);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("送信済みのメールの削除に失敗しました: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        trigger.shutdown();
+        workers.shutdown();
+        trigger.awaitTermination(10, TimeUnit.SECONDS);
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // SMTP接続ごとに分けて並行して送信し、すべて終わってから結果をまとめて記録する
+    private int sendBatch(List<EmailMessage> messages) {
+        if (messages.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<Map<EmailMessage, Exception>>> results = new ArrayList<>();
+        for (int from = 0; from < messages.size(); from += messagesPerConnection) {
+            List<EmailMessage> chunk = messages.subList(from, Math.min(from + messagesPerConnection, messages.size()));
+            results.add(CompletableFuture.supplyAsync(() -> send(chunk), workers));
+        }
+        Map<EmailMessage, Exception> failures = new HashMap<>();
+        results.forEach(result -> failures.putAll(result.join()));
+
+        LocalDateTime sentAt = LocalDateTime.now();
+        List<Long> sentIds = new ArrayList<>();
+        List<EmailMessage> failed = new ArrayList<>();
+        for (EmailMessage message : messages) {
+            Exception failure = failures.get(message);
+            if (failure == null) {
+                sentIds.add(message.getId());
+                Timer.builder("mail.lag")
+                        .register(meterRegistry)
+                        .record(Duration.between(message.getCreatedAt(), sentAt));
+            } else {
+                failed.add(prepareRetry(message, failure));
+            }
+        }
+        emailMessageDao.markSent(sentIds, sentAt);
+        emailMessageDao.markFailed(failed);
+
+        Counter.builder("mail.sent")
+                .register(meterRegistry)
+                .increment(sentIds.size());
+        return sentIds.size();
+    }
+
+    // 1つのSMTP接続でまとめて送信し、送信できなかったメールとその原因を返す
+    private Map<EmailMessage, Exception> send(List<EmailMessage> chunk) {
+        SimpleMailMessage[] mails = chunk.stream()
+                .map(EmailDispatcher::toMailMessage)
+                .toArray(SimpleMailMessage[]::new);
+        Map<EmailMessage, Exception> failures = new HashMap<>();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            mailSender.send(mails);
+        } catch (MailSendException e) {
+            // 宛先の拒否など、一部のメールだけが失敗した場合は失敗したメールだけを再送対象にする
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            for (int i = 0; i < mails.length; i++) {
+                if (failedMessages.isEmpty() || failedMessages.containsKey(mails[i])) {
+                    failures.put(chunk.get(i), failedMessages.getOrDefault(mails[i], e));
+                }
+            }
+            outcome = failures.size() < chunk.size() ? "partial" : "error";
+        } catch (MailException e) {
+            // 接続・認証に失敗した場合はすべて再送対象にする
+            outcome = "error";
+            chunk.forEach(message -> failures.put(message, e));
+        } finally {
+            sample.stop(Timer.builder("mail.connection")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+        return failures;
+    }
+
+    private EmailMessage prepareRetry(EmailMessage message, Exception failure) {
+        int attempts = message.getAttempts() + 1;
+        message.setAttempts(attempts);
+        message.setLastError(truncate(failure.getClass().getSimpleName() + ": " + failure.getMessage()));
+        if (attempts >= maxAttempts) {
+            message.setStatus(EmailMessageStatus.FAILED);
+            Counter.builder("mail.failed")
+                    .register(meterRegistry)
+                    .increment();
+            logger.error("メール(id={})の送信が{}回失敗したため中止しました: {}", message.getId(), attempts, failure.getMessage());
+        } else {
+            message.setNextAttemptAt(LocalDateTime.now().plus(backoff(attempts)));
+            Counter.builder("mail.retries")
+                    .register(meterRegistry)
+                    .increment();
+            logger.info("メール(id={})の送信に失敗したため再送します({}/{}): {}",
+                    message.getId(), attempts, maxAttempts, failure.getMessage());
+        }
+        return message;
+    }
+
+    // 失敗した回数に応じて、上限付きの指数的な間隔を返す
+    private Duration backoff(int attempts) {
+        long millis = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempts - 1, 20));
+        return Duration.ofMillis(millis);
+    }
+
+    private static SimpleMailMessage toMailMessage(EmailMessage message) {
+        SimpleMailMessage mail = new SimpleMailMessage();
+        mail.setTo(message.getRecipient());
+        mail.setSubject(message.getSubject());
+        mail.setText(message.getBody());
+        return mail;
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
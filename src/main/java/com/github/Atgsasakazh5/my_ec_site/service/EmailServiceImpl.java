@@ -1,35 +1,44 @@
 package com.github.Atgsasakazh5.my_ec_site.service;
 
-
+import com.github.Atgsasakazh5.my_ec_site.entity.EmailMessage;
+import com.github.Atgsasakazh5.my_ec_site.entity.EmailMessageStatus;
+import com.github.Atgsasakazh5.my_ec_site.repository.EmailMessageDao;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+
+/**
+ * メールを送信待ちとしてemail_messagesテーブルに登録し、送信は{@link EmailDispatcher}に任せる
+ * <p>
+ * 呼び出し元のトランザクションの中で登録し、コミット後に送信を開始する。
+ * SMTPサーバーとのやり取りを待たずに呼び出し元へ戻り、送信に失敗しても呼び出し元の処理はロールバックされない。
+ */
 @Service
 public class EmailServiceImpl implements EmailService {
 
-    private final JavaMailSender mailSender;
+    private final EmailMessageDao emailMessageDao;
+    private final EmailDispatcher emailDispatcher;
     private final String frontendBaseUrl;
     private final String backendUrl;
 
     @Autowired
     public EmailServiceImpl(
-            JavaMailSender mailSender,
+            EmailMessageDao emailMessageDao,
+            EmailDispatcher emailDispatcher,
             @Value("${app.frontend.baseUrl}") String frontendBaseUrl,
             @Value("${app.backend.baseUrl}") String backendUrl
     ) {
-        this.mailSender = mailSender;
+        this.emailMessageDao = emailMessageDao;
+        this.emailDispatcher = emailDispatcher;
         this.frontendBaseUrl = frontendBaseUrl;
         this.backendUrl = backendUrl;
     }
 
     @Override
     public void sendVerificationEmail(String to, String token) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(to);
-        message.setSubject("メールアドレスのご本人様確認");
+        String subject = "メールアドレスのご本人様確認";
 
         // 注入したベースURLと、フロントエンドのパスを組み合わせる
         String verificationUrl = frontendBaseUrl + "/verify-email?token=" + token;
@@ -54,7 +63,13 @@ public class EmailServiceImpl implements EmailService {
                 verificationUrl, backendUrl
         );
 
-        message.setText(text);
-        mailSender.send(message);
+        enqueue(to, subject, text);
+    }
+
+    // 送信待ちとして登録し、コミット後に送信を開始する（ロールバックされた場合は登録ごと取り消され、送信されない）
+    private void enqueue(String to, String subject, String text) {
+        LocalDateTime now = LocalDateTime.now();
+        emailMessageDao.save(new EmailMessage(null, to, subject, text, EmailMessageStatus.PENDING, 0, now, null, now, null));
+        TransactionCallbacks.afterCommit(emailDispatcher::requestDispatch);
     }
 }
@@ -0,0 +1,22 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.dto.CartDetailDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.GuestCartDto;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface GuestCartService {
+
+    // ゲストカートを作成し、カートを識別するトークンを返す
+    GuestCartDto createGuestCart();
+
+    // トークンに対応する有効なゲストカートのIDを返し、有効期限を延長する
+    Long resolveCartId(String token);
+
+    // ゲストカートの内容をユーザーのカートに統合し、ゲストカートを削除する。有効なゲストカートがない場合は空
+    Optional<CartDetailDto> mergeIntoUserCart(String token, Long userCartId);
+
+    // 有効期限が切れたゲストカートを最大limit件削除し、削除した件数を返す
+    int deleteExpired(LocalDateTime now, int limit);
+}
@@ -0,0 +1,129 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.dto.CartDetailDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.GuestCartDto;
+import com.github.Atgsasakazh5.my_ec_site.entity.Cart;
+import com.github.Atgsasakazh5.my_ec_site.exception.ResourceNotFoundException;
+import com.github.Atgsasakazh5.my_ec_site.repository.CartDao;
+import com.github.Atgsasakazh5.my_ec_site.repository.CartItemDao;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * ログインしていないユーザーのカート（ゲストカート）を管理する
+ * <p>
+ * クライアントにはランダムなトークンを渡し、DBにはそのSHA-256のみを保存する（DBの内容からカートを操作できないようにする）。
+ * 有効期限(app.cart.guest.ttl)はカートを使用するたびに延長し、期限切れのカートは{@link GuestCartSweeper}が一定件数ずつ削除する。
+ * ロックは常にカート、在庫の確保、在庫のレコードの順に取得する。
+ */
+@Service
+public class GuestCartServiceImpl implements GuestCartService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final CartDao cartDao;
+
+    private final CartItemDao cartItemDao;
+
+    private final CartService cartService;
+
+    private final StockReservationService stockReservationService;
+
+    private final Duration ttl;
+
+    public GuestCartServiceImpl(CartDao cartDao, CartItemDao cartItemDao, CartService cartService,
+                                StockReservationService stockReservationService,
+                                @Value("${app.cart.guest.ttl:7d}") Duration ttl) {
+        this.cartDao = cartDao;
+        this.cartItemDao = cartItemDao;
+        this.cartService = cartService;
+        this.stockReservationService = stockReservationService;
+        this.ttl = ttl;
+    }
+
+    @Override
+    @Transactional
+    public GuestCartDto createGuestCart() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        Cart cart = cartDao.saveGuestCart(hash(token), LocalDateTime.now().plus(ttl));
+        return new GuestCartDto(token, new CartDetailDto(cart.getId(), List.of(), 0));
+    }
+
+    @Override
+    public Long resolveCartId(String token) {
+        LocalDateTime now = LocalDateTime.now();
+        Cart cart = findActiveCart(token, now)
+                .orElseThrow(() -> new ResourceNotFoundException("カートが見つかりません"));
+
+        // 参照のたびに更新しないよう、残りの有効期限が半分を切った場合のみ延長する
+        if (cart.getExpiresAt().isBefore(now.plus(ttl.dividedBy(2)))) {
+            cartDao.updateExpiresAt(cart.getId(), now.plus(ttl));
+        }
+        return cart.getId();
+    }
+
+    @Override
+    @Transactional
+    public Optional<CartDetailDto> mergeIntoUserCart(String token, Long userCartId) {
+        // 同じゲストカートの統合と削除が同時に行われないよう、ゲストカートの行ロックを取得する
+        LocalDateTime now = LocalDateTime.now();
+        Optional<Cart> guestCart = cartDao.findGuestCartByTokenHashWithLock(hash(token))
+                .filter(cart -> cart.getExpiresAt().isAfter(now));
+        if (guestCart.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // カートアイテムの追加・在庫の確認はまとめて1回で行い、統合したゲストカートは削除する
+        Long guestCartId = guestCart.get().getId();
+        CartDetailDto merged = cartService.mergeCart(guestCartId, userCartId);
+        cartDao.deleteByIds(List.of(guestCartId));
+        return Optional.of(merged);
+    }
+
+    @Override
+    @Transactional
+    public int deleteExpired(LocalDateTime now, int limit) {
+        List<Long> cartIds = cartDao.findExpiredGuestCartIdsWithLock(now, limit);
+        if (cartIds.isEmpty()) {
+            return 0;
+        }
+
+        // 確保していた在庫を解放してから、カートアイテムとカートをまとめて削除する
+        // （カートストアの内容はゲストカートの有効期限より短い期間で期限切れになるため、削除しない）
+        stockReservationService.releaseAllByCartIds(cartIds);
+        cartItemDao.deleteByCartIds(cartIds);
+        cartDao.deleteByIds(cartIds);
+        return cartIds.size();
+    }
+
+    private Optional<Cart> findActiveCart(String token, LocalDateTime now) {
+        return cartDao.findGuestCartByTokenHash(hash(token))
+                .filter(cart -> cart.getExpiresAt().isAfter(now));
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("トークンのハッシュ値を計算できませんでした", e);
+        }
+    }
+}
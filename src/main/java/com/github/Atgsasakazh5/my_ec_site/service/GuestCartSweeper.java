@@ -0,0 +1,50 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * 有効期限が切れたゲストカートを定期的に削除する
+ * <p>
+ * 1回のトランザクションでロック・削除する行数を抑えるため、一定件数ずつ削除する。
+ */
+@Component
+public class GuestCartSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(GuestCartSweeper.class);
+
+    private final GuestCartService guestCartService;
+
+    private final int batchSize;
+
+    public GuestCartSweeper(GuestCartService guestCartService,
+                            @Value("${app.cart.guest.sweep-batch-size:500}") int batchSize) {
+        this.guestCartService = guestCartService;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${app.cart.guest.sweep-interval:10m}",
+            fixedDelayString = "${app.cart.guest.sweep-interval:10m}")
+    public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        try {
+            int deleted;
+            do {
+                deleted = guestCartService.deleteExpired(now, batchSize);
+                total += deleted;
+            } while (deleted == batchSize);
+        } catch (RuntimeException e) {
+            // 残りは次回の実行で削除する
+            logger.warn("期限切れのゲストカートの削除に失敗しました: {}", e.getMessage());
+        }
+        if (total > 0) {
+            logger.info("期限切れのゲストカートを{}件削除しました", total);
+        }
+    }
+}
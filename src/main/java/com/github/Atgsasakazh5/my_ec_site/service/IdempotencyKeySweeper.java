@@ -0,0 +1,37 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * 有効期限が切れたIdempotency-Keyの記録を定期的に削除する
+ */
+@Component
+public class IdempotencyKeySweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyKeySweeper.class);
+
+    private final IdempotencyService idempotencyService;
+
+    public IdempotencyKeySweeper(IdempotencyService idempotencyService) {
+        this.idempotencyService = idempotencyService;
+    }
+
+    @Scheduled(initialDelayString = "${app.idempotency.sweep-interval:1h}",
+            fixedDelayString = "${app.idempotency.sweep-interval:1h}")
+    public void sweep() {
+        try {
+            int deleted = idempotencyService.deleteExpired(LocalDateTime.now());
+            if (deleted > 0) {
+                logger.info("期限切れのIdempotency-Keyを{}件削除しました", deleted);
+            }
+        } catch (RuntimeException e) {
+            // 次回の実行で再試行する
+            logger.warn("期限切れのIdempotency-Keyの削除に失敗しました: {}", e.getMessage());
+        }
+    }
+}
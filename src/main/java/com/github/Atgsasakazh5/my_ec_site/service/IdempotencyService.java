@@ -0,0 +1,23 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+
+    /**
+     * 同じユーザー・Idempotency-Keyのリクエストを1回だけ処理する
+     * <p>
+     * 処理済みのキーであれば処理を実行せずに保存済みの結果を返し、処理中であれば完了を待って結果を返す。
+     *
+     * @param request      同じキーで別の内容のリクエストが送られていないかを確認するためのリクエストボディ
+     * @param responseType 保存済みの結果を復元する型
+     * @param action       初回のリクエストで実行する処理
+     */
+    <T> T execute(Long userId, String idempotencyKey, Object request, TypeReference<T> responseType, Supplier<T> action);
+
+    // 有効期限が切れた記録を削除し、削除した件数を返す
+    int deleteExpired(LocalDateTime now);
+}
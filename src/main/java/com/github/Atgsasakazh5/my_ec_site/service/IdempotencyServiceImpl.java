@@ -0,0 +1,191 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.Atgsasakazh5.my_ec_site.entity.IdempotencyKey;
+import com.github.Atgsasakazh5.my_ec_site.exception.PaymentPendingException;
+import com.github.Atgsasakazh5.my_ec_site.repository.IdempotencyKeyDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Keyごとの処理結果をidempotency_keysテーブルに保存し、再送されたリクエストに同じ結果を返す
+ * <p>
+ * 最初のリクエストがキーを登録してから処理を実行し、同時に届いた同じキーのリクエストは登録済みの記録を見て完了を待つ。
+ * 記録は一意制約で排他するため、アプリケーションのインスタンスが複数あっても処理は1回だけ実行される。
+ * <ul>
+ *     <li>処理が例外で終了した場合は記録を削除し、同じキーで再試行できるようにする</li>
+ *     <li>ただし決済の結果が確定していない({@link PaymentPendingException})場合は、請求された可能性があるため記録を削除しない。
+ *     確認中の注文IDを保存し、再送されたリクエストには処理をやり直さずに同じ例外を返す（二重請求の防止）</li>
+ *     <li>処理中のまま一定時間(app.idempotency.processing-timeout)経過した記録は、処理が中断されたものとみなして引き継ぐ</li>
+ * </ul>
+ */
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyServiceImpl.class);
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyDao idempotencyKeyDao;
+
+    private final ObjectMapper objectMapper;
+
+    private final Duration ttl;
+
+    private final Duration waitTimeout;
+
+    private final Duration pollInterval;
+
+    private final Duration processingTimeout;
+
+    public IdempotencyServiceImpl(IdempotencyKeyDao idempotencyKeyDao, ObjectMapper objectMapper,
+                                  @Value("${app.idempotency.ttl:24h}") Duration ttl,
+                                  @Value("${app.idempotency.wait-timeout:10s}") Duration waitTimeout,
+                                  @Value("${app.idempotency.poll-interval:50ms}") Duration pollInterval,
+                                  @Value("${app.idempotency.processing-timeout:5m}") Duration processingTimeout) {
+        this.idempotencyKeyDao = idempotencyKeyDao;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.pollInterval = pollInterval;
+        this.processingTimeout = processingTimeout;
+    }
+
+    @Override
+    public <T> T execute(Long userId, String idempotencyKey, Object request, TypeReference<T> responseType, Supplier<T> action) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Keyは1文字以上" + MAX_KEY_LENGTH + "文字以内で指定してください");
+        }
+        String requestHash = hash(request);
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            Optional<IdempotencyKey> existing = idempotencyKeyDao.findByUserIdAndKey(userId, idempotencyKey)
+                    .filter(record -> !discardIfStale(record, now));
+
+            if (existing.isEmpty()) {
+                IdempotencyKey record;
+                try {
+                    record = idempotencyKeyDao.save(
+                            new IdempotencyKey(null, userId, idempotencyKey, requestHash, null, now, now.plus(ttl)));
+                } catch (DuplicateKeyException e) {
+                    // 同じキーのリクエストが先に登録したため、その記録を読み直す
+                    continue;
+                }
+                return runAndStore(record, action);
+            }
+
+            IdempotencyKey record = existing.get();
+            if (!record.getRequestHash().equals(requestHash)) {
+                throw new IllegalArgumentException("このIdempotency-Keyは別の内容のリクエストで使用されています");
+            }
+            if (record.isPaymentPending()) {
+                throw new PaymentPendingException("決済の結果を確認しています: 注文ID " + record.getPendingOrderId(),
+                        record.getPendingOrderId(), null);
+            }
+            if (record.isCompleted()) {
+                return read(record.getResponseBody(), responseType);
+            }
+            if (System.nanoTime() >= deadline) {
+                throw new IllegalStateException("同じリクエストを処理中です。しばらくしてから再度お試しください");
+            }
+            sleep();
+        }
+    }
+
+    @Override
+    public int deleteExpired(LocalDateTime now) {
+        return idempotencyKeyDao.deleteExpired(now);
+    }
+
+    // 処理を実行して結果を保存する。請求されていないことが確定している失敗の場合は、同じキーで再試行できるよう記録を削除する
+    private <T> T runAndStore(IdempotencyKey record, Supplier<T> action) {
+        T response;
+        try {
+            response = action.get();
+        } catch (PaymentPendingException e) {
+            // 請求された可能性があるため、再送されたリクエストで注文・決済をやり直さないよう確認中の注文IDを残す
+            try {
+                idempotencyKeyDao.updatePendingOrderId(record.getId(), e.getOrderId());
+            } catch (RuntimeException updateFailure) {
+                // 記録は処理中のまま残り、再送されたリクエストはprocessing-timeoutまで409になる
+                e.addSuppressed(updateFailure);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            try {
+                idempotencyKeyDao.deleteById(record.getId());
+            } catch (RuntimeException deleteFailure) {
+                e.addSuppressed(deleteFailure);
+            }
+            throw e;
+        }
+
+        try {
+            idempotencyKeyDao.updateResponseBody(record.getId(), write(response));
+        } catch (RuntimeException e) {
+            // 処理自体は完了しているため、結果を返す（再送されたリクエストはprocessing-timeoutまで409になる）
+            logger.warn("Idempotency-Keyの処理結果を保存できませんでした: ID {}: {}", record.getId(), e.getMessage());
+        }
+        return response;
+    }
+
+    // 有効期限切れ、または処理が中断された記録を削除する。削除した場合はtrue
+    private boolean discardIfStale(IdempotencyKey record, LocalDateTime now) {
+        boolean expired = !record.getExpiresAt().isAfter(now);
+        boolean abandoned = !record.isCompleted() && record.getCreatedAt().plus(processingTimeout).isBefore(now);
+        if (!expired && !abandoned) {
+            return false;
+        }
+        idempotencyKeyDao.deleteById(record.getId());
+        return true;
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("リクエストのハッシュ値を計算できませんでした", e);
+        }
+    }
+
+    private String write(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("処理結果をJSONに変換できませんでした", e);
+        }
+    }
+
+    private <T> T read(String responseBody, TypeReference<T> responseType) {
+        try {
+            return objectMapper.readValue(responseBody, responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("保存済みの処理結果を読み込めませんでした", e);
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(pollInterval.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("処理結果の待機が中断されました", e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.CartItem;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * アプリケーションのメモリ上にカートの内容を保持する{@link CartStore}（app.cart.store.type=memory）
+ * <p>
+ * インスタンスごとに保持するため、単一インスタンスで運用する場合にのみ使用すること。
+ * 最後の保存から一定時間(app.cart.store.ttl)が経過したカートは破棄する。ただしDBに未反映のカートは反映されるまで残す。
+ */
+public class InMemoryCartStore implements CartStore {
+
+    private record Entry(List<CartItem> items, long expiresAtNanos) {
+    }
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Set<Long> dirtyCartIds = ConcurrentHashMap.newKeySet();
+
+    private final Duration ttl;
+
+    public InMemoryCartStore(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    @Override
+    public Optional<List<CartItem>> find(Long cartId) {
+        Entry entry = entries.get(cartId);
+        if (entry == null || (isExpired(entry, System.nanoTime()) && !dirtyCartIds.contains(cartId))) {
+            return Optional.empty();
+        }
+        return Optional.of(copyOf(entry.items()));
+    }
+
+    @Override
+    public void put(Long cartId, List<CartItem> items) {
+        entries.put(cartId, newEntry(items));
+    }
+
+    @Override
+    public void putIfAbsent(Long cartId, List<CartItem> items) {
+        long now = System.nanoTime();
+        entries.compute(cartId, (id, current) ->
+                current == null || isExpired(current, now) ? newEntry(items) : current);
+    }
+
+    @Override
+    public boolean updateQuantity(Long cartId, Long cartItemId, int quantity) {
+        // カート単位でアトミックに置き換えるため、同じカートの他のカートアイテムの変更を上書きしない
+        boolean[] updated = {false};
+        long now = System.nanoTime();
+        entries.computeIfPresent(cartId, (id, current) -> {
+            if (isExpired(current, now) && !dirtyCartIds.contains(id)
+                    || current.items().stream().noneMatch(item -> item.getId().equals(cartItemId))) {
+                return current;
+            }
+            updated[0] = true;
+            return newEntry(current.items().stream()
+                    .map(item -> item.getId().equals(cartItemId)
+                            ? new CartItem(item.getId(), item.getCartId(), item.getSkuId(), quantity)
+                            : item)
+                    .toList());
+        });
+        return updated[0];
+    }
+
+    @Override
+    public void evict(Long cartId) {
+        entries.remove(cartId);
+    }
+
+    @Override
+    public void markDirty(Long cartId) {
+        dirtyCartIds.add(cartId);
+    }
+
+    @Override
+    public boolean unmarkDirty(Long cartId) {
+        return dirtyCartIds.remove(cartId);
+    }
+
+    @Override
+    public List<Long> pollDirty(int limit) {
+        List<Long> cartIds = new ArrayList<>();
+        Iterator<Long> iterator = dirtyCartIds.iterator();
+        while (cartIds.size() < limit && iterator.hasNext()) {
+            Long cartId = iterator.next();
+            // 他のスレッドが先に取り出したカートは除く
+            if (dirtyCartIds.remove(cartId)) {
+                cartIds.add(cartId);
+            }
+        }
+        return cartIds;
+    }
+
+    /**
+     * 有効期限が切れたカートを破棄する
+     */
+    @Scheduled(initialDelayString = "${app.cart.store.evict-interval:1m}",
+            fixedDelayString = "${app.cart.store.evict-interval:1m}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        entries.entrySet().removeIf(entry -> isExpired(entry.getValue(), now) && !dirtyCartIds.contains(entry.getKey()));
+    }
+
+    private Entry newEntry(List<CartItem> items) {
+        return new Entry(copyOf(items), System.nanoTime() + ttl.toNanos());
+    }
+
+    // カートアイテムは変更可能なため、保存時と返却時に複製する
+    private static List<CartItem> copyOf(List<CartItem> items) {
+        return items.stream()
+                .map(item -> new CartItem(item.getId(), item.getCartId(), item.getSkuId(), item.getQuantity()))
+                .toList();
+    }
+
+    private static boolean isExpired(Entry entry, long now) {
+        return now - entry.expiresAtNanos() >= 0;
+    }
+}
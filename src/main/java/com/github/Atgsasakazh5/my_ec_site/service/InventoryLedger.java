@@ -0,0 +1,211 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.Inventory;
+import com.github.Atgsasakazh5.my_ec_site.repository.InventoryDao;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * セール時などに在庫の確保をアプリケーション内で行うための在庫台帳（app.inventory.ledger.enabled=trueの場合のみ使用）
+ * <p>
+ * SKU IDごとの販売可能数をメモリ上のカウンターで保持し、確保・解放はCAS(compare-and-set)で行うため、
+ * 同じSKUへの注文が集中してもDBの行ロックを待たない。確定した減算分は一定間隔でまとめてinventoriesテーブルに反映する。
+ * <ul>
+ *     <li>カウンターはDBの在庫数(inventories.quantity)から作成し、カートの在庫確保(reserved_quantity)は差し引かない。
+ *     台帳が有効な間はカートで在庫を確保しないため、確保の解放を台帳に反映する必要はない</li>
+ *     <li>カウンターはアプリケーションのインスタンスごとに持つため、単一インスタンスで運用する場合にのみ有効にすること</li>
+ *     <li>DBへの反映前にプロセスが停止した場合、未反映の減算は失われる（停止時には反映を試みる）</li>
+ * </ul>
+ */
+@Component
+public class InventoryLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryLedger.class);
+
+    private final InventoryDao inventoryDao;
+
+    private final ProductDetailCache productDetailCache;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    // SKU IDごとの販売可能数（在庫数から、台帳で確保・確定した数量を差し引いた値）
+    private final Map<Long, AtomicInteger> available = new ConcurrentHashMap<>();
+
+    // SKU IDごとの、確定済みでDBにまだ反映していない減算数
+    private final Map<Long, AtomicInteger> unflushed = new ConcurrentHashMap<>();
+
+    public InventoryLedger(InventoryDao inventoryDao,
+                           ProductDetailCache productDetailCache,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.inventory.ledger.enabled:false}") boolean enabled) {
+        this.inventoryDao = inventoryDao;
+        this.productDetailCache = productDetailCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 販売可能数を返す（台帳にないSKUはDBから読み込む）。在庫情報が存在しない場合は空
+     */
+    public Optional<Integer> getAvailableQuantity(Long skuId) {
+        return Optional.ofNullable(countersFor(List.of(skuId)).get(skuId)).map(AtomicInteger::get);
+    }
+
+    /**
+     * SKU IDごとに指定した数量を確保する
+     * <p>
+     * すべてのSKUを確保できた場合のみ確保し、1つでも不足していれば何も確保せずに不足したSKU IDを返す。
+     * トランザクション内で呼び出した場合、そのトランザクションがロールバックされると確保を取り消す。
+     *
+     * @return 在庫不足(または在庫情報なし)で確保できなかったSKU ID。すべて確保できた場合は空
+     */
+    public List<Long> reserve(Map<Long, Integer> quantitiesBySkuId) {
+        Map<Long, AtomicInteger> counters = countersFor(quantitiesBySkuId.keySet());
+
+        Map<Long, Integer> reserved = new HashMap<>();
+        List<Long> insufficientSkuIds = new ArrayList<>();
+        quantitiesBySkuId.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    AtomicInteger counter = counters.get(entry.getKey());
+                    if (counter != null && tryDecrement(counter, entry.getValue())) {
+                        reserved.put(entry.getKey(), entry.getValue());
+                    } else {
+                        insufficientSkuIds.add(entry.getKey());
+                    }
+                });
+
+        if (!insufficientSkuIds.isEmpty()) {
+            // 一部だけ確保した状態を残さない
+            release(reserved);
+            return insufficientSkuIds;
+        }
+        TransactionCallbacks.afterRollback(() -> release(quantitiesBySkuId));
+        return List.of();
+    }
+
+    /**
+     * 確保した数量を販売可能数に戻す（決済失敗時など）
+     */
+    public void release(Map<Long, Integer> quantitiesBySkuId) {
+        quantitiesBySkuId.forEach((skuId, quantity) -> {
+            AtomicInteger counter = available.get(skuId);
+            if (counter != null) {
+                counter.addAndGet(quantity);
+            }
+        });
+    }
+
+    /**
+     * 確保した数量を販売済みとして確定し、DBへの反映対象にする
+     */
+    public void confirm(Map<Long, Integer> quantitiesBySkuId) {
+        quantitiesBySkuId.forEach((skuId, quantity) ->
+                unflushed.computeIfAbsent(skuId, id -> new AtomicInteger()).addAndGet(quantity));
+    }
+
+    /**
+     * SKUのカウンターを破棄し、次回の参照時にDBから読み込み直す（管理画面での在庫数の変更・SKUの削除時）
+     * <p>
+     * 未反映の減算も破棄する（変更後の在庫数を正とする）。
+     */
+    public void evict(Long skuId) {
+        TransactionCallbacks.afterCommit(() -> {
+            available.remove(skuId);
+            unflushed.remove(skuId);
+        });
+    }
+
+    /**
+     * 確定済みの減算をまとめてinventoriesテーブルに反映する
+     * <p>
+     * 反映に失敗した減算は次回の実行で再度反映する。
+     */
+    @Scheduled(initialDelayString = "${app.inventory.ledger.flush-interval:200ms}",
+            fixedDelayString = "${app.inventory.ledger.flush-interval:200ms}")
+    public void flush() {
+        if (!enabled || unflushed.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> decrements = new HashMap<>();
+        unflushed.forEach((skuId, counter) -> {
+            int quantity = counter.getAndSet(0);
+            if (quantity != 0) {
+                decrements.put(skuId, quantity);
+            }
+        });
+        if (decrements.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> deltas = new HashMap<>();
+        decrements.forEach((skuId, quantity) -> deltas.put(skuId, -quantity));
+        try {
+            transactionTemplate.executeWithoutResult(status -> inventoryDao.increaseQuantities(deltas));
+            productDetailCache.evictStock(decrements.keySet());
+        } catch (RuntimeException e) {
+            confirm(decrements);
+            logger.warn("在庫台帳の減算をDBに反映できませんでした（次回再試行します）: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // 台帳にないSKUのカウンターをDBの在庫数からまとめて作成し、指定したSKUのカウンターを返す
+    private Map<Long, AtomicInteger> countersFor(Collection<Long> skuIds) {
+        List<Long> missingSkuIds = skuIds.stream()
+                .filter(skuId -> !available.containsKey(skuId))
+                .toList();
+        if (!missingSkuIds.isEmpty()) {
+            for (Inventory inventory : inventoryDao.findBySkuIdIn(missingSkuIds)) {
+                available.putIfAbsent(inventory.getSkuId(), new AtomicInteger(inventory.getQuantity()));
+            }
+        }
+
+        Map<Long, AtomicInteger> counters = new HashMap<>();
+        for (Long skuId : skuIds) {
+            AtomicInteger counter = available.get(skuId);
+            if (counter != null) {
+                counters.put(skuId, counter);
+            }
+        }
+        return counters;
+    }
+
+    // 販売可能数が足りる場合のみ減算する
+    private static boolean tryDecrement(AtomicInteger counter, int quantity) {
+        int current;
+        do {
+            current = counter.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current - quantity));
+        return true;
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * デッドロックやロック待ちタイムアウトで失敗した処理を、間隔をランダムにずらしながら再試行する
+ * <p>
+ * MySQLのデッドロック(1213)・ロック待ちタイムアウト(1205)はいずれも{@link PessimisticLockingFailureException}に変換される。
+ * 失敗したトランザクションはロールバック済みのため、トランザクション全体を再実行する処理を渡すこと
+ * （外側のトランザクションの中で呼び出しても再試行の効果はない）。
+ * 再試行回数は{@code db.lock.retries}、再試行しても失敗した回数は{@code db.lock.retry.exhausted}として記録する。
+ */
+@Component
+public class LockRetryTemplate {
+
+    private static final Logger logger = LoggerFactory.getLogger(LockRetryTemplate.class);
+
+    private final MeterRegistry meterRegistry;
+
+    private final int maxAttempts;
+
+    private final Duration initialBackoff;
+
+    private final Duration maxBackoff;
+
+    public LockRetryTemplate(MeterRegistry meterRegistry,
+                             @Value("${app.lock-retry.max-attempts:3}") int maxAttempts,
+                             @Value("${app.lock-retry.initial-backoff:20ms}") Duration initialBackoff,
+                             @Value("${app.lock-retry.max-backoff:500ms}") Duration maxBackoff) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("app.lock-retry.max-attempts は1以上を指定してください");
+        }
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * 処理を実行し、ロックの競合で失敗した場合は最大回数まで再試行する
+     *
+     * @param operation メトリクス・ログに記録する処理名
+     * @param action    再試行可能な処理（1回のトランザクション）
+     */
+    public <T> T execute(String operation, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    Counter.builder("db.lock.retry.exhausted")
+                            .tag("operation", operation)
+                            .register(meterRegistry)
+                            .increment();
+                    logger.warn("ロックの競合により{}が{}回失敗しました: {}", operation, attempt, e.getMessage());
+                    throw e;
+                }
+                Counter.builder("db.lock.retries")
+                        .tag("operation", operation)
+                        .register(meterRegistry)
+                        .increment();
+                logger.info("ロックの競合により{}を再試行します({}/{}): {}", operation, attempt, maxAttempts, e.getMessage());
+                backoff(attempt, e);
+            }
+        }
+    }
+
+    /**
+     * 戻り値のない処理を実行し、ロックの競合で失敗した場合は最大回数まで再試行する
+     */
+    public void run(String operation, Runnable action) {
+        execute(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // 競合した処理同士が同じタイミングで再実行しないよう、上限付きの指数的な間隔の範囲でランダムに待機する
+    private void backoff(int attempt, PessimisticLockingFailureException cause) {
+        long ceiling = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.Atgsasakazh5.my_ec_site.dto.OrderPlacedEventDto;
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEvent;
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEventType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * 確定した注文の件数・金額をメトリクスとして記録する
+ * <p>
+ * 件数は{@code orders.placed}、金額は{@code orders.placed.amount}として記録する。
+ * 再配信されたイベントは重複して数えられるため、厳密な売上の集計には注文テーブルを使用すること。
+ */
+@Component
+public class OrderPlacedMetricsHandler implements OutboxEventHandler {
+
+    private final ObjectMapper objectMapper;
+
+    private final Counter ordersPlaced;
+
+    private final DistributionSummary orderAmount;
+
+    public OrderPlacedMetricsHandler(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.ordersPlaced = Counter.builder("orders.placed")
+                .register(meterRegistry);
+        this.orderAmount = DistributionSummary.builder("orders.placed.amount")
+                .baseUnit("yen")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public OutboxEventType eventType() {
+        return OutboxEventType.ORDER_PLACED;
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        OrderPlacedEventDto orderPlaced;
+        try {
+            orderPlaced = objectMapper.readValue(event.getPayload(), OrderPlacedEventDto.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("注文確定イベントを読み込めませんでした: " + event.getId(), e);
+        }
+        ordersPlaced.increment();
+        orderAmount.record(orderPlaced.totalPrice());
+    }
+}
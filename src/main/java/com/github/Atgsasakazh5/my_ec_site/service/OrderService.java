@@ -1,15 +1,24 @@
 package com.github.Atgsasakazh5.my_ec_site.service;
 
 import com.github.Atgsasakazh5.my_ec_site.dto.CreateOrderRequestDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.CursorPageResponseDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.OrderDetailDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.OrderDetailResponseDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.OrderSummaryDto;
+import com.github.Atgsasakazh5.my_ec_site.entity.OrderStatus;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public interface OrderService {
-    List<OrderDetailDto> getOrderDetails(String email, Long orderId);
-    List<OrderDetailDto> placeOrder(String email, CreateOrderRequestDto requestDto);
-    List<OrderSummaryDto> getOrderSummaries(String email);
-    OrderDetailResponseDto getOrderDetail(String email, Long orderId);
+    List<OrderDetailDto> getOrderDetails(Long userId, Long orderId);
+    List<OrderDetailDto> placeOrder(Long userId, Long cartId, CreateOrderRequestDto requestDto);
+    List<OrderSummaryDto> getOrderSummaries(Long userId);
+    CursorPageResponseDto<OrderSummaryDto> getOrderSummariesByCursor(Long userId, OrderStatus status, LocalDate from,
+                                                                     LocalDate to, String cursor, int size);
+    OrderDetailResponseDto getOrderDetail(Long userId, Long orderId);
+    // 決済の照合で請求済みと確認できた注文を支払い済みにする。結果が確定済みの注文は更新せずにfalseを返す
+    boolean settlePaidOrder(Long orderId);
+    // 決済の照合で請求されていないと確認できた注文をキャンセル済みにし、在庫を戻す。結果が確定済みの注文は更新せずにfalseを返す
+    boolean settleFailedOrder(Long orderId);
 }
\ No newline at end of file
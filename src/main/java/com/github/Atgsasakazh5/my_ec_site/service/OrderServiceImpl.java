@@ -2,11 +2,20 @@ package com.github.Atgsasakazh5.my_ec_site.service;
 
 import com.github.Atgsasakazh5.my_ec_site.dto.*;
 import com.github.Atgsasakazh5.my_ec_site.entity.*;
+import com.github.Atgsasakazh5.my_ec_site.exception.PaymentDeclinedException;
+import com.github.Atgsasakazh5.my_ec_site.exception.PaymentPendingException;
 import com.github.Atgsasakazh5.my_ec_site.exception.ResourceNotFoundException;
 import com.github.Atgsasakazh5.my_ec_site.repository.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -14,42 +23,62 @@ import java.util.stream.Collectors;
 @Service
 public class OrderServiceImpl implements OrderService {
 
+    private static final Logger logger = LoggerFactory.getLogger(OrderServiceImpl.class);
+
+    // 決済の結果が確定していない注文のステータス
+    private static final List<OrderStatus> UNSETTLED_STATUSES = List.of(OrderStatus.PENDING, OrderStatus.PAYMENT_REVIEW);
+
     private final OrderDao orderDao;
 
     private final OrderDetailDao orderDetailDao;
 
     private final InventoryDao inventoryDao;
 
-    private final CartDao cartDao;
-
     private final CartItemDao cartItemDao;
 
-    private final UserService userService;
-
     private final PaymentService paymentService;
 
-    public OrderServiceImpl(OrderDao orderDao, OrderDetailDao orderDetailDao, InventoryDao inventoryDao, CartDao cartDao, CartItemDao cartItemDao, UserService userService, PaymentService paymentService) {
+    private final ProductDetailCache productDetailCache;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final LockRetryTemplate lockRetryTemplate;
+
+    private final InventoryLedger inventoryLedger;
+
+    private final StockReservationService stockReservationService;
+
+    private final OutboxEventPublisher outboxEventPublisher;
+
+    private final CartWriteBehind cartWriteBehind;
+
+    public OrderServiceImpl(OrderDao orderDao, OrderDetailDao orderDetailDao, InventoryDao inventoryDao, CartItemDao cartItemDao, PaymentService paymentService, ProductDetailCache productDetailCache,
+                            PlatformTransactionManager transactionManager, LockRetryTemplate lockRetryTemplate,
+                            InventoryLedger inventoryLedger, StockReservationService stockReservationService,
+                            OutboxEventPublisher outboxEventPublisher, CartWriteBehind cartWriteBehind) {
         this.orderDao = orderDao;
         this.orderDetailDao = orderDetailDao;
         this.inventoryDao = inventoryDao;
-        this.cartDao = cartDao;
         this.cartItemDao = cartItemDao;
-        this.userService = userService;
         this.paymentService = paymentService;
+        this.productDetailCache = productDetailCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.lockRetryTemplate = lockRetryTemplate;
+        this.inventoryLedger = inventoryLedger;
+        this.stockReservationService = stockReservationService;
+        this.outboxEventPublisher = outboxEventPublisher;
+        this.cartWriteBehind = cartWriteBehind;
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<OrderDetailDto> getOrderDetails(String email, Long orderId) {
-        // ユーザーIDを取得
-        UserDto user = userService.findByEmail(email);
-
+    public List<OrderDetailDto> getOrderDetails(Long userId, Long orderId) {
         // 注文を取得
         Order order = orderDao.findOrderById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("注文が見つかりません: " + orderId));
 
         // orderの属するuserと、リクエストしているユーザーが一致するかを確認
-        if (!order.getUserId().equals(user.id())) {
+        if (!order.getUserId().equals(userId)) {
             throw new SecurityException("この注文にアクセスする権限がありません。");
         }
 
@@ -57,34 +86,111 @@ public class OrderServiceImpl implements OrderService {
         return orderDetailDao.findByOrderId(orderId);
     }
 
+    /**
+     * 注文を確定する
+     * <p>
+     * 在庫の確保・決済・確定を別々の短いトランザクションで実行する。
+     * 決済(Stripeへの通信)の間は在庫のロックもDB接続も保持しないため、決済が遅延しても同じSKUの他の注文を妨げない。
+     * 決済が拒否された場合は、確保した在庫を戻して注文をキャンセル済みにする(補償処理)。
+     * 通信エラーなどで請求されたかどうかがわからない場合は、在庫を確保したまま注文を決済確認中(PAYMENT_REVIEW)にし、
+     * {@link PaymentReconciler}がStripeの決済と照合して支払い済み・キャンセル済みのどちらかにする
+     * ({@link #settlePaidOrder}・{@link #settleFailedOrder})。
+     * 在庫を更新するトランザクションは、デッドロック・ロック待ちタイムアウトで失敗した場合に再試行する。
+     * カートで確保していた在庫({@link StockReservationService})は、在庫の確保と同じトランザクションで解放する。
+     * 在庫台帳({@link InventoryLedger})が有効な場合は、DBの在庫ではなく台帳で在庫を確保し、決済の成功後に確定する。
+     * 決済の結果がわからない場合も、照合まで在庫を確保し続けるよう確定してDBへ反映する（照合でキャンセルした場合はDBと台帳の両方に戻す）。
+     * 注文確定後の処理は{@link OutboxEventPublisher}でイベントとして書き込み、リクエストの外で非同期に実行する。
+     * カートストア({@link CartWriteBehind})にDBへ未反映の数量の変更があれば、カートを読み込む前に反映する。
+     */
     @Override
-    @Transactional
-    public List<OrderDetailDto> placeOrder(String email, CreateOrderRequestDto requestDto) {
-        // カートとユーザーIDを取得
-        Cart cart = cartDao.findCartByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("カートが見つかりません: " + email));
-
-        // カートの中身を取得
-        List<CartItemDto> cartItems = cartItemDao.findDetailedItemsByCartId(cart.getId());
+    public List<OrderDetailDto> placeOrder(Long userId, Long cartId, CreateOrderRequestDto requestDto) {
+        // ユーザーID・カートIDは認証情報から受け取るため、ここで再検索はしない
+        if (cartId == null) {
+            throw new ResourceNotFoundException("カートが見つかりません");
+        }
+
+        // 1. 在庫を確保し、PENDING状態の注文を作成する
+        Reservation reservation = lockRetryTemplate.execute("checkout.reserve",
+                () -> transactionTemplate.execute(status -> reserve(userId, cartId, requestDto)));
+        Order order = reservation.order();
+
+        // 2. 決済処理を呼び出す（トランザクション外）
+        try {
+            paymentService.processPayment(new PaymentRequestDto(order.getId(), requestDto.paymentMethodId()));
+        } catch (PaymentDeclinedException e) {
+            try {
+                lockRetryTemplate.run("checkout.release",
+                        () -> transactionTemplate.executeWithoutResult(status -> release(reservation)));
+            } catch (RuntimeException releaseFailure) {
+                // 補償処理の失敗で決済エラーが隠れないようにする
+                e.addSuppressed(releaseFailure);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            // 請求された可能性があるため、在庫は戻さずに決済確認中として照合を待つ
+            // 台帳の確保はメモリ上にしかないため、確定してDBに反映し、照合までにプロセスが停止しても失われないようにする
+            if (inventoryLedger.isEnabled()) {
+                inventoryLedger.confirm(reservation.quantitiesBySkuId());
+            }
+            markForReview(order, e);
+            throw e instanceof PaymentPendingException pending ? pending
+                    : new PaymentPendingException("決済の結果を確認できませんでした: 注文ID " + order.getId(), order.getId(), e);
+        }
+        if (inventoryLedger.isEnabled()) {
+            inventoryLedger.confirm(reservation.quantitiesBySkuId());
+        }
+
+        // 3. カートを空にして注文を確定し、後続処理(メール送信・集計など)へのイベントを同じトランザクションで書き込む
+        // 決済の間にカートへ追加された商品も削除されるため、その在庫の確保も同じトランザクションで解放する
+        try {
+            lockRetryTemplate.run("checkout.complete", () -> transactionTemplate.executeWithoutResult(status -> {
+                stockReservationService.releaseAll(cartId);
+                cartItemDao.deleteByCartId(cartId);
+                cartWriteBehind.save(cartId, List.of());
+                outboxEventPublisher.publish(OutboxEventType.ORDER_PLACED, order.getId(), new OrderPlacedEventDto(
+                        order.getId(), userId, order.getTotalPrice(), order.getOrderedAt(), reservation.orderDetails()));
+            }));
+        } catch (RuntimeException e) {
+            // 請求は完了しているため、注文をやり直させないよう確認中として応答する
+            logger.error("支払い後に注文を確定できませんでした: 注文ID {}", order.getId(), e);
+            throw new PaymentPendingException("支払いは完了しましたが、注文を確定できませんでした: 注文ID " + order.getId(),
+                    order.getId(), e);
+        }
+
+        // 注文詳細を返却（保存時に組み立てたものを返し、作成したばかりの注文は再取得しない）
+        return reservation.orderDetails();
+    }
+
+    // 在庫を検証・引当し、注文と注文明細を保存する
+    private Reservation reserve(Long userId, Long cartId, CreateOrderRequestDto requestDto) {
+        // カートストアに未反映の数量の変更を反映してから、DBのカートの中身を取得
+        cartWriteBehind.flush(cartId);
+        List<CartItemDto> cartItems = cartItemDao.findDetailedItemsByCartId(cartId);
         if (cartItems.isEmpty()) {
             throw new IllegalStateException("カートが空です");
         }
 
-        // 在庫をロックして検証
-        List<Long> skuIds = cartItems.stream().map(CartItemDto::skuId).toList();
-        Map<Long, Inventory> lockedInventories = inventoryDao.findBySkuIdsWithLock(skuIds).stream()
-                .collect(Collectors.toMap(Inventory::getSkuId, i -> i));
-
-        for (CartItemDto item : cartItems) {
-            Inventory inventory = lockedInventories.get(item.skuId());
-            if (inventory == null || inventory.getQuantity() < item.quantity()) {
-                throw new IllegalStateException("在庫が不足しています: SKU ID " + item.skuId());
-            }
+        // 在庫の検証と引当を条件付きの減算で同時に行う（事前のFOR UPDATEによるロックは不要）
+        Map<Long, Integer> quantitiesBySkuId = cartItems.stream()
+                .collect(Collectors.toMap(CartItemDto::skuId, CartItemDto::quantity, Integer::sum, LinkedHashMap::new));
+        // カートで確保していた数量を販売可能数に戻してから差し引く（同じトランザクション内のため他の注文に横取りされない）
+        // 在庫台帳は確保を差し引かずに数えるため、台帳が有効な場合も確保の記録を残さないよう解放する
+        stockReservationService.releaseAll(cartId);
+        List<Long> insufficientSkuIds = inventoryLedger.isEnabled()
+                ? inventoryLedger.reserve(quantitiesBySkuId)
+                : inventoryDao.decreaseQuantities(quantitiesBySkuId);
+        if (!insufficientSkuIds.isEmpty()) {
+            // 例外によりトランザクションがロールバックされ、他のSKUの減算も取り消される
+            throw new IllegalStateException("在庫が不足しています: SKU ID " + insufficientSkuIds.stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(", ")));
         }
+        // 商品詳細に表示する在庫数を最新にするため、在庫数のキャッシュを破棄する
+        productDetailCache.evictStock(quantitiesBySkuId.keySet());
 
         // PENDING状態で注文を作成・保存
         Order order = new Order();
-        order.setUserId(cart.getUserId());
+        order.setUserId(userId);
         order.setStatus(OrderStatus.PENDING);
         int totalPrice = cartItems.stream().mapToInt(item -> item.price() * item.quantity()).sum();
         order.setTotalPrice(totalPrice);
@@ -93,50 +199,151 @@ public class OrderServiceImpl implements OrderService {
         order.setShippingName(requestDto.shippingName());
         Order savedOrder = orderDao.saveOrder(order);
 
-        // 決済処理を呼び出す
-        paymentService.processPayment(new PaymentRequestDto(savedOrder.getId(), requestDto.paymentMethodId()));
-
-        // 在庫を更新
-        List<Inventory> inventoryUpdates = cartItems.stream()
-                .map(item -> {
-                    Inventory inventory = lockedInventories.get(item.skuId());
-                    inventory.setQuantity(inventory.getQuantity() - item.quantity());
-                    return inventory;
-                })
-                .toList();
-        inventoryDao.updateAll(inventoryUpdates);
-
         // 注文明細を作成
         List<OrderDetail> orderDetails = cartItems.stream()
                 .map(item -> new OrderDetail(null, savedOrder.getId(), item.skuId(), item.quantity(), item.price()))
                 .toList();
-        orderDetailDao.save(orderDetails);
+        List<OrderDetail> savedDetails = orderDetailDao.save(orderDetails);
+
+        // 商品名などはカートの取得時に読み込み済みのため、採番されたIDと合わせてレスポンスを組み立てる
+        List<OrderDetailDto> orderDetailDtos = new ArrayList<>();
+        for (int i = 0; i < cartItems.size(); i++) {
+            CartItemDto item = cartItems.get(i);
+            OrderDetail detail = savedDetails.get(i);
+            orderDetailDtos.add(new OrderDetailDto(detail.getId(), savedOrder.getId(), item.skuId(), item.productName(),
+                    item.size(), item.color(), item.imageUrl(), item.price(), item.quantity()));
+        }
 
-        // カートを空にする
-        cartItemDao.deleteByCartId(cart.getId());
+        return new Reservation(savedOrder, quantitiesBySkuId, orderDetailDtos);
+    }
 
-        // 注文詳細を返却
-        return getOrderDetails(email, savedOrder.getId());
+    // 決済が拒否された注文の在庫を戻し、注文をキャンセル済みにする
+    private void release(Reservation reservation) {
+        Map<Long, Integer> quantitiesBySkuId = reservation.quantitiesBySkuId();
+        if (inventoryLedger.isEnabled()) {
+            // 台帳はトランザクション管理外のため、再試行で二重に戻さないようコミット後に戻す
+            TransactionCallbacks.afterCommit(() -> inventoryLedger.release(quantitiesBySkuId));
+        } else {
+            inventoryDao.increaseQuantities(quantitiesBySkuId);
+            productDetailCache.evictStock(quantitiesBySkuId.keySet());
+        }
+
+        Order order = reservation.order();
+        order.setStatus(OrderStatus.CANCELED);
+        orderDao.updateOrder(order);
     }
 
+    /**
+     * 決済の照合で請求済みと確認できた注文を支払い済みにし、注文確定のイベントを書き込む
+     * <p>
+     * カートは注文後に変更されている可能性があるため空にしない。
+     */
     @Override
-    @Transactional(readOnly = true)
-    public List<OrderSummaryDto> getOrderSummaries(String email) {
-        UserDto user = userService.findByEmail(email);
+    public boolean settlePaidOrder(Long orderId) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            Order order = orderDao.findOrderById(orderId)
+                    .orElseThrow(() -> new ResourceNotFoundException("注文が見つかりません: " + orderId));
+            if (!orderDao.updateStatusIfIn(orderId, UNSETTLED_STATUSES, OrderStatus.PAID)) {
+                return false;
+            }
+            // 在庫は注文時に確保済み（台帳が有効な場合も、決済の結果がわからなくなった時点で確定済み）
+            List<OrderDetailDto> orderDetails = orderDetailDao.findByOrderId(orderId);
+            outboxEventPublisher.publish(OutboxEventType.ORDER_PLACED, orderId, new OrderPlacedEventDto(
+                    orderId, order.getUserId(), order.getTotalPrice(), order.getOrderedAt(), orderDetails));
+            return true;
+        }));
+    }
+
+    /**
+     * 決済の照合で請求されていないと確認できた注文をキャンセル済みにし、確保した在庫を戻す
+     * <p>
+     * 在庫台帳が有効な場合も確保は確定済み(DBに反映済み、または反映待ち)のため、DBの在庫を戻したうえで台帳の販売可能数も戻す。
+     */
+    @Override
+    public boolean settleFailedOrder(Long orderId) {
+        return lockRetryTemplate.execute("checkout.release", () -> Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (!orderDao.updateStatusIfIn(orderId, UNSETTLED_STATUSES, OrderStatus.CANCELED)) {
+                return false;
+            }
+            Map<Long, Integer> quantitiesBySkuId = quantitiesBySkuId(orderDetailDao.findByOrderId(orderId));
+            inventoryDao.increaseQuantities(quantitiesBySkuId);
+            productDetailCache.evictStock(quantitiesBySkuId.keySet());
+            if (inventoryLedger.isEnabled()) {
+                TransactionCallbacks.afterCommit(() -> inventoryLedger.release(quantitiesBySkuId));
+            }
+            return true;
+        })));
+    }
 
-        return orderDao.findOrderSummariesByUserId(user.id());
+    private static Map<Long, Integer> quantitiesBySkuId(List<OrderDetailDto> orderDetails) {
+        return orderDetails.stream()
+                .collect(Collectors.toMap(OrderDetailDto::skuId, OrderDetailDto::quantity, Integer::sum, LinkedHashMap::new));
+    }
+
+    // 決済の結果がわからない注文を決済確認中にする（更新に失敗した場合もPENDINGのまま残り、在庫は戻さない。
+    // いずれの場合もPaymentReconcilerが照合する）
+    private void markForReview(Order order, RuntimeException cause) {
+        logger.error("決済の結果を確認できないため、注文を決済確認中にします: 注文ID {}", order.getId(), cause);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                order.setStatus(OrderStatus.PAYMENT_REVIEW);
+                orderDao.updateOrder(order);
+            });
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    // 在庫の確保が完了した注文と、SKU IDごとの確保した数量、レスポンスとして返す注文明細
+    private record Reservation(Order order, Map<Long, Integer> quantitiesBySkuId, List<OrderDetailDto> orderDetails) {
     }
 
     @Override
     @Transactional(readOnly = true)
-    public OrderDetailResponseDto getOrderDetail(String email, Long orderId) {
-        UserDto user = userService.findByEmail(email);
+    public List<OrderSummaryDto> getOrderSummaries(Long userId) {
+        return orderDao.findOrderSummariesByUserId(userId);
+    }
 
+    /**
+     * 注文履歴を新しい順にカーソル方式で取得する
+     * <p>
+     * 注文日時とIDの組をカーソルにするため、同じ日時の注文があってもページの境界で重複・欠落しない。
+     * 期間はfrom・toの日付を含む（toの翌日0時未満）。
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<OrderSummaryDto> getOrderSummariesByCursor(Long userId, OrderStatus status, LocalDate from,
+                                                                            LocalDate to, String cursor, int size) {
+        final List<Integer> ALLOWED_PAGE_SIZES = List.of(20, 50, 100);
+        int validatedSize = ALLOWED_PAGE_SIZES.contains(size) ? size : 20;
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("期間の開始日は終了日以前の日付を指定してください");
+        }
+        PageCursor.Position position = PageCursor.decodePosition(cursor);
+
+        // 次のページの有無を判定するため1件多く取得する
+        List<OrderSummaryDto> orders = orderDao.findOrderSummariesByCursor(userId, status,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                position != null ? position.sortedAt() : null,
+                position != null ? position.id() : null,
+                validatedSize + 1);
+
+        boolean hasNext = orders.size() > validatedSize;
+        List<OrderSummaryDto> page = hasNext ? orders.subList(0, validatedSize) : orders;
+        OrderSummaryDto last = hasNext ? page.get(page.size() - 1) : null;
+        String nextCursor = last != null ? PageCursor.encode(last.orderedAt(), last.orderId()) : null;
+        return new CursorPageResponseDto<>(page, validatedSize, nextCursor);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OrderDetailResponseDto getOrderDetail(Long userId, Long orderId) {
         Order order = orderDao.findOrderById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("注文が見つかりません: " + orderId));
 
         // オーダーの属するユーザーとリクエストしているユーザーが一致するかを確認
-        if (!order.getUserId().equals(user.id())) {
+        if (!order.getUserId().equals(userId)) {
             throw new SecurityException("この注文にアクセスする権限がありません。");
         }
 
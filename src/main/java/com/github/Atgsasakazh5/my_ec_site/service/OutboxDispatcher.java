@@ -0,0 +1,237 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEvent;
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEventStatus;
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEventType;
+import com.github.Atgsasakazh5.my_ec_site.repository.OutboxEventDao;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * outbox_eventsテーブルのイベントを定期的に取得し、種類ごとの{@link OutboxEventHandler}に配信する
+ * <p>
+ * イベントは一定件数ずつ取得し、上限付きのスレッドプールで並行して処理する（キューが埋まった場合はポーリングのスレッドで処理する）。
+ * 取得したイベントはリース期限(app.outbox.lease)まで他のインスタンスが取得しないため、複数インスタンスで実行しても二重に配信しない。
+ * <ul>
+ *     <li>処理に失敗したイベントは、上限付きの指数的な間隔を空けて再配信する。最大回数に達した場合はFAILEDにする</li>
+ *     <li>書き込みから配信完了までの遅延は{@code outbox.lag}、未配信の件数は{@code outbox.pending}として記録する</li>
+ * </ul>
+ */
+@Component
+public class OutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OutboxEventDao outboxEventDao;
+
+    private final Map<OutboxEventType, List<OutboxEventHandler>> handlersByType = new EnumMap<>(OutboxEventType.class);
+
+    private final MeterRegistry meterRegistry;
+
+    private final ThreadPoolExecutor executor;
+
+    private final int batchSize;
+
+    private final Duration lease;
+
+    private final int maxAttempts;
+
+    private final Duration initialBackoff;
+
+    private final Duration maxBackoff;
+
+    private final Duration retention;
+
+    private final AtomicLong pending = new AtomicLong();
+
+    public OutboxDispatcher(OutboxEventDao outboxEventDao, List<OutboxEventHandler> handlers, MeterRegistry meterRegistry,
+                            @Value("${app.outbox.worker-threads:4}") int workerThreads,
+                            @Value("${app.outbox.batch-size:100}") int batchSize,
+                            @Value("${app.outbox.lease:1m}") Duration lease,
+                            @Value("${app.outbox.max-attempts:10}") int maxAttempts,
+                            @Value("${app.outbox.initial-backoff:1s}") Duration initialBackoff,
+                            @Value("${app.outbox.max-backoff:10m}") Duration maxBackoff,
+                            @Value("${app.outbox.retention:7d}") Duration retention) {
+        if (workerThreads < 1 || batchSize < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("app.outbox.worker-threads, batch-size, max-attempts は1以上を指定してください");
+        }
+        this.outboxEventDao = outboxEventDao;
+        handlers.forEach(handler ->
+                handlersByType.computeIfAbsent(handler.eventType(), type -> new ArrayList<>()).add(handler));
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.retention = retention;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "outbox-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // キューが埋まった場合・停止処理中はポーリングのスレッドで処理する（CallerRunsPolicyは停止後に破棄するため使わない）
+                (runnable, pool) -> runnable.run());
+
+        Gauge.builder("outbox.pending", pending, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 配信できるイベントがなくなるまで、一定件数ずつ配信する
+     *
+     * @return 配信に成功したイベントの件数
+     */
+    @Scheduled(initialDelayString = "${app.outbox.poll-interval:500ms}",
+            fixedDelayString = "${app.outbox.poll-interval:500ms}")
+    public int dispatch() {
+        int total = 0;
+        try {
+            List<OutboxEvent> events;
+            do {
+                LocalDateTime now = LocalDateTime.now();
+                events = outboxEventDao.claimDispatchable(now, now.plus(lease), batchSize);
+                total += dispatchBatch(events);
+            } while (events.size() == batchSize);
+            pending.set(outboxEventDao.countPending());
+        } catch (RuntimeException e) {
+            // 確保済みのイベントはリース期限の経過後に再度配信する
+            logger.warn("イベントの配信に失敗しました: {}", e.getMessage());
+        }
+        return total;
+    }
+
+    /**
+     * 保持期間(app.outbox.retention)を過ぎた配信済みのイベントを削除する
+     */
+    @Scheduled(initialDelayString = "${app.outbox.purge-interval:1h}",
+            fixedDelayString = "${app.outbox.purge-interval:1h}")
+    public void purge() {
+        try {
+            int deleted = outboxEventDao.deleteProcessedBefore(LocalDateTime.now().minus(retention));
+            if (deleted > 0) {
+                logger.info("配信済みのイベントを{}件削除しました", deleted);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("配信済みのイベントの削除に失敗しました: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // 受け付け済みのイベントは処理を終えてから停止する。待ちきれなかったイベントはリース期限の経過後に再度配信される
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // イベントを並行して処理し、すべて終わってから結果をまとめて記録する
+    private int dispatchBatch(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<RuntimeException>> results = events.stream()
+                .map(event -> CompletableFuture.supplyAsync(() -> handle(event), executor))
+                .toList();
+
+        List<Long> processedIds = new ArrayList<>();
+        List<OutboxEvent> processed = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            OutboxEvent event = events.get(i);
+            RuntimeException failure = results.get(i).join();
+            if (failure == null) {
+                processedIds.add(event.getId());
+                processed.add(event);
+            } else {
+                recordFailure(event, failure);
+            }
+        }
+
+        LocalDateTime processedAt = LocalDateTime.now();
+        outboxEventDao.markProcessed(processedIds, processedAt);
+        for (OutboxEvent event : processed) {
+            Counter.builder("outbox.events.dispatched")
+                    .tag("event_type", event.getEventType().name())
+                    .register(meterRegistry)
+                    .increment();
+            Timer.builder("outbox.lag")
+                    .tag("event_type", event.getEventType().name())
+                    .register(meterRegistry)
+                    .record(Duration.between(event.getCreatedAt(), processedAt));
+        }
+        return processedIds.size();
+    }
+
+    // イベントを対応するハンドラーで処理し、失敗した場合はその例外を返す
+    private RuntimeException handle(OutboxEvent event) {
+        try {
+            for (OutboxEventHandler handler : handlersByType.getOrDefault(event.getEventType(), List.of())) {
+                handler.handle(event);
+            }
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private void recordFailure(OutboxEvent event, RuntimeException failure) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(truncate(failure.getClass().getSimpleName() + ": " + failure.getMessage()));
+        if (attempts >= maxAttempts) {
+            event.setStatus(OutboxEventStatus.FAILED);
+            Counter.builder("outbox.events.failed")
+                    .tag("event_type", event.getEventType().name())
+                    .register(meterRegistry)
+                    .increment();
+            logger.error("イベント(id={}, {})の配信が{}回失敗したため中止しました: {}",
+                    event.getId(), event.getEventType(), attempts, failure.getMessage());
+        } else {
+            event.setNextAttemptAt(LocalDateTime.now().plus(backoff(attempts)));
+            Counter.builder("outbox.events.retries")
+                    .tag("event_type", event.getEventType().name())
+                    .register(meterRegistry)
+                    .increment();
+            logger.info("イベント(id={}, {})の配信に失敗したため再試行します({}/{}): {}",
+                    event.getId(), event.getEventType(), attempts, maxAttempts, failure.getMessage());
+        }
+        outboxEventDao.markFailed(event);
+    }
+
+    // 失敗した回数に応じて、上限付きの指数的な間隔を返す
+    private Duration backoff(int attempts) {
+        long millis = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempts - 1, 20));
+        return Duration.ofMillis(millis);
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEvent;
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEventType;
+
+/**
+ * outbox_eventsテーブルに書き込まれたイベントを処理する後続処理（確認メール・集計など）
+ * <p>
+ * Beanとして登録すると{@link OutboxDispatcher}が対応する種類のイベントを配信する。
+ * 失敗したイベントや配信中にプロセスが停止したイベントは再配信されるため、同じイベントを複数回処理しても結果が変わらないようにすること。
+ */
+public interface OutboxEventHandler {
+
+    OutboxEventType eventType();
+
+    void handle(OutboxEvent event);
+}
@@ -0,0 +1,45 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEvent;
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEventStatus;
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEventType;
+import com.github.Atgsasakazh5.my_ec_site.repository.OutboxEventDao;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * 後続処理に渡すイベントをoutbox_eventsテーブルに書き込む
+ * <p>
+ * 業務データを更新するトランザクションの中で呼び出すこと。イベントは業務データと一緒にコミット・ロールバックされ、
+ * コミット後に{@link OutboxDispatcher}が各{@link OutboxEventHandler}へ配信する。
+ */
+@Component
+public class OutboxEventPublisher {
+
+    private final OutboxEventDao outboxEventDao;
+
+    private final ObjectMapper objectMapper;
+
+    public OutboxEventPublisher(OutboxEventDao outboxEventDao, ObjectMapper objectMapper) {
+        this.outboxEventDao = outboxEventDao;
+        this.objectMapper = objectMapper;
+    }
+
+    public OutboxEvent publish(OutboxEventType eventType, Long aggregateId, Object payload) {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxEvent event = new OutboxEvent(null, eventType, aggregateId, write(payload), OutboxEventStatus.PENDING,
+                0, now, null, now, null);
+        return outboxEventDao.save(event);
+    }
+
+    private String write(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("イベントの内容をJSONに変換できませんでした", e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * カーソル方式のページネーションで使用するカーソルの変換
+ * <p>
+ * クライアントには最後に取得したIDをBase64URLでエンコードした文字列として渡し、内部形式には依存させない。
+ * 日時順に並べる一覧では、同じ日時の行を区別するため日時とIDの組をカーソルにする。
+ */
+final class PageCursor {
+
+    private static final String POSITION_SEPARATOR = "_";
+
+    // 日時とIDの組で並べる一覧の、最後に取得した行の位置
+    record Position(LocalDateTime sortedAt, Long id) {
+    }
+
+    private PageCursor() {
+    }
+
+    static String encode(Long lastSeenId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(lastSeenId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String encode(LocalDateTime sortedAt, Long lastSeenId) {
+        String position = sortedAt + POSITION_SEPARATOR + lastSeenId;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // カーソルが未指定の場合は先頭から取得するためnullを返す
+    static Long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        long lastSeenId;
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            lastSeenId = Long.parseLong(decoded);
+        } catch (IllegalArgumentException e) {
+            // Base64の形式不正・数値変換の失敗(NumberFormatException)のどちらもここで扱う
+            throw new IllegalArgumentException("カーソルが不正です", e);
+        }
+        if (lastSeenId <= 0) {
+            throw new IllegalArgumentException("カーソルが不正です");
+        }
+        return lastSeenId;
+    }
+
+    // カーソルが未指定の場合は先頭から取得するためnullを返す
+    static Position decodePosition(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        Position position;
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf(POSITION_SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("カーソルが不正です");
+            }
+            position = new Position(LocalDateTime.parse(decoded.substring(0, separator)),
+                    Long.parseLong(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("カーソルが不正です", e);
+        }
+        if (position.id() <= 0) {
+            throw new IllegalArgumentException("カーソルが不正です");
+        }
+        return position;
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.Order;
+import com.github.Atgsasakazh5.my_ec_site.repository.OrderDao;
+import com.github.Atgsasakazh5.my_ec_site.service.PaymentService.PaymentOutcome;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 決済の結果が確定していない注文(PENDING・PAYMENT_REVIEW)を定期的にStripeの決済と照合する
+ * <p>
+ * 請求済みであれば支払い済みにし、請求されていなければキャンセル済みにして確保した在庫を戻す。
+ * <ul>
+ *     <li>注文確定の処理中の注文と、Stripeの検索への反映の遅れを避けるため、作成から一定時間(app.payment.reconcile-delay)経過した注文のみ照合する</li>
+ *     <li>認証待ちなどで一定時間(app.payment.review-timeout)経過しても確定しない決済は取り消す</li>
+ *     <li>ステータスの更新は照合前のステータスの場合のみ行うため、複数インスタンスで実行しても二重に確定・取り消ししない</li>
+ * </ul>
+ */
+@Component
+public class PaymentReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentReconciler.class);
+
+    private final OrderDao orderDao;
+
+    private final PaymentService paymentService;
+
+    private final OrderService orderService;
+
+    private final Duration reconcileDelay;
+
+    private final Duration reviewTimeout;
+
+    private final int batchSize;
+
+    public PaymentReconciler(OrderDao orderDao, PaymentService paymentService, OrderService orderService,
+                             @Value("${app.payment.reconcile-delay:10m}") Duration reconcileDelay,
+                             @Value("${app.payment.review-timeout:1h}") Duration reviewTimeout,
+                             @Value("${app.payment.reconcile-batch-size:100}") int batchSize) {
+        this.orderDao = orderDao;
+        this.paymentService = paymentService;
+        this.orderService = orderService;
+        this.reconcileDelay = reconcileDelay;
+        this.reviewTimeout = reviewTimeout;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${app.payment.reconcile-interval:1m}",
+            fixedDelayString = "${app.payment.reconcile-interval:1m}")
+    public void reconcile() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> orders;
+        try {
+            orders = orderDao.findUnsettledOrders(now.minus(reconcileDelay), batchSize);
+        } catch (RuntimeException e) {
+            logger.warn("決済の結果が確定していない注文を取得できませんでした: {}", e.getMessage());
+            return;
+        }
+
+        int settled = 0;
+        for (Order order : orders) {
+            try {
+                if (reconcile(order, now)) {
+                    settled++;
+                }
+            } catch (RuntimeException e) {
+                // 次回の実行で再度照合する
+                logger.warn("決済の照合に失敗しました: 注文ID {}: {}", order.getId(), e.getMessage());
+            }
+        }
+        if (settled > 0) {
+            logger.info("決済の照合により{}件の注文の結果を確定しました", settled);
+        }
+    }
+
+    // 注文を照合し、支払い済み・キャンセル済みのどちらかにした場合はtrue
+    boolean reconcile(Order order, LocalDateTime now) {
+        PaymentOutcome outcome = paymentService.retrievePaymentOutcome(order);
+        if (outcome == PaymentOutcome.PENDING && order.getOrderedAt().plus(reviewTimeout).isBefore(now)) {
+            outcome = paymentService.cancelPayment(order);
+        }
+        return switch (outcome) {
+            case SUCCEEDED -> orderService.settlePaidOrder(order.getId());
+            case FAILED -> orderService.settleFailedOrder(order.getId());
+            case PENDING -> false;
+        };
+    }
+}
@@ -1,7 +1,22 @@
 package com.github.Atgsasakazh5.my_ec_site.service;
 
 import com.github.Atgsasakazh5.my_ec_site.dto.PaymentRequestDto;
+import com.github.Atgsasakazh5.my_ec_site.entity.Order;
 
 public interface PaymentService {
+
+    // 決済の照合結果
+    enum PaymentOutcome {
+        SUCCEEDED, // 請求済み
+        FAILED,    // 請求されていない（決済が作成されていない場合を含む）
+        PENDING    // 認証待ち・処理中などで、まだ確定していない
+    }
+
     void processPayment(PaymentRequestDto request);
-}
\ No newline at end of file
+
+    // 注文の決済の状態をStripeに問い合わせる（決済の結果が確定していない注文の照合に使用する）
+    PaymentOutcome retrievePaymentOutcome(Order order);
+
+    // 確定していない注文の決済を取り消し、取り消した後の状態を返す
+    PaymentOutcome cancelPayment(Order order);
+}
@@ -3,21 +3,34 @@ package com.github.Atgsasakazh5.my_ec_site.service;
 import com.github.Atgsasakazh5.my_ec_site.dto.PaymentRequestDto;
 import com.github.Atgsasakazh5.my_ec_site.entity.Order;
 import com.github.Atgsasakazh5.my_ec_site.entity.OrderStatus;
+import com.github.Atgsasakazh5.my_ec_site.exception.PaymentDeclinedException;
+import com.github.Atgsasakazh5.my_ec_site.exception.PaymentPendingException;
 import com.github.Atgsasakazh5.my_ec_site.exception.ResourceNotFoundException;
 import com.github.Atgsasakazh5.my_ec_site.repository.OrderDao;
 import com.stripe.Stripe;
+import com.stripe.exception.AuthenticationException;
 import com.stripe.exception.CardException;
+import com.stripe.exception.InvalidRequestException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
 import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.PaymentIntentSearchParams;
 import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
 
 @Service
 public class PaymentServiceImpl implements PaymentService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PaymentServiceImpl.class);
+
+    // 決済に保存する注文IDのメタデータのキー
+    static final String ORDER_ID_METADATA = "order_id";
+
     private final String stripeSecretKey;
     private final OrderDao orderDao;
     private final String stripeReturnUrl;
@@ -37,8 +50,13 @@ public class PaymentServiceImpl implements PaymentService {
         Stripe.apiKey = this.stripeSecretKey;
     }
 
+    // Stripeへの通信中にDB接続やロックを保持しないよう、トランザクションは開始しない
+    // （注文の取得・更新はそれぞれ単独で実行される）
+    // 請求されていないことが確定した場合(カードの拒否、Stripeが受け付けなかったリクエスト、
+    // ステータスがrequires_payment_method・canceled)のみPaymentDeclinedExceptionをスローする。
+    // 通信エラーなどで請求の有無がわからない場合、3Dセキュア認証待ち・処理中などで支払いが確定していない場合、
+    // 請求後に注文を更新できなかった場合はPaymentPendingExceptionをスローする
     @Override
-    @Transactional
     public void processPayment(PaymentRequestDto request) {
         Order order = orderDao.findOrderById(request.orderId())
                 .orElseThrow(() -> new ResourceNotFoundException("指定された注文は存在しません: " + request.orderId()));
@@ -47,6 +65,7 @@ public class PaymentServiceImpl implements PaymentService {
             throw new IllegalStateException("既に支払い済みです。現在のステータス: " + order.getStatus());
         }
 
+        PaymentIntent paymentIntent;
         try {
             PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
                     .setAmount((long) order.getTotalPrice())
@@ -55,22 +74,100 @@ public class PaymentServiceImpl implements PaymentService {
                     .setConfirmationMethod(PaymentIntentCreateParams.ConfirmationMethod.MANUAL)
                     .setReturnUrl(this.stripeReturnUrl)
                     .setConfirm(true)
+                    // 決済のIDを保存できなかった場合も、照合時に注文IDで決済を検索できるようにする
+                    .putMetadata(ORDER_ID_METADATA, String.valueOf(order.getId()))
                     .build();
 
-            PaymentIntent paymentIntent = PaymentIntent.create(params);
+            paymentIntent = PaymentIntent.create(params);
+        } catch (CardException e) {
+            throw new PaymentDeclinedException("決済エラー: " + e.getMessage(), e);
+        } catch (AuthenticationException | InvalidRequestException e) {
+            // APIキー・権限の誤りや不正なリクエスト(レート制限を含む)はStripeが処理していないため、請求されていない
+            // （PermissionExceptionはAuthenticationException、RateLimitExceptionはInvalidRequestExceptionのサブクラス）
+            logger.error("Stripeが決済のリクエストを受け付けませんでした: 注文ID {}", order.getId(), e);
+            throw new PaymentDeclinedException("決済を処理できませんでした。", e);
+        } catch (StripeException e) {
+            throw new PaymentPendingException("支払い処理中にStripeでエラーが発生しました。", order.getId(), e);
+        }
 
-            if ("succeeded".equals(paymentIntent.getStatus())) {
-                order.setStatus(OrderStatus.PAID);
-                orderDao.updateOrder(order);
-            } else {
-                throw new IllegalStateException("支払いが完了しませんでした。ステータス: " + paymentIntent.getStatus());
-            }
+        savePaymentIntentId(order, paymentIntent.getId());
 
-        } catch (CardException e) {
-            throw new IllegalStateException("決済エラー: " + e.getMessage(), e);
+        String status = paymentIntent.getStatus();
+        PaymentOutcome outcome = toOutcome(status);
+        if (outcome == PaymentOutcome.FAILED) {
+            throw new PaymentDeclinedException("支払いが完了しませんでした。ステータス: " + status);
+        }
+        if (outcome == PaymentOutcome.PENDING) {
+            // 3Dセキュア認証待ち(requires_action)・処理中(processing)などは、この後に請求される可能性がある
+            throw new PaymentPendingException("支払いが完了していません: 注文ID " + order.getId() + "、ステータス: " + status,
+                    order.getId(), null);
+        }
+
+        try {
+            order.setStatus(OrderStatus.PAID);
+            orderDao.updateOrder(order);
+        } catch (RuntimeException e) {
+            throw new PaymentPendingException("支払いは完了しましたが、注文を更新できませんでした: 注文ID " + order.getId(), order.getId(), e);
+        }
+    }
+
+    @Override
+    public PaymentOutcome retrievePaymentOutcome(Order order) {
+        try {
+            return findPaymentIntent(order)
+                    .map(paymentIntent -> toOutcome(paymentIntent.getStatus()))
+                    // 決済が作成されていない（作成前に処理が中断された）場合は請求されていない
+                    .orElse(PaymentOutcome.FAILED);
         } catch (StripeException e) {
-            throw new RuntimeException("支払い処理中にStripeでエラーが発生しました。", e);
+            throw new PaymentPendingException("決済の状態を取得できませんでした: 注文ID " + order.getId(), order.getId(), e);
         }
     }
 
+    @Override
+    public PaymentOutcome cancelPayment(Order order) {
+        try {
+            Optional<PaymentIntent> paymentIntent = findPaymentIntent(order);
+            if (paymentIntent.isEmpty()) {
+                return PaymentOutcome.FAILED;
+            }
+            return toOutcome(paymentIntent.get().cancel().getStatus());
+        } catch (StripeException e) {
+            // 取り消せない状態(請求済みなど)に変わった場合も含め、次回の照合で状態を取得し直す
+            throw new PaymentPendingException("決済を取り消せませんでした: 注文ID " + order.getId(), order.getId(), e);
+        }
+    }
+
+    // 注文の決済を取得する。IDを保存していない場合はメタデータの注文IDで検索する（作成されていない場合は空）
+    private Optional<PaymentIntent> findPaymentIntent(Order order) throws StripeException {
+        if (order.getPaymentIntentId() != null) {
+            return Optional.of(PaymentIntent.retrieve(order.getPaymentIntentId()));
+        }
+        PaymentIntentSearchParams params = PaymentIntentSearchParams.builder()
+                .setQuery("metadata['" + ORDER_ID_METADATA + "']:'" + order.getId() + "'")
+                .build();
+        Optional<PaymentIntent> paymentIntent = PaymentIntent.search(params).getData().stream().findFirst();
+        paymentIntent.ifPresent(found -> savePaymentIntentId(order, found.getId()));
+        return paymentIntent;
+    }
+
+    // 照合で決済を特定できるよう、決済のIDを注文に保存する（失敗した場合は照合時にメタデータで検索する）
+    private void savePaymentIntentId(Order order, String paymentIntentId) {
+        try {
+            orderDao.updatePaymentIntentId(order.getId(), paymentIntentId);
+            order.setPaymentIntentId(paymentIntentId);
+        } catch (RuntimeException e) {
+            logger.warn("決済のIDを注文に保存できませんでした: 注文ID {}: {}", order.getId(), e.getMessage());
+        }
+    }
+
+    // requires_payment_method・canceledは請求されずに終了した状態。succeeded以外のその他の状態はまだ確定していない
+    private static PaymentOutcome toOutcome(String status) {
+        if ("succeeded".equals(status)) {
+            return PaymentOutcome.SUCCEEDED;
+        }
+        if ("requires_payment_method".equals(status) || "canceled".equals(status)) {
+            return PaymentOutcome.FAILED;
+        }
+        return PaymentOutcome.PENDING;
+    }
 }
@@ -0,0 +1,87 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * 商品数(全体・カテゴリごと)のカウンターキャッシュ
+ * <p>
+ * 初回のみDBから件数を読み込み、以降は商品の登録・削除時にコミット後に増減させる。
+ * 他インスタンスでの増減や読み込みと更新の競合による誤差は、{@link ProductCountReconciler}による定期的な再集計で補正される。
+ */
+@Component
+public class ProductCountCache {
+
+    // 未読み込みを表す値
+    private static final int UNKNOWN = -1;
+
+    private final AtomicInteger totalCount = new AtomicInteger(UNKNOWN);
+
+    // カテゴリID → 商品数
+    private final Map<Integer, Integer> categoryCounts = new ConcurrentHashMap<>();
+
+    // キャッシュになければloaderで読み込む
+    public int countAll(IntSupplier loader) {
+        int count = totalCount.get();
+        if (count != UNKNOWN) {
+            return count;
+        }
+        int loaded = loader.getAsInt();
+        // 読み込み中に他のスレッドが設定した場合はそちらを優先する
+        return totalCount.compareAndSet(UNKNOWN, loaded) ? loaded : totalCount.get();
+    }
+
+    public int countByCategoryId(int categoryId, IntSupplier loader) {
+        Integer count = categoryCounts.get(categoryId);
+        if (count != null) {
+            return count;
+        }
+        // DBからの読み込みはマップの外で行う（computeIfAbsentでは読み込み中に同じ区画の他のカテゴリの参照・増減が待たされる）
+        int loaded = loader.getAsInt();
+        // 読み込み中に他のスレッドが設定した場合はそちらを優先する
+        Integer current = categoryCounts.putIfAbsent(categoryId, loaded);
+        return current != null ? current : loaded;
+    }
+
+    // 商品の登録時に呼び出す
+    public void increment(int categoryId) {
+        TransactionCallbacks.afterCommit(() -> add(categoryId, 1));
+    }
+
+    // 商品の削除時に呼び出す
+    public void decrement(int categoryId) {
+        TransactionCallbacks.afterCommit(() -> add(categoryId, -1));
+    }
+
+    // 商品のカテゴリ変更時に呼び出す（全体の件数は変わらない）
+    public void move(int fromCategoryId, int toCategoryId) {
+        if (fromCategoryId == toCategoryId) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            addToCategory(fromCategoryId, -1);
+            addToCategory(toCategoryId, 1);
+        });
+    }
+
+    // DBから再集計した件数でキャッシュを置き換える（件数が0のカテゴリは次回参照時に読み込む）
+    public void reset(int total, Map<Integer, Integer> countsByCategoryId) {
+        totalCount.set(total);
+        categoryCounts.clear();
+        categoryCounts.putAll(countsByCategoryId);
+    }
+
+    private void add(int categoryId, int delta) {
+        // 未読み込みの場合は次回参照時にDBから読み込むため何もしない
+        totalCount.updateAndGet(count -> count == UNKNOWN ? UNKNOWN : Math.max(count + delta, 0));
+        addToCategory(categoryId, delta);
+    }
+
+    private void addToCategory(int categoryId, int delta) {
+        categoryCounts.computeIfPresent(categoryId, (id, count) -> Math.max(count + delta, 0));
+    }
+}
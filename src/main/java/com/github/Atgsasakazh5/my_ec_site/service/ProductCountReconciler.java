@@ -0,0 +1,40 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.repository.ProductDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 商品数のカウンターキャッシュを定期的にDBの件数と突き合わせて補正する
+ */
+@Component
+public class ProductCountReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCountReconciler.class);
+
+    private final ProductDao productDao;
+
+    private final ProductCountCache productCountCache;
+
+    public ProductCountReconciler(ProductDao productDao, ProductCountCache productCountCache) {
+        this.productDao = productDao;
+        this.productCountCache = productCountCache;
+    }
+
+    @Scheduled(initialDelayString = "${app.cache.product-count.reconcile-interval:5m}",
+            fixedDelayString = "${app.cache.product-count.reconcile-interval:5m}")
+    public void reconcile() {
+        try {
+            int total = productDao.countAll();
+            Map<Integer, Integer> countsByCategoryId = productDao.countGroupByCategoryId();
+            productCountCache.reset(total, countsByCategoryId);
+        } catch (RuntimeException e) {
+            // 次回の実行で再試行する。それまでは現在のカウンターを使い続ける
+            logger.warn("商品数の再集計に失敗しました: {}", e.getMessage());
+        }
+    }
+}
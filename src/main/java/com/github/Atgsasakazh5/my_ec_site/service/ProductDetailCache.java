@@ -0,0 +1,62 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.dto.InventoryDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.ProductDetailDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 商品詳細のキャッシュ
+ * <p>
+ * 変化の少ない商品情報(商品名・価格・SKU・カテゴリ)は長めのTTLで、変化の多い在庫数はごく短いTTLで別々に保持する。
+ * 商品・SKU・在庫を更新した場合は、コミット後に該当するエントリを破棄する。
+ */
+@Component
+public class ProductDetailCache {
+
+    // 商品ID → 在庫数を含まない商品詳細
+    private final Cache<Long, ProductDetailDto> productDetailCache;
+
+    // SKU ID → 在庫数のスナップショット
+    private final Cache<Long, InventoryDto> stockSnapshotCache;
+
+    public ProductDetailCache(Cache<Long, ProductDetailDto> productDetailCache,
+                              Cache<Long, InventoryDto> stockSnapshotCache) {
+        this.productDetailCache = productDetailCache;
+        this.stockSnapshotCache = stockSnapshotCache;
+    }
+
+    // キャッシュになければloaderで読み込んでキャッシュする（loaderが例外をスローした場合はキャッシュしない）
+    public ProductDetailDto get(Long productId, Function<Long, ProductDetailDto> loader) {
+        return productDetailCache.get(productId, loader);
+    }
+
+    // キャッシュにない在庫数だけをloaderでまとめて読み込む（loaderの結果に含まれないSKUは返さない）
+    public Map<Long, InventoryDto> getStock(List<Long> skuIds,
+                                            Function<Set<? extends Long>, Map<Long, InventoryDto>> loader) {
+        if (skuIds.isEmpty()) {
+            return Map.of();
+        }
+        return stockSnapshotCache.getAll(skuIds, loader);
+    }
+
+    // 指定した商品のキャッシュを破棄する
+    public void evict(Long productId) {
+        TransactionCallbacks.afterCommit(() -> productDetailCache.invalidate(productId));
+    }
+
+    // 指定したSKUの在庫数のキャッシュを破棄する（在庫の変動時に使用）
+    public void evictStock(Collection<Long> skuIds) {
+        if (skuIds == null || skuIds.isEmpty()) {
+            return;
+        }
+        List<Long> targetSkuIds = List.copyOf(skuIds);
+        TransactionCallbacks.afterCommit(() -> stockSnapshotCache.invalidateAll(targetSkuIds));
+    }
+}
@@ -8,13 +8,16 @@ public interface ProductService {
     ProductDetailDto createProduct(ProductCreateRequestDto requestDto);
     ProductDetailDto updateProduct(Long productId, ProductUpdateRequestDto requestDto);
     ProductDetailDto getProductDetail(Long productId);
+    ProductStockDto getProductStock(Long productId);
     List<ProductDetailDto> getAllProducts();
-    PageResponseDto<ProductSummaryDto> findAllPaginated(int page, int size);
+    PageResponseDto<ProductSummaryDto> findAllPaginated(int page, int size, boolean includeTotal);
     void deleteProduct(Long productId);
     SkuDto createSku(Long productId, SkuCreateRequestDto requestDto);
     SkuDto updateSku(Long skuId, SkuUpdateRequestDto requestDto);
     SkuDto getSkuDetail(Long skuId);
     List<SkuDto> getSkusByProductId(Long productId);
     void deleteSku(Long skuId);
-    PageResponseDto<ProductSummaryDto> searchProductsByCategory(int categoryId, int page, int size);
+    PageResponseDto<ProductSummaryDto> searchProductsByCategory(int categoryId, int page, int size, boolean includeTotal);
+    CursorPageResponseDto<ProductSummaryDto> findAllByCursor(String cursor, int size);
+    CursorPageResponseDto<ProductSummaryDto> searchProductsByCategoryAndCursor(int categoryId, String cursor, int size);
 }
\ No newline at end of file
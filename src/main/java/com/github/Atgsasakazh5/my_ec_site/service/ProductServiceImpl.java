@@ -14,6 +14,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,12 +24,20 @@ public class ProductServiceImpl implements ProductService {
     private final SkuDao skuDao;
     private final InventoryDao inventoryDao;
     private final CategoryDao categoryDao;
+    private final ProductDetailCache productDetailCache;
+    private final ProductCountCache productCountCache;
+    private final InventoryLedger inventoryLedger;
 
-    public ProductServiceImpl(ProductDao productDao, SkuDao skuDao, InventoryDao inventoryDao, CategoryDao categoryDao) {
+    public ProductServiceImpl(ProductDao productDao, SkuDao skuDao, InventoryDao inventoryDao, CategoryDao categoryDao,
+                              ProductDetailCache productDetailCache, ProductCountCache productCountCache,
+                              InventoryLedger inventoryLedger) {
         this.productDao = productDao;
         this.skuDao = skuDao;
         this.inventoryDao = inventoryDao;
         this.categoryDao = categoryDao;
+        this.productDetailCache = productDetailCache;
+        this.productCountCache = productCountCache;
+        this.inventoryLedger = inventoryLedger;
     }
 
     private ProductDetailDto buildProductDetailDto(Product product) {
@@ -53,6 +62,47 @@ public class ProductServiceImpl implements ProductService {
         );
     }
 
+    // キャッシュ用に、在庫数を含まない商品詳細を組み立てる
+    private ProductDetailDto buildStaticProductDetailDto(Product product) {
+        List<SkuDto> skuDtos = skuDao.findByProductId(product.getId()).stream()
+                .map(sku -> new SkuDto(sku.getId(), sku.getSize(), sku.getColor(), sku.getExtraPrice(), null))
+                .toList();
+
+        CategoryDto categoryDto = categoryDao.findById(product.getCategoryId())
+                .map(c -> new CategoryDto(c.getId(), c.getName()))
+                .orElse(null);
+
+        return new ProductDetailDto(
+                product.getId(),
+                product.getName(),
+                product.getPrice(),
+                product.getDescription(),
+                product.getImageUrl(),
+                categoryDto,
+                skuDtos,
+                product.getCreatedAt(),
+                product.getUpdatedAt()
+        );
+    }
+
+    // キャッシュから在庫数を含まない商品詳細を取得する
+    private ProductDetailDto getStaticProductDetail(Long productId) {
+        return productDetailCache.get(productId, id -> {
+            Product product = productDao.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("商品が存在しません: " + id));
+
+            return buildStaticProductDetailDto(product);
+        });
+    }
+
+    // 在庫数のスナップショットを取得する（キャッシュにないSKUのみIN句でまとめて取得）
+    private Map<Long, InventoryDto> getStockSnapshot(List<SkuDto> skus) {
+        List<Long> skuIds = skus.stream().map(SkuDto::id).toList();
+        return productDetailCache.getStock(skuIds, missingSkuIds ->
+                inventoryDao.findBySkuIdIn(List.copyOf(missingSkuIds)).stream()
+                        .collect(Collectors.toMap(Inventory::getSkuId, i -> new InventoryDto(i.getAvailableQuantity()))));
+    }
+
     private List<SkuDto> buildSkuDtos(List<Sku> skus) {
         if (skus == null || skus.isEmpty()) {
             return List.of(); // 空のリストを返す
@@ -67,7 +117,7 @@ public class ProductServiceImpl implements ProductService {
         return skus.stream()
                 .map(sku -> {
                     Inventory inventory = inventoryMap.getOrDefault(sku.getId(), new Inventory(null, sku.getId(), 0, null));
-                    InventoryDto inventoryDto = new InventoryDto(inventory.getQuantity());
+                    InventoryDto inventoryDto = new InventoryDto(inventory.getAvailableQuantity());
                     return new SkuDto(sku.getId(), sku.getSize(), sku.getColor(), sku.getExtraPrice(), inventoryDto);
                 })
                 .toList();
@@ -89,8 +139,8 @@ public class ProductServiceImpl implements ProductService {
                             new Inventory(null, sku.getId(), 0, null)
                     );
 
-                    // DTOを組み立てる
-                    InventoryDto inventoryDto = new InventoryDto(inventory.getQuantity());
+                    // DTOを組み立てる（在庫数はカートで確保されている数量を差し引いた販売可能数）
+                    InventoryDto inventoryDto = new InventoryDto(inventory.getAvailableQuantity());
                     return new SkuDto(
                             sku.getId(),
                             sku.getSize(),
@@ -139,6 +189,7 @@ public class ProductServiceImpl implements ProductService {
             inventory.setQuantity(skuRequest.quantity());
             inventoryDao.save(inventory);
         });
+        productCountCache.increment(savedProduct.getCategoryId());
 
         return buildProductDetailDto(savedProduct);
     }
@@ -154,24 +205,55 @@ public class ProductServiceImpl implements ProductService {
             throw new ResourceNotFoundException("指定されたカテゴリが存在しません: " + requestDto.categoryId());
         }
 
+        int previousCategoryId = product.getCategoryId();
         product.setName(requestDto.name());
         product.setPrice(requestDto.price());
         product.setDescription(requestDto.description());
         product.setImageUrl(requestDto.imageUrl());
         product.setCategoryId(requestDto.categoryId());
         Product updatedProduct = productDao.update(product);
+        productDetailCache.evict(productId);
+        productCountCache.move(previousCategoryId, updatedProduct.getCategoryId());
 
         return buildProductDetailDto(updatedProduct);
     }
 
+    // キャッシュヒット時にDB接続を取得しないよう、トランザクションは付与しない
     @Override
-    @Transactional(readOnly = true)
     public ProductDetailDto getProductDetail(Long productId) {
-        // 1. 商品を取得
-        Product product = productDao.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("商品が存在しません: " + productId));
+        // 1. 在庫数を含まない商品詳細を取得
+        ProductDetailDto staticDetail = getStaticProductDetail(productId);
+
+        // 2. 在庫数のスナップショットを重ねる（在庫情報がないSKUは数量0とする）
+        Map<Long, InventoryDto> stockMap = getStockSnapshot(staticDetail.skus());
+        List<SkuDto> skuDtos = staticDetail.skus().stream()
+                .map(sku -> new SkuDto(sku.id(), sku.size(), sku.color(), sku.extraPrice(),
+                        stockMap.getOrDefault(sku.id(), new InventoryDto(0))))
+                .toList();
+
+        return new ProductDetailDto(
+                staticDetail.id(),
+                staticDetail.name(),
+                staticDetail.price(),
+                staticDetail.description(),
+                staticDetail.imageUrl(),
+                staticDetail.category(),
+                skuDtos,
+                staticDetail.createdAt(),
+                staticDetail.updatedAt()
+        );
+    }
+
+    @Override
+    public ProductStockDto getProductStock(Long productId) {
+        // SKUの一覧はキャッシュした商品詳細から取得し、在庫数のみスナップショットから取得する
+        ProductDetailDto staticDetail = getStaticProductDetail(productId);
+        Map<Long, InventoryDto> stockMap = getStockSnapshot(staticDetail.skus());
 
-        return buildProductDetailDto(product);
+        List<SkuStockDto> skuStocks = staticDetail.skus().stream()
+                .map(sku -> new SkuStockDto(sku.id(), stockMap.getOrDefault(sku.id(), new InventoryDto(0)).quantity()))
+                .toList();
+        return new ProductStockDto(productId, skuStocks);
     }
 
     @Override
@@ -223,7 +305,7 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     @Transactional(readOnly = true)
-    public PageResponseDto<ProductSummaryDto> findAllPaginated(int page, int size) {
+    public PageResponseDto<ProductSummaryDto> findAllPaginated(int page, int size, boolean includeTotal) {
         // 1. 許可するページサイズのリストを定義
         final List<Integer> ALLOWED_PAGE_SIZES = List.of(20, 50, 100);
         int validatedSize = ALLOWED_PAGE_SIZES.contains(size) ? size : 20;
@@ -231,9 +313,8 @@ public class ProductServiceImpl implements ProductService {
         // 2. ページ番号がマイナスにならないようにする
         int validatedPage = Math.max(page, 0);
 
-        // 3. DAOを呼び出して、商品リストと総商品数を取得
+        // 3. DAOを呼び出して、商品リストを取得
         List<Product> products = productDao.findAll(validatedPage, validatedSize);
-        int totalProducts = productDao.countAll();
 
         // 4a. 取得した商品リストからカテゴリIDのリストを作成
         List<Integer> categoryIds = products.stream()
@@ -260,7 +341,11 @@ public class ProductServiceImpl implements ProductService {
                 ))
                 .toList();
 
-        // 5. ページネーション情報を含んだレスポンスを組み立てる
+        // 5. ページネーション情報を含んだレスポンスを組み立てる（総商品数はカウンターキャッシュから取得）
+        if (!includeTotal) {
+            return new PageResponseDto<>(dtos, validatedPage, validatedSize);
+        }
+        int totalProducts = productCountCache.countAll(productDao::countAll);
         return new PageResponseDto<>(
                 dtos,
                 validatedPage,
@@ -288,6 +373,10 @@ public class ProductServiceImpl implements ProductService {
 
         // 5. 商品を削除
         productDao.delete(productId);
+        productDetailCache.evict(productId);
+        productDetailCache.evictStock(skuIds);
+        skuIds.forEach(inventoryLedger::evict);
+        productCountCache.decrement(product.getCategoryId());
     }
 
     @Override
@@ -317,9 +406,10 @@ public class ProductServiceImpl implements ProductService {
         inventory.setSkuId(savedSku.getId());
         inventory.setQuantity(requestDto.quantity());
         Inventory savedInventory = inventoryDao.save(inventory);
+        productDetailCache.evict(productId);
 
         // レスポンス用のSkuDtoを組み立て
-        InventoryDto inventoryDto = new InventoryDto(savedInventory.getQuantity());
+        InventoryDto inventoryDto = new InventoryDto(savedInventory.getAvailableQuantity());
         return new SkuDto(savedSku.getId(), savedSku.getSize(), savedSku.getColor(), savedSku.getExtraPrice(), inventoryDto);
     }
 
@@ -351,9 +441,13 @@ public class ProductServiceImpl implements ProductService {
                 .orElseThrow(() -> new ResourceNotFoundException("在庫情報が存在しません: " + skuId));
         inventory.setQuantity(requestDto.quantity());
         Inventory updatedInventory = inventoryDao.update(inventory);
+        productDetailCache.evict(sku.getProductId());
+        productDetailCache.evictStock(List.of(skuId));
+        // 在庫台帳が有効な場合は、変更後の在庫数を読み込み直す
+        inventoryLedger.evict(skuId);
 
         // レスポンス用のSkuDtoを組み立て
-        InventoryDto inventoryDto = new InventoryDto(updatedInventory.getQuantity());
+        InventoryDto inventoryDto = new InventoryDto(updatedInventory.getAvailableQuantity());
 
         return new SkuDto(updatedSku.getId(), updatedSku.getSize(), updatedSku.getColor(), updatedSku.getExtraPrice(), inventoryDto);
     }
@@ -370,7 +464,7 @@ public class ProductServiceImpl implements ProductService {
                 .orElse(new Inventory(null, sku.getId(), 0, null)); // 在庫がない場合は数量0とする
 
         // 3. レスポンス用のSkuDtoを組み立て
-        InventoryDto inventoryDto = new InventoryDto(inventory.getQuantity());
+        InventoryDto inventoryDto = new InventoryDto(inventory.getAvailableQuantity());
         return new SkuDto(sku.getId(), sku.getSize(), sku.getColor(), sku.getExtraPrice(), inventoryDto);
     }
 
@@ -399,12 +493,15 @@ public class ProductServiceImpl implements ProductService {
 
         // 3. SKUを削除
         skuDao.delete(skuId);
+        productDetailCache.evict(sku.getProductId());
+        productDetailCache.evictStock(List.of(skuId));
+        inventoryLedger.evict(skuId);
     }
 
     @Override
     @Transactional(readOnly = true)
     public PageResponseDto<ProductSummaryDto> searchProductsByCategory(
-            int categoryId, int page, int size) {
+            int categoryId, int page, int size, boolean includeTotal) {
 
         // 許可するページサイズのリストを定義
         final List<Integer> ALLOWED_PAGE_SIZES = List.of(20, 50, 100);
@@ -417,9 +514,8 @@ public class ProductServiceImpl implements ProductService {
         var category = categoryDao.findById(categoryId)
                 .orElseThrow(() -> new ResourceNotFoundException("指定されたカテゴリが存在しません: " + categoryId));
 
-        // DAOを呼び出して、商品リストと総商品数を取得
+        // DAOを呼び出して、商品リストを取得
         List<Product> products = productDao.findByCategoryId(categoryId, validatedPage, validatedSize);
-        int totalProducts = productDao.countByCategoryId(categoryId);
 
         // summaryDtoのリストを作成
         List<ProductSummaryDto> dtos = products.stream()
@@ -435,7 +531,11 @@ public class ProductServiceImpl implements ProductService {
                 ))
                 .toList();
 
-        //ページネーション情報を含んだレスポンスを組み立てる
+        //ページネーション情報を含んだレスポンスを組み立てる（総商品数はカウンターキャッシュから取得）
+        if (!includeTotal) {
+            return new PageResponseDto<>(dtos, validatedPage, validatedSize);
+        }
+        int totalProducts = productCountCache.countByCategoryId(categoryId, () -> productDao.countByCategoryId(categoryId));
         return new PageResponseDto<>(
                 dtos,
                 validatedPage,
@@ -444,4 +544,65 @@ public class ProductServiceImpl implements ProductService {
         );
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<ProductSummaryDto> findAllByCursor(String cursor, int size) {
+        final List<Integer> ALLOWED_PAGE_SIZES = List.of(20, 50, 100);
+        int validatedSize = ALLOWED_PAGE_SIZES.contains(size) ? size : 20;
+        Long lastSeenId = PageCursor.decode(cursor);
+
+        // 次のページの有無を判定するため1件多く取得する（総件数のCOUNTは行わない）
+        List<Product> products = productDao.findAllByCursor(lastSeenId, validatedSize + 1);
+
+        List<Integer> categoryIds = products.stream()
+                .map(Product::getCategoryId)
+                .distinct()
+                .toList();
+        Map<Integer, CategoryDto> categoryMap = categoryDao.findByIds(categoryIds).stream()
+                .map(c -> new CategoryDto(c.getId(), c.getName()))
+                .collect(Collectors.toMap(CategoryDto::id, categoryDto -> categoryDto));
+
+        return toCursorPage(products, validatedSize, p -> categoryMap.get(p.getCategoryId()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<ProductSummaryDto> searchProductsByCategoryAndCursor(
+            int categoryId, String cursor, int size) {
+
+        final List<Integer> ALLOWED_PAGE_SIZES = List.of(20, 50, 100);
+        int validatedSize = ALLOWED_PAGE_SIZES.contains(size) ? size : 20;
+        Long lastSeenId = PageCursor.decode(cursor);
+
+        var category = categoryDao.findById(categoryId)
+                .orElseThrow(() -> new ResourceNotFoundException("指定されたカテゴリが存在しません: " + categoryId));
+        var categoryDto = new CategoryDto(category.getId(), category.getName());
+
+        List<Product> products = productDao.findByCategoryIdAndCursor(categoryId, lastSeenId, validatedSize + 1);
+
+        return toCursorPage(products, validatedSize, p -> categoryDto);
+    }
+
+    // size + 1件取得した結果から、size件のページと次のカーソルを組み立てる
+    private CursorPageResponseDto<ProductSummaryDto> toCursorPage(List<Product> products, int size,
+                                                                  Function<Product, CategoryDto> categoryResolver) {
+        boolean hasNext = products.size() > size;
+        List<Product> page = hasNext ? products.subList(0, size) : products;
+
+        List<ProductSummaryDto> dtos = page.stream()
+                .map(p -> new ProductSummaryDto(
+                        p.getId(),
+                        p.getName(),
+                        p.getPrice(),
+                        p.getDescription(),
+                        p.getImageUrl(),
+                        categoryResolver.apply(p),
+                        p.getCreatedAt(),
+                        p.getUpdatedAt()
+                ))
+                .toList();
+
+        String nextCursor = hasNext ? PageCursor.encode(page.get(page.size() - 1).getId()) : null;
+        return new CursorPageResponseDto<>(dtos, size, nextCursor);
+    }
 }
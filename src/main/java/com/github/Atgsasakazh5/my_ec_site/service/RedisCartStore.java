@@ -0,0 +1,123 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.Atgsasakazh5.my_ec_site.entity.CartItem;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Redisにカートの内容を保持する{@link CartStore}（app.cart.store.type=redis）
+ * <p>
+ * カートの内容は{@code cart:items:<カートID>}にJSONで保存し、有効期限(app.cart.store.ttl)を設定する。
+ * 保存する形式を変更した際に古い形式のデータを読まないよう、キーは以前の{@code cart:<カートID>}から変更している。
+ * DBに未反映のカートIDは{@code cart:dirty}のセットで管理するため、どのインスタンスからでも参照・反映できる。
+ */
+public class RedisCartStore implements CartStore, AutoCloseable {
+
+    private static final String KEY_PREFIX = "cart:items:";
+
+    private static final String DIRTY_KEY = "cart:dirty";
+
+    private static final TypeReference<List<CartItem>> ITEMS_TYPE = new TypeReference<>() {
+    };
+
+    private final RedisClient redisClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final String ttlSeconds;
+
+    public RedisCartStore(String host, int port, boolean ssl, String password, int database,
+                          Duration timeout, int maxIdleConnections, Duration ttl, ObjectMapper objectMapper) {
+        this.redisClient = new RedisClient(host, port, ssl, password, database, timeout, maxIdleConnections);
+        this.objectMapper = objectMapper;
+        this.ttlSeconds = String.valueOf(Math.max(ttl.toSeconds(), 1));
+    }
+
+    @Override
+    public Optional<List<CartItem>> find(Long cartId) {
+        String json = (String) redisClient.execute("GET", key(cartId));
+        if (json == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(json, ITEMS_TYPE));
+        } catch (JsonProcessingException e) {
+            // 形式の変わった古いデータはないものとして扱い、DBから読み込み直す
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void put(Long cartId, List<CartItem> items) {
+        redisClient.execute("SET", key(cartId), toJson(items), "EX", ttlSeconds);
+    }
+
+    @Override
+    public void putIfAbsent(Long cartId, List<CartItem> items) {
+        redisClient.execute("SET", key(cartId), toJson(items), "EX", ttlSeconds, "NX");
+    }
+
+    @Override
+    public boolean updateQuantity(Long cartId, Long cartItemId, int quantity) {
+        // 読み込みと書き戻しの間に同じカートの他の変更が入らないよう、呼び出し元はカートの行ロックを保持していること
+        // （CartWriteBehindはリビジョンの加算でロックを取得してから呼び出す）
+        Optional<List<CartItem>> items = find(cartId);
+        if (items.isEmpty() || items.get().stream().noneMatch(item -> item.getId().equals(cartItemId))) {
+            return false;
+        }
+        items.get().stream()
+                .filter(item -> item.getId().equals(cartItemId))
+                .forEach(item -> item.setQuantity(quantity));
+        put(cartId, items.get());
+        return true;
+    }
+
+    @Override
+    public void evict(Long cartId) {
+        redisClient.execute("DEL", key(cartId));
+    }
+
+    @Override
+    public void markDirty(Long cartId) {
+        redisClient.execute("SADD", DIRTY_KEY, cartId.toString());
+    }
+
+    @Override
+    public boolean unmarkDirty(Long cartId) {
+        return (Long) redisClient.execute("SREM", DIRTY_KEY, cartId.toString()) > 0;
+    }
+
+    @Override
+    public List<Long> pollDirty(int limit) {
+        // SPOPは取り出しと削除を1コマンドで行うため、複数のインスタンスが同じカートを取り出すことはない
+        List<?> cartIds = (List<?>) redisClient.execute("SPOP", DIRTY_KEY, String.valueOf(limit));
+        if (cartIds == null) {
+            return List.of();
+        }
+        return cartIds.stream()
+                .map(cartId -> Long.valueOf((String) cartId))
+                .toList();
+    }
+
+    @Override
+    public void close() {
+        redisClient.close();
+    }
+
+    private String toJson(List<CartItem> items) {
+        try {
+            return objectMapper.writeValueAsString(items);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("カートの内容をJSONに変換できません", e);
+        }
+    }
+
+    private static String key(Long cartId) {
+        return KEY_PREFIX + cartId;
+    }
+}
@@ -0,0 +1,231 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * RESP(Redisのプロトコル)でコマンドを送信する最小限のクライアント
+ * <p>
+ * {@link RedisCartStore}が使用するコマンド(GET・SET・DEL・SADD・SREM・SPOPなど)を送信できればよいため、
+ * パイプライン・Pub/Sub・クラスタには対応しない。接続は使い終わったら一定数まで再利用する。
+ * 接続時には、設定に応じてTLSのハンドシェイク(サーバー証明書とホスト名を検証する)・AUTH・SELECTを行う。
+ */
+final class RedisClient implements AutoCloseable {
+
+    private final String host;
+
+    private final int port;
+
+    private final boolean ssl;
+
+    private final String password;
+
+    private final int database;
+
+    private final int timeoutMillis;
+
+    private final BlockingQueue<Connection> idleConnections;
+
+    /**
+     * @param password AUTHで送信するパスワード。空またはnullの場合は認証しない
+     * @param database SELECTで選択するデータベースの番号（0の場合は選択しない）
+     */
+    RedisClient(String host, int port, boolean ssl, String password, int database, Duration timeout, int maxIdleConnections) {
+        this.host = host;
+        this.port = port;
+        this.ssl = ssl;
+        this.password = password;
+        this.database = database;
+        this.timeoutMillis = (int) timeout.toMillis();
+        this.idleConnections = new ArrayBlockingQueue<>(maxIdleConnections);
+    }
+
+    /**
+     * コマンドを送信し、応答を返す
+     *
+     * @return 応答の種類に応じて String・Long・List、または null（値がない場合）
+     */
+    Object execute(String... command) {
+        Connection connection = idleConnections.poll();
+        if (connection == null) {
+            connection = openConnection();
+        }
+        try {
+            Object reply = connection.send(command);
+            release(connection);
+            return reply;
+        } catch (InvalidDataAccessApiUsageException e) {
+            // エラーの応答は最後まで読み込んでいるため、接続は再利用できる
+            release(connection);
+            throw e;
+        } catch (IOException e) {
+            // 通信に失敗した接続は状態がわからないため再利用しない
+            connection.close();
+            throw new DataAccessResourceFailureException("Redisとの通信に失敗しました: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            // 応答を解釈できなかった場合も、読み残しがある可能性があるため再利用しない
+            connection.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        Connection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private Connection openConnection() {
+        try {
+            return new Connection(host, port, ssl, timeoutMillis, password, database);
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Redisに接続できませんでした: " + e.getMessage(), e);
+        }
+    }
+
+    private void release(Connection connection) {
+        if (!idleConnections.offer(connection)) {
+            connection.close();
+        }
+    }
+
+    private static final class Connection {
+
+        private final Socket socket;
+
+        private final InputStream in;
+
+        private final OutputStream out;
+
+        Connection(String host, int port, boolean ssl, int timeoutMillis, String password, int database) throws IOException {
+            Socket plain = new Socket();
+            Socket connected = plain;
+            try {
+                plain.connect(new InetSocketAddress(host, port), timeoutMillis);
+                plain.setSoTimeout(timeoutMillis);
+                plain.setTcpNoDelay(true);
+                if (ssl) {
+                    connected = startTls(plain, host, port);
+                }
+                this.socket = connected;
+                this.in = new BufferedInputStream(socket.getInputStream());
+                this.out = new BufferedOutputStream(socket.getOutputStream());
+                if (password != null && !password.isEmpty()) {
+                    send("AUTH", password);
+                }
+                if (database != 0) {
+                    send("SELECT", String.valueOf(database));
+                }
+            } catch (IOException | RuntimeException e) {
+                // 認証・データベースの選択に失敗した場合も含め、開いた接続を残さない
+                connected.close();
+                throw e;
+            }
+        }
+
+        private static SSLSocket startTls(Socket plain, String host, int port) throws IOException {
+            SSLSocket sslSocket = (SSLSocket) ((SSLSocketFactory) SSLSocketFactory.getDefault())
+                    .createSocket(plain, host, port, true);
+            SSLParameters parameters = sslSocket.getSSLParameters();
+            parameters.setEndpointIdentificationAlgorithm("HTTPS");
+            sslSocket.setSSLParameters(parameters);
+            sslSocket.startHandshake();
+            return sslSocket;
+        }
+
+        Object send(String... command) throws IOException {
+            // コマンドはバルク文字列の配列として送信する
+            out.write(('*' + String.valueOf(command.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            for (String argument : command) {
+                byte[] bytes = argument.getBytes(StandardCharsets.UTF_8);
+                out.write(('$' + String.valueOf(bytes.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.write(bytes);
+                out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+            }
+            out.flush();
+            return readReply();
+        }
+
+        private Object readReply() throws IOException {
+            int type = in.read();
+            if (type == -1) {
+                throw new EOFException("Redisとの接続が切断されました");
+            }
+            String line = readLine();
+            return switch (type) {
+                case '+' -> line;
+                case '-' -> throw new InvalidDataAccessApiUsageException("Redisのコマンドが失敗しました: " + line);
+                case ':' -> Long.parseLong(line);
+                case '$' -> readBulkString(Integer.parseInt(line));
+                case '*' -> readArray(Integer.parseInt(line));
+                default -> throw new IOException("Redisの応答を解釈できません: " + (char) type + line);
+            };
+        }
+
+        private String readBulkString(int length) throws IOException {
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = in.readNBytes(length);
+            if (bytes.length < length) {
+                throw new EOFException("Redisとの接続が切断されました");
+            }
+            readLine();
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private List<Object> readArray(int count) throws IOException {
+            if (count < 0) {
+                return null;
+            }
+            List<Object> elements = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                elements.add(readReply());
+            }
+            return elements;
+        }
+
+        // CRLFまでを読み込む（CRLFは含まない）
+        private String readLine() throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != '\r') {
+                if (b == -1) {
+                    throw new EOFException("Redisとの接続が切断されました");
+                }
+                buffer.write(b);
+            }
+            in.read();
+            return buffer.toString(StandardCharsets.UTF_8);
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // 閉じる際の失敗は無視する
+            }
+        }
+    }
+}
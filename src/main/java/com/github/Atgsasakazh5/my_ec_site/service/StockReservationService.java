@@ -0,0 +1,22 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface StockReservationService {
+
+    // カートのSKUの確保数を指定した数量にし、有効期限を延長する
+    void hold(Long cartId, Long skuId, int quantity);
+
+    // カートのSKUの確保を解放する
+    void release(Long cartId, Long skuId);
+
+    // カートの確保をすべて解放する
+    void releaseAll(Long cartId);
+
+    // 複数のカートの確保をすべてまとめて解放する
+    void releaseAllByCartIds(List<Long> cartIds);
+
+    // 有効期限が切れた確保を最大limit件解放し、解放した件数を返す
+    int releaseExpired(LocalDateTime now, int limit);
+}
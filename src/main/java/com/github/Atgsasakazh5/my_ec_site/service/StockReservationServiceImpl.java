@@ -0,0 +1,117 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.StockReservation;
+import com.github.Atgsasakazh5.my_ec_site.exception.ResourceNotFoundException;
+import com.github.Atgsasakazh5.my_ec_site.repository.InventoryDao;
+import com.github.Atgsasakazh5.my_ec_site.repository.StockReservationDao;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * カートに追加された商品の在庫を、一定時間(app.cart.reservation.ttl)確保する
+ * <p>
+ * 確保した数量はstock_reservationsテーブルに記録し、SKUごとの合計をinventories.reserved_quantityに加減算して保持する。
+ * 販売可能数(在庫数 - 確保数)は在庫レコードだけで求められるため、参照のたびに確保を集計する必要がない。
+ * ロックは常に確保のレコード、在庫のレコードの順に取得する（デッドロック防止）。
+ */
+@Service
+public class StockReservationServiceImpl implements StockReservationService {
+
+    private final StockReservationDao stockReservationDao;
+
+    private final InventoryDao inventoryDao;
+
+    private final ProductDetailCache productDetailCache;
+
+    private final Duration ttl;
+
+    public StockReservationServiceImpl(StockReservationDao stockReservationDao, InventoryDao inventoryDao,
+                                       ProductDetailCache productDetailCache,
+                                       @Value("${app.cart.reservation.ttl:15m}") Duration ttl) {
+        this.stockReservationDao = stockReservationDao;
+        this.inventoryDao = inventoryDao;
+        this.productDetailCache = productDetailCache;
+        this.ttl = ttl;
+    }
+
+    @Override
+    @Transactional
+    public void hold(Long cartId, Long skuId, int quantity) {
+        Optional<StockReservation> current = stockReservationDao.findByCartIdAndSkuIdWithLock(cartId, skuId);
+
+        // 既に確保している数量との差分だけ在庫の確保数を増減する
+        int delta = quantity - current.map(StockReservation::getQuantity).orElse(0);
+        if (delta > 0 && !inventoryDao.reserveQuantity(skuId, delta)) {
+            if (inventoryDao.findBySkuId(skuId).isEmpty()) {
+                throw new ResourceNotFoundException("在庫情報が見つかりません: SKU ID " + skuId);
+            }
+            throw new IllegalStateException("在庫が不足しています。");
+        }
+        if (delta < 0) {
+            inventoryDao.releaseReservedQuantities(Map.of(skuId, -delta));
+        }
+
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl);
+        if (current.isPresent()) {
+            StockReservation reservation = current.get();
+            reservation.setQuantity(quantity);
+            reservation.setExpiresAt(expiresAt);
+            stockReservationDao.update(reservation);
+        } else {
+            stockReservationDao.save(new StockReservation(null, cartId, skuId, quantity, expiresAt));
+        }
+
+        if (delta != 0) {
+            productDetailCache.evictStock(Set.of(skuId));
+        }
+    }
+
+    @Override
+    @Transactional
+    public void release(Long cartId, Long skuId) {
+        stockReservationDao.findByCartIdAndSkuIdWithLock(cartId, skuId)
+                .ifPresent(reservation -> releaseReservations(List.of(reservation)));
+    }
+
+    @Override
+    @Transactional
+    public void releaseAll(Long cartId) {
+        releaseReservations(stockReservationDao.findByCartIdWithLock(cartId));
+    }
+
+    @Override
+    @Transactional
+    public void releaseAllByCartIds(List<Long> cartIds) {
+        releaseReservations(stockReservationDao.findByCartIdsWithLock(cartIds));
+    }
+
+    @Override
+    @Transactional
+    public int releaseExpired(LocalDateTime now, int limit) {
+        List<StockReservation> expired = stockReservationDao.findExpiredWithLock(now, limit);
+        releaseReservations(expired);
+        return expired.size();
+    }
+
+    // ロック済みの確保を削除し、在庫の確保数から差し引く
+    private void releaseReservations(List<StockReservation> reservations) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> quantitiesBySkuId = reservations.stream()
+                .collect(Collectors.toMap(StockReservation::getSkuId, StockReservation::getQuantity, Integer::sum));
+
+        stockReservationDao.deleteByIds(reservations.stream().map(StockReservation::getId).toList());
+        inventoryDao.releaseReservedQuantities(quantitiesBySkuId);
+        productDetailCache.evictStock(quantitiesBySkuId.keySet());
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * 有効期限が切れたカートの在庫確保を定期的に解放する
+ * <p>
+ * 1回のトランザクションでロックする件数を抑えるため、一定件数ずつ解放する。
+ */
+@Component
+public class StockReservationSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationSweeper.class);
+
+    private final StockReservationService stockReservationService;
+
+    private final int batchSize;
+
+    public StockReservationSweeper(StockReservationService stockReservationService,
+                                   @Value("${app.cart.reservation.sweep-batch-size:500}") int batchSize) {
+        this.stockReservationService = stockReservationService;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${app.cart.reservation.sweep-interval:1m}",
+            fixedDelayString = "${app.cart.reservation.sweep-interval:1m}")
+    public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        try {
+            int released;
+            do {
+                released = stockReservationService.releaseExpired(now, batchSize);
+                total += released;
+            } while (released == batchSize);
+        } catch (RuntimeException e) {
+            // 残りは次回の実行で解放する
+            logger.warn("期限切れの在庫確保の解放に失敗しました: {}", e.getMessage());
+        }
+        if (total > 0) {
+            logger.info("期限切れの在庫確保を{}件解放しました", total);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+public interface TokenRevocationService {
+    boolean isCurrentVersion(Long userId, int tokenVersion);
+    // 発行済みのトークンをすべて失効させる。ロールを変更した場合も呼び出す（Claimsモードではトークンのロールで認証するため）
+    void revokeAll(Long userId);
+}
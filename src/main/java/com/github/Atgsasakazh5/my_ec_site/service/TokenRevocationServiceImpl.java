@@ -0,0 +1,42 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.repository.UserDao;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.stereotype.Service;
+
+@Service
+public class TokenRevocationServiceImpl implements TokenRevocationService {
+
+    // 存在しないユーザーを表すバージョン（どのトークンのバージョンとも一致しない）
+    private static final int UNKNOWN_USER_VERSION = -1;
+
+    private final UserDao userDao;
+
+    private final Cache<Long, Integer> tokenVersionCache;
+
+    private final UserDetailsServiceImpl userDetailsService;
+
+    public TokenRevocationServiceImpl(UserDao userDao, Cache<Long, Integer> tokenVersionCache,
+                                      UserDetailsServiceImpl userDetailsService) {
+        this.userDao = userDao;
+        this.tokenVersionCache = tokenVersionCache;
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    public boolean isCurrentVersion(Long userId, int tokenVersion) {
+        // キャッシュになければDBから現在のバージョンを取得してキャッシュする
+        int currentVersion = tokenVersionCache.get(userId, id ->
+                userDao.findTokenVersionById(id).orElse(UNKNOWN_USER_VERSION));
+        return currentVersion == tokenVersion;
+    }
+
+    @Override
+    public void revokeAll(Long userId) {
+        // バージョンを上げることで、発行済みのトークンをすべて無効にする
+        userDao.incrementTokenVersion(userId);
+        tokenVersionCache.invalidate(userId);
+        // キャッシュ済みのUserDetailsも古いバージョンを保持しているため破棄する
+        userDetailsService.evictByUserId(userId);
+    }
+}
@@ -1,15 +1,17 @@
 package com.github.Atgsasakazh5.my_ec_site.service;
 
+import com.github.Atgsasakazh5.my_ec_site.entity.Cart;
 import com.github.Atgsasakazh5.my_ec_site.entity.User;
+import com.github.Atgsasakazh5.my_ec_site.repository.CartDao;
 import com.github.Atgsasakazh5.my_ec_site.repository.UserDao;
-import com.github.Atgsasakazh5.my_ec_site.repository.UserRepository;
+import com.github.Atgsasakazh5.my_ec_site.security.UserPrincipal;
+import com.github.benmanes.caffeine.cache.Cache;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collection;
 import java.util.stream.Collectors;
@@ -19,13 +21,42 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 
     private final UserDao userDao;
 
-    public UserDetailsServiceImpl(UserDao userDao) {
+    private final CartDao cartDao;
+
+    private final Cache<String, UserDetails> userDetailsCache;
+
+    public UserDetailsServiceImpl(UserDao userDao, CartDao cartDao, Cache<String, UserDetails> userDetailsCache) {
         this.userDao = userDao;
+        this.cartDao = cartDao;
+        this.userDetailsCache = userDetailsCache;
     }
 
+    // 読み取りのみのためトランザクションは不要（キャッシュヒット時はDB接続を取得しない）
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        // 見つからない・未認証の場合は例外がそのままスローされ、キャッシュには格納されない
+        return userDetailsCache.get(email, this::loadFromDatabase);
+    }
+
+    /**
+     * 指定したメールアドレスのキャッシュを破棄する
+     * <p>
+     * トランザクション内で呼ばれた場合は、コミット後に破棄する（コミット前の古いデータが再キャッシュされないようにするため）。
+     */
+    public void evict(String email) {
+        TransactionCallbacks.afterCommit(() -> userDetailsCache.invalidate(email));
+    }
+
+    /**
+     * 指定したユーザーIDのキャッシュを破棄する
+     * <p>
+     * キャッシュはメールアドレスをキーにしているため、主キーでメールアドレスを取得してから破棄する（キャッシュ全体は走査しない）。
+     */
+    public void evictByUserId(Long userId) {
+        userDao.findEmailById(userId).ifPresent(this::evict);
+    }
+
+    private UserDetails loadFromDatabase(String email) {
         User user = userDao.findByEmail(email).orElseThrow(() ->
                 new UsernameNotFoundException("メールアドレスで登録済みユーザーが見つかりません: " + email));
 
@@ -38,11 +69,17 @@ public class UserDetailsServiceImpl implements UserDetailsService {
                 .map(role -> new SimpleGrantedAuthority(role.getName().name()))
                 .collect(Collectors.toList());
 
-        // UserDetailsオブジェクトを生成して返す
-        return new org.springframework.security.core.userdetails.User(
+        // カートIDも保持しておき、カート・注文APIでのメールアドレスによる再検索を不要にする
+        Long cartId = cartDao.findCartByUserId(user.getId()).map(Cart::getId).orElse(null);
+
+        // UserDetailsオブジェクトを生成して返す（ユーザーIDとトークンバージョンも保持する）
+        return new UserPrincipal(
+                user.getId(),
+                cartId,
                 user.getEmail(),
                 user.getPassword(),
-                authorities // authorities()メソッドを使用
+                user.getTokenVersion(),
+                authorities
         );
     }
 }
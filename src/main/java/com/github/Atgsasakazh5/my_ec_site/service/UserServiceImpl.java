@@ -27,14 +27,16 @@ public class UserServiceImpl implements UserService {
     private final CartDao cartDao;
     private final VerificationTokenDao verificationTokenDao;
     private final EmailService emailService;
+    private final UserDetailsServiceImpl userDetailsService;
 
-    public UserServiceImpl(PasswordEncoder passwordEncoder, UserRepository userRepository, RoleRepository roleRepository, CartDao cartDao, VerificationTokenDao verificationTokenDao, EmailService emailService) {
+    public UserServiceImpl(PasswordEncoder passwordEncoder, UserRepository userRepository, RoleRepository roleRepository, CartDao cartDao, VerificationTokenDao verificationTokenDao, EmailService emailService, UserDetailsServiceImpl userDetailsService) {
         this.passwordEncoder = passwordEncoder;
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.cartDao = cartDao;
         this.verificationTokenDao = verificationTokenDao;
         this.emailService = emailService;
+        this.userDetailsService = userDetailsService;
     }
 
     @Override
@@ -72,6 +74,7 @@ public class UserServiceImpl implements UserService {
         verificationToken.setExpiryDate(LocalDateTime.now().plusHours(24));
         verificationTokenDao.save(verificationToken);
 
+        // 認証メールは送信待ちとして登録し、登録のコミット後に非同期で送信する
         emailService.sendVerificationEmail(savedUser.getEmail(), token);
 
         Set<String> roles = savedUser.getRoles().stream()
@@ -111,6 +114,8 @@ public class UserServiceImpl implements UserService {
 
         user.setEmailVerified(true);
         userRepository.update(user);
+        // 更新前の状態でキャッシュされたUserDetailsを破棄する
+        userDetailsService.evict(user.getEmail());
 
         verificationTokenDao.delete(verificationToken);
     }
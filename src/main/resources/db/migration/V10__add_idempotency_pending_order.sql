@@ -0,0 +1,3 @@
+-- 決済の結果が確定していない（請求された可能性がある）まま終了した注文のID
+-- 再送されたリクエストで注文・決済をやり直さず、決済確認中として応答するために保持する
+ALTER TABLE idempotency_keys ADD COLUMN pending_order_id BIGINT NULL;
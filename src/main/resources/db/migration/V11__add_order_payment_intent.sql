@@ -0,0 +1,6 @@
+-- 注文に対応するStripeの決済(PaymentIntent)のID
+-- 決済の結果が確定していない注文を照合する際に使用する（決済の作成前・IDの保存に失敗した場合はNULLで、メタデータのorder_idで検索する）
+ALTER TABLE orders ADD COLUMN payment_intent_id VARCHAR(255) NULL;
+
+-- 決済の結果が確定していない注文の照合（WHERE status IN ('PENDING', 'PAYMENT_REVIEW') AND ordered_at < ? ORDER BY ordered_at, id）
+CREATE INDEX idx_orders_status_ordered_at ON orders (status, ordered_at);
@@ -1,17 +1,4 @@
--- 既存のテーブルがあれば削除
-DROP TABLE IF EXISTS user_roles;
-DROP TABLE IF EXISTS verification_tokens;
-DROP TABLE IF EXISTS roles;
-DROP TABLE IF EXISTS order_details;
-DROP TABLE IF EXISTS orders;
-DROP TABLE IF EXISTS cart_items;
-DROP TABLE IF EXISTS carts;
-DROP TABLE IF EXISTS users;
-DROP TABLE IF EXISTS inventories;
-DROP TABLE IF EXISTS skus;
-DROP TABLE IF EXISTS products;
-DROP TABLE IF EXISTS categories;
-
+-- 初期スキーマ
 
 -- roles テーブル
 CREATE TABLE roles (
@@ -28,6 +15,7 @@ CREATE TABLE users (
     address VARCHAR(255),
     email_verified BOOLEAN NOT NULL DEFAULT FALSE,
     subscribing_newsletter BOOLEAN NOT NULL DEFAULT FALSE,
+    token_version INT NOT NULL DEFAULT 0,
     created_at TIMESTAMP NOT NULL,
     updated_at TIMESTAMP NOT NULL
 ) AUTO_INCREMENT = 1000;
@@ -133,4 +121,4 @@ CREATE TABLE order_details (
     price_at_order INT NOT NULL,
     FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE,
     FOREIGN KEY (sku_id) REFERENCES skus(id)
-);
\ No newline at end of file
+);
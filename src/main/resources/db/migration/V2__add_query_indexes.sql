@@ -0,0 +1,12 @@
+-- DAOの検索条件・並び順に合わせたインデックス
+-- users(email), skus(product_id, ...), cart_items(cart_id, sku_id), inventories(sku_id) は
+-- 既存のユニーク制約のインデックスで検索できるため追加しない
+
+-- カテゴリ別の商品一覧（WHERE category_id = ? [AND id < ?] ORDER BY id DESC）とカテゴリ別の件数
+CREATE INDEX idx_products_category_id_id ON products (category_id, id);
+
+-- 注文履歴（WHERE user_id = ? ORDER BY ordered_at DESC）
+CREATE INDEX idx_orders_user_id_ordered_at ON orders (user_id, ordered_at);
+
+-- 注文明細（WHERE order_id = ?）
+CREATE INDEX idx_order_details_order_id ON order_details (order_id);
@@ -0,0 +1,18 @@
+-- カートに追加した商品の在庫を一定時間確保するためのテーブル
+-- 販売可能数 = inventories.quantity - inventories.reserved_quantity
+-- reserved_quantity は stock_reservations の数量の合計で、確保・解放と同じトランザクションで更新する
+ALTER TABLE inventories ADD COLUMN reserved_quantity INT NOT NULL DEFAULT 0;
+
+CREATE TABLE stock_reservations (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    cart_id BIGINT NOT NULL,
+    sku_id BIGINT NOT NULL,
+    quantity INT NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    UNIQUE (cart_id, sku_id),
+    FOREIGN KEY (cart_id) REFERENCES carts(id) ON DELETE CASCADE,
+    FOREIGN KEY (sku_id) REFERENCES skus(id) ON DELETE CASCADE
+);
+
+-- 期限切れの確保の解放（WHERE expires_at <= ? ORDER BY expires_at）
+CREATE INDEX idx_stock_reservations_expires_at ON stock_reservations (expires_at);
@@ -0,0 +1,16 @@
+-- 注文確定APIのIdempotency-Keyごとの処理結果
+-- response_body がNULLの間は処理中を表す
+CREATE TABLE idempotency_keys (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash CHAR(64) NOT NULL,
+    response_body TEXT,
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    UNIQUE (user_id, idempotency_key),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- 期限切れの記録の削除（WHERE expires_at <= ?）
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
@@ -0,0 +1,17 @@
+-- 注文確定後の後続処理に渡すイベント（トランザクショナルアウトボックス）
+-- 業務データと同じトランザクションで書き込み、OutboxDispatcherが非同期に配信する
+CREATE TABLE outbox_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(50) NOT NULL,
+    aggregate_id BIGINT NOT NULL,
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL,
+    processed_at TIMESTAMP NULL
+);
+
+-- 配信対象の取得（WHERE status = 'PENDING' AND next_attempt_at <= ? ORDER BY next_attempt_at）
+CREATE INDEX idx_outbox_events_status_next_attempt_at ON outbox_events (status, next_attempt_at);
@@ -0,0 +1,17 @@
+-- 送信待ちのメール。登録などのトランザクションと一緒にコミットし、EmailDispatcherがコミット後に送信する
+-- 送信に失敗したメールは next_attempt_at を進めて再送する
+CREATE TABLE email_messages (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    body TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL,
+    sent_at TIMESTAMP NULL
+);
+
+-- 送信対象の取得（WHERE status = 'PENDING' AND next_attempt_at <= ? ORDER BY next_attempt_at）
+CREATE INDEX idx_email_messages_status_next_attempt_at ON email_messages (status, next_attempt_at);
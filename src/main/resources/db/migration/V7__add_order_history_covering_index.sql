@@ -0,0 +1,8 @@
+-- 注文履歴のカーソル方式の取得（WHERE user_id = ? [AND status = ?] [AND ordered_at の範囲]
+--   AND (ordered_at, id) < (?, ?) ORDER BY ordered_at DESC, id DESC LIMIT ?）
+-- 一覧に表示する status・total_price も含め、ordersの行を読まずにインデックスだけで返せるようにする
+CREATE INDEX idx_orders_user_id_ordered_at_id_covering ON orders (user_id, ordered_at, id, status, total_price);
+
+-- 先頭の列が同じため、既存の注文履歴用のインデックス(V2)は新しいインデックスで代替できる
+-- （orders.user_id の外部キーも新しいインデックスを使用する）
+DROP INDEX idx_orders_user_id_ordered_at ON orders;
@@ -0,0 +1,3 @@
+-- カートの内容を変更するたびに加算するリビジョン
+-- GET /api/cart の条件付きリクエスト(ETag / If-None-Match)で、カートの詳細を取得せずに変更の有無を判定する
+ALTER TABLE carts ADD COLUMN revision BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,8 @@
+-- ログインしていないユーザーのカート（ゲストカート）
+-- user_id を持たず、クライアントに渡したトークンのSHA-256(guest_token_hash)で識別する
+-- expires_at を過ぎたゲストカートは定期的に削除する（ユーザーのカートは NULL）
+ALTER TABLE carts MODIFY user_id BIGINT NULL;
+ALTER TABLE carts ADD COLUMN guest_token_hash CHAR(64) NULL;
+ALTER TABLE carts ADD COLUMN expires_at TIMESTAMP NULL;
+CREATE UNIQUE INDEX uk_carts_guest_token_hash ON carts (guest_token_hash);
+CREATE INDEX idx_carts_expires_at ON carts (expires_at);
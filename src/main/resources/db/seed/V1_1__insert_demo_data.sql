@@ -1,3 +1,5 @@
+-- 開発用のデモデータ（本番環境ではspring.flyway.locationsからdb/seedを除外する）
+
 INSERT INTO roles (name) VALUES ('ROLE_USER');
 INSERT INTO roles (name) VALUES ('ROLE_ADMIN');
 
@@ -122,4 +124,4 @@ INSERT INTO inventories (sku_id, quantity, updated_at) VALUES
 (129, 8, NOW()), (130, 2, NOW()), (131, 9, NOW()), (132, 4, NOW()),
 (133, 7, NOW()), (134, 5, NOW()), (135, 8, NOW()), (136, 3, NOW()),
 (137, 6, NOW()), (138, 9, NOW()), (139, 4, NOW()), (140, 7, NOW()),
-(141, 8, NOW()), (142, 5, NOW());
\ No newline at end of file
+(141, 8, NOW()), (142, 5, NOW());
@@ -0,0 +1,121 @@
+package com.github.Atgsasakazh5.my_ec_site.benchmark;
+
+import com.github.Atgsasakazh5.my_ec_site.repository.InventoryDaoImpl;
+import com.github.Atgsasakazh5.my_ec_site.service.InventoryLedger;
+import com.github.Atgsasakazh5.my_ec_site.service.ProductDetailCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同じSKUへの在庫の確保を、DBの条件付き減算(InventoryDaoImpl)と在庫台帳(InventoryLedger)で比較する
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec}
+ * <p>
+ * DBはインメモリのH2を使用するため、ネットワーク越しのMySQLと比べてDB側の結果は有利に出る点に注意。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class InventoryReservationBenchmark {
+
+    // ベンチマーク中に在庫切れにならない数量
+    private static final int INITIAL_STOCK = 1_000_000_000;
+
+    private EmbeddedDatabase dataSource;
+
+    private InventoryDaoImpl inventoryDao;
+
+    private TransactionTemplate transactionTemplate;
+
+    private InventoryLedger inventoryLedger;
+
+    private ScheduledExecutorService flusher;
+
+    private Map<Long, Integer> hotSkuOrder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("schema-h2.sql")
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Long skuId = insertHotSku(jdbcTemplate);
+        hotSkuOrder = Map.of(skuId, 1);
+
+        var transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        inventoryDao = new InventoryDaoImpl(jdbcTemplate, new NamedParameterJdbcTemplate(dataSource));
+        var productDetailCache = new ProductDetailCache(Caffeine.newBuilder().build(), Caffeine.newBuilder().build());
+        inventoryLedger = new InventoryLedger(inventoryDao, productDetailCache, transactionManager, true);
+
+        // アプリケーションと同じ間隔で台帳の減算をDBに反映する
+        flusher = Executors.newSingleThreadScheduledExecutor();
+        flusher.scheduleWithFixedDelay(inventoryLedger::flush, 200, 200, TimeUnit.MILLISECONDS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(1, TimeUnit.SECONDS);
+        inventoryLedger.flush();
+        dataSource.shutdown();
+    }
+
+    @Benchmark
+    public List<Long> databaseConditionalDecrement() {
+        return transactionTemplate.execute(status -> inventoryDao.decreaseQuantities(hotSkuOrder));
+    }
+
+    @Benchmark
+    public List<Long> ledgerReserveAndConfirm() {
+        List<Long> insufficientSkuIds = inventoryLedger.reserve(hotSkuOrder);
+        if (insufficientSkuIds.isEmpty()) {
+            inventoryLedger.confirm(hotSkuOrder);
+        }
+        return insufficientSkuIds;
+    }
+
+    private static Long insertHotSku(JdbcTemplate jdbcTemplate) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO categories (name) VALUES ('ベンチマーク')");
+        Integer categoryId = jdbcTemplate.queryForObject("SELECT id FROM categories", Integer.class);
+        jdbcTemplate.update("INSERT INTO products (name, price, description, image_url, category_id, created_at, updated_at) " +
+                "VALUES ('人気商品', 1000, '説明', 'url', ?, ?, ?)", categoryId, now, now);
+        Long productId = jdbcTemplate.queryForObject("SELECT id FROM products", Long.class);
+        jdbcTemplate.update("INSERT INTO skus (product_id, size, color, extra_price, created_at, updated_at) " +
+                "VALUES (?, 'M', 'Black', 0, ?, ?)", productId, now, now);
+        Long skuId = jdbcTemplate.queryForObject("SELECT id FROM skus", Long.class);
+        jdbcTemplate.update("INSERT INTO inventories (sku_id, quantity, updated_at) VALUES (?, ?, ?)", skuId, INITIAL_STOCK, now);
+        return skuId;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(InventoryReservationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
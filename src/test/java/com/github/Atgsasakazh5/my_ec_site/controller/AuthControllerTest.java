@@ -1,19 +1,27 @@
 package com.github.Atgsasakazh5.my_ec_site.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.Atgsasakazh5.my_ec_site.dto.LoginRequestDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.SignUpRequestDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.UserDto;
+import com.github.Atgsasakazh5.my_ec_site.security.UserPrincipal;
+import com.github.Atgsasakazh5.my_ec_site.service.GuestCartService;
 import com.github.Atgsasakazh5.my_ec_site.service.UserService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -37,6 +45,12 @@ class AuthControllerTest {
     @MockitoBean
     UserService userService;
 
+    @MockitoBean
+    GuestCartService guestCartService;
+
+    @MockitoBean
+    AuthenticationManager authenticationManager;
+
     @Test
     @DisplayName("ユーザー登録のテスト-正常系")
     void registerUser_return201AndUser_whenRequestCorrect() throws Exception {
@@ -122,4 +136,63 @@ class AuthControllerTest {
 
         verify(userService, times(1)).verifyUser(token);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("ゲストカートのトークンを付けてログインした場合、ゲストカートをユーザーのカートに統合すること")
+    void loginUser_shouldMergeGuestCart_whenTokenIsGiven() throws Exception {
+        // Arrange
+        var principal = new UserPrincipal(10L, 20L, "test@example.com", null, 0,
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        when(authenticationManager.authenticate(any()))
+                .thenReturn(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        when(guestCartService.mergeIntoUserCart("guest-token", 20L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        mockMvc.perform(post("/api/auth/login")
+                        .header(GuestCartController.TOKEN_HEADER, "guest-token")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(new LoginRequestDto("test@example.com", "password123"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accessToken").isNotEmpty());
+
+        verify(guestCartService).mergeIntoUserCart("guest-token", 20L);
+    }
+
+    @Test
+    @DisplayName("ゲストカートの統合に失敗した場合も、ログインは成功すること")
+    void loginUser_shouldSucceed_whenMergeFails() throws Exception {
+        // Arrange
+        var principal = new UserPrincipal(10L, 20L, "test@example.com", null, 0,
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        when(authenticationManager.authenticate(any()))
+                .thenReturn(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        when(guestCartService.mergeIntoUserCart("guest-token", 20L))
+                .thenThrow(new IllegalStateException("在庫の確保に失敗しました"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/auth/login")
+                        .header(GuestCartController.TOKEN_HEADER, "guest-token")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(new LoginRequestDto("test@example.com", "password123"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accessToken").isNotEmpty());
+    }
+
+    @Test
+    @DisplayName("ゲストカートのトークンを付けずにログインした場合、統合しないこと")
+    void loginUser_shouldNotMerge_whenTokenIsAbsent() throws Exception {
+        // Arrange
+        var principal = new UserPrincipal(10L, 20L, "test@example.com", null, 0,
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        when(authenticationManager.authenticate(any()))
+                .thenReturn(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/auth/login")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(new LoginRequestDto("test@example.com", "password123"))))
+                .andExpect(status().isOk());
+
+        verifyNoInteractions(guestCartService);
+    }
+}
@@ -2,9 +2,12 @@ package com.github.Atgsasakazh5.my_ec_site.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.Atgsasakazh5.my_ec_site.dto.AddCartItemRequestDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.CartBatchRequestDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.CartDetailDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.CartOperationDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.UpdateCartItemRequestDto;
 import com.github.Atgsasakazh5.my_ec_site.exception.ResourceNotFoundException;
+import com.github.Atgsasakazh5.my_ec_site.security.WithMockUserPrincipal;
 import com.github.Atgsasakazh5.my_ec_site.service.CartService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,7 +15,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
-import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
@@ -22,9 +24,13 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -44,13 +50,13 @@ class CartControllerTest {
 
     @Test
     @DisplayName("認証済みユーザーがカートにアイテムを追加できること")
-    @WithMockUser(username = "test@email.com", roles = "USER")
+    @WithMockUserPrincipal
     void addCartItem_shouldSucceed_whenUserIsAuthenticated() throws Exception {
 
         // Arrange
         var request = new AddCartItemRequestDto(1L, 2);
 
-        when(cartService.addItemToCart(anyString(), any(AddCartItemRequestDto.class)))
+        when(cartService.addItemToCart(anyLong(), any(AddCartItemRequestDto.class)))
                 .thenReturn(new CartDetailDto(1L, List.of(), 0));
 
         // Act & Assert
@@ -76,7 +82,7 @@ class CartControllerTest {
 
     @Test
     @DisplayName("カートにアイテムを追加する際、不正なリクエストでは400エラーが返ること")
-    @WithMockUser(username = "test@email.com", roles = "USER")
+    @WithMockUserPrincipal
     void addCartItem_shouldReturnBadRequest_whenRequestIsInvalid() throws Exception {
         // Arrange
         var request = new AddCartItemRequestDto(null, -1); // 無効なSKU IDと数量
@@ -91,12 +97,12 @@ class CartControllerTest {
 
     @Test
     @DisplayName("カートにアイテムを追加する際、存在しないSKU IDを指定すると404エラーが返ること")
-    @WithMockUser(username = "test@email.com", roles = "USER")
+    @WithMockUserPrincipal
     void addCartItem_shouldReturnNotFound_whenSkuDoesNotExist() throws Exception {
         // Arrange
         var request = new AddCartItemRequestDto(999L, 2); // 存在しないSKU ID
 
-        when(cartService.addItemToCart(anyString(), any(AddCartItemRequestDto.class)))
+        when(cartService.addItemToCart(anyLong(), any(AddCartItemRequestDto.class)))
                 .thenThrow(new ResourceNotFoundException("存在しないSKUです: 999"));
 
         // Act & Assert
@@ -109,12 +115,12 @@ class CartControllerTest {
 
     @Test
     @DisplayName("カートにアイテムを追加する際、在庫が不足している場合は409エラーが返ること")
-    @WithMockUser(username = "test@email.com", roles = "USER")
+    @WithMockUserPrincipal
     void addCartItem_shouldReturnConflict_whenInventoryIsInsufficient() throws Exception {
         // Arrange
         var request = new AddCartItemRequestDto(1L, 10); // 在庫が不足している数量
 
-        when(cartService.addItemToCart(anyString(), any(AddCartItemRequestDto.class)))
+        when(cartService.addItemToCart(anyLong(), any(AddCartItemRequestDto.class)))
                 .thenThrow(new IllegalStateException("在庫が不足しています。"));
 
         // Act & Assert
@@ -127,10 +133,10 @@ class CartControllerTest {
 
     @Test
     @DisplayName("認証済みユーザーがカートの詳細を取得できること")
-    @WithMockUser(username = "test@email.com", roles = "USER")
+    @WithMockUserPrincipal
     void getCartDetail_shouldSucceed_whenUserIsAuthenticated() throws Exception {
         // Arrange
-        when(cartService.getCartDetail(anyString()))
+        when(cartService.getCartDetail(anyLong()))
                 .thenReturn(new CartDetailDto(1L, List.of(), 0));
 
         // Act & Assert
@@ -143,6 +149,47 @@ class CartControllerTest {
 
     }
 
+    @Test
+    @DisplayName("カートの詳細にリビジョンをETagとして付け、If-None-Matchが一致する場合は詳細を取得せずに304を返すこと")
+    @WithMockUserPrincipal
+    void getCartDetail_shouldReturnNotModified_whenRevisionMatches() throws Exception {
+        // Arrange
+        when(cartService.getCartRevision(anyLong())).thenReturn(3L);
+        when(cartService.getCartDetail(anyLong()))
+                .thenReturn(new CartDetailDto(1L, List.of(), 0));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/cart"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(header().string("Cache-Control", "no-cache, private"));
+
+        mockMvc.perform(get("/api/cart")
+                        .header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(content().string(""));
+
+        verify(cartService, times(1)).getCartDetail(anyLong());
+    }
+
+    @Test
+    @DisplayName("カートが変更されてリビジョンが変わった場合、If-None-Matchがあっても詳細を返すこと")
+    @WithMockUserPrincipal
+    void getCartDetail_shouldReturnCart_whenRevisionChanged() throws Exception {
+        // Arrange
+        when(cartService.getCartRevision(anyLong())).thenReturn(4L);
+        when(cartService.getCartDetail(anyLong()))
+                .thenReturn(new CartDetailDto(1L, List.of(), 0));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/cart")
+                        .header("If-None-Match", "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(jsonPath("$.cartId").value(1L));
+    }
+
     @Test
     @DisplayName("認証されていないユーザーがカートの詳細を取得しようとすると403エラーが返ること")
     void getCartDetail_shouldReturnUnauthorized_whenUserIsNotAuthenticated() throws Exception {
@@ -154,14 +201,14 @@ class CartControllerTest {
 
     @Test
     @DisplayName("認証済みユーザーがカートのアイテム数量を変更できること")
-    @WithMockUser(username = "test@email.com", roles = "USER")
+    @WithMockUserPrincipal
     void updateCartItem_shouldSucceed_whenUserIsAuthed() throws Exception {
 
         // Arrange
         var cartItemId = 1L;
         var request = new UpdateCartItemRequestDto(1);
 
-        when(cartService.updateCartItemQuantity(anyString(), anyLong(), any(UpdateCartItemRequestDto.class)))
+        when(cartService.updateCartItemQuantity(anyLong(), anyLong(), any(UpdateCartItemRequestDto.class)))
                 .thenReturn(new CartDetailDto(1L, List.of(), 0));
 
         // Act & Assert
@@ -177,7 +224,7 @@ class CartControllerTest {
 
     @Test
     @DisplayName("カートアイテムの数量を0以下に設定すると400が返ること")
-    @WithMockUser(username = "test@email.com", roles = "USER")
+    @WithMockUserPrincipal
     void updateCartItem_shouldReturnBadRequest_whenQuantityIsZeroOrNegative() throws Exception {
         // Arrange
         var cartItemId = 1L;
@@ -207,13 +254,13 @@ class CartControllerTest {
 
     @Test
     @DisplayName("カートアイテムの数量を更新する際、在庫数が不足している場合は409エラーが返ること")
-    @WithMockUser(username = "test@email.com", roles = "USER")
+    @WithMockUserPrincipal
     void updateCartItem_shouldReturnConflict_whenInventoryIsInsufficient() throws Exception {
         // Arrange
         var cartItemId = 1L;
         var request = new UpdateCartItemRequestDto(10); // 在庫が不足している数量
 
-        when(cartService.updateCartItemQuantity(anyString(), eq(cartItemId), any(UpdateCartItemRequestDto.class)))
+        when(cartService.updateCartItemQuantity(anyLong(), eq(cartItemId), any(UpdateCartItemRequestDto.class)))
                 .thenThrow(new IllegalStateException("在庫が不足しています。"));
 
         // Act & Assert
@@ -226,13 +273,13 @@ class CartControllerTest {
 
     @Test
     @DisplayName("本人以外のカートアイテムを更新できないこと")
-    @WithMockUser(username = "test@email.com", roles = "USER")
+    @WithMockUserPrincipal
     void updateCartItem_shouldReturnForbidden_whenUserTriesToUpdateOtherUsersCartItem() throws Exception {
         // Arrange
         var cartItemId = 999L; // 他のユーザーのカートアイテムID
         var request = new UpdateCartItemRequestDto(1);
 
-        when(cartService.updateCartItemQuantity(anyString(), eq(cartItemId), any(UpdateCartItemRequestDto.class)))
+        when(cartService.updateCartItemQuantity(anyLong(), eq(cartItemId), any(UpdateCartItemRequestDto.class)))
                 .thenThrow(new SecurityException("他人のカートアイテムを操作する権限がありません。"));
 
         // Act & Assert
@@ -244,7 +291,7 @@ class CartControllerTest {
 
     @Test
     @DisplayName("認証済みユーザーがカートアイテムを削除できること")
-    @WithMockUser(username = "test@email.com", roles = "USER")
+    @WithMockUserPrincipal
     void deleteCartItem_shouldSucceed_whenUserIsAuthenticated() throws Exception {
         // Arrange
         var cartItemId = 1L;
@@ -268,17 +315,74 @@ class CartControllerTest {
 
     @Test
     @DisplayName("本人以外のカートアイテムを削除できないこと")
-    @WithMockUser(username = "test@email.com", roles = "USER")
+    @WithMockUserPrincipal
     void deleteCartItem_shouldReturnForbidden_whenUserTriesToDeleteOtherUsersCartItem() throws Exception {
         // Arrange
         var cartItemId = 999L;
 
         doThrow(new SecurityException("他人のカートアイテムを操作する権限がありません。"))
-                .when(cartService).deleteItemFromCart(anyString(), anyLong());
+                .when(cartService).deleteItemFromCart(anyLong(), anyLong());
 
         // Act & Assert
         mockMvc.perform(delete("/api/cart/items/{cartItemId}", cartItemId))
                 .andExpect(status().isForbidden());
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("カートへの複数の操作をまとめて適用し、変更後のカートを返すこと")
+    @WithMockUserPrincipal
+    void applyCartOperations_shouldSucceed_whenUserIsAuthenticated() throws Exception {
+        // Arrange
+        var request = new CartBatchRequestDto(List.of(
+                new CartOperationDto(CartOperationDto.Type.ADD, 1L, null, 2),
+                new CartOperationDto(CartOperationDto.Type.REMOVE, null, 5L, null)));
+
+        when(cartService.applyOperations(anyLong(), any(CartBatchRequestDto.class)))
+                .thenReturn(new CartDetailDto(1L, List.of(), 0));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/cart/items/batch")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cartId").value(1L));
+    }
+
+    @Test
+    @DisplayName("操作が空、または操作の種類がない場合は400エラーが返ること")
+    @WithMockUserPrincipal
+    void applyCartOperations_shouldReturnBadRequest_whenRequestIsInvalid() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/api/cart/items/batch")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\": []}"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/api/cart/items/batch")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\": [{\"skuId\": 1, \"quantity\": 1}]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("いずれかの商品の在庫が不足している場合は409エラーが返ること")
+    @WithMockUserPrincipal
+    void applyCartOperations_shouldReturnConflict_whenInventoryIsInsufficient() throws Exception {
+        // Arrange
+        var request = new CartBatchRequestDto(List.of(
+                new CartOperationDto(CartOperationDto.Type.ADD, 1L, null, 100)));
+
+        when(cartService.applyOperations(anyLong(), any(CartBatchRequestDto.class)))
+                .thenThrow(new IllegalStateException("在庫が不足しています: SKU ID 1"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/cart/items/batch")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict());
+    }
+}
@@ -2,6 +2,7 @@ package com.github.Atgsasakazh5.my_ec_site.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.Atgsasakazh5.my_ec_site.dto.CategoryDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.CursorPageResponseDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.PageResponseDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.ProductSummaryDto;
 import com.github.Atgsasakazh5.my_ec_site.service.CategoryService;
@@ -86,7 +87,7 @@ class CategoryControllerTest {
                 size,
                 totalElements);
 
-        when(productService.searchProductsByCategory(categoryId, page, size)).thenReturn(expectedResponse);
+        when(productService.searchProductsByCategory(categoryId, page, size, true)).thenReturn(expectedResponse);
 
         // Act & Assert
         mockMvc.perform(get("/api/categories/{categoryId}/products", categoryId)
@@ -120,4 +121,23 @@ class CategoryControllerTest {
                 .andExpect(jsonPath("$.id").value(categoryId))
                 .andExpect(jsonPath("$.name").value("トップス"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("特定のカテゴリの商品一覧をカーソル方式で取得できること")
+    void getProductsByCategoryIdAndCursor_shouldReturnProductList() throws Exception {
+        // Arrange
+        int categoryId = 1;
+        var content = List.of(new ProductSummaryDto(
+                1L, "テスト商品", 1000, "テスト商品です。", "https://example.com/image.jpg",
+                new CategoryDto(1, "トップス"), null, null));
+        var expectedResponse = new CursorPageResponseDto<>(content, 20, null);
+
+        when(productService.searchProductsByCategoryAndCursor(categoryId, null, 20)).thenReturn(expectedResponse);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/categories/{categoryId}/products/cursor", categoryId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("テスト商品"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+}
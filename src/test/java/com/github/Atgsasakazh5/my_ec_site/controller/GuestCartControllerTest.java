@@ -0,0 +1,98 @@
+package com.github.Atgsasakazh5.my_ec_site.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.Atgsasakazh5.my_ec_site.dto.AddCartItemRequestDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.CartDetailDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.GuestCartDto;
+import com.github.Atgsasakazh5.my_ec_site.exception.ResourceNotFoundException;
+import com.github.Atgsasakazh5.my_ec_site.service.CartService;
+import com.github.Atgsasakazh5.my_ec_site.service.GuestCartService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class GuestCartControllerTest {
+
+    @MockitoBean
+    GuestCartService guestCartService;
+
+    @MockitoBean
+    CartService cartService;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("ログインしていないユーザーがゲストカートを作成でき、トークンが返ること")
+    void createGuestCart_shouldReturnCreated_withoutAuthentication() throws Exception {
+        // Arrange
+        when(guestCartService.createGuestCart())
+                .thenReturn(new GuestCartDto("guest-token", new CartDetailDto(7L, List.of(), 0)));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/guest-cart")
+                        .with(csrf()))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.token").value("guest-token"))
+                .andExpect(jsonPath("$.cart.cartId").value(7L));
+    }
+
+    @Test
+    @DisplayName("トークンで識別したゲストカートに商品を追加できること")
+    void addCartItem_shouldAddToGuestCartResolvedByToken() throws Exception {
+        // Arrange
+        var request = new AddCartItemRequestDto(1L, 2);
+        when(guestCartService.resolveCartId("guest-token")).thenReturn(7L);
+        when(cartService.addItemToGuestCart(eq(7L), any(AddCartItemRequestDto.class)))
+                .thenReturn(new CartDetailDto(7L, List.of(), 0));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/guest-cart/items")
+                        .with(csrf())
+                        .header(GuestCartController.TOKEN_HEADER, "guest-token")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cartId").value(7L));
+    }
+
+    @Test
+    @DisplayName("トークンがない場合は400エラー、無効なトークンの場合は404エラーが返ること")
+    void getCartDetail_shouldReturnError_whenTokenIsMissingOrInvalid() throws Exception {
+        // Arrange
+        when(guestCartService.resolveCartId("expired-token"))
+                .thenThrow(new ResourceNotFoundException("カートが見つかりません"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/guest-cart"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/guest-cart")
+                        .header(GuestCartController.TOKEN_HEADER, "expired-token"))
+                .andExpect(status().isNotFound());
+
+        verifyNoInteractions(cartService);
+    }
+}
@@ -3,6 +3,8 @@ package com.github.Atgsasakazh5.my_ec_site.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.Atgsasakazh5.my_ec_site.dto.*;
 import com.github.Atgsasakazh5.my_ec_site.entity.OrderStatus;
+import com.github.Atgsasakazh5.my_ec_site.security.WithMockUserPrincipal;
+import com.github.Atgsasakazh5.my_ec_site.service.IdempotencyService;
 import com.github.Atgsasakazh5.my_ec_site.service.OrderService;
 import com.github.Atgsasakazh5.my_ec_site.service.PaymentService;
 import com.stripe.exception.CardException;
@@ -11,19 +13,23 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.CannotAcquireLockException;
 import org.springframework.http.MediaType;
-import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -42,6 +48,9 @@ class OrderControllerTest {
     @MockitoBean
     private PaymentService paymentService;
 
+    @MockitoBean
+    private IdempotencyService idempotencyService;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -50,7 +59,7 @@ class OrderControllerTest {
 
     @Test
     @DisplayName("認証済みユーザーが注文を作成できること")
-    @WithMockUser(username = "test@email.com", roles = "USER")
+    @WithMockUserPrincipal
     void createOrderWithAuthenticatedUser() throws Exception {
 
         // Arrange
@@ -64,7 +73,7 @@ class OrderControllerTest {
                 new OrderDetailDto(1L, 1L, 101L, "Tシャツ", "S", "Red", null, 1500, 2)
         );
 
-        when(orderService.placeOrder(anyString(), any(CreateOrderRequestDto.class)))
+        when(orderService.placeOrder(anyLong(), anyLong(), any(CreateOrderRequestDto.class)))
                 .thenReturn(responseDtoList);
 
         // Act & Assert
@@ -76,6 +85,31 @@ class OrderControllerTest {
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$[0].productName").value("Tシャツ"));
 
+        // Idempotency-Keyを指定しない場合は重複排除を行わない
+        verify(idempotencyService, never()).execute(anyLong(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Idempotency-Keyを指定した場合、重複排除を経由して注文が作成されること")
+    @WithMockUserPrincipal
+    void createOrder_shouldDeduplicate_whenIdempotencyKeyIsGiven() throws Exception {
+        // Arrange: 同じキーで処理済みのため、保存済みの結果が返る
+        var request = new CreateOrderRequestDto("東京都千代田区", "101-0111", "島田", "credit_card");
+        var storedResponse = List.of(new OrderDetailDto(1L, 1L, 101L, "Tシャツ", "S", "Red", null, 1500, 2));
+
+        when(idempotencyService.execute(anyLong(), eq("order-123"), eq(request), any(), any()))
+                .thenReturn(storedResponse);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/orders")
+                        .with(csrf())
+                        .header("Idempotency-Key", "order-123")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$[0].productName").value("Tシャツ"));
+
+        verify(orderService, never()).placeOrder(anyLong(), anyLong(), any(CreateOrderRequestDto.class));
     }
 
     @Test
@@ -97,7 +131,7 @@ class OrderControllerTest {
 
     @Test
     @DisplayName("認証済みユーザーが注文を作成する際に、無効なリクエストボディを送信すると400エラーが返ること")
-    @WithMockUser(username = "test@email.com", roles = "USER")
+    @WithMockUserPrincipal
     void createOrderWithInvalidRequest() throws Exception {
         // Arrange
         var invalidRequest = new CreateOrderRequestDto(
@@ -117,12 +151,12 @@ class OrderControllerTest {
 
     @Test
     @DisplayName("カートが空の状態で注文しようとすると409エラーが返ること")
-    @WithMockUser(username = "test@email.com", roles = "USER")
+    @WithMockUserPrincipal
     void createOrder_shouldReturnConflict_whenCartIsEmpty() throws Exception {
         // Arrange
         var request = new CreateOrderRequestDto("Tokyo", "100-0001", "Test User", "credit_card");
 
-        when(orderService.placeOrder(anyString(), any(CreateOrderRequestDto.class)))
+        when(orderService.placeOrder(anyLong(), anyLong(), any(CreateOrderRequestDto.class)))
                 .thenThrow(new IllegalStateException("カートが空です"));
 
         // Act & Assert
@@ -136,12 +170,12 @@ class OrderControllerTest {
 
     @Test
     @DisplayName("認証済みユーザーが注文を作成する際に、在庫不足で注文できない場合は409エラーが返ること")
-    @WithMockUser(username = "test@email.com", roles = "USER")
+    @WithMockUserPrincipal
     void createOrder_shouldReturnConflict_whenInventoryIsInsufficient() throws Exception {
         // Arrange
         var request = new CreateOrderRequestDto("Tokyo", "100-0001", "Test User", "credit_card");
 
-        when(orderService.placeOrder(anyString(), any(CreateOrderRequestDto.class)))
+        when(orderService.placeOrder(anyLong(), anyLong(), any(CreateOrderRequestDto.class)))
                 .thenThrow(new IllegalStateException("在庫が不足しています"));
 
         // Act & Assert
@@ -153,13 +187,32 @@ class OrderControllerTest {
                 .andExpect(jsonPath("$.message").value("在庫が不足しています"));
     }
 
+    @Test
+    @DisplayName("再試行してもロックの競合が解消せず注文できない場合は503エラーが返ること")
+    @WithMockUserPrincipal
+    void createOrder_shouldReturnServiceUnavailable_whenLockContentionPersists() throws Exception {
+        // Arrange
+        var request = new CreateOrderRequestDto("Tokyo", "100-0001", "Test User", "credit_card");
+
+        when(orderService.placeOrder(anyLong(), anyLong(), any(CreateOrderRequestDto.class)))
+                .thenThrow(new CannotAcquireLockException("Deadlock found when trying to get lock"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/orders")
+                        .with(csrf())
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
     @Test
     @DisplayName("自分の注文概要一覧を取得できること")
-    @WithMockUser(username = "test@example.com", roles = "USER")
+    @WithMockUserPrincipal(id = 10L, username = "test@example.com")
     void getOrderSummaries_shouldSucceed() throws Exception {
         // Arrange
         var summaries = List.of(new OrderSummaryDto(1L, LocalDateTime.now(), 5000, OrderStatus.PAID));
-        when(orderService.getOrderSummaries("test@example.com")).thenReturn(summaries);
+        when(orderService.getOrderSummaries(10L)).thenReturn(summaries);
 
         // Act & Assert
         mockMvc.perform(get("/api/orders"))
@@ -168,13 +221,36 @@ class OrderControllerTest {
                 .andExpect(jsonPath("$[0].orderId").value(1L));
     }
 
+    @Test
+    @DisplayName("注文の状態・期間を指定して注文履歴をカーソル方式で取得できること")
+    @WithMockUserPrincipal(id = 10L, username = "test@example.com")
+    void getOrderSummariesByCursor_shouldSucceed() throws Exception {
+        // Arrange
+        var summaries = List.of(new OrderSummaryDto(1L, LocalDateTime.now(), 5000, OrderStatus.PAID));
+        when(orderService.getOrderSummariesByCursor(10L, OrderStatus.PAID, LocalDate.of(2025, 8, 1),
+                LocalDate.of(2025, 8, 31), "cursor", 50))
+                .thenReturn(new CursorPageResponseDto<>(summaries, 50, "next"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/orders/cursor")
+                        .param("cursor", "cursor")
+                        .param("size", "50")
+                        .param("status", "PAID")
+                        .param("from", "2025-08-01")
+                        .param("to", "2025-08-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].orderId").value(1L))
+                .andExpect(jsonPath("$.size").value(50))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
     @Test
     @DisplayName("自分の注文詳細を取得できること")
-    @WithMockUser(username = "test@example.com", roles = "USER")
+    @WithMockUserPrincipal(id = 10L, username = "test@example.com")
     void getOrderDetails_shouldSucceed() throws Exception {
         // Arrange
         var orderId = 1L;
-        var email = "test@example.com";
+        var userId = 10L;
         var detailResponse = new OrderDetailResponseDto(
                 orderId,
                 "Tokyo",
@@ -185,7 +261,7 @@ class OrderControllerTest {
                 LocalDateTime.now(),
                 List.of(new OrderDetailDto(1L, 1L, 101L, "Tシャツ", "S", "Red", null, 1500, 2)
                 ));
-        when(orderService.getOrderDetail(email, orderId)).thenReturn(detailResponse);
+        when(orderService.getOrderDetail(userId, orderId)).thenReturn(detailResponse);
 
         // Act & Assert
         mockMvc.perform(get("/api/orders/{orderId}", orderId))
@@ -196,14 +272,14 @@ class OrderControllerTest {
 
     @Test
     @DisplayName("他人の注文詳細を取得しようとすると403エラーになること")
-    @WithMockUser(username = "test@example.com", roles = "USER")
+    @WithMockUserPrincipal(id = 10L, username = "test@example.com")
     void getOrderDetails_shouldReturnForbidden_forOtherUsersOrder() throws Exception {
         // Arrange
         var otherUserOrderId = 2L;
-        var email = "test@example.com";
+        var userId = 10L;
 
         // サービス層でSecurityExceptionがスローされる状況をモック
-        when(orderService.getOrderDetail(email, otherUserOrderId))
+        when(orderService.getOrderDetail(userId, otherUserOrderId))
                 .thenThrow(new SecurityException("この注文にアクセスする権限がありません。"));
 
         // Act & Assert
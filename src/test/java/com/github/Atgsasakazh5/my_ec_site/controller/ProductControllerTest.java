@@ -58,7 +58,7 @@ class ProductControllerTest {
                 size,
                 totalElements);
 
-        when(productService.findAllPaginated(page, size)).thenReturn(expectedResponse);
+        when(productService.findAllPaginated(page, size, true)).thenReturn(expectedResponse);
 
         // Act & Assert
         mockMvc.perform(get("/api/products")
@@ -127,4 +127,75 @@ class ProductControllerTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("商品の在庫数を取得できること")
+    void getProductStock_shouldReturnStockPerSku() throws Exception {
+        // Arrange
+        Long productId = 1L;
+        var expectedStock = new ProductStockDto(productId, List.of(
+                new SkuStockDto(1L, 10),
+                new SkuStockDto(2L, 0)));
+
+        when(productService.getProductStock(productId)).thenReturn(expectedStock);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/products/{productId}/stock", productId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.productId").value(productId))
+                .andExpect(jsonPath("$.skus[0].skuId").value(1L))
+                .andExpect(jsonPath("$.skus[0].quantity").value(10))
+                .andExpect(jsonPath("$.skus[1].quantity").value(0));
+    }
+
+    @Test
+    @DisplayName("存在しない商品IDで在庫数を取得しようとすると404エラーが返ること")
+    void getProductStock_shouldReturnNotFoundForNonExistentProduct() throws Exception {
+        // Arrange
+        Long nonExistentProductId = 999L;
+        when(productService.getProductStock(nonExistentProductId))
+                .thenThrow(new ResourceNotFoundException("商品が存在しません: 999"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/products/{productId}/stock", nonExistentProductId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("カーソルを指定して商品一覧を取得できること")
+    void getProductSummariesByCursor_shouldReturnNextCursor() throws Exception {
+        // Arrange
+        var content = List.of(new ProductSummaryDto(
+                1L, "テスト商品", 1000, "テスト商品です。", "https://example.com/image.jpg",
+                new CategoryDto(1, "トップス"), null, null));
+        var expectedResponse = new CursorPageResponseDto<>(content, 20, "MQ");
+
+        when(productService.findAllByCursor("Mg", 20)).thenReturn(expectedResponse);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/products/cursor")
+                        .param("cursor", "Mg")
+                        .param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1L))
+                .andExpect(jsonPath("$.size").value(20))
+                .andExpect(jsonPath("$.nextCursor").value("MQ"));
+    }
+
+    @Test
+    @DisplayName("includeTotal=falseを指定すると総件数を含まない商品一覧を取得できること")
+    void getProductSummaries_shouldOmitTotals_whenIncludeTotalIsFalse() throws Exception {
+        // Arrange
+        var expectedResponse = new PageResponseDto<ProductSummaryDto>(List.of(), 3, 20);
+
+        when(productService.findAllPaginated(3, 20, false)).thenReturn(expectedResponse);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/products")
+                        .param("page", "3")
+                        .param("size", "20")
+                        .param("includeTotal", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.page").value(3))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+}
@@ -11,6 +11,8 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -90,4 +92,61 @@ class CartDaoImplTest {
         assertThat(foundCart.get().getUserId()).isEqualTo(userId);
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("カートのリビジョンを取得・加算できること")
+    void findRevisionByIdAndIncrementRevision() {
+        // arrange
+        var savedCart = cartDao.saveCart(userId);
+
+        // act
+        cartDao.incrementRevision(savedCart.getId());
+        cartDao.incrementRevision(savedCart.getId());
+
+        // assert
+        assertThat(cartDao.findRevisionById(savedCart.getId())).contains(2L);
+        assertThat(cartDao.findRevisionById(-1L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("ゲストカートを作成し、トークンのハッシュ値で取得できること")
+    void saveGuestCartAndFindByTokenHash() {
+        // arrange
+        var expiresAt = LocalDateTime.of(2030, 1, 1, 12, 0);
+        var hash = "a".repeat(64);
+
+        // act
+        var savedCart = cartDao.saveGuestCart(hash, expiresAt);
+        cartDao.updateExpiresAt(savedCart.getId(), expiresAt.plusDays(1));
+
+        // assert
+        var foundCart = cartDao.findGuestCartByTokenHash(hash);
+        assertThat(foundCart).isPresent();
+        assertThat(foundCart.get().getId()).isEqualTo(savedCart.getId());
+        assertThat(foundCart.get().getUserId()).isNull();
+        assertThat(foundCart.get().getExpiresAt()).isEqualTo(expiresAt.plusDays(1));
+        assertThat(cartDao.findGuestCartByTokenHashWithLock(hash)).isPresent();
+        assertThat(cartDao.findGuestCartByTokenHash("b".repeat(64))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("有効期限が切れたゲストカートのみを期限の古い順に取得し、まとめて削除できること")
+    void findExpiredGuestCartIdsAndDeleteByIds() {
+        // arrange
+        var now = LocalDateTime.of(2030, 1, 1, 12, 0);
+        cartDao.saveCart(userId);
+        var expired2 = cartDao.saveGuestCart("2".repeat(64), now.minusHours(1));
+        var expired1 = cartDao.saveGuestCart("1".repeat(64), now.minusDays(1));
+        var active = cartDao.saveGuestCart("3".repeat(64), now.plusDays(1));
+
+        // act
+        var expiredIds = cartDao.findExpiredGuestCartIdsWithLock(now, 10);
+        cartDao.deleteByIds(expiredIds);
+
+        // assert
+        assertThat(expiredIds).containsExactly(expired1.getId(), expired2.getId());
+        assertThat(cartDao.findGuestCartByTokenHash("1".repeat(64))).isEmpty();
+        assertThat(cartDao.findGuestCartByTokenHash("3".repeat(64))).map(Cart::getId).contains(active.getId());
+        assertThat(cartDao.findCartByUserId(userId)).isPresent();
+    }
+
+}
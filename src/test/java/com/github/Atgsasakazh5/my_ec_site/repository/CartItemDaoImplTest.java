@@ -5,20 +5,27 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.tuple;
 import static org.junit.jupiter.api.Assertions.*;
 
+// 追加・加算(INSERT ... ON DUPLICATE KEY UPDATE)を実行するため、MySQL互換モードのH2を使用する
 @ActiveProfiles("h2")
 @JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:cartitems;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
 @Import(CartItemDaoImpl.class)
 @Transactional
 class CartItemDaoImplTest {
@@ -134,6 +141,52 @@ class CartItemDaoImplTest {
 
     }
 
+    @Test
+    @DisplayName("カートにないSKUは追加し、既にあるSKUは数量を加算すること")
+    void addQuantity_shouldInsertOrIncrement() {
+        // Act
+        boolean added = cartItemDao.addQuantity(testCartId, testSkuId1, 2);
+        boolean incremented = cartItemDao.addQuantity(testCartId, testSkuId1, 3);
+
+        // Assert: 同じSKUは1行にまとめられる
+        assertTrue(added);
+        assertTrue(incremented);
+        assertThat(cartItemDao.findByCartId(testCartId))
+                .extracting(CartItem::getSkuId, CartItem::getQuantity)
+                .containsExactly(tuple(testSkuId1, 5));
+    }
+
+    @Test
+    @DisplayName("加算後の数量が販売可能数を超える場合、追加・加算しないこと")
+    void addQuantity_shouldNotChange_whenStockIsInsufficient() {
+        // Arrange: 在庫100のうち、このカートが10、他のカートが合わせて80確保している（このカートの販売可能数は20）
+        jdbcTemplate.update("INSERT INTO cart_items (cart_id, sku_id, quantity) VALUES (?, ?, ?)",
+                testCartId, testSkuId1, 10);
+        jdbcTemplate.update("INSERT INTO stock_reservations (cart_id, sku_id, quantity, expires_at) VALUES (?, ?, ?, ?)",
+                testCartId, testSkuId1, 10, LocalDateTime.now().plusMinutes(15));
+        jdbcTemplate.update("UPDATE inventories SET reserved_quantity = 90 WHERE sku_id = ?", testSkuId1);
+        jdbcTemplate.update("UPDATE inventories SET reserved_quantity = 100 WHERE sku_id = ?", testSkuId2);
+
+        // Act & Assert
+        assertFalse(cartItemDao.addQuantity(testCartId, testSkuId1, 11));
+        assertFalse(cartItemDao.addQuantity(testCartId, testSkuId2, 1));
+        assertTrue(cartItemDao.addQuantity(testCartId, testSkuId1, 10));
+        assertThat(cartItemDao.findByCartId(testCartId))
+                .extracting(CartItem::getSkuId, CartItem::getQuantity)
+                .containsExactly(tuple(testSkuId1, 20));
+    }
+
+    @Test
+    @DisplayName("在庫レコードのないSKUは追加しないこと")
+    void addQuantity_shouldReturnFalse_whenInventoryDoesNotExist() {
+        // Arrange
+        jdbcTemplate.update("DELETE FROM inventories WHERE sku_id = ?", testSkuId2);
+
+        // Act & Assert
+        assertFalse(cartItemDao.addQuantity(testCartId, testSkuId2, 1));
+        assertThat(cartItemDao.findByCartId(testCartId)).isEmpty();
+    }
+
     @Test
     @DisplayName("カートIDでカートアイテムのリストを取得できること")
     void findByCartId_shouldReturnListOfCartItems() {
@@ -206,6 +259,71 @@ class CartItemDaoImplTest {
         assertEquals(5, foundCartItem.get().getQuantity());
     }
 
+    @Test
+    @DisplayName("複数のカートアイテムをまとめて追加・削除できること")
+    void saveAllAndDeleteByIds() {
+        // Act
+        cartItemDao.saveAll(List.of(
+                new CartItem(null, testCartId, testSkuId1, 2),
+                new CartItem(null, testCartId, testSkuId2, 3)));
+
+        // Assert
+        var saved = cartItemDao.findByCartId(testCartId);
+        assertThat(saved)
+                .extracting(CartItem::getSkuId, CartItem::getQuantity)
+                .containsExactlyInAnyOrder(tuple(testSkuId1, 2), tuple(testSkuId2, 3));
+
+        // Act
+        cartItemDao.deleteByIds(saved.stream().map(CartItem::getId).toList());
+
+        // Assert
+        assertThat(cartItemDao.findByCartId(testCartId)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("複数のカートアイテムの数量をまとめて更新できること")
+    void updateQuantities() {
+        // Arrange
+        var item1 = new CartItem();
+        item1.setCartId(testCartId);
+        item1.setSkuId(testSkuId1);
+        item1.setQuantity(1);
+        var saved1 = cartItemDao.save(item1);
+        var item2 = new CartItem();
+        item2.setCartId(testCartId);
+        item2.setSkuId(testSkuId2);
+        item2.setQuantity(1);
+        var saved2 = cartItemDao.save(item2);
+
+        // Act
+        cartItemDao.updateQuantities(Map.of(saved1.getId(), 3, saved2.getId(), 7));
+
+        // Assert
+        assertEquals(3, cartItemDao.findById(saved1.getId()).orElseThrow().getQuantity());
+        assertEquals(7, cartItemDao.findById(saved2.getId()).orElseThrow().getQuantity());
+    }
+
+    @Test
+    @DisplayName("カートアイテムに価格・在庫数を結合し、渡した順序・数量で返すこと")
+    void findDetailedItems_shouldJoinPriceAndStockInGivenOrder() {
+        // Arrange: cart_itemsには登録せず、SKU 1はこのカートで2個確保済み
+        jdbcTemplate.update("UPDATE inventories SET reserved_quantity = 5 WHERE sku_id = ?", testSkuId1);
+        jdbcTemplate.update("INSERT INTO stock_reservations (cart_id, sku_id, quantity, expires_at) VALUES (?, ?, ?, ?)",
+                testCartId, testSkuId1, 2, LocalDateTime.now().plusMinutes(15));
+        var cartItems = List.of(new CartItem(12L, testCartId, testSkuId2, 3), new CartItem(11L, testCartId, testSkuId1, 2));
+
+        // Act
+        var details = cartItemDao.findDetailedItems(testCartId, cartItems);
+
+        // Assert: 在庫数はこのカートの確保分を含めた販売可能数
+        assertThat(details)
+                .extracting("cartItemId", "skuId", "quantity", "price", "stockQuantity")
+                .containsExactly(
+                        tuple(12L, testSkuId2, 3, 1200, 100),
+                        tuple(11L, testSkuId1, 2, 1100, 97));
+        assertThat(cartItemDao.findDetailedItems(testCartId, List.of())).isEmpty();
+    }
+
     @Test
     @DisplayName("カートIDでcartitemdtoのリストを取得できること")
     void findCartItemDtoByCartId() {
@@ -230,4 +348,21 @@ class CartItemDaoImplTest {
                 );
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("カートアイテムの在庫数は、他のカートの確保分を差し引き、自分のカートの確保分を含めた数量であること")
+    void findDetailedItemsByCartId_shouldReturnStockExcludingOtherCartsReservations() {
+        // Arrange: 在庫100のうち、このカートが2、他のカートが合わせて30確保している
+        jdbcTemplate.update("INSERT INTO cart_items (cart_id, sku_id, quantity) VALUES (?, ?, ?)",
+                testCartId, testSkuId1, 2);
+        jdbcTemplate.update("INSERT INTO stock_reservations (cart_id, sku_id, quantity, expires_at) VALUES (?, ?, ?, ?)",
+                testCartId, testSkuId1, 2, LocalDateTime.now().plusMinutes(15));
+        jdbcTemplate.update("UPDATE inventories SET reserved_quantity = 32 WHERE sku_id = ?", testSkuId1);
+
+        // Act
+        var foundCartItems = cartItemDao.findDetailedItemsByCartId(testCartId);
+
+        // Assert
+        assertThat(foundCartItems).hasSize(1);
+        assertThat(foundCartItems.get(0).stockQuantity()).isEqualTo(70);
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.Atgsasakazh5.my_ec_site.repository;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.EmailMessage;
+import com.github.Atgsasakazh5.my_ec_site.entity.EmailMessageStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("h2")
+@JdbcTest
+@Import(EmailMessageDaoImpl.class)
+@Transactional
+class EmailMessageDaoImplTest {
+
+    @Autowired
+    private EmailMessageDaoImpl emailMessageDao;
+
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+    @Test
+    @DisplayName("送信日時を過ぎたメールのみを古い順に上限件数まで確保し、リース期限まで再取得されないこと")
+    void claimSendable_shouldClaimDueMessagesUntilLeaseExpires() {
+        // Arrange
+        EmailMessage older = emailMessageDao.save(pendingMessage("a@example.com", now.minusMinutes(2)));
+        EmailMessage newer = emailMessageDao.save(pendingMessage("b@example.com", now.minusMinutes(1)));
+        emailMessageDao.save(pendingMessage("c@example.com", now.minusSeconds(30)));
+        emailMessageDao.save(pendingMessage("d@example.com", now.plusMinutes(1)));
+        LocalDateTime leaseUntil = now.plusMinutes(5);
+
+        // Act
+        List<EmailMessage> claimed = emailMessageDao.claimSendable(now, leaseUntil, 2);
+
+        // Assert
+        assertThat(claimed).extracting(EmailMessage::getId).containsExactly(older.getId(), newer.getId());
+        assertThat(claimed.get(0).getBody()).isEqualTo("本文");
+        assertThat(emailMessageDao.claimSendable(now, leaseUntil, 10)).extracting(EmailMessage::getRecipient)
+                .containsExactly("c@example.com");
+        assertThat(emailMessageDao.claimSendable(leaseUntil, leaseUntil.plusMinutes(5), 10)).hasSize(4);
+    }
+
+    @Test
+    @DisplayName("送信済み・送信失敗にしたメールは送信待ちから外れ、送信済みのメールは保持期間を過ぎると削除されること")
+    void markSentAndMarkFailed_shouldRemoveMessagesFromQueue() {
+        // Arrange
+        EmailMessage sent = emailMessageDao.save(pendingMessage("a@example.com", now));
+        EmailMessage retried = emailMessageDao.save(pendingMessage("b@example.com", now));
+        EmailMessage failed = emailMessageDao.save(pendingMessage("c@example.com", now));
+        retried.setAttempts(1);
+        retried.setNextAttemptAt(now.plusSeconds(30));
+        retried.setLastError("MailSendException: 接続できません");
+        failed.setAttempts(8);
+        failed.setStatus(EmailMessageStatus.FAILED);
+
+        // Act
+        emailMessageDao.markSent(List.of(sent.getId()), now);
+        emailMessageDao.markFailed(List.of(retried, failed));
+
+        // Assert
+        assertEquals(1, emailMessageDao.countPending());
+        assertThat(emailMessageDao.claimSendable(now, now.plusMinutes(5), 10)).isEmpty();
+        EmailMessage next = emailMessageDao.claimSendable(now.plusSeconds(30), now.plusMinutes(5), 10).get(0);
+        assertEquals(retried.getId(), next.getId());
+        assertEquals(1, next.getAttempts());
+        assertEquals("MailSendException: 接続できません", next.getLastError());
+        assertEquals(0, emailMessageDao.deleteSentBefore(now));
+        assertEquals(1, emailMessageDao.deleteSentBefore(now.plusSeconds(1)));
+    }
+
+    private EmailMessage pendingMessage(String recipient, LocalDateTime nextAttemptAt) {
+        return new EmailMessage(null, recipient, "件名", "本文", EmailMessageStatus.PENDING, 0, nextAttemptAt, null, now, null);
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.Atgsasakazh5.my_ec_site.repository;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.IdempotencyKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("h2")
+@JdbcTest
+@Import(IdempotencyKeyDaoImpl.class)
+@Transactional
+class IdempotencyKeyDaoImplTest {
+
+    private static final String HASH = "a".repeat(64);
+
+    @Autowired
+    private IdempotencyKeyDaoImpl idempotencyKeyDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long testUserId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO users (name, email, password, created_at, updated_at) VALUES (?, ?, ?, ?, ?)",
+                "test user", "idempotencyTest@example.com", "password", LocalDateTime.now(), LocalDateTime.now());
+        testUserId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, "idempotencyTest@example.com");
+    }
+
+    @Test
+    @DisplayName("キーを保存し、ユーザーIDとキーで処理中の記録として取得できること")
+    void save_shouldPersistKeyWithoutResponse() {
+        // Arrange
+        var now = LocalDateTime.now();
+
+        // Act
+        IdempotencyKey saved = idempotencyKeyDao.save(new IdempotencyKey(null, testUserId, "key-1", HASH, null, now, now.plusHours(24)));
+
+        // Assert
+        assertNotNull(saved.getId());
+        IdempotencyKey found = idempotencyKeyDao.findByUserIdAndKey(testUserId, "key-1").orElseThrow();
+        assertEquals(HASH, found.getRequestHash());
+        assertFalse(found.isCompleted());
+    }
+
+    @Test
+    @DisplayName("同じユーザー・キーを2回保存するとDuplicateKeyExceptionがスローされること")
+    void save_shouldThrowDuplicateKeyException_whenKeyAlreadyExists() {
+        // Arrange
+        var now = LocalDateTime.now();
+        idempotencyKeyDao.save(new IdempotencyKey(null, testUserId, "key-1", HASH, null, now, now.plusHours(24)));
+
+        // Act & Assert
+        assertThrows(DuplicateKeyException.class, () ->
+                idempotencyKeyDao.save(new IdempotencyKey(null, testUserId, "key-1", HASH, null, now, now.plusHours(24))));
+    }
+
+    @Test
+    @DisplayName("処理結果を保存すると完了済みの記録になること")
+    void updateResponseBody_shouldCompleteRecord() {
+        // Arrange
+        var now = LocalDateTime.now();
+        var saved = idempotencyKeyDao.save(new IdempotencyKey(null, testUserId, "key-1", HASH, null, now, now.plusHours(24)));
+
+        // Act
+        idempotencyKeyDao.updateResponseBody(saved.getId(), "[{\"id\":1}]");
+
+        // Assert
+        IdempotencyKey found = idempotencyKeyDao.findByUserIdAndKey(testUserId, "key-1").orElseThrow();
+        assertTrue(found.isCompleted());
+        assertEquals("[{\"id\":1}]", found.getResponseBody());
+    }
+
+    @Test
+    @DisplayName("確認中の注文IDを保存すると、決済確認中の完了済みの記録になること")
+    void updatePendingOrderId_shouldMarkRecordAsPaymentPending() {
+        // Arrange
+        var now = LocalDateTime.now();
+        var saved = idempotencyKeyDao.save(new IdempotencyKey(null, testUserId, "key-1", HASH, null, now, now.plusHours(24)));
+
+        // Act
+        idempotencyKeyDao.updatePendingOrderId(saved.getId(), 501L);
+
+        // Assert
+        IdempotencyKey found = idempotencyKeyDao.findByUserIdAndKey(testUserId, "key-1").orElseThrow();
+        assertTrue(found.isCompleted());
+        assertTrue(found.isPaymentPending());
+        assertEquals(501L, found.getPendingOrderId());
+    }
+
+    @Test
+    @DisplayName("有効期限が切れた記録のみ削除されること")
+    void deleteExpired_shouldDeleteOnlyExpiredRecords() {
+        // Arrange
+        var now = LocalDateTime.now();
+        idempotencyKeyDao.save(new IdempotencyKey(null, testUserId, "expired", HASH, null, now.minusHours(25), now.minusHours(1)));
+        idempotencyKeyDao.save(new IdempotencyKey(null, testUserId, "active", HASH, null, now, now.plusHours(24)));
+
+        // Act
+        int deleted = idempotencyKeyDao.deleteExpired(now);
+
+        // Assert
+        assertThat(deleted).isEqualTo(1);
+        assertThat(idempotencyKeyDao.findByUserIdAndKey(testUserId, "expired")).isEmpty();
+        assertThat(idempotencyKeyDao.findByUserIdAndKey(testUserId, "active")).isPresent();
+    }
+}
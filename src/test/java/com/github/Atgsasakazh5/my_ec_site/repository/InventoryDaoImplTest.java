@@ -8,14 +8,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 @ActiveProfiles("h2")
 @JdbcTest
@@ -257,4 +264,136 @@ class InventoryDaoImplTest {
         assertThat(foundInventories).hasSize(2);
         assertThat(foundInventories).extracting("skuId").containsExactlyInAnyOrder(testSkuId, testSkuId2);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("指定した数量を現在の在庫数に加算できること")
+    void increaseQuantities_shouldAddToCurrentQuantity() {
+        // Arrange
+        var inventory1 = new Inventory(null, testSkuId, 3, null);
+        var inventory2 = new Inventory(null, testSkuId2, 0, null);
+        inventoryDao.save(inventory1);
+        inventoryDao.save(inventory2);
+
+        // Act
+        inventoryDao.increaseQuantities(Map.of(testSkuId, 2, testSkuId2, 5));
+
+        // Assert
+        assertEquals(5, inventoryDao.findBySkuId(testSkuId).orElseThrow().getQuantity());
+        assertEquals(5, inventoryDao.findBySkuId(testSkuId2).orElseThrow().getQuantity());
+    }
+
+    @Test
+    @DisplayName("在庫が足りるSKUの在庫を一括で差し引けること")
+    void decreaseQuantities_shouldSubtractFromCurrentQuantity() {
+        // Arrange
+        inventoryDao.save(new Inventory(null, testSkuId, 3, null));
+        inventoryDao.save(new Inventory(null, testSkuId2, 10, null));
+
+        // Act
+        List<Long> failedSkuIds = inventoryDao.decreaseQuantities(Map.of(testSkuId, 3, testSkuId2, 4));
+
+        // Assert
+        assertThat(failedSkuIds).isEmpty();
+        assertEquals(0, inventoryDao.findBySkuId(testSkuId).orElseThrow().getQuantity());
+        assertEquals(6, inventoryDao.findBySkuId(testSkuId2).orElseThrow().getQuantity());
+    }
+
+    @Test
+    @DisplayName("在庫が不足しているSKUは差し引かれず、そのSKU IDが返されること")
+    void decreaseQuantities_shouldReportInsufficientSkus() {
+        // Arrange
+        inventoryDao.save(new Inventory(null, testSkuId, 1, null));
+        inventoryDao.save(new Inventory(null, testSkuId2, 10, null));
+
+        // Act
+        List<Long> failedSkuIds = inventoryDao.decreaseQuantities(Map.of(testSkuId, 2, testSkuId2, 4));
+
+        // Assert: 在庫が足りるSKUは差し引かれる（取り消すかどうかは呼び出し側のトランザクションで判断する）
+        assertThat(failedSkuIds).containsExactly(testSkuId);
+        assertEquals(1, inventoryDao.findBySkuId(testSkuId).orElseThrow().getQuantity());
+        assertEquals(6, inventoryDao.findBySkuId(testSkuId2).orElseThrow().getQuantity());
+    }
+
+    @Test
+    @DisplayName("ドライバが更新件数を返さない(SUCCESS_NO_INFO)場合、差し引けたか確認できないSKUとして返されること")
+    void decreaseQuantities_shouldReportSku_whenUpdateCountIsUnknown() {
+        // Arrange: rewriteBatchedStatements=trueのMySQLドライバは、文ごとの更新件数の代わりにSUCCESS_NO_INFOを返す
+        var namedParameterJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        when(namedParameterJdbcTemplate.batchUpdate(anyString(), any(Map[].class)))
+                .thenReturn(new int[]{Statement.SUCCESS_NO_INFO, 1});
+        var dao = new InventoryDaoImpl(jdbcTemplate, namedParameterJdbcTemplate);
+
+        // Act
+        List<Long> failedSkuIds = dao.decreaseQuantities(Map.of(testSkuId, 1, testSkuId2, 1));
+
+        // Assert: SKU ID順に実行されるため、1件目の文が先頭のSKU
+        assertThat(failedSkuIds).containsExactly(Math.min(testSkuId, testSkuId2));
+    }
+
+    @Test
+    @DisplayName("在庫レコードが存在しないSKUは差し引けなかったSKUとして返されること")
+    void decreaseQuantities_shouldReportSkuWithoutInventory() {
+        // Act
+        List<Long> failedSkuIds = inventoryDao.decreaseQuantities(Map.of(testSkuId, 1));
+
+        // Assert
+        assertThat(failedSkuIds).containsExactly(testSkuId);
+    }
+
+    @Test
+    @DisplayName("他のカートで確保されている数量は、注文の確定時に差し引けないこと")
+    void decreaseQuantities_shouldNotConsumeReservedQuantity() {
+        // Arrange: 在庫5のうち3がカートで確保されている
+        inventoryDao.save(new Inventory(null, testSkuId, 5, null));
+        assertTrue(inventoryDao.reserveQuantity(testSkuId, 3));
+
+        // Act
+        List<Long> failedSkuIds = inventoryDao.decreaseQuantities(Map.of(testSkuId, 3));
+
+        // Assert
+        assertThat(failedSkuIds).containsExactly(testSkuId);
+        assertEquals(5, inventoryDao.findBySkuId(testSkuId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    @DisplayName("販売可能数の範囲内でのみカートでの確保数が加算されること")
+    void reserveQuantity_shouldReserveOnlyWithinAvailableQuantity() {
+        // Arrange
+        inventoryDao.save(new Inventory(null, testSkuId, 5, null));
+
+        // Act
+        boolean first = inventoryDao.reserveQuantity(testSkuId, 4);
+        boolean second = inventoryDao.reserveQuantity(testSkuId, 2);
+
+        // Assert
+        assertTrue(first);
+        assertFalse(second);
+        Inventory inventory = inventoryDao.findBySkuId(testSkuId).orElseThrow();
+        assertEquals(4, inventory.getReservedQuantity());
+        assertEquals(1, inventory.getAvailableQuantity());
+    }
+
+    @Test
+    @DisplayName("在庫レコードが存在しないSKUは確保できないこと")
+    void reserveQuantity_shouldReturnFalse_whenInventoryDoesNotExist() {
+        // Act & Assert
+        assertFalse(inventoryDao.reserveQuantity(testSkuId, 1));
+    }
+
+    @Test
+    @DisplayName("カートでの確保数から差し引かれ、0未満にはならないこと")
+    void releaseReservedQuantities_shouldSubtractWithoutGoingNegative() {
+        // Arrange
+        inventoryDao.save(new Inventory(null, testSkuId, 10, null));
+        inventoryDao.save(new Inventory(null, testSkuId2, 10, null));
+        inventoryDao.reserveQuantity(testSkuId, 5);
+        inventoryDao.reserveQuantity(testSkuId2, 1);
+
+        // Act
+        inventoryDao.releaseReservedQuantities(Map.of(testSkuId, 2, testSkuId2, 3));
+
+        // Assert
+        assertEquals(3, inventoryDao.findBySkuId(testSkuId).orElseThrow().getReservedQuantity());
+        assertEquals(0, inventoryDao.findBySkuId(testSkuId2).orElseThrow().getReservedQuantity());
+    }
+}
@@ -75,6 +75,11 @@ class OrderDaoImplTest {
         assertEquals(shippingName, savedOrder.getShippingName());
         assertNotNull(savedOrder.getOrderedAt());
 
+        // 返された値が再取得した値と一致すること
+        var foundOrder = orderDao.findOrderById(savedOrder.getId()).orElseThrow();
+        assertEquals(savedOrder.getOrderedAt(), foundOrder.getOrderedAt());
+        assertEquals(savedOrder.getTotalPrice(), foundOrder.getTotalPrice());
+
     }
 
     @Test
@@ -205,6 +210,43 @@ class OrderDaoImplTest {
         });
     }
 
+    @Test
+    @DisplayName("ステータスが指定したいずれかの場合のみ更新し、それ以外の場合は更新しないこと")
+    void updateStatusIfIn_shouldUpdateOnlyWhenStatusMatches() {
+        // Arrange
+        long reviewId = insertOrder("PAYMENT_REVIEW", 1500, "2025-08-18 10:00:00");
+        long canceledId = insertOrder("CANCELED", 1500, "2025-08-18 10:00:00");
+        List<OrderStatus> unsettled = List.of(OrderStatus.PENDING, OrderStatus.PAYMENT_REVIEW);
+
+        // Act
+        boolean reviewUpdated = orderDao.updateStatusIfIn(reviewId, unsettled, OrderStatus.PAID);
+        boolean canceledUpdated = orderDao.updateStatusIfIn(canceledId, unsettled, OrderStatus.PAID);
+
+        // Assert
+        assertTrue(reviewUpdated);
+        assertFalse(canceledUpdated);
+        assertThat(orderDao.findOrderById(reviewId).get().getStatus()).isEqualTo(OrderStatus.PAID);
+        assertThat(orderDao.findOrderById(canceledId).get().getStatus()).isEqualTo(OrderStatus.CANCELED);
+    }
+
+    @Test
+    @DisplayName("決済の結果が確定していない注文のうち、指定した日時より前のものを古い順に取得できること")
+    void findUnsettledOrders_shouldReturnPendingAndReviewOrdersBeforeGivenTime() {
+        // Arrange
+        long review = insertOrder("PAYMENT_REVIEW", 1500, "2025-08-18 10:00:00");
+        long pending = insertOrder("PENDING", 1500, "2025-08-18 09:00:00");
+        insertOrder("PAID", 1500, "2025-08-18 08:00:00");
+        insertOrder("PENDING", 1500, "2025-08-18 12:00:00");
+        orderDao.updatePaymentIntentId(review, "pi_test");
+
+        // Act
+        List<Order> orders = orderDao.findUnsettledOrders(LocalDateTime.of(2025, 8, 18, 11, 0), 10);
+
+        // Assert
+        assertThat(orders).extracting(Order::getId).containsExactly(pending, review);
+        assertThat(orders).extracting(Order::getPaymentIntentId).containsExactly(null, "pi_test");
+    }
+
     @Test
     @DisplayName("ユーザーIDで注文概要リストを取得できること")
     void findOrderSummariesByUserId_shouldReturnOrderSummaries() {
@@ -229,4 +271,73 @@ class OrderDaoImplTest {
         assertThat(summaries.get(1).totalPrice()).isEqualTo(2500);
         assertThat(summaries.get(1).status()).isEqualTo(OrderStatus.SHIPPED);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("注文概要を注文日時・IDの降順にカーソル方式で取得し、同じ日時の注文もページの境界で重複・欠落しないこと")
+    void findOrderSummariesByCursor_shouldPageByOrderedAtAndId() {
+        // Arrange: 同じ日時の注文を2件含む
+        long newest = insertOrder("PAID", 1000, "2025-08-18 10:00:00");
+        long sameTimeFirst = insertOrder("PAID", 2000, "2025-08-17 12:00:00");
+        long sameTimeSecond = insertOrder("SHIPPED", 3000, "2025-08-17 12:00:00");
+        long oldest = insertOrder("PAID", 4000, "2025-08-16 09:00:00");
+
+        // Act
+        List<OrderSummaryDto> firstPage = orderDao.findOrderSummariesByCursor(userId, null, null, null, null, null, 2);
+        OrderSummaryDto last = firstPage.get(firstPage.size() - 1);
+        List<OrderSummaryDto> secondPage = orderDao.findOrderSummariesByCursor(userId, null, null, null,
+                last.orderedAt(), last.orderId(), 2);
+
+        // Assert
+        assertThat(firstPage).extracting(OrderSummaryDto::orderId).containsExactly(newest, sameTimeSecond);
+        assertThat(secondPage).extracting(OrderSummaryDto::orderId).containsExactly(sameTimeFirst, oldest);
+        assertThat(secondPage.get(0).totalPrice()).isEqualTo(2000);
+    }
+
+    @Test
+    @DisplayName("注文の状態・注文日時の範囲(開始以上・終了未満)で絞り込めること")
+    void findOrderSummariesByCursor_shouldFilterByStatusAndPeriod() {
+        // Arrange
+        insertOrder("PAID", 1000, "2025-08-18 10:00:00");
+        long shipped = insertOrder("SHIPPED", 2000, "2025-08-17 12:00:00");
+        long paidInPeriod = insertOrder("PAID", 3000, "2025-08-17 09:00:00");
+        insertOrder("PAID", 4000, "2025-08-16 23:59:59");
+
+        LocalDateTime from = LocalDateTime.of(2025, 8, 17, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 8, 18, 0, 0);
+
+        // Act
+        List<OrderSummaryDto> inPeriod = orderDao.findOrderSummariesByCursor(userId, null, from, to, null, null, 10);
+        List<OrderSummaryDto> paidOnly = orderDao.findOrderSummariesByCursor(userId, OrderStatus.PAID, from, to, null, null, 10);
+
+        // Assert
+        assertThat(inPeriod).extracting(OrderSummaryDto::orderId).containsExactly(shipped, paidInPeriod);
+        assertThat(paidOnly).extracting(OrderSummaryDto::orderId).containsExactly(paidInPeriod);
+    }
+
+    @Test
+    @DisplayName("他のユーザーの注文は取得しないこと")
+    void findOrderSummariesByCursor_shouldNotReturnOtherUsersOrders() {
+        // Arrange
+        long otherUserId = userId + 1;
+        jdbcTemplate.update(
+                "INSERT INTO users (id, name, email, password, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)",
+                otherUserId, "Other User", "other@example.com", "password", LocalDateTime.now(), LocalDateTime.now());
+        long own = insertOrder("PAID", 1000, "2025-08-18 10:00:00");
+        jdbcTemplate.update("INSERT INTO orders (user_id, status, total_price, ordered_at," +
+                " shipping_address, shipping_postal_code, shipping_name) " +
+                "VALUES (?, 'PAID', 500, '2025-08-19 10:00:00', '東京都新宿区', '100-0003', '佐藤')", otherUserId);
+
+        // Act
+        List<OrderSummaryDto> summaries = orderDao.findOrderSummariesByCursor(userId, null, null, null, null, null, 10);
+
+        // Assert
+        assertThat(summaries).extracting(OrderSummaryDto::orderId).containsExactly(own);
+    }
+
+    private long insertOrder(String status, int totalPrice, String orderedAt) {
+        jdbcTemplate.update("INSERT INTO orders (user_id, status, total_price, ordered_at," +
+                " shipping_address, shipping_postal_code, shipping_name) " +
+                "VALUES (?, ?, ?, ?, '東京都新宿区', '100-0003', '田中')", userId, status, totalPrice, orderedAt);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM orders WHERE user_id = ?", Long.class, userId);
+    }
+}
@@ -78,10 +78,17 @@ class OrderDetailDaoImplTest {
         );
 
         // Act
-        orderDetailDao.save(orderDetailsToSave);
+        var returnedDetails = orderDetailDao.save(orderDetailsToSave);
 
-        // Assert
+        // Assert: 保存した順に採番されたIDが設定されて返ること
         var savedDetails = orderDetailDao.findByOrderId(testOrderId);
+        assertThat(returnedDetails).extracting("id").doesNotContainNull();
+        assertThat(savedDetails)
+                .extracting("id", "skuId")
+                .containsExactlyInAnyOrder(
+                        tuple(returnedDetails.get(0).getId(), testSkuId1),
+                        tuple(returnedDetails.get(1).getId(), testSkuId2)
+                );
         assertThat(savedDetails).hasSize(2);
         assertThat(savedDetails)
                 .extracting("skuId", "quantity")
@@ -0,0 +1,117 @@
+package com.github.Atgsasakazh5.my_ec_site.repository;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEvent;
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEventStatus;
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEventType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("h2")
+@JdbcTest
+@Import(OutboxEventDaoImpl.class)
+@Transactional
+class OutboxEventDaoImplTest {
+
+    @Autowired
+    private OutboxEventDaoImpl outboxEventDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+    @Test
+    @DisplayName("イベントを保存するとIDが採番され、配信待ちとして数えられること")
+    void save_shouldPersistPendingEvent() {
+        // Act
+        OutboxEvent saved = outboxEventDao.save(pendingEvent(1L, now));
+
+        // Assert
+        assertNotNull(saved.getId());
+        assertEquals(1, outboxEventDao.countPending());
+    }
+
+    @Test
+    @DisplayName("配信日時を過ぎたイベントのみを古い順に上限件数まで確保し、リース期限まで再取得されないこと")
+    void claimDispatchable_shouldClaimDueEventsUntilLeaseExpires() {
+        // Arrange
+        OutboxEvent older = outboxEventDao.save(pendingEvent(1L, now.minusMinutes(2)));
+        OutboxEvent newer = outboxEventDao.save(pendingEvent(2L, now.minusMinutes(1)));
+        outboxEventDao.save(pendingEvent(3L, now.minusSeconds(30)));
+        outboxEventDao.save(pendingEvent(4L, now.plusMinutes(1)));
+        LocalDateTime leaseUntil = now.plusMinutes(1);
+
+        // Act
+        List<OutboxEvent> claimed = outboxEventDao.claimDispatchable(now, leaseUntil, 2);
+
+        // Assert
+        assertThat(claimed).extracting(OutboxEvent::getId).containsExactly(older.getId(), newer.getId());
+        assertThat(claimed).allSatisfy(event -> assertEquals(leaseUntil, event.getNextAttemptAt()));
+        // 確保したイベントは同じ時刻の取得では対象外になる
+        assertThat(outboxEventDao.claimDispatchable(now, leaseUntil, 10)).extracting(OutboxEvent::getAggregateId)
+                .containsExactly(3L);
+        // リース期限を過ぎると再び取得できる
+        assertThat(outboxEventDao.claimDispatchable(leaseUntil, leaseUntil.plusMinutes(1), 10)).hasSize(4);
+    }
+
+    @Test
+    @DisplayName("配信済みにしたイベントは取得対象外になり、保持期間を過ぎると削除されること")
+    void markProcessed_shouldExcludeEventAndAllowPurge() {
+        // Arrange
+        OutboxEvent processed = outboxEventDao.save(pendingEvent(1L, now));
+        outboxEventDao.save(pendingEvent(2L, now));
+
+        // Act
+        outboxEventDao.markProcessed(List.of(processed.getId()), now);
+
+        // Assert
+        assertEquals(1, outboxEventDao.countPending());
+        assertThat(outboxEventDao.claimDispatchable(now, now.plusMinutes(1), 10)).extracting(OutboxEvent::getAggregateId)
+                .containsExactly(2L);
+        assertEquals(0, outboxEventDao.deleteProcessedBefore(now));
+        assertEquals(1, outboxEventDao.deleteProcessedBefore(now.plusSeconds(1)));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events", Integer.class));
+    }
+
+    @Test
+    @DisplayName("配信に失敗したイベントの試行回数・次回の配信日時・エラーが更新されること")
+    void markFailed_shouldUpdateRetryState() {
+        // Arrange
+        OutboxEvent event = outboxEventDao.save(pendingEvent(1L, now));
+        event.setAttempts(1);
+        event.setNextAttemptAt(now.plusSeconds(10));
+        event.setLastError("IllegalStateException: 接続できません");
+
+        // Act
+        outboxEventDao.markFailed(event);
+
+        // Assert
+        assertThat(outboxEventDao.claimDispatchable(now, now.plusMinutes(1), 10)).isEmpty();
+        OutboxEvent retried = outboxEventDao.claimDispatchable(now.plusSeconds(10), now.plusMinutes(1), 10).get(0);
+        assertEquals(1, retried.getAttempts());
+        assertEquals("IllegalStateException: 接続できません", retried.getLastError());
+
+        // 最大回数に達したイベントは配信待ちから外れる
+        retried.setStatus(OutboxEventStatus.FAILED);
+        outboxEventDao.markFailed(retried);
+        assertEquals(0, outboxEventDao.countPending());
+    }
+
+    private OutboxEvent pendingEvent(Long aggregateId, LocalDateTime nextAttemptAt) {
+        return new OutboxEvent(null, OutboxEventType.ORDER_PLACED, aggregateId, "{\"orderId\":" + aggregateId + "}",
+                OutboxEventStatus.PENDING, 0, nextAttemptAt, null, now, null);
+    }
+}
@@ -306,4 +306,96 @@ class ProductDaoImplTest {
         // Assert
         assertEquals(50, count);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("カーソルより小さいIDの商品をID降順で取得できること")
+    void findAllByCursor_shouldReturnProductsBeforeCursor() {
+        // Arrange: batchUpdateで30件のテストデータを一括登録
+        List<Object[]> batchArgs = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 1; i <= 30; i++) {
+            batchArgs.add(new Object[]{
+                    "テスト商品" + i, 1000 + i, "説明" + i, "url" + i, testCategoryId,
+                    Timestamp.valueOf(now),
+                    Timestamp.valueOf(now)
+            });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO products (name, price, description, image_url, category_id, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)", batchArgs);
+
+        // Act: 先頭ページを取得し、その最後のIDをカーソルとして次のページを取得
+        List<Product> firstPage = productDao.findAllByCursor(null, 20);
+        Long lastSeenId = firstPage.get(firstPage.size() - 1).getId();
+        List<Product> secondPage = productDao.findAllByCursor(lastSeenId, 20);
+
+        // Assert
+        assertThat(firstPage).hasSize(20);
+        assertThat(firstPage.get(0).getName()).isEqualTo("テスト商品30");
+        assertThat(secondPage).hasSize(10);
+        assertThat(secondPage).allMatch(product -> product.getId() < lastSeenId);
+        assertThat(secondPage.stream().map(Product::getName).toList())
+                .containsExactlyElementsOf(IntStream.rangeClosed(1, 10)
+                        .map(i -> 11 - i)
+                        .mapToObj(i -> "テスト商品" + i)
+                        .toList());
+    }
+
+    @Test
+    @DisplayName("カーソルを指定して特定のカテゴリの商品のみを取得できること")
+    void findByCategoryIdAndCursor_shouldReturnOnlyProductsOfCategoryBeforeCursor() {
+        // Arrange: 2つのカテゴリに交互に商品を登録
+        jdbcTemplate.update("INSERT INTO categories (name) VALUES (?);", "テストカテゴリー2");
+        Integer otherCategoryId = jdbcTemplate.queryForObject(
+                "SELECT id FROM categories WHERE name = 'テストカテゴリー2'", Integer.class);
+
+        List<Object[]> batchArgs = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 1; i <= 20; i++) {
+            batchArgs.add(new Object[]{
+                    "テスト商品" + i, 1000 + i, "説明" + i, "url" + i,
+                    (i % 2 == 0) ? testCategoryId : otherCategoryId,
+                    Timestamp.valueOf(now),
+                    Timestamp.valueOf(now)
+            });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO products (name, price, description, image_url, category_id, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)", batchArgs);
+
+        // Act
+        List<Product> firstPage = productDao.findByCategoryIdAndCursor(testCategoryId, null, 5);
+        Long lastSeenId = firstPage.get(firstPage.size() - 1).getId();
+        List<Product> secondPage = productDao.findByCategoryIdAndCursor(testCategoryId, lastSeenId, 5);
+
+        // Assert
+        assertThat(firstPage.stream().map(Product::getName).toList())
+                .containsExactly("テスト商品20", "テスト商品18", "テスト商品16", "テスト商品14", "テスト商品12");
+        assertThat(secondPage.stream().map(Product::getName).toList())
+                .containsExactly("テスト商品10", "テスト商品8", "テスト商品6", "テスト商品4", "テスト商品2");
+        assertThat(secondPage).allMatch(product -> product.getCategoryId().equals(testCategoryId));
+    }
+
+    @Test
+    @DisplayName("カテゴリごとの商品数を一度に取得できること")
+    void countGroupByCategoryId_shouldReturnCountPerCategory() {
+        // Arrange
+        jdbcTemplate.update("INSERT INTO categories (name) VALUES (?);", "テストカテゴリー2");
+        Integer otherCategoryId = jdbcTemplate.queryForObject(
+                "SELECT id FROM categories WHERE name = 'テストカテゴリー2'", Integer.class);
+
+        List<Object[]> batchArgs = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 1; i <= 5; i++) {
+            batchArgs.add(new Object[]{
+                    "テスト商品" + i, 1000 + i, "説明" + i, "url" + i,
+                    (i <= 3) ? testCategoryId : otherCategoryId,
+                    Timestamp.valueOf(now),
+                    Timestamp.valueOf(now)
+            });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO products (name, price, description, image_url, category_id, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)", batchArgs);
+
+        // Act
+        var counts = productDao.countGroupByCategoryId();
+
+        // Assert
+        assertThat(counts).containsEntry(testCategoryId, 3).containsEntry(otherCategoryId, 2);
+    }
+}
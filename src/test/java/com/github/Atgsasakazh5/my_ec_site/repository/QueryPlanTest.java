@@ -0,0 +1,130 @@
+package com.github.Atgsasakazh5.my_ec_site.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 主要なクエリがインデックスを使用し、フルスキャンにならないことをEXPLAINで確認する
+ * <p>
+ * 本番と同じFlywayのマイグレーション(db/migration)をMySQL互換モードのH2に適用して検証する。
+ */
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:queryplan;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=never",
+        "spring.flyway.enabled=true",
+        "spring.flyway.locations=classpath:db/migration"
+})
+class QueryPlanTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("カテゴリ別の商品一覧(カーソル方式)が複合インデックスを使用すること")
+    void productsByCategoryAndCursor_shouldUseCategoryIndex() {
+        String plan = explain("SELECT * FROM products WHERE category_id = ? AND id < ? ORDER BY id DESC LIMIT ?",
+                1, 100L, 21);
+
+        assertThat(plan).doesNotContain("tablescan").contains("idx_products_category_id_id");
+    }
+
+    @Test
+    @DisplayName("カテゴリ別の商品数の集計がフルスキャンにならないこと")
+    void countByCategoryId_shouldNotScanFullTable() {
+        String plan = explain("SELECT COUNT(*) FROM products WHERE category_id = ?", 1);
+
+        assertThat(plan).doesNotContain("tablescan");
+    }
+
+    @Test
+    @DisplayName("注文履歴の取得がフルスキャンにならないこと")
+    void orderSummariesByUserId_shouldNotScanFullTable() {
+        String plan = explain("SELECT o.id, o.ordered_at, o.total_price, o.status FROM orders o " +
+                "WHERE o.user_id = ? ORDER BY o.ordered_at DESC", 1L);
+
+        assertThat(plan).doesNotContain("tablescan");
+    }
+
+    @Test
+    @DisplayName("注文履歴(カーソル方式)の取得が、注文テーブルを読まずにカバリングインデックスだけで返せること")
+    void orderSummariesByCursor_shouldUseCoveringIndex() {
+        String plan = explain("SELECT o.id, o.ordered_at, o.total_price, o.status FROM orders o " +
+                        "WHERE o.user_id = ? AND o.status = ? AND o.ordered_at >= ? AND o.ordered_at < ? " +
+                        "AND (o.ordered_at < ? OR (o.ordered_at = ? AND o.id < ?)) " +
+                        "ORDER BY o.ordered_at DESC, o.id DESC LIMIT ?",
+                1L, "PAID", "2025-01-01 00:00:00", "2026-01-01 00:00:00",
+                "2025-06-01 00:00:00", "2025-06-01 00:00:00", 100L, 21);
+
+        assertThat(plan).doesNotContain("tablescan").contains("idx_orders_user_id_ordered_at_id_covering");
+    }
+
+    @Test
+    @DisplayName("注文明細の取得がフルスキャンにならないこと")
+    void orderDetailsByOrderId_shouldNotScanFullTable() {
+        String plan = explain("SELECT od.id, od.order_id, od.sku_id, p.name AS product_name, s.size, s.color, " +
+                "od.quantity, od.price_at_order FROM order_details od " +
+                "JOIN skus s ON od.sku_id = s.id " +
+                "JOIN products p ON s.product_id = p.id " +
+                "WHERE od.order_id = ?", 1L);
+
+        assertThat(plan).doesNotContain("tablescan");
+    }
+
+    @Test
+    @DisplayName("カート内商品の詳細取得がフルスキャンにならないこと")
+    void detailedCartItems_shouldNotScanFullTable() {
+        String plan = explain("SELECT ci.id AS cart_item_id, p.name AS product_name, p.image_url, s.id AS sku_id, " +
+                "s.size, s.color, (p.price + s.extra_price) AS final_price, ci.quantity, i.quantity AS stock_quantity " +
+                "FROM cart_items ci " +
+                "JOIN skus s ON ci.sku_id = s.id " +
+                "JOIN products p ON s.product_id = p.id " +
+                "JOIN inventories i ON s.id = i.sku_id " +
+                "WHERE ci.cart_id = ?", 1L);
+
+        assertThat(plan).doesNotContain("tablescan");
+    }
+
+    @Test
+    @DisplayName("メールアドレスによるユーザー検索がフルスキャンにならないこと")
+    void userByEmail_shouldNotScanFullTable() {
+        String plan = explain("SELECT u.*, r.id AS role_id, r.name AS role_name FROM users u " +
+                "LEFT JOIN user_roles ur ON u.id = ur.user_id " +
+                "LEFT JOIN roles r ON ur.role_id = r.id " +
+                "WHERE u.email = ?", "test@email.com");
+
+        assertThat(plan).doesNotContain("tablescan");
+    }
+
+    @Test
+    @DisplayName("SKU IDによる在庫の一括取得がフルスキャンにならないこと")
+    void inventoriesBySkuIds_shouldNotScanFullTable() {
+        String plan = explain("SELECT * FROM inventories WHERE sku_id IN (?, ?, ?)", 1L, 2L, 3L);
+
+        assertThat(plan).doesNotContain("tablescan");
+    }
+
+    @Test
+    @DisplayName("インデックスのない列による検索はフルスキャンとして検出されること")
+    void unindexedQuery_shouldBeDetectedAsTableScan() {
+        String plan = explain("SELECT * FROM products WHERE name = ?", "テスト商品");
+
+        assertThat(plan).contains("tablescan");
+    }
+
+    // EXPLAINの実行計画を小文字で返す（H2ではフルスキャンは"tableScan"と表示される）
+    private String explain(String sql, Object... args) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args)).toLowerCase();
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.Atgsasakazh5.my_ec_site.repository;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.StockReservation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("h2")
+@JdbcTest
+@Import(StockReservationDaoImpl.class)
+@Transactional
+class StockReservationDaoImplTest {
+
+    @Autowired
+    private StockReservationDaoImpl stockReservationDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long testCartId;
+    private Long testSkuId1;
+    private Long testSkuId2;
+
+    @BeforeEach
+    void setUp() {
+        var now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO users (name, email, password, created_at, updated_at) VALUES (?, ?, ?, ?, ?)",
+                "test user", "reservationTest@example.com", "password", now, now);
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, "reservationTest@example.com");
+        jdbcTemplate.update("INSERT INTO carts (user_id) VALUES (?)", userId);
+        testCartId = jdbcTemplate.queryForObject("SELECT id FROM carts WHERE user_id = ?", Long.class, userId);
+
+        jdbcTemplate.update("INSERT INTO categories (name) VALUES (?)", "Test Category");
+        Integer categoryId = jdbcTemplate.queryForObject("SELECT id FROM categories WHERE name = ?", Integer.class, "Test Category");
+        jdbcTemplate.update("INSERT INTO products (name, price, description, category_id, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)",
+                "Test Product", 1000, "description", categoryId, now, now);
+        Long productId = jdbcTemplate.queryForObject("SELECT id FROM products WHERE name = ?", Long.class, "Test Product");
+        jdbcTemplate.update("INSERT INTO skus (product_id, size, color, extra_price, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)",
+                productId, "M", "Red", 0, now, now);
+        testSkuId1 = jdbcTemplate.queryForObject("SELECT id FROM skus WHERE product_id = ? AND color = ?", Long.class, productId, "Red");
+        jdbcTemplate.update("INSERT INTO skus (product_id, size, color, extra_price, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)",
+                productId, "M", "Blue", 0, now, now);
+        testSkuId2 = jdbcTemplate.queryForObject("SELECT id FROM skus WHERE product_id = ? AND color = ?", Long.class, productId, "Blue");
+    }
+
+    @Test
+    @DisplayName("確保を保存し、カートとSKUの組み合わせで取得できること")
+    void save_shouldPersistReservation() {
+        // Arrange
+        var expiresAt = LocalDateTime.now().plusMinutes(15).truncatedTo(ChronoUnit.SECONDS);
+
+        // Act
+        StockReservation saved = stockReservationDao.save(new StockReservation(null, testCartId, testSkuId1, 2, expiresAt));
+
+        // Assert
+        assertNotNull(saved.getId());
+        StockReservation found = stockReservationDao.findByCartIdAndSkuIdWithLock(testCartId, testSkuId1).orElseThrow();
+        assertEquals(2, found.getQuantity());
+        assertEquals(expiresAt, found.getExpiresAt());
+    }
+
+    @Test
+    @DisplayName("確保の数量と有効期限を更新できること")
+    void update_shouldChangeQuantityAndExpiry() {
+        // Arrange
+        var saved = stockReservationDao.save(new StockReservation(null, testCartId, testSkuId1, 2, LocalDateTime.now()));
+        var newExpiresAt = LocalDateTime.now().plusMinutes(30).truncatedTo(ChronoUnit.SECONDS);
+
+        // Act
+        saved.setQuantity(5);
+        saved.setExpiresAt(newExpiresAt);
+        stockReservationDao.update(saved);
+
+        // Assert
+        StockReservation found = stockReservationDao.findByCartIdAndSkuIdWithLock(testCartId, testSkuId1).orElseThrow();
+        assertEquals(5, found.getQuantity());
+        assertEquals(newExpiresAt, found.getExpiresAt());
+    }
+
+    @Test
+    @DisplayName("有効期限が切れた確保のみ、期限の古い順に上限件数まで取得できること")
+    void findExpiredWithLock_shouldReturnOnlyExpiredReservationsUpToLimit() {
+        // Arrange
+        var now = LocalDateTime.now();
+        stockReservationDao.save(new StockReservation(null, testCartId, testSkuId1, 1, now.minusMinutes(5)));
+        stockReservationDao.save(new StockReservation(null, testCartId, testSkuId2, 1, now.plusMinutes(5)));
+
+        // Act
+        List<StockReservation> expired = stockReservationDao.findExpiredWithLock(now, 10);
+        List<StockReservation> limited = stockReservationDao.findExpiredWithLock(now.plusMinutes(10), 1);
+
+        // Assert
+        assertThat(expired).extracting(StockReservation::getSkuId).containsExactly(testSkuId1);
+        assertThat(limited).extracting(StockReservation::getSkuId).containsExactly(testSkuId1);
+    }
+
+    @Test
+    @DisplayName("指定したIDの確保をまとめて削除できること")
+    void deleteByIds_shouldDeleteReservations() {
+        // Arrange
+        var now = LocalDateTime.now();
+        var first = stockReservationDao.save(new StockReservation(null, testCartId, testSkuId1, 1, now));
+        stockReservationDao.save(new StockReservation(null, testCartId, testSkuId2, 1, now));
+
+        // Act
+        stockReservationDao.deleteByIds(List.of(first.getId()));
+
+        // Assert
+        assertThat(stockReservationDao.findByCartIdWithLock(testCartId))
+                .extracting(StockReservation::getSkuId)
+                .containsExactly(testSkuId2);
+    }
+}
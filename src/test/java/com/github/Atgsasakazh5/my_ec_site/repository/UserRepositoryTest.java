@@ -12,6 +12,7 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -119,4 +120,79 @@ class UserRepositoryTest {
         // Assert
         assertFalse(exists, "Emailが存在しない場合、falseを返すはず");
     }
-}
\ No newline at end of file
+
+    @DisplayName("トークンバージョンを取得・インクリメントできること")
+    @Test
+    void incrementTokenVersion_shouldIncreaseVersion() {
+        // Arrange
+        int before = userRepository.findTokenVersionById(testUserId).orElseThrow();
+
+        // Act
+        userRepository.incrementTokenVersion(testUserId);
+
+        // Assert
+        assertThat(userRepository.findTokenVersionById(testUserId)).contains(before + 1);
+        assertThat(userRepository.findById(testUserId).orElseThrow().getTokenVersion()).isEqualTo(before + 1);
+    }
+
+    @DisplayName("存在しないユーザーのトークンバージョンは空のOptionalを返すこと")
+    @Test
+    void findTokenVersionById_shouldReturnEmpty_whenUserNotExists() {
+        // Act & Assert
+        assertThat(userRepository.findTokenVersionById(9999L)).isEmpty();
+    }
+
+    @DisplayName("ユーザーIDからメールアドレスのみを取得でき、存在しないユーザーの場合は空のOptionalを返すこと")
+    @Test
+    void findEmailById_shouldReturnEmail() {
+        // Act & Assert
+        assertThat(userRepository.findEmailById(testUserId)).contains(email);
+        assertThat(userRepository.findEmailById(9999L)).isEmpty();
+    }
+
+    @DisplayName("複数のロールを持つユーザーをロールごと取得できること")
+    @Test
+    void findById_shouldReturnAllRoles_whenUserHasMultipleRoles() {
+        // Arrange
+        jdbcTemplate.update("INSERT INTO roles (id, name) VALUES (2, 'ROLE_ADMIN')");
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, role_id) VALUES (?, 2)", testUserId);
+
+        // Act
+        Optional<User> foundUserOpt = userRepository.findById(testUserId);
+
+        // Assert
+        assertThat(foundUserOpt).isPresent();
+        assertThat(foundUserOpt.get().getRoles())
+                .extracting(role -> role.getName().name())
+                .containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+    }
+
+    @DisplayName("ID一覧でユーザーをロールごとまとめて取得できること（ロールのないユーザーも含む）")
+    @Test
+    void findByIdIn_shouldReturnUsersWithRoles() {
+        // Arrange
+        User newUser = new User();
+        newUser.setName("noroleuser");
+        newUser.setEmail("norole@email.com");
+        newUser.setPassword("password");
+        newUser.setAddress("大阪");
+        Long newUserId = userRepository.save(newUser).getId();
+
+        // Act
+        List<User> users = userRepository.findByIdIn(List.of(testUserId, newUserId, 9999L));
+
+        // Assert
+        assertThat(users).extracting(User::getId).containsExactlyInAnyOrder(testUserId, newUserId);
+        User testUser = users.stream().filter(u -> u.getId().equals(testUserId)).findFirst().orElseThrow();
+        User noRoleUser = users.stream().filter(u -> u.getId().equals(newUserId)).findFirst().orElseThrow();
+        assertThat(testUser.getRoles()).extracting(role -> role.getName().name()).containsExactly("ROLE_USER");
+        assertThat(noRoleUser.getRoles()).isEmpty();
+    }
+
+    @DisplayName("空のID一覧を渡すと空のリストを返すこと")
+    @Test
+    void findByIdIn_shouldReturnEmptyList_whenIdsIsEmpty() {
+        // Act & Assert
+        assertThat(userRepository.findByIdIn(List.of())).isEmpty();
+    }
+}
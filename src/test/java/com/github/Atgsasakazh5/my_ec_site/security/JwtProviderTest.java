@@ -1,5 +1,7 @@
 package com.github.Atgsasakazh5.my_ec_site.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import io.jsonwebtoken.Claims;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -8,9 +10,13 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
 
@@ -27,10 +33,14 @@ class JwtProviderTest {
     @Autowired
     JwtProvider jwtProvider;
 
+    @Autowired
+    Cache<String, Claims> verifiedTokenCache;
+
     @BeforeEach
     void setUp(){
 
         MockitoAnnotations.openMocks(this);
+        verifiedTokenCache.invalidateAll();
     }
 
     @Test
@@ -59,4 +69,97 @@ class JwtProviderTest {
         // Act& Assert
         assertThat(jwtProvider.validateToken(token)).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("有効なトークンを一度の解析でClaimsとして取得できるか-正常系")
+    void parseClaims_shouldReturnClaims_whenTokenIsValid() {
+        // Arrange
+        String email = "test@email.com";
+        when(authentication.getPrincipal()).thenReturn(userDetails);
+        when(userDetails.getUsername()).thenReturn(email);
+        String token = jwtProvider.generateToken(authentication);
+
+        // Act
+        var claims = jwtProvider.parseClaims(token);
+
+        // Assert
+        assertThat(claims).isPresent();
+        assertThat(claims.get().getSubject()).isEqualTo(email);
+        assertThat(claims.get().getExpiration()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("同じトークンの2回目以降の検証はキャッシュから返されるか-正常系")
+    void parseClaims_shouldUseCache_whenTokenIsVerifiedTwice() {
+        // Arrange
+        when(authentication.getPrincipal()).thenReturn(userDetails);
+        when(userDetails.getUsername()).thenReturn("test@email.com");
+        String token = jwtProvider.generateToken(authentication);
+        long hitsBefore = verifiedTokenCache.stats().hitCount();
+
+        // Act
+        jwtProvider.parseClaims(token);
+        jwtProvider.parseClaims(token);
+
+        // Assert
+        assertThat(verifiedTokenCache.stats().hitCount() - hitsBefore).isEqualTo(1);
+        assertThat(verifiedTokenCache.asMap()).containsKey(token);
+    }
+
+    @Test
+    @DisplayName("改ざんされたトークンは空のOptionalを返し、キャッシュされないか-異常系")
+    void parseClaims_shouldReturnEmpty_whenTokenIsTampered() {
+        // Arrange
+        when(authentication.getPrincipal()).thenReturn(userDetails);
+        when(userDetails.getUsername()).thenReturn("test@email.com");
+        String token = jwtProvider.generateToken(authentication);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        // Act
+        var claims = jwtProvider.parseClaims(tampered);
+
+        // Assert
+        assertThat(claims).isEmpty();
+        assertThat(verifiedTokenCache.asMap()).doesNotContainKey(tampered);
+    }
+
+    @Test
+    @DisplayName("UserPrincipalから発行したトークンのClaimsからユーザーID・カートID・ロール・バージョンを復元できるか-正常系")
+    void toPrincipal_shouldRestorePrincipal_whenTokenContainsUserClaims() {
+        // Arrange
+        var principal = new UserPrincipal(1L, 5L, "test@email.com", "password", 3,
+                List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN")));
+        when(authentication.getPrincipal()).thenReturn(principal);
+        String token = jwtProvider.generateToken(authentication);
+        var claims = jwtProvider.parseClaims(token).orElseThrow();
+
+        // Act
+        var restored = jwtProvider.toPrincipal(claims);
+
+        // Assert
+        assertThat(restored).isPresent();
+        assertThat(restored.get().getId()).isEqualTo(1L);
+        assertThat(restored.get().getCartId()).isEqualTo(5L);
+        assertThat(restored.get().getUsername()).isEqualTo("test@email.com");
+        assertThat(restored.get().getPassword()).isNull();
+        assertThat(restored.get().getTokenVersion()).isEqualTo(3);
+        assertThat(restored.get().getAuthorities())
+                .extracting(GrantedAuthority::getAuthority)
+                .containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+        assertThat(jwtProvider.getTokenVersion(claims)).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("ユーザーIDを含まないトークンからはUserPrincipalを復元しないか-異常系")
+    void toPrincipal_shouldReturnEmpty_whenTokenHasNoUserClaims() {
+        // Arrange
+        when(authentication.getPrincipal()).thenReturn(userDetails);
+        when(userDetails.getUsername()).thenReturn("test@email.com");
+        String token = jwtProvider.generateToken(authentication);
+        var claims = jwtProvider.parseClaims(token).orElseThrow();
+
+        // Act & Assert
+        assertThat(jwtProvider.toPrincipal(claims)).isEmpty();
+        assertThat(jwtProvider.getTokenVersion(claims)).isNull();
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.Atgsasakazh5.my_ec_site.security;
+
+import org.springframework.security.test.context.support.WithSecurityContext;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * テスト用に{@link UserPrincipal}を認証情報としてセットするアノテーション
+ * <p>
+ * {@code @WithMockUser}ではプリンシパルがUserPrincipalにならないため、
+ * {@code @AuthenticationPrincipal UserPrincipal}を受け取るコントローラーのテストではこちらを使用する。
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+@WithSecurityContext(factory = WithMockUserPrincipalSecurityContextFactory.class)
+public @interface WithMockUserPrincipal {
+
+    long id() default 1L;
+
+    long cartId() default 1L;
+
+    String username() default "test@email.com";
+
+    String[] roles() default {"USER"};
+}
@@ -0,0 +1,25 @@
+package com.github.Atgsasakazh5.my_ec_site.security;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.test.context.support.WithSecurityContextFactory;
+
+import java.util.Arrays;
+
+public class WithMockUserPrincipalSecurityContextFactory implements WithSecurityContextFactory<WithMockUserPrincipal> {
+
+    @Override
+    public SecurityContext createSecurityContext(WithMockUserPrincipal annotation) {
+        var authorities = Arrays.stream(annotation.roles())
+                .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                .toList();
+        var principal = new UserPrincipal(annotation.id(), annotation.cartId(), annotation.username(),
+                "password", 0, authorities);
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(principal, null, authorities));
+        return context;
+    }
+}
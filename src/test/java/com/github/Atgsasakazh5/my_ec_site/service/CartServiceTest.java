@@ -1,9 +1,10 @@
 package com.github.Atgsasakazh5.my_ec_site.service;
 
 import com.github.Atgsasakazh5.my_ec_site.dto.AddCartItemRequestDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.CartBatchRequestDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.CartItemDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.CartOperationDto;
 import com.github.Atgsasakazh5.my_ec_site.dto.UpdateCartItemRequestDto;
-import com.github.Atgsasakazh5.my_ec_site.entity.Cart;
 import com.github.Atgsasakazh5.my_ec_site.entity.CartItem;
 import com.github.Atgsasakazh5.my_ec_site.entity.Inventory;
 import com.github.Atgsasakazh5.my_ec_site.entity.Sku;
@@ -16,16 +17,20 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -46,13 +51,25 @@ class CartServiceTest {
     @Mock
     private InventoryDao inventoryDao;
 
+    // 在庫台帳は無効（isEnabled()がfalse）の状態で、DBの在庫を使う
+    @Mock
+    private InventoryLedger inventoryLedger;
+
+    @Mock
+    private StockReservationService stockReservationService;
+
+    @Mock
+    private CartWriteBehind cartWriteBehind;
+
     @Test
     @DisplayName("cartIDでカートの詳細を取得するテスト")
     void getCartDetailById_shouldReturnCartDetailDto_whenCartExists() {
         // Arrange
         Long cartId = 1L;
 
-        when(cartItemDao.findDetailedItemsByCartId(cartId)).thenReturn(List.of(
+        var cartItems = List.of(new CartItem(1L, cartId, 2L, 3));
+        when(cartWriteBehind.load(cartId)).thenReturn(cartItems);
+        when(cartItemDao.findDetailedItems(cartId, cartItems)).thenReturn(List.of(
                 new CartItemDto(1L,
                         "Test Item",
                         "item-img.jpg",
@@ -75,81 +92,29 @@ class CartServiceTest {
         assertEquals(1000, cartDetail.cartItems().get(0).price());
         assertEquals(3, cartDetail.cartItems().get(0).quantity());
         assertEquals(3000, cartDetail.totalPrice());
-
+        // カートアイテムはカートストアから取得し、価格・在庫数のみをDBから結合すること
+        verify(cartItemDao, never()).findByCartId(anyLong());
     }
 
     @Test
-    @DisplayName("メールアドレスでカートの詳細を取得できること-正常系")
-    void getCartDetailByEmail_shouldReturnCartDetailDto_whenCartExists() {
-        // Arrange
-        String email = "cart-item-test@email.com";
-
-        when(cartDao.findCartByEmail(email)).thenReturn(java.util.Optional.of(new Cart(1L, 1L)));
-        when(cartItemDao.findDetailedItemsByCartId(1L)).thenReturn(List.of(
-                new CartItemDto(1L,
-                        "Test Item",
-                        "item-img.jpg",
-                        2L,
-                        "S",
-                        "Red",
-                        1000,
-                        3,
-                        10)
-        ));
-
-        // Act
-        var cartDetail = cartService.getCartDetail(email);
-
-        // Assert
-        assertNotNull(cartDetail);
-        assertEquals(1L, cartDetail.cartId());
-        assertEquals(1, cartDetail.cartItems().size());
-        assertEquals("Test Item", cartDetail.cartItems().get(0).productName());
-        assertEquals(1000, cartDetail.cartItems().get(0).price());
-        assertEquals(3, cartDetail.cartItems().get(0).quantity());
-        assertEquals(3000, cartDetail.totalPrice());
-
-    }
-
-    @Test
-    @DisplayName("メールアドレスでカートが見つからない場合、例外をスローすること-異常系")
-    void getCartDetailByEmail_shouldThrowResourceNotFoundException_whenCartDoesNotExist() {
-        // Arrange
-        String email = "cart-item-test@email.com";
-
-        when(cartDao.findCartByEmail(email)).thenReturn(java.util.Optional.empty());
-
+    @DisplayName("カートを持たないユーザー(cartIdがnull)の場合、例外をスローすること-異常系")
+    void getCartDetail_shouldThrowResourceNotFoundException_whenCartIdIsNull() {
         // Act & Assert
         assertThrows(ResourceNotFoundException.class, () -> {
-            cartService.getCartDetail(email);
+            cartService.getCartDetail(null);
         });
+        verifyNoInteractions(cartItemDao, cartWriteBehind);
     }
 
     @Test
     @DisplayName("カートにまだ入れていないSKUを追加できること-正常系")
     void addItemToCart_shouldAddItemToCart_whenSkuExists() {
         // Arrange
-        var email = "cart-item-test@email.cpm";
         var cartId = 1L;
         var skuId = 1L;
         var requestDto = new AddCartItemRequestDto(skuId, 2);
 
-        var sku = new Sku();
-        sku.setId(skuId);
-        sku.setProductId(1L);
-        sku.setSize("M");
-        sku.setColor("Blue");
-        sku.setExtraPrice(100);
-        when(skuDao.findById(skuId)).thenReturn(Optional.of(sku));
-
-        var inventory = new Inventory();
-        inventory.setSkuId(skuId);
-        inventory.setQuantity(10);
-        when(inventoryDao.findBySkuId(skuId)).thenReturn(Optional.of(inventory));
-
-        when(cartDao.findCartByEmail(email)).thenReturn(Optional.of(new Cart(1L, 1L)));
-
-        when(cartItemDao.findByCartIdAndSkuId(cartId, skuId)).thenReturn(Optional.empty());
+        when(cartItemDao.addQuantity(cartId, skuId, 2)).thenReturn(true);
 
         var finalCartItems = List.of(new CartItemDto(301L,
                 "Test Product",
@@ -163,10 +128,23 @@ class CartServiceTest {
         when(cartItemDao.findDetailedItemsByCartId(cartId)).thenReturn(finalCartItems);
 
         // Act
-        var result = cartService.addItemToCart(email, requestDto);
-
-        // Assert
-        verify(cartItemDao, times(1)).save(any(CartItem.class)); // saveが呼ばれることを確認
+        var result = cartService.addItemToCart(cartId, requestDto);
+
+        // Assert: カートアイテムへのアクセスは、追加・加算とカート詳細の取得の2回のみ（返却用に取得し直さない）
+        verify(stockReservationService).hold(cartId, skuId, 2); // 追加した数量分の在庫を確保すること
+        verify(cartItemDao, times(1)).findDetailedItemsByCartId(cartId);
+        verifyNoMoreInteractions(cartItemDao);
+        verifyNoInteractions(skuDao, inventoryDao);
+        // 未反映の変更を反映してから加算し、取得したカート詳細のカートアイテムをカートストアに保存すること
+        var inOrder = inOrder(cartWriteBehind, cartItemDao);
+        inOrder.verify(cartWriteBehind).flush(cartId);
+        inOrder.verify(cartItemDao).addQuantity(cartId, skuId, 2);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CartItem>> savedCaptor = ArgumentCaptor.forClass(List.class);
+        verify(cartWriteBehind).save(eq(cartId), savedCaptor.capture());
+        assertThat(savedCaptor.getValue())
+                .extracting(CartItem::getId, CartItem::getCartId, CartItem::getSkuId, CartItem::getQuantity)
+                .containsExactly(tuple(301L, cartId, skuId, 2));
         assertThat(result.totalPrice()).isEqualTo(2200);
         assertThat(result.cartItems()).hasSize(1);
     }
@@ -175,20 +153,21 @@ class CartServiceTest {
     @DisplayName("カート内の既存SKUの数量を増やすこと-正常系")
     void addItemToCart_shouldIncreaseQuantity_whenItemAlreadyExists() {
         // Arrange
-        var email = "test@example.com";
         var cartId = 1L;
         var skuId = 101L;
         var request = new AddCartItemRequestDto(skuId, 2);
 
-        var existingItem = new CartItem(301L, cartId, skuId, 3);
-
-        when(skuDao.findById(skuId)).thenReturn(Optional.of(new Sku(skuId, 1L, "M", "Red", 100, null, null)));
-        when(inventoryDao.findBySkuId(skuId)).thenReturn(Optional.of(new Inventory(201L, skuId, 10, null)));
-        when(cartDao.findCartByEmail(email)).thenReturn(Optional.of(new Cart(cartId, 1L)));
-
-        when(cartItemDao.findByCartIdAndSkuId(cartId, skuId)).thenReturn(Optional.of(existingItem));
+        when(cartItemDao.addQuantity(cartId, skuId, 2)).thenReturn(true);
 
         var finalCartItems = List.of(new CartItemDto(
+                302L,
+                "Other Product",
+                null, 102L,
+                "S",
+                "Blue",
+                1000,
+                1,
+                10), new CartItemDto(
                 301L,
                 "Test Product",
                 null, skuId,
@@ -200,62 +179,132 @@ class CartServiceTest {
         when(cartItemDao.findDetailedItemsByCartId(cartId)).thenReturn(finalCartItems);
 
         // Act
-        var result = cartService.addItemToCart(email, request);
+        var result = cartService.addItemToCart(cartId, request);
 
-        // Assert
-        verify(cartItemDao, times(1)).update(any(CartItem.class));
-        assertThat(result.totalPrice()).isEqualTo(5500);
-        assertThat(result.cartItems().get(0).quantity()).isEqualTo(5);
+        // Assert: 既に確保している分を含めた合計の数量で確保し直すこと
+        verify(stockReservationService).hold(cartId, skuId, 5);
+        assertThat(result.totalPrice()).isEqualTo(6500);
+        assertThat(result.cartItems().get(1).quantity()).isEqualTo(5);
     }
 
     @Test
     @DisplayName("カートにSKUを追加する際、存在しないSKUIDの場合は例外をスローすること-異常系")
     void addItemToCart_shouldThrowException_whenSkuDoesNotExist() {
         // Arrange
-        String email = "";
+        Long cartId = 1L;
         var requestDto = new AddCartItemRequestDto(999L, 1);
+        when(cartItemDao.addQuantity(cartId, 999L, 1)).thenReturn(false);
+        when(inventoryDao.findBySkuId(999L)).thenReturn(Optional.empty());
         when(skuDao.findById(anyLong())).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(ResourceNotFoundException.class, () -> {
-            cartService.addItemToCart(email, requestDto);
+            cartService.addItemToCart(cartId, requestDto);
         });
+        verify(stockReservationService, never()).hold(anyLong(), anyLong(), anyInt());
     }
 
     @Test
     @DisplayName("カートにSKUを追加する際、在庫が不足している場合は例外をスローすること-異常系")
     void addItemToCart_shouldThrowException_whenInventoryIsInsufficient() {
         // Arrange
-        String email = "test@email.com";
+        Long cartId = 1L;
+        var requestDto = new AddCartItemRequestDto(1L, 5);
+
+        when(cartItemDao.addQuantity(cartId, 1L, 5)).thenReturn(false);
+        when(inventoryDao.findBySkuId(1L)).thenReturn(Optional.of(new Inventory(1L, 1L, 3, 0, null)));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> {
+            cartService.addItemToCart(cartId, requestDto);
+        });
+        verify(cartItemDao, never()).findDetailedItemsByCartId(anyLong());
+        verify(stockReservationService, never()).hold(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("カートにSKUを追加する際、在庫の確保に失敗した場合は例外をスローすること-異常系")
+    void addItemToCart_shouldThrowException_whenStockCannotBeHeld() {
+        // Arrange: 追加・加算後に他のカートが先に在庫を確保した場合
+        Long cartId = 1L;
         var requestDto = new AddCartItemRequestDto(1L, 5);
 
-        when(skuDao.findById(1L)).thenReturn(Optional.of(new Sku(1L, 1L, "M", "Red", 100, null, null)));
-        when(inventoryDao.findBySkuId(1L)).thenReturn(Optional.of(new Inventory(1L, 1L, 3, null)));
-        when(cartDao.findCartByEmail(email)).thenReturn(Optional.of(new Cart(1L, 1L)));
+        when(cartItemDao.addQuantity(cartId, 1L, 5)).thenReturn(true);
+        when(cartItemDao.findDetailedItemsByCartId(cartId)).thenReturn(List.of(
+                new CartItemDto(301L, "Test Product", null, 1L, "M", "Red", 1100, 5, 5)));
+        doThrow(new IllegalStateException("在庫が不足しています。"))
+                .when(stockReservationService).hold(cartId, 1L, 5);
+
+        // Act & Assert（トランザクションのロールバックで追加も取り消される）
+        assertThrows(IllegalStateException.class, () -> {
+            cartService.addItemToCart(cartId, requestDto);
+        });
+    }
+
+    @Test
+    @DisplayName("在庫台帳が有効な場合、在庫を確保せず台帳の販売可能数で在庫をチェックすること")
+    void addItemToCart_shouldCheckLedger_whenLedgerIsEnabled() {
+        // Arrange
+        Long cartId = 1L;
+        var requestDto = new AddCartItemRequestDto(1L, 5);
 
-        when(cartItemDao.findByCartIdAndSkuId(1L, 1L)).thenReturn(Optional.empty());
+        when(cartItemDao.addQuantity(cartId, 1L, 5)).thenReturn(true);
+        when(cartItemDao.findDetailedItemsByCartId(cartId)).thenReturn(List.of(
+                new CartItemDto(301L, "Test Product", null, 1L, "M", "Red", 1100, 5, 10)));
+        when(inventoryLedger.isEnabled()).thenReturn(true);
+        when(inventoryLedger.getAvailableQuantity(1L)).thenReturn(Optional.of(3));
 
         // Act & Assert
         assertThrows(IllegalStateException.class, () -> {
-            cartService.addItemToCart(email, requestDto);
+            cartService.addItemToCart(cartId, requestDto);
         });
+        verify(stockReservationService, never()).hold(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("ゲストカートに追加する場合、在庫を確保しないこと")
+    void addItemToGuestCart_shouldNotHoldStock() {
+        // Arrange: 販売可能数は加算時の条件で比較済み
+        Long cartId = 7L;
+        when(cartItemDao.addQuantity(cartId, 1L, 2)).thenReturn(true);
+        when(cartItemDao.findDetailedItemsByCartId(cartId)).thenReturn(List.of(
+                new CartItemDto(301L, "Test Product", null, 1L, "M", "Red", 1100, 2, 10)));
+
+        // Act
+        var result = cartService.addItemToGuestCart(cartId, new AddCartItemRequestDto(1L, 2));
+
+        // Assert
+        assertThat(result.totalPrice()).isEqualTo(2200);
+        verifyNoInteractions(stockReservationService, inventoryDao);
+    }
+
+    @Test
+    @DisplayName("ゲストカートの数量を変更する場合、在庫を確保せず販売可能数と比較すること")
+    void updateGuestCartItemQuantity_shouldCheckAvailableStockWithoutHolding() {
+        // Arrange: 販売可能数は10 - 8 = 2個
+        Long cartId = 7L;
+        when(cartWriteBehind.load(cartId)).thenReturn(List.of(new CartItem(1L, cartId, 1L, 1)));
+        when(inventoryDao.findBySkuId(1L)).thenReturn(Optional.of(new Inventory(1L, 1L, 10, 8, null)));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () ->
+                cartService.updateGuestCartItemQuantity(cartId, 1L, new UpdateCartItemRequestDto(3)));
+        assertDoesNotThrow(() ->
+                cartService.updateGuestCartItemQuantity(cartId, 1L, new UpdateCartItemRequestDto(2)));
+        verify(cartWriteBehind).stage(cartId, 1L, 2);
+        verifyNoInteractions(stockReservationService);
     }
 
     @Test
     @DisplayName("カートアイテムの数量を更新できること-正常系")
     void updateCartItemQuantity_shouldUpdateQuantity_whenItemExists() {
         // Arrange
-        String email = "test@email.com";
+        Long cartId = 1L;
         Long cartItemId = 1L;
         var request = new UpdateCartItemRequestDto(3);
-        var existingItem = new CartItem(1L, 1L, 1L, 2);
-
-        when(cartDao.findCartByEmail(email)).thenReturn(Optional.of(new Cart(1L, 1L)));
-        when(cartItemDao.findById(cartItemId)).thenReturn(Optional.of(existingItem));
-        when(inventoryDao.findBySkuId(existingItem.getSkuId()))
-                .thenReturn(Optional.of(new Inventory(1L, existingItem.getSkuId(), 10, null)));
 
-        var finalCartItems = List.of(new CartItemDto(1L,
+        when(cartWriteBehind.load(cartId)).thenReturn(List.of(new CartItem(1L, cartId, 1L, 2)));
+        when(cartItemDao.findDetailedItems(eq(cartId), anyList())).thenReturn(List.of(new CartItemDto(1L,
                 "Test Item",
                 null,
                 1L,
@@ -263,16 +312,19 @@ class CartServiceTest {
                 "Red",
                 1100,
                 3,
-                10));
-        when(cartItemDao.findDetailedItemsByCartId(1L)).thenReturn(finalCartItems);
+                10)));
 
         // Act
-        var result = cartService.updateCartItemQuantity(email, cartItemId, request);
+        var result = cartService.updateCartItemQuantity(cartId, cartItemId, request);
 
-        // Assert
-        ArgumentCaptor<CartItem> captor = ArgumentCaptor.forClass(CartItem.class);
-        verify(cartItemDao).update(captor.capture());
-        assertThat(captor.getValue().getQuantity()).isEqualTo(3);
+        // Assert: 数量の変更は変更したカートアイテムのみをカートストアに保存し、DBは直接更新しないこと
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CartItem>> captor = ArgumentCaptor.forClass(List.class);
+        verify(stockReservationService).hold(cartId, 1L, 3);
+        verify(cartWriteBehind).stage(cartId, cartItemId, 3);
+        verify(cartItemDao).findDetailedItems(eq(cartId), captor.capture());
+        assertThat(captor.getValue()).extracting(CartItem::getQuantity).containsExactly(3);
+        verifyNoMoreInteractions(cartItemDao);
 
         // 返されたDTOの検証
         assertThat(result.totalPrice()).isEqualTo(3300);
@@ -284,16 +336,16 @@ class CartServiceTest {
     @DisplayName("ユーザーのカートと異なるカートアイテムを更新しようとすると例外がスローされること-異常系")
     void updateCartItemQuantity_shouldThrowException_whenCartItemDoesNotBelongToUser() {
         // Arrange
-        String email = "test@email.com";
+        Long cartId = 1L;
         Long cartItemId = 1L;
         var request = new UpdateCartItemRequestDto(3);
 
-        when(cartDao.findCartByEmail(email)).thenReturn(Optional.of(new Cart(1L, 1L)));
+        when(cartWriteBehind.load(cartId)).thenReturn(List.of());
         when(cartItemDao.findById(cartItemId)).thenReturn(Optional.of(new CartItem(1L, 100L, 1L, 2)));
 
         // Act & Assert
         assertThrows(SecurityException.class, () -> {
-            cartService.updateCartItemQuantity(email, cartItemId, request);
+            cartService.updateCartItemQuantity(cartId, cartItemId, request);
         });
     }
 
@@ -301,55 +353,54 @@ class CartServiceTest {
     @DisplayName("カートアイテムの数量更新リクエストよりも在庫が不足している場合は例外をスローすること-異常系")
     void updateCartItemQuantity_shouldThrowException_whenInventoryIsInsufficient() {
         // Arrange
-        String email = "test@email.com";
+        Long cartId = 1L;
         Long cartItemId = 1L;
         var request = new UpdateCartItemRequestDto(5);
-        var existingItem = new CartItem(1L, 1L, 1L, 2);
 
-        when(cartDao.findCartByEmail(email)).thenReturn(Optional.of(new Cart(1L, 1L)));
-        when(cartItemDao.findById(cartItemId)).thenReturn(Optional.of(existingItem));
-        when(inventoryDao.findBySkuId(existingItem.getSkuId()))
-                .thenReturn(Optional.of(new Inventory(1L, existingItem.getSkuId(), 3, null)));
+        when(cartWriteBehind.load(cartId)).thenReturn(List.of(new CartItem(1L, cartId, 1L, 2)));
+        doThrow(new IllegalStateException("在庫が不足しています。"))
+                .when(stockReservationService).hold(cartId, 1L, 5);
 
         // Act & Assert
         assertThrows(IllegalStateException.class, () -> {
-            cartService.updateCartItemQuantity(email, cartItemId, request);
+            cartService.updateCartItemQuantity(cartId, cartItemId, request);
         });
+        verify(cartWriteBehind, never()).stage(anyLong(), anyLong(), anyInt());
     }
 
     @Test
     @DisplayName("アイテムをカートから削除できること")
     void deleteItemFromCart_shouldSucceed_whenItemExists() {
         // Arrange
-        String email = "test@email.com";
+        Long cartId = 1L;
         Long cartItemId = 1L;
-        var existingItem = new CartItem(1L, 1L, 1L, 2);
+        var remainingItem = new CartItem(2L, cartId, 2L, 1);
 
-        when(cartDao.findCartByEmail(email)).thenReturn(Optional.of(new Cart(1L, 1L)));
-        when(cartItemDao.findById(cartItemId)).thenReturn(Optional.of(existingItem));
+        when(cartWriteBehind.load(cartId)).thenReturn(List.of(new CartItem(1L, cartId, 1L, 2), remainingItem));
 
         // Act
-        cartService.deleteItemFromCart(email, cartItemId);
+        cartService.deleteItemFromCart(cartId, cartItemId);
 
-        // Assert
+        // Assert: 削除したアイテムを除いた内容をカートストアに保存すること
         ArgumentCaptor<Long> captor = ArgumentCaptor.forClass(Long.class);
         verify(cartItemDao).deleteById(captor.capture());
         assertThat(captor.getValue()).isEqualTo(1L);
+        verify(cartWriteBehind).save(cartId, List.of(remainingItem));
     }
 
     @Test
     @DisplayName("不正なCartItemIDで削除ができないこと")
     void deleteFromCart_sholdThrowException_whenCartItemDoesNotBelongToUser() {
         // Arrange
-        String email = "test@email.com";
+        Long cartId = 1L;
         Long cartItemId = 1L;
 
-        when(cartDao.findCartByEmail(email)).thenReturn(Optional.of(new Cart(1L, 1L)));
+        when(cartWriteBehind.load(cartId)).thenReturn(List.of());
         when(cartItemDao.findById(cartItemId)).thenReturn(Optional.of(new CartItem(1L, 100L, 1L, 2)));
 
         // Act & Assert
         assertThrows(SecurityException.class, () -> {
-            cartService.deleteItemFromCart(email, cartItemId);
+            cartService.deleteItemFromCart(cartId, cartItemId);
         });
     }
 
@@ -357,41 +408,35 @@ class CartServiceTest {
     @DisplayName("カートからアイテムを削除できること")
     void deleteItemFromCart_shouldSucceed_whenItemBelongsToUser() {
         // Arrange
-        String email = "test@example.com";
         Long cartId = 1L;
         Long cartItemId = 101L;
 
-        var cart = new Cart(cartId, 1L);
-        var cartItem = new CartItem(cartItemId, cartId, 201L, 1);
-
-        when(cartDao.findCartByEmail(email)).thenReturn(Optional.of(cart));
-        when(cartItemDao.findById(cartItemId)).thenReturn(Optional.of(cartItem));
+        when(cartWriteBehind.load(cartId)).thenReturn(List.of(new CartItem(cartItemId, cartId, 201L, 1)));
 
         // Act
-        cartService.deleteItemFromCart(email, cartItemId);
+        cartService.deleteItemFromCart(cartId, cartItemId);
 
-        // Assert
+        // Assert: 削除したアイテムの在庫の確保も解放すること
         verify(cartItemDao, times(1)).deleteById(cartItemId);
+        verify(stockReservationService).release(cartId, 201L);
     }
 
     @Test
     @DisplayName("他人のカートアイテムを削除しようとするとSecurityExceptionをスローすること")
     void deleteItemFromCart_shouldThrowException_whenItemDoesNotBelongToUser() {
         // Arrange
-        String email = "test@example.com";
-        Long userCartId = 1L;
+        Long cartId = 1L;
         Long otherUserCartId = 2L;
         Long cartItemId = 101L;
 
-        var cart = new Cart(userCartId, 1L);
         var cartItem = new CartItem(cartItemId, otherUserCartId, 201L, 1);
 
-        when(cartDao.findCartByEmail(email)).thenReturn(Optional.of(cart));
+        when(cartWriteBehind.load(cartId)).thenReturn(List.of());
         when(cartItemDao.findById(cartItemId)).thenReturn(Optional.of(cartItem));
 
         // Act & Assert
         assertThrows(SecurityException.class, () -> {
-            cartService.deleteItemFromCart(email, cartItemId);
+            cartService.deleteItemFromCart(cartId, cartItemId);
         });
     }
 
@@ -399,63 +444,193 @@ class CartServiceTest {
     @DisplayName("存在しないCartItemIDでResorceNotFoundExceptionがスローされること")
     void deleteFromCart_shuldThrowException_whenCartItemIdNotExist() {
         // Arrange
-        String email = "test@email.com";
+        Long cartId = 1L;
         Long cartItemId = 1L;
 
-        when(cartDao.findCartByEmail(email)).thenReturn(Optional.of(new Cart(1L, 1L)));
+        when(cartWriteBehind.load(cartId)).thenReturn(List.of());
         when(cartItemDao.findById(cartItemId)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(ResourceNotFoundException.class, () -> {
-            cartService.deleteItemFromCart(email, cartItemId);
+            cartService.deleteItemFromCart(cartId, cartItemId);
         });
     }
 
     @Test
-    @DisplayName("在庫が十分な場合、例外が発生しないこと")
-    void validateCartInventory_shouldSucceed_whenInventoryIsSufficient() {
+    @DisplayName("統合元のカートの確保を先に解放し、統合先のカートに数量を加算すること（販売可能数を超える分は統合しない）")
+    void mergeCart_shouldAddSourceItemsCappedToStock() {
+        // Arrange: 統合元(ゲスト)にSKU 201が3個・SKU 202が4個・SKU 203が1個、統合先(ユーザー)にSKU 201が2個
+        Long sourceCartId = 5L;
+        Long targetCartId = 1L;
+        when(cartItemDao.findByCartId(sourceCartId)).thenReturn(List.of(
+                new CartItem(501L, sourceCartId, 201L, 3),
+                new CartItem(502L, sourceCartId, 202L, 4),
+                new CartItem(503L, sourceCartId, 203L, 1)));
+        // 統合先は統合前と統合後に1回ずつ取得する（統合後の内容は空として扱う）
+        when(cartItemDao.findByCartId(targetCartId))
+                .thenReturn(List.of(new CartItem(101L, targetCartId, 201L, 2)), List.of());
+        // SKU 201は販売可能数2 + カート内の2 = 4個まで、SKU 202は10個、SKU 203は在庫情報なし
+        when(inventoryDao.findBySkuIdIn(List.of(201L, 202L, 203L))).thenReturn(List.of(
+                new Inventory(301L, 201L, 10, 8, null),
+                new Inventory(302L, 202L, 10, 0, null)));
+
+        // Act
+        cartService.mergeCart(sourceCartId, targetCartId);
+
+        // Assert
+        InOrder inOrder = inOrder(stockReservationService, cartItemDao, inventoryDao);
+        inOrder.verify(stockReservationService).releaseAll(sourceCartId);
+        inOrder.verify(cartItemDao).deleteByCartId(sourceCartId);
+        inOrder.verify(inventoryDao).findBySkuIdIn(anyList());
+        verify(cartItemDao).updateQuantities(Map.of(101L, 4));
+        ArgumentCaptor<List<CartItem>> addedCaptor = ArgumentCaptor.forClass(List.class);
+        verify(cartItemDao).saveAll(addedCaptor.capture());
+        assertThat(addedCaptor.getValue())
+                .extracting(CartItem::getCartId, CartItem::getSkuId, CartItem::getQuantity)
+                .containsExactly(tuple(targetCartId, 202L, 4));
+        verify(stockReservationService).hold(targetCartId, 201L, 4);
+        verify(stockReservationService).hold(targetCartId, 202L, 4);
+        verify(stockReservationService, never()).hold(eq(targetCartId), eq(203L), anyInt());
+        verify(cartWriteBehind).save(sourceCartId, List.of());
+        verify(cartWriteBehind).save(targetCartId, List.of());
+    }
+
+    @Test
+    @DisplayName("カートのリビジョンは、カートアイテムを読まずに取得すること")
+    void getCartRevision_shouldReturnRevisionWithoutLoadingItems() {
+        // Arrange
+        when(cartDao.findRevisionById(1L)).thenReturn(Optional.of(5L));
+
+        // Act
+        long revision = cartService.getCartRevision(1L);
+
+        // Assert
+        assertEquals(5L, revision);
+        verifyNoInteractions(cartItemDao, cartWriteBehind);
+    }
+
+    @Test
+    @DisplayName("カートが存在しない場合、ResourceNotFoundExceptionをスローすること")
+    void getCartRevision_shouldThrowException_whenCartDoesNotExist() {
         // Arrange
-        String email = "test@example.com";
-        var cart = new Cart(1L, 1L);
+        when(cartDao.findRevisionById(1L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> cartService.getCartRevision(1L));
+        assertThrows(ResourceNotFoundException.class, () -> cartService.getCartRevision(null));
+    }
+
+    @Test
+    @DisplayName("追加・数量の変更・削除をまとめて適用し、在庫の検証とカート詳細の取得を1回ずつ行うこと")
+    void applyOperations_shouldApplyAllOperationsWithSingleStockValidation() {
+        // Arrange: SKU 201(数量2)とSKU 202(数量1)がカートにある
+        Long cartId = 1L;
+        var updatedItems = List.of(new CartItem(101L, cartId, 201L, 5), new CartItem(103L, cartId, 203L, 3));
+        when(cartItemDao.findByCartId(cartId)).thenReturn(List.of(
+                new CartItem(101L, cartId, 201L, 2),
+                new CartItem(102L, cartId, 202L, 1)), updatedItems);
+        when(inventoryDao.findBySkuIdIn(List.of(201L, 203L))).thenReturn(List.of(
+                new Inventory(301L, 201L, 10, 2, null),
+                new Inventory(303L, 203L, 5, 0, null)));
         var cartItems = List.of(
-                new CartItemDto(101L, "Tシャツ", null, 201L, "S", "Red", 1500, 2, 10)
-        );
-        var lockedInventories = List.of(
-                new Inventory(301L, 201L, 10, null)
-        );
-        List<Long> skuIds = List.of(201L);
+                new CartItemDto(101L, "Tシャツ", null, 201L, "S", "Red", 1500, 5, 10),
+                new CartItemDto(103L, "パーカー", null, 203L, "M", "Black", 5000, 3, 5));
+        when(cartItemDao.findDetailedItems(cartId, updatedItems)).thenReturn(cartItems);
+
+        var request = new CartBatchRequestDto(List.of(
+                new CartOperationDto(CartOperationDto.Type.UPDATE, null, 101L, 5),
+                new CartOperationDto(CartOperationDto.Type.REMOVE, null, 102L, null),
+                new CartOperationDto(CartOperationDto.Type.ADD, 203L, null, 1),
+                new CartOperationDto(CartOperationDto.Type.ADD, 203L, null, 2)));
+
+        // Act
+        var cartDetail = cartService.applyOperations(cartId, request);
+
+        // Assert
+        assertEquals(cartItems, cartDetail.cartItems());
+        assertEquals(1500 * 5 + 5000 * 3, cartDetail.totalPrice());
+        verify(cartWriteBehind).flush(cartId);
+        verify(inventoryDao, times(1)).findBySkuIdIn(anyList());
+        verify(cartItemDao).deleteByIds(List.of(102L));
+        verify(cartItemDao).updateQuantities(Map.of(101L, 5));
+        ArgumentCaptor<List<CartItem>> addedCaptor = ArgumentCaptor.forClass(List.class);
+        verify(cartItemDao).saveAll(addedCaptor.capture());
+        assertThat(addedCaptor.getValue())
+                .extracting(CartItem::getCartId, CartItem::getSkuId, CartItem::getQuantity)
+                .containsExactly(tuple(cartId, 203L, 3));
+        verify(stockReservationService).hold(cartId, 201L, 5);
+        verify(stockReservationService).release(cartId, 202L);
+        verify(stockReservationService).hold(cartId, 203L, 3);
+        verify(cartItemDao, times(1)).findDetailedItems(cartId, updatedItems);
+        verify(cartWriteBehind).save(cartId, updatedItems);
+    }
+
+    @Test
+    @DisplayName("ゲストカートにまとめて適用する場合、カート内の数量を販売可能数に含めず、在庫を確保しないこと")
+    void applyGuestCartOperations_shouldNotHoldStock() {
+        // Arrange: SKU 201(数量2)がカートにあり、販売可能数は10 - 7 = 3個（ゲストカートの2個は確保していない）
+        Long cartId = 7L;
+        when(cartItemDao.findByCartId(cartId)).thenReturn(List.of(new CartItem(101L, cartId, 201L, 2)));
+        when(inventoryDao.findBySkuIdIn(List.of(201L))).thenReturn(List.of(new Inventory(301L, 201L, 10, 7, null)));
+
+        var tooMany = new CartBatchRequestDto(List.of(new CartOperationDto(CartOperationDto.Type.UPDATE, null, 101L, 4)));
+        var withinStock = new CartBatchRequestDto(List.of(new CartOperationDto(CartOperationDto.Type.UPDATE, null, 101L, 3)));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> cartService.applyGuestCartOperations(cartId, tooMany));
+        assertDoesNotThrow(() -> cartService.applyGuestCartOperations(cartId, withinStock));
+        verify(cartItemDao).updateQuantities(Map.of(101L, 3));
+        verifyNoInteractions(stockReservationService);
+    }
+
+    @Test
+    @DisplayName("いずれかのSKUの在庫が不足する場合、何も変更せずにIllegalStateExceptionをスローすること")
+    void applyOperations_shouldThrowException_whenAnyInventoryIsInsufficient() {
+        // Arrange: SKU 201は販売可能数8 + カート内の2 = 10個まで
+        Long cartId = 1L;
+        when(cartItemDao.findByCartId(cartId)).thenReturn(List.of(new CartItem(101L, cartId, 201L, 2)));
+        when(inventoryDao.findBySkuIdIn(List.of(201L, 203L))).thenReturn(List.of(
+                new Inventory(301L, 201L, 10, 2, null),
+                new Inventory(303L, 203L, 5, 0, null)));
 
-        when(cartDao.findCartByEmail(email)).thenReturn(Optional.of(cart));
-        when(cartItemDao.findDetailedItemsByCartId(cart.getId())).thenReturn(cartItems);
-        when(inventoryDao.findBySkuIdsWithLock(skuIds)).thenReturn(lockedInventories);
+        var request = new CartBatchRequestDto(List.of(
+                new CartOperationDto(CartOperationDto.Type.ADD, 203L, null, 1),
+                new CartOperationDto(CartOperationDto.Type.UPDATE, null, 101L, 11)));
 
         // Act & Assert
-        assertDoesNotThrow(() -> cartService.validateCartInventory(email));
+        assertThrows(IllegalStateException.class, () -> cartService.applyOperations(cartId, request));
+        verify(cartItemDao, never()).saveAll(anyList());
+        verify(cartItemDao, never()).updateQuantities(anyMap());
+        verifyNoInteractions(stockReservationService);
     }
 
     @Test
-    @DisplayName("在庫が不足している場合、IllegalStateExceptionをスローすること")
-    void validateCartInventory_shouldThrowException_whenInventoryIsInsufficient() {
+    @DisplayName("他人のカートアイテムを含む場合、SecurityExceptionをスローすること")
+    void applyOperations_shouldThrowException_whenCartItemDoesNotBelongToUser() {
         // Arrange
-        String email = "test@example.com";
-        var cart = new Cart(1L, 1L);
-        // カートには10個要求
-        var cartItems = List.of(
-                new CartItemDto(101L, "Tシャツ", null, 201L, "S", "Red", 1500, 10, 5)
-        );
-        // 実際の在庫は5個しかない
-        var lockedInventories = List.of(
-                new Inventory(301L, 201L, 5, null)
-        );
-        List<Long> skuIds = List.of(201L);
-
-        when(cartDao.findCartByEmail(email)).thenReturn(Optional.of(cart));
-        when(cartItemDao.findDetailedItemsByCartId(cart.getId())).thenReturn(cartItems);
-        when(inventoryDao.findBySkuIdsWithLock(skuIds)).thenReturn(lockedInventories);
+        Long cartId = 1L;
+        when(cartItemDao.findByCartId(cartId)).thenReturn(List.of());
+        when(cartItemDao.findById(999L)).thenReturn(Optional.of(new CartItem(999L, 2L, 201L, 1)));
+
+        var request = new CartBatchRequestDto(List.of(
+                new CartOperationDto(CartOperationDto.Type.REMOVE, null, 999L, null)));
 
         // Act & Assert
-        assertThrows(IllegalStateException.class, () -> {
-            cartService.validateCartInventory(email);
-        });
+        assertThrows(SecurityException.class, () -> cartService.applyOperations(cartId, request));
+        verifyNoInteractions(inventoryDao, stockReservationService);
+    }
+
+    @Test
+    @DisplayName("操作に必要な項目がない場合、IllegalArgumentExceptionをスローすること")
+    void applyOperations_shouldThrowException_whenRequiredFieldIsMissing() {
+        // Arrange
+        Long cartId = 1L;
+        when(cartItemDao.findByCartId(cartId)).thenReturn(List.of());
+
+        var request = new CartBatchRequestDto(List.of(
+                new CartOperationDto(CartOperationDto.Type.ADD, 201L, null, null)));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> cartService.applyOperations(cartId, request));
     }
 }
\ No newline at end of file
@@ -0,0 +1,230 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.CartItem;
+import com.github.Atgsasakazh5.my_ec_site.repository.CartDao;
+import com.github.Atgsasakazh5.my_ec_site.repository.CartItemDao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CartWriteBehindTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    @Mock
+    private CartItemDao cartItemDao;
+
+    @Mock
+    private CartDao cartDao;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final InMemoryCartStore cartStore = new InMemoryCartStore(Duration.ofMinutes(30));
+
+    private CartWriteBehind cartWriteBehind;
+
+    @BeforeEach
+    void setUp() {
+        cartWriteBehind = new CartWriteBehind(cartStore, cartItemDao, cartDao, transactionManager, meterRegistry, BATCH_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("ストアにないカートはDBから読み込み、2回目以降はストアから返すこと")
+    void load_shouldReadThroughStore() {
+        // Arrange
+        List<CartItem> items = List.of(item(1L, 2));
+        when(cartItemDao.findByCartId(10L)).thenReturn(items);
+
+        // Act
+        List<CartItem> first = cartWriteBehind.load(10L);
+        List<CartItem> second = cartWriteBehind.load(10L);
+
+        // Assert
+        assertThat(first).usingRecursiveFieldByFieldElementComparator().isEqualTo(items);
+        assertThat(second).usingRecursiveFieldByFieldElementComparator().isEqualTo(items);
+        verify(cartItemDao, times(1)).findByCartId(10L);
+        assertEquals(1.0, meterRegistry.get("cart.store.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("cart.store.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    @DisplayName("数量を変更したカートは、定期実行でまとめてDBに反映すること")
+    void flushDirty_shouldPersistStagedQuantitiesInBatches() {
+        // Arrange: 3件のカートを1回2件ずつ反映する
+        cartStore.put(10L, List.of(item(1L, 1), item(2L, 1)));
+        cartStore.put(20L, List.of(item(3L, 1)));
+        cartStore.put(30L, List.of(item(4L, 1)));
+        cartWriteBehind.stage(10L, 1L, 3);
+        cartWriteBehind.stage(20L, 3L, 5);
+        cartWriteBehind.stage(30L, 4L, 2);
+
+        // Act
+        cartWriteBehind.flushDirty();
+
+        // Assert: DBには直接書き込まず、ストアの内容をまとめて反映する
+        verify(cartItemDao, times(2)).updateQuantities(anyMap());
+        verify(cartItemDao, never()).findByCartId(anyLong());
+        assertThat(cartStore.pollDirty(10)).isEmpty();
+        assertEquals(3.0, meterRegistry.get("cart.store.flushed").counter().count());
+        assertThat(quantities(cartWriteBehind.load(10L))).containsExactly(3, 1);
+    }
+
+    @Test
+    @DisplayName("同じカートの別のカートアイテムの数量を、古い内容をもとに変更しても互いに上書きしないこと")
+    void stage_shouldNotOverwriteOtherItemsInSameCart() {
+        // Arrange: 2つのリクエストが変更前の同じ内容を読み込んだ状態
+        cartStore.put(10L, List.of(item(1L, 1), item(2L, 1)));
+        List<CartItem> firstRead = cartWriteBehind.load(10L);
+        List<CartItem> secondRead = cartWriteBehind.load(10L);
+
+        // Act
+        cartWriteBehind.stage(10L, firstRead.get(0).getId(), 4);
+        cartWriteBehind.stage(10L, secondRead.get(1).getId(), 6);
+
+        // Assert
+        assertThat(quantities(cartStore.find(10L).orElseThrow())).containsExactly(4, 6);
+    }
+
+    @Test
+    @DisplayName("カートの内容を変更した場合、呼び出し元のトランザクションでリビジョンを加算してからストアを更新すること")
+    void saveAndStage_shouldIncrementRevisionBeforeUpdatingStore() {
+        // Arrange
+        CartStore store = spy(cartStore);
+        cartWriteBehind = new CartWriteBehind(store, cartItemDao, cartDao, transactionManager, meterRegistry, BATCH_SIZE);
+
+        // Act
+        cartWriteBehind.save(10L, List.of(item(1L, 1)));
+        cartWriteBehind.stage(10L, 1L, 2);
+        cartWriteBehind.save(10L, List.of());
+
+        // Assert: 別のトランザクションは開始しない
+        InOrder inOrder = inOrder(store, cartDao);
+        inOrder.verify(cartDao).incrementRevision(10L);
+        inOrder.verify(store).put(eq(10L), anyList());
+        inOrder.verify(cartDao).incrementRevision(10L);
+        inOrder.verify(store).updateQuantity(10L, 1L, 2);
+        inOrder.verify(store).markDirty(10L);
+        inOrder.verify(cartDao).incrementRevision(10L);
+        inOrder.verify(store).put(10L, List.of());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    @DisplayName("トランザクションがロールバックされた場合、ストアの内容を元に戻し、元の数量をDBに反映し直すこと")
+    void stage_shouldRestoreStore_whenRolledBack() {
+        // Arrange
+        cartStore.put(10L, List.of(item(1L, 1), item(2L, 1)));
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act: コミット前に定期実行で変更後の数量が反映された後、ロールバックされる
+        cartWriteBehind.stage(10L, 1L, 5);
+        cartWriteBehind.flushDirty();
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Assert
+        assertThat(quantities(cartStore.find(10L).orElseThrow())).containsExactly(1, 1);
+        assertThat(cartStore.pollDirty(10)).containsExactly(10L);
+    }
+
+    @Test
+    @DisplayName("DBへの反映に失敗したカートは、再び未反映にして次回に反映すること")
+    void flushDirty_shouldRemarkCarts_whenPersistFails() {
+        // Arrange
+        cartStore.put(10L, List.of(item(1L, 1)));
+        cartWriteBehind.stage(10L, 1L, 3);
+        doThrow(new QueryTimeoutException("timeout")).when(cartItemDao).updateQuantities(anyMap());
+
+        // Act
+        assertDoesNotThrow(() -> cartWriteBehind.flushDirty());
+
+        // Assert
+        assertThat(cartStore.pollDirty(10)).containsExactly(10L);
+    }
+
+    @Test
+    @DisplayName("未反映の変更がある場合のみ、カートの数量をDBに反映すること")
+    void flush_shouldPersistOnlyDirtyCart() {
+        // Arrange
+        cartStore.put(20L, List.of(item(2L, 1)));
+        cartStore.put(10L, List.of(item(1L, 1)));
+        cartWriteBehind.stage(10L, 1L, 4);
+
+        // Act
+        cartWriteBehind.flush(10L);
+        cartWriteBehind.flush(10L);
+        cartWriteBehind.flush(20L);
+
+        // Assert
+        verify(cartItemDao, times(1)).updateQuantities(Map.of(1L, 4));
+        verifyNoMoreInteractions(cartItemDao);
+    }
+
+    @Test
+    @DisplayName("ストアにカートがない場合、数量の変更はDBに直接反映すること")
+    void stage_shouldUpdateDatabase_whenCartIsNotInStore() {
+        // Act
+        cartWriteBehind.stage(10L, 1L, 3);
+
+        // Assert
+        verify(cartItemDao).updateQuantities(Map.of(1L, 3));
+        assertThat(cartStore.pollDirty(10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("ストアに障害がある場合、DBから読み込み、数量の変更はDBに直接反映すること")
+    void loadAndStage_shouldFallBackToDatabase_whenStoreFails() {
+        // Arrange
+        CartStore failingStore = mock(CartStore.class);
+        doThrow(new DataAccessResourceFailureException("Redisに接続できません")).when(failingStore).find(anyLong());
+        cartWriteBehind = new CartWriteBehind(failingStore, cartItemDao, cartDao, transactionManager, meterRegistry, BATCH_SIZE);
+        when(cartItemDao.findByCartId(10L)).thenReturn(List.of(item(1L, 2)));
+
+        // Act
+        List<CartItem> items = cartWriteBehind.load(10L);
+        cartWriteBehind.stage(10L, items.get(0).getId(), 5);
+
+        // Assert
+        assertThat(quantities(items)).containsExactly(2);
+        verify(cartItemDao, times(1)).updateQuantities(Map.of(1L, 5));
+    }
+
+    private static CartItem item(Long cartItemId, int quantity) {
+        return new CartItem(cartItemId, 10L, 100L + cartItemId, quantity);
+    }
+
+    private static List<Integer> quantities(List<CartItem> items) {
+        return items.stream().map(CartItem::getQuantity).toList();
+    }
+}
@@ -0,0 +1,331 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.Atgsasakazh5.my_ec_site.config.CartStoreConfig;
+import com.github.Atgsasakazh5.my_ec_site.dto.CreateOrderRequestDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.InventoryDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.PaymentRequestDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.ProductDetailDto;
+import com.github.Atgsasakazh5.my_ec_site.entity.Order;
+import com.github.Atgsasakazh5.my_ec_site.entity.OrderStatus;
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEventType;
+import com.github.Atgsasakazh5.my_ec_site.exception.PaymentDeclinedException;
+import com.github.Atgsasakazh5.my_ec_site.repository.CartDaoImpl;
+import com.github.Atgsasakazh5.my_ec_site.repository.CartItemDaoImpl;
+import com.github.Atgsasakazh5.my_ec_site.repository.InventoryDaoImpl;
+import com.github.Atgsasakazh5.my_ec_site.repository.OrderDao;
+import com.github.Atgsasakazh5.my_ec_site.repository.OrderDaoImpl;
+import com.github.Atgsasakazh5.my_ec_site.repository.OrderDetailDaoImpl;
+import com.github.Atgsasakazh5.my_ec_site.repository.OutboxEventDaoImpl;
+import com.github.Atgsasakazh5.my_ec_site.repository.StockReservationDaoImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 同じSKUに注文が集中した場合の注文確定を、応答の遅い決済ゲートウェイのスタブで確認する
+ * <p>
+ * 決済中に在庫のロックを保持していると、同じSKUの注文は決済を1件ずつしか進められない。
+ * 経過時間は実行環境によってばらつくため、全ての注文が同時に決済に到達できることをラッチで確認する。
+ * 各注文が独立したトランザクションで実行されるよう、テストのトランザクションは無効にしている。
+ */
+@ActiveProfiles("h2")
+@JdbcTest
+@Import({OrderServiceImpl.class, OrderDaoImpl.class, OrderDetailDaoImpl.class, InventoryDaoImpl.class,
+        CartDaoImpl.class, CartItemDaoImpl.class, ProductDetailCache.class, LockRetryTemplate.class, InventoryLedger.class,
+        StockReservationServiceImpl.class, StockReservationDaoImpl.class, OutboxEventPublisher.class, OutboxEventDaoImpl.class,
+        CartWriteBehind.class, CartStoreConfig.class, CheckoutLoadTest.TestConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CheckoutLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutLoadTest.class);
+
+    private static final Duration PAYMENT_DELAY = Duration.ofMillis(200);
+
+    // 全ての決済が揃うまで待つ時間の上限（ロックで直列化されていれば揃わずに時間切れになる）
+    private static final Duration LATCH_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final int CONCURRENT_CHECKOUTS = 16;
+
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    @Autowired
+    private OrderServiceImpl orderService;
+
+    @Autowired
+    private SlowPaymentGateway paymentGateway;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long hotSkuId;
+
+    @TestConfiguration
+    static class TestConfig {
+
+        @Bean
+        SlowPaymentGateway slowPaymentGateway(OrderDao orderDao) {
+            return new SlowPaymentGateway(orderDao);
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        Cache<Long, ProductDetailDto> productDetailCaffeineCache() {
+            return Caffeine.newBuilder().build();
+        }
+
+        @Bean
+        Cache<Long, InventoryDto> stockSnapshotCache() {
+            return Caffeine.newBuilder().build();
+        }
+    }
+
+    // Stripeの代わりに、一定時間待ってから注文を支払い済みにするスタブ
+    // 同時に決済する件数を指定した場合は、その件数の決済が揃うまで待つ（揃わなければ待機が時間切れになる）
+    static class SlowPaymentGateway implements PaymentService {
+
+        private final OrderDao orderDao;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        private final AtomicInteger timedOut = new AtomicInteger();
+
+        private volatile CountDownLatch concurrentPayments;
+
+        SlowPaymentGateway(OrderDao orderDao) {
+            this.orderDao = orderDao;
+        }
+
+        @Override
+        public void processPayment(PaymentRequestDto request) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                CountDownLatch latch = concurrentPayments;
+                if (latch != null) {
+                    latch.countDown();
+                    if (!latch.await(LATCH_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                        timedOut.incrementAndGet();
+                    }
+                }
+                Thread.sleep(PAYMENT_DELAY.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+
+            if ("pm_card_declined".equals(request.paymentMethodId())) {
+                throw new PaymentDeclinedException("決済エラー: カードが拒否されました");
+            }
+            var order = orderDao.findOrderById(request.orderId()).orElseThrow();
+            order.setStatus(OrderStatus.PAID);
+            orderDao.updateOrder(order);
+        }
+
+        // 照合の対象になる未確定の決済は作らないため、照合・取り消しは呼ばれない
+        @Override
+        public PaymentOutcome retrievePaymentOutcome(Order order) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PaymentOutcome cancelPayment(Order order) {
+            throw new UnsupportedOperationException();
+        }
+
+        void expectConcurrentPayments(int count) {
+            concurrentPayments = new CountDownLatch(count);
+        }
+
+        void reset() {
+            inFlight.set(0);
+            maxInFlight.set(0);
+            timedOut.set(0);
+            concurrentPayments = null;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        paymentGateway.reset();
+
+        // テストごとに別の商品・SKUを用意する
+        int n = sequence.incrementAndGet();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO categories (name) VALUES (?)", "負荷テスト" + n);
+        Integer categoryId = jdbcTemplate.queryForObject("SELECT id FROM categories WHERE name = ?", Integer.class, "負荷テスト" + n);
+        jdbcTemplate.update("INSERT INTO products (name, price, description, image_url, category_id, created_at, updated_at) " +
+                "VALUES (?, 1000, '説明', 'url', ?, ?, ?)", "人気商品" + n, categoryId, now, now);
+        Long productId = jdbcTemplate.queryForObject("SELECT id FROM products WHERE name = ?", Long.class, "人気商品" + n);
+        jdbcTemplate.update("INSERT INTO skus (product_id, size, color, extra_price, created_at, updated_at) " +
+                "VALUES (?, 'M', 'Black', 0, ?, ?)", productId, now, now);
+        hotSkuId = jdbcTemplate.queryForObject("SELECT id FROM skus WHERE product_id = ?", Long.class, productId);
+        jdbcTemplate.update("INSERT INTO inventories (sku_id, quantity, updated_at) VALUES (?, 100, ?)", hotSkuId, now);
+    }
+
+    @Test
+    @DisplayName("決済が遅くても、同じSKUの注文が決済を並行して進められること")
+    void placeOrder_shouldNotSerializeCheckoutsOnSlowPayment() throws Exception {
+        // Arrange: 同じSKUを1点ずつカートに入れたユーザーを用意し、全員の決済が同時に進むことを期待する
+        List<long[]> buyers = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_CHECKOUTS; i++) {
+            buyers.add(createBuyerWithHotSku());
+        }
+        paymentGateway.expectConcurrentPayments(CONCURRENT_CHECKOUTS);
+
+        // Act
+        long start = System.nanoTime();
+        checkoutConcurrently(buyers);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        logger.info("{}件の注文を{}msで確定 ({} 件/秒, 決済の遅延 {}ms)", CONCURRENT_CHECKOUTS, elapsed.toMillis(),
+                String.format("%.1f", CONCURRENT_CHECKOUTS * 1000.0 / Math.max(elapsed.toMillis(), 1)), PAYMENT_DELAY.toMillis());
+
+        // Assert: 在庫のロックを保持したまま決済していれば、全員の決済が揃わずに待機が時間切れになる
+        assertThat(paymentGateway.timedOut.get()).isZero();
+        assertThat(paymentGateway.maxInFlight.get()).isEqualTo(CONCURRENT_CHECKOUTS);
+        assertThat(stockOf(hotSkuId)).isEqualTo(100 - CONCURRENT_CHECKOUTS);
+        assertThat(paidOrderCount()).isEqualTo(CONCURRENT_CHECKOUTS);
+        // 確定した注文ごとに、後続処理へのイベントが1件ずつ書き込まれる
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM outbox_events e JOIN order_details od ON e.aggregate_id = od.order_id " +
+                        "WHERE od.sku_id = ? AND e.event_type = ?",
+                Integer.class, hotSkuId, OutboxEventType.ORDER_PLACED.name())).isEqualTo(CONCURRENT_CHECKOUTS);
+    }
+
+    @Test
+    @DisplayName("在庫より多くの注文が同時に届いても、在庫数を超えて販売しないこと")
+    void placeOrder_shouldNotOversell_whenCheckoutsExceedStock() throws Exception {
+        // Arrange: 在庫を注文数の半分にする
+        int stock = CONCURRENT_CHECKOUTS / 2;
+        jdbcTemplate.update("UPDATE inventories SET quantity = ? WHERE sku_id = ?", stock, hotSkuId);
+        List<long[]> buyers = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_CHECKOUTS; i++) {
+            buyers.add(createBuyerWithHotSku());
+        }
+
+        // Act
+        List<Throwable> failures = checkoutConcurrently(buyers);
+
+        // Assert: 在庫数の注文だけが確定し、残りは在庫不足で失敗する
+        assertThat(failures).hasSize(CONCURRENT_CHECKOUTS - stock)
+                .allSatisfy(failure -> assertThat(failure).isInstanceOf(IllegalStateException.class));
+        assertThat(stockOf(hotSkuId)).isZero();
+        assertThat(paidOrderCount()).isEqualTo(stock);
+    }
+
+    @Test
+    @DisplayName("決済に失敗した場合、在庫が戻りカートが残ること")
+    void placeOrder_shouldReleaseReservation_whenPaymentFails() {
+        // Arrange
+        long[] buyer = createBuyerWithHotSku();
+
+        // Act
+        assertThrows(IllegalStateException.class,
+                () -> orderService.placeOrder(buyer[0], buyer[1], request("pm_card_declined")));
+
+        // Assert
+        assertThat(stockOf(hotSkuId)).isEqualTo(100);
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM orders WHERE user_id = ?", String.class, buyer[0]))
+                .isEqualTo(OrderStatus.CANCELED.name());
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_items WHERE cart_id = ?", Integer.class, buyer[1]))
+                .isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM outbox_events e JOIN orders o ON e.aggregate_id = o.id WHERE o.user_id = ?",
+                Integer.class, buyer[0])).isZero();
+    }
+
+    // 全員の注文を同時に確定し、失敗した注文の例外を返す
+    private List<Throwable> checkoutConcurrently(List<long[]> buyers) throws InterruptedException {
+        List<Future<?>> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(buyers.size());
+        List<Throwable> failures = new ArrayList<>();
+        try {
+            for (long[] buyer : buyers) {
+                Callable<?> checkout = () -> orderService.placeOrder(buyer[0], buyer[1], request("pm_test"));
+                results.add(executor.submit(checkout));
+            }
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return failures;
+    }
+
+    private int paidOrderCount() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders o JOIN order_details od ON o.id = od.order_id WHERE od.sku_id = ? AND o.status = ?",
+                Integer.class, hotSkuId, OrderStatus.PAID.name());
+    }
+
+    // ユーザーとカートを作成し、人気商品を1点入れる。{ユーザーID, カートID}を返す
+    private long[] createBuyerWithHotSku() {
+        int n = sequence.incrementAndGet();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String email = "buyer" + n + "@example.com";
+        jdbcTemplate.update("INSERT INTO users (name, email, password, created_at, updated_at) VALUES (?, ?, 'password', ?, ?)",
+                "buyer" + n, email, now, now);
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email);
+        jdbcTemplate.update("INSERT INTO carts (user_id) VALUES (?)", userId);
+        Long cartId = jdbcTemplate.queryForObject("SELECT id FROM carts WHERE user_id = ?", Long.class, userId);
+        jdbcTemplate.update("INSERT INTO cart_items (cart_id, sku_id, quantity) VALUES (?, ?, 1)", cartId, hotSkuId);
+        return new long[]{userId, cartId};
+    }
+
+    private int stockOf(Long skuId) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM inventories WHERE sku_id = ?", Integer.class, skuId);
+    }
+
+    private static CreateOrderRequestDto request(String paymentMethodId) {
+        return new CreateOrderRequestDto("東京都", "100-0001", "テストユーザー", paymentMethodId);
+    }
+}
@@ -0,0 +1,179 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.EmailMessage;
+import com.github.Atgsasakazh5.my_ec_site.entity.EmailMessageStatus;
+import com.github.Atgsasakazh5.my_ec_site.repository.EmailMessageDao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ローカルのテスト用SMTPサーバー({@link FakeSmtpServer})に対してメールを送信し、接続の再利用と再送を確認する
+ */
+@ExtendWith(MockitoExtension.class)
+class EmailDispatcherTest {
+
+    private static final int BATCH_SIZE = 10;
+
+    private static final int MESSAGES_PER_CONNECTION = 5;
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final Duration INITIAL_BACKOFF = Duration.ofSeconds(30);
+
+    @Mock
+    private EmailMessageDao emailMessageDao;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private FakeSmtpServer smtpServer;
+
+    private EmailDispatcher emailDispatcher;
+
+    @BeforeEach
+    void setUp() {
+        smtpServer = new FakeSmtpServer();
+        emailDispatcher = newDispatcher(smtpServer.getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        emailDispatcher.shutdown();
+        smtpServer.close();
+    }
+
+    @Test
+    @DisplayName("取得したメールを接続ごとの上限件数ずつ1つの接続でまとめて送信し、送信済みにすること")
+    void dispatch_shouldSendMessagesReusingConnections() {
+        // Arrange
+        List<EmailMessage> messages = new ArrayList<>();
+        for (long id = 1; id <= 7; id++) {
+            messages.add(message(id, "user" + id + "@example.com", 0));
+        }
+        when(emailMessageDao.claimSendable(any(), any(), eq(BATCH_SIZE))).thenReturn(messages);
+
+        // Act
+        int sent = emailDispatcher.dispatch();
+
+        // Assert: 7通を 5通 + 2通 の2接続で送信する
+        assertEquals(7, sent);
+        assertThat(smtpServer.getMessages()).extracting(FakeSmtpServer.ReceivedMessage::recipient)
+                .containsExactlyInAnyOrder("user1@example.com", "user2@example.com", "user3@example.com",
+                        "user4@example.com", "user5@example.com", "user6@example.com", "user7@example.com");
+        assertEquals(2, smtpServer.getConnectionCount());
+        verify(emailMessageDao, times(1)).markSent(eq(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L)), any());
+        verify(emailMessageDao, times(1)).markFailed(List.of());
+        assertEquals(7.0, meterRegistry.get("mail.sent").counter().count());
+        assertEquals(7, meterRegistry.get("mail.lag").timer().count());
+        assertEquals(2, meterRegistry.get("mail.connection").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    @DisplayName("宛先を拒否されたメールだけを再送対象にし、同じ接続の他のメールは送信済みにすること")
+    void dispatch_shouldRetryOnlyRejectedMessage() {
+        // Arrange
+        smtpServer.rejectRecipient("unknown@example.com");
+        when(emailMessageDao.claimSendable(any(), any(), eq(BATCH_SIZE))).thenReturn(List.of(
+                message(1L, "user1@example.com", 0),
+                message(2L, "unknown@example.com", 0),
+                message(3L, "user3@example.com", 0)));
+
+        // Act
+        LocalDateTime before = LocalDateTime.now();
+        int sent = emailDispatcher.dispatch();
+
+        // Assert
+        assertEquals(2, sent);
+        assertEquals(1, smtpServer.getConnectionCount());
+        verify(emailMessageDao, times(1)).markSent(eq(List.of(1L, 3L)), any());
+        EmailMessage failed = captureFailed().get(0);
+        assertEquals(2L, failed.getId());
+        assertEquals(EmailMessageStatus.PENDING, failed.getStatus());
+        assertEquals(1, failed.getAttempts());
+        assertThat(failed.getNextAttemptAt()).isAfterOrEqualTo(before.plus(INITIAL_BACKOFF));
+        assertEquals(1, meterRegistry.get("mail.connection").tag("outcome", "partial").timer().count());
+    }
+
+    @Test
+    @DisplayName("SMTPサーバーに接続できない場合、すべてのメールを間隔を空けて再送し、最大回数に達したメールは送信失敗にすること")
+    void dispatch_shouldBackOffAndGiveUp_whenServerIsDown() throws Exception {
+        // Arrange: 2回目の失敗は 30秒 → 60秒 と間隔が倍になる。3回目の失敗で中止する
+        smtpServer.close();
+        when(emailMessageDao.claimSendable(any(), any(), eq(BATCH_SIZE))).thenReturn(List.of(
+                message(1L, "user1@example.com", 1),
+                message(2L, "user2@example.com", MAX_ATTEMPTS - 1)));
+
+        // Act
+        LocalDateTime before = LocalDateTime.now();
+        int sent = assertDoesNotThrow(() -> emailDispatcher.dispatch());
+
+        // Assert
+        assertEquals(0, sent);
+        List<EmailMessage> failed = captureFailed();
+        assertThat(failed).hasSize(2);
+        assertEquals(EmailMessageStatus.PENDING, failed.get(0).getStatus());
+        assertEquals(2, failed.get(0).getAttempts());
+        assertThat(failed.get(0).getNextAttemptAt()).isAfterOrEqualTo(before.plus(INITIAL_BACKOFF.multipliedBy(2)));
+        assertEquals(EmailMessageStatus.FAILED, failed.get(1).getStatus());
+        assertThat(failed.get(1).getLastError()).isNotBlank();
+        assertEquals(1.0, meterRegistry.get("mail.failed").counter().count());
+        assertEquals(1, meterRegistry.get("mail.connection").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    @DisplayName("送信の要求は呼び出し元を待たせずに別スレッドで送信すること")
+    void requestDispatch_shouldSendAsynchronously() {
+        // Arrange
+        when(emailMessageDao.claimSendable(any(), any(), eq(BATCH_SIZE)))
+                .thenReturn(List.of(message(1L, "user1@example.com", 0)))
+                .thenReturn(List.of());
+
+        // Act
+        emailDispatcher.requestDispatch();
+
+        // Assert
+        verify(emailMessageDao, timeout(5000)).markSent(eq(List.of(1L)), any());
+        assertThat(smtpServer.getMessages()).extracting(FakeSmtpServer.ReceivedMessage::recipient)
+                .containsExactly("user1@example.com");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<EmailMessage> captureFailed() {
+        ArgumentCaptor<List<EmailMessage>> captor = ArgumentCaptor.forClass(List.class);
+        verify(emailMessageDao, times(1)).markFailed(captor.capture());
+        return captor.getValue();
+    }
+
+    private EmailDispatcher newDispatcher(int port) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(port);
+        mailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+        mailSender.getJavaMailProperties().put("mail.smtp.timeout", "2000");
+        return new EmailDispatcher(emailMessageDao, mailSender, meterRegistry, 2, BATCH_SIZE, MESSAGES_PER_CONNECTION,
+                Duration.ofMinutes(5), MAX_ATTEMPTS, INITIAL_BACKOFF, Duration.ofHours(1), Duration.ofDays(30));
+    }
+
+    private static EmailMessage message(Long id, String recipient, int attempts) {
+        LocalDateTime createdAt = LocalDateTime.now().minusSeconds(1);
+        return new EmailMessage(id, recipient, "Welcome", "Hello " + recipient, EmailMessageStatus.PENDING, attempts,
+                createdAt, null, createdAt, null);
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.EmailMessage;
+import com.github.Atgsasakazh5.my_ec_site.entity.EmailMessageStatus;
+import com.github.Atgsasakazh5.my_ec_site.repository.EmailMessageDao;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmailServiceTest {
+
+    @Mock
+    private EmailMessageDao emailMessageDao;
+
+    @Mock
+    private EmailDispatcher emailDispatcher;
+
+    private EmailServiceImpl emailService;
+
+    @BeforeEach
+    void setUp() {
+        emailService = new EmailServiceImpl(emailMessageDao, emailDispatcher, "http://localhost:3000", "http://localhost:8080");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("認証メールを認証用リンク付きで送信待ちとして登録すること")
+    void sendVerificationEmail_shouldEnqueueMessageWithVerificationLink() {
+        // Act
+        emailService.sendVerificationEmail("user@example.com", "token-123");
+
+        // Assert
+        ArgumentCaptor<EmailMessage> captor = ArgumentCaptor.forClass(EmailMessage.class);
+        verify(emailMessageDao, times(1)).save(captor.capture());
+        EmailMessage message = captor.getValue();
+        assertEquals("user@example.com", message.getRecipient());
+        assertEquals(EmailMessageStatus.PENDING, message.getStatus());
+        assertEquals(0, message.getAttempts());
+        assertThat(message.getBody()).contains("http://localhost:3000/verify-email?token=token-123");
+    }
+
+    @Test
+    @DisplayName("トランザクション内で呼び出した場合、コミットされるまで送信を開始しないこと")
+    void sendVerificationEmail_shouldRequestDispatchOnlyAfterCommit() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        emailService.sendVerificationEmail("user@example.com", "token-123");
+
+        // Assert
+        verify(emailDispatcher, never()).requestDispatch();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(emailDispatcher, times(1)).requestDispatch();
+    }
+
+    @Test
+    @DisplayName("トランザクションがロールバックされた場合、送信を開始しないこと")
+    void sendVerificationEmail_shouldNotRequestDispatch_whenRolledBack() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        emailService.sendVerificationEmail("user@example.com", "token-123");
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Assert
+        verify(emailDispatcher, never()).requestDispatch();
+    }
+}
@@ -0,0 +1,227 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * テスト用のRedisサーバー。ローカルのポートで待ち受け、RESPのコマンドをメモリ上で処理する
+ * <p>
+ * {@link RedisCartStore}が使用するコマンド(PING・GET・SET・DEL・SADD・SREM・SPOP)と、接続時のAUTH・SELECTのみに対応する。
+ * パスワードを指定した場合は、AUTHで認証するまでの接続のコマンドを拒否する。データベースは区別しない。
+ * 有効期限は経過による削除は行わず、{@link #getTtlSeconds(String)}で設定された値を確認できるようにする。
+ */
+class FakeRedisServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final Map<String, String> strings = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> ttlSeconds = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<String>> sets = new ConcurrentHashMap<>();
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    private final String password;
+
+    FakeRedisServer() {
+        this(null);
+    }
+
+    FakeRedisServer(String password) {
+        this.password = password;
+        try {
+            serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        executor.execute(this::acceptLoop);
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    int getConnectionCount() {
+        return connections.get();
+    }
+
+    // クライアントが切断していない接続の数
+    int getOpenConnectionCount() {
+        return openConnections.get();
+    }
+
+    String get(String key) {
+        return strings.get(key);
+    }
+
+    Long getTtlSeconds(String key) {
+        return ttlSeconds.get(key);
+    }
+
+    Set<String> members(String key) {
+        return Set.copyOf(sets.getOrDefault(key, Set.of()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                executor.execute(() -> handle(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        openConnections.incrementAndGet();
+        try (socket;
+             InputStream in = new BufferedInputStream(socket.getInputStream());
+             OutputStream out = socket.getOutputStream()) {
+            boolean authenticated = password == null;
+            List<String> command;
+            while ((command = readCommand(in)) != null) {
+                String name = command.get(0).toUpperCase(Locale.ROOT);
+                String reply;
+                if (name.equals("AUTH")) {
+                    authenticated = command.get(command.size() - 1).equals(password);
+                    reply = authenticated ? "+OK\r\n" : "-WRONGPASS invalid username-password pair\r\n";
+                } else if (!authenticated) {
+                    reply = "-NOAUTH Authentication required.\r\n";
+                } else if (name.equals("SELECT")) {
+                    reply = "+OK\r\n";
+                } else {
+                    reply = execute(command);
+                }
+                out.write(reply.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        } catch (IOException e) {
+            // クライアントが切断した場合
+        } finally {
+            openConnections.decrementAndGet();
+        }
+    }
+
+    private synchronized String execute(List<String> command) {
+        String name = command.get(0).toUpperCase(Locale.ROOT);
+        return switch (name) {
+            case "PING" -> "+PONG\r\n";
+            case "GET" -> bulk(strings.get(command.get(1)));
+            case "SET" -> set(command);
+            case "DEL" -> integer(strings.remove(command.get(1)) != null || sets.remove(command.get(1)) != null ? 1 : 0);
+            case "SADD" -> integer(sets.computeIfAbsent(command.get(1), key -> ConcurrentHashMap.newKeySet())
+                    .add(command.get(2)) ? 1 : 0);
+            case "SREM" -> integer(sets.getOrDefault(command.get(1), Set.of()).contains(command.get(2))
+                    && sets.get(command.get(1)).remove(command.get(2)) ? 1 : 0);
+            case "SPOP" -> spop(command.get(1), Integer.parseInt(command.get(2)));
+            default -> "-ERR unknown command '" + name + "'\r\n";
+        };
+    }
+
+    private String set(List<String> command) {
+        String key = command.get(1);
+        Long ttl = null;
+        boolean onlyIfAbsent = false;
+        for (int i = 3; i < command.size(); i++) {
+            String option = command.get(i).toUpperCase(Locale.ROOT);
+            if (option.equals("EX")) {
+                ttl = Long.parseLong(command.get(++i));
+            } else if (option.equals("NX")) {
+                onlyIfAbsent = true;
+            }
+        }
+        if (onlyIfAbsent && strings.containsKey(key)) {
+            return "$-1\r\n";
+        }
+        strings.put(key, command.get(2));
+        if (ttl == null) {
+            ttlSeconds.remove(key);
+        } else {
+            ttlSeconds.put(key, ttl);
+        }
+        return "+OK\r\n";
+    }
+
+    private String spop(String key, int count) {
+        List<String> popped = new ArrayList<>();
+        Iterator<String> iterator = sets.getOrDefault(key, Set.of()).iterator();
+        while (popped.size() < count && iterator.hasNext()) {
+            popped.add(iterator.next());
+            iterator.remove();
+        }
+        StringBuilder reply = new StringBuilder("*").append(popped.size()).append("\r\n");
+        popped.forEach(member -> reply.append(bulk(member)));
+        return reply.toString();
+    }
+
+    // クライアントから送られるバルク文字列の配列を読み込む。切断された場合はnull
+    private static List<String> readCommand(InputStream in) throws IOException {
+        String header = readLine(in);
+        if (header == null) {
+            return null;
+        }
+        int count = Integer.parseInt(header.substring(1));
+        List<String> command = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = Integer.parseInt(readLine(in).substring(1));
+            command.add(new String(in.readNBytes(length), StandardCharsets.UTF_8));
+            readLine(in);
+        }
+        return command;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b == -1) {
+                return null;
+            }
+            buffer.write(b);
+        }
+        in.read();
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String bulk(String value) {
+        if (value == null) {
+            return "$-1\r\n";
+        }
+        return "$" + value.getBytes(StandardCharsets.UTF_8).length + "\r\n" + value + "\r\n";
+    }
+
+    private static String integer(long value) {
+        return ":" + value + "\r\n";
+    }
+}
@@ -0,0 +1,155 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.dto.CartDetailDto;
+import com.github.Atgsasakazh5.my_ec_site.entity.Cart;
+import com.github.Atgsasakazh5.my_ec_site.exception.ResourceNotFoundException;
+import com.github.Atgsasakazh5.my_ec_site.repository.CartDao;
+import com.github.Atgsasakazh5.my_ec_site.repository.CartItemDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GuestCartServiceTest {
+
+    private static final Duration TTL = Duration.ofDays(7);
+
+    @Mock
+    private CartDao cartDao;
+
+    @Mock
+    private CartItemDao cartItemDao;
+
+    @Mock
+    private CartService cartService;
+
+    @Mock
+    private StockReservationService stockReservationService;
+
+    private GuestCartServiceImpl guestCartService;
+
+    @BeforeEach
+    void setUp() {
+        guestCartService = new GuestCartServiceImpl(cartDao, cartItemDao, cartService, stockReservationService, TTL);
+    }
+
+    @Test
+    @DisplayName("ゲストカートを作成し、トークンのハッシュ値のみをDBに保存すること")
+    void createGuestCart_shouldStoreOnlyTokenHash() {
+        // Arrange
+        ArgumentCaptor<String> hashCaptor = ArgumentCaptor.forClass(String.class);
+        when(cartDao.saveGuestCart(hashCaptor.capture(), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> new Cart(7L, null, invocation.getArgument(1)));
+
+        // Act
+        var guestCart = guestCartService.createGuestCart();
+
+        // Assert
+        assertEquals(7L, guestCart.cart().cartId());
+        assertThat(guestCart.token()).hasSizeGreaterThanOrEqualTo(43);
+        assertThat(hashCaptor.getValue()).hasSize(64).isNotEqualTo(guestCart.token());
+
+        // 同じトークンで作成したカートを解決できる
+        when(cartDao.findGuestCartByTokenHash(hashCaptor.getValue()))
+                .thenReturn(Optional.of(new Cart(7L, null, LocalDateTime.now().plus(TTL))));
+        assertEquals(7L, guestCartService.resolveCartId(guestCart.token()));
+    }
+
+    @Test
+    @DisplayName("有効期限の残りが半分を切った場合のみ、有効期限を延長すること")
+    void resolveCartId_shouldExtendExpiry_onlyWhenLessThanHalfRemains() {
+        // Arrange
+        when(cartDao.findGuestCartByTokenHash(anyString()))
+                .thenReturn(Optional.of(new Cart(1L, null, LocalDateTime.now().plusDays(6))))
+                .thenReturn(Optional.of(new Cart(1L, null, LocalDateTime.now().plusDays(1))));
+
+        // Act
+        guestCartService.resolveCartId("token");
+        verify(cartDao, never()).updateExpiresAt(anyLong(), any());
+        guestCartService.resolveCartId("token");
+
+        // Assert
+        verify(cartDao).updateExpiresAt(eq(1L), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("存在しない、または有効期限が切れたゲストカートはResourceNotFoundExceptionをスローすること")
+    void resolveCartId_shouldThrowException_whenCartIsMissingOrExpired() {
+        // Arrange
+        when(cartDao.findGuestCartByTokenHash(anyString()))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new Cart(1L, null, LocalDateTime.now().minusMinutes(1))));
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> guestCartService.resolveCartId("unknown"));
+        assertThrows(ResourceNotFoundException.class, () -> guestCartService.resolveCartId("expired"));
+    }
+
+    @Test
+    @DisplayName("ゲストカートをロックしてユーザーのカートに統合し、ゲストカートを削除すること")
+    void mergeIntoUserCart_shouldMergeAndDeleteGuestCart() {
+        // Arrange
+        var merged = new CartDetailDto(10L, List.of(), 0);
+        when(cartDao.findGuestCartByTokenHashWithLock(anyString()))
+                .thenReturn(Optional.of(new Cart(1L, null, LocalDateTime.now().plusDays(1))));
+        when(cartService.mergeCart(1L, 10L)).thenReturn(merged);
+
+        // Act
+        var result = guestCartService.mergeIntoUserCart("token", 10L);
+
+        // Assert
+        assertThat(result).contains(merged);
+        InOrder inOrder = inOrder(cartService, cartDao);
+        inOrder.verify(cartService).mergeCart(1L, 10L);
+        inOrder.verify(cartDao).deleteByIds(List.of(1L));
+    }
+
+    @Test
+    @DisplayName("有効なゲストカートがない場合、何もしないこと")
+    void mergeIntoUserCart_shouldDoNothing_whenGuestCartIsExpired() {
+        // Arrange
+        when(cartDao.findGuestCartByTokenHashWithLock(anyString()))
+                .thenReturn(Optional.of(new Cart(1L, null, LocalDateTime.now().minusMinutes(1))));
+
+        // Act
+        var result = guestCartService.mergeIntoUserCart("token", 10L);
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(cartService);
+        verify(cartDao, never()).deleteByIds(anyList());
+    }
+
+    @Test
+    @DisplayName("期限切れのゲストカートは、在庫の確保を解放してからカートアイテムとカートをまとめて削除すること")
+    void deleteExpired_shouldReleaseReservationsAndDeleteInBatch() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        when(cartDao.findExpiredGuestCartIdsWithLock(now, 100)).thenReturn(List.of(1L, 2L));
+
+        // Act
+        int deleted = guestCartService.deleteExpired(now, 100);
+
+        // Assert
+        assertEquals(2, deleted);
+        InOrder inOrder = inOrder(stockReservationService, cartItemDao, cartDao);
+        inOrder.verify(stockReservationService).releaseAllByCartIds(List.of(1L, 2L));
+        inOrder.verify(cartItemDao).deleteByCartIds(List.of(1L, 2L));
+        inOrder.verify(cartDao).deleteByIds(List.of(1L, 2L));
+    }
+}
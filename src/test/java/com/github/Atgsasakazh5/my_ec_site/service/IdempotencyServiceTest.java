@@ -0,0 +1,212 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.Atgsasakazh5.my_ec_site.dto.CreateOrderRequestDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.OrderDetailDto;
+import com.github.Atgsasakazh5.my_ec_site.exception.PaymentPendingException;
+import com.github.Atgsasakazh5.my_ec_site.repository.IdempotencyKeyDaoImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Idempotency-Keyによる重複リクエストの排除を、H2のidempotency_keysテーブルで確認する
+ * <p>
+ * 同時に届いたリクエストが別々のトランザクションで記録を登録・参照するよう、テストのトランザクションは無効にしている。
+ */
+@ActiveProfiles("h2")
+@JdbcTest
+@Import(IdempotencyKeyDaoImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceTest {
+
+    private static final TypeReference<List<OrderDetailDto>> RESPONSE_TYPE = new TypeReference<>() {
+    };
+
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    @Autowired
+    private IdempotencyKeyDaoImpl idempotencyKeyDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private IdempotencyServiceImpl idempotencyService;
+
+    private Long userId;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyServiceImpl(idempotencyKeyDao, new ObjectMapper(),
+                Duration.ofHours(24), Duration.ofSeconds(5), Duration.ofMillis(10), Duration.ofMinutes(5));
+
+        // テストごとに別のユーザーを用意する
+        String email = "idempotency" + sequence.incrementAndGet() + "@example.com";
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO users (name, email, password, created_at, updated_at) VALUES (?, ?, 'password', ?, ?)",
+                "buyer", email, now, now);
+        userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email);
+    }
+
+    @Test
+    @DisplayName("同じキーで再送されたリクエストには、処理を実行せずに最初の結果を返すこと")
+    void execute_shouldReturnStoredResponse_whenKeyIsReused() {
+        // Act
+        var first = idempotencyService.execute(userId, "key-1", request("pm_test"), RESPONSE_TYPE, this::placeOrder);
+        var second = idempotencyService.execute(userId, "key-1", request("pm_test"), RESPONSE_TYPE, this::placeOrder);
+
+        // Assert
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(second).isEqualTo(first);
+    }
+
+    @Test
+    @DisplayName("同じキーが別の内容のリクエストで使われた場合、IllegalArgumentExceptionをスローすること")
+    void execute_shouldThrowIllegalArgumentException_whenRequestDiffers() {
+        // Arrange
+        idempotencyService.execute(userId, "key-1", request("pm_test"), RESPONSE_TYPE, this::placeOrder);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () ->
+                idempotencyService.execute(userId, "key-1", request("pm_other"), RESPONSE_TYPE, this::placeOrder));
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("処理が失敗した場合は結果を保存せず、同じキーで再試行できること")
+    void execute_shouldAllowRetry_whenActionFails() {
+        // Arrange
+        assertThrows(IllegalStateException.class, () ->
+                idempotencyService.execute(userId, "key-1", request("pm_test"), RESPONSE_TYPE, () -> {
+                    throw new IllegalStateException("決済エラー");
+                }));
+
+        // Act
+        var result = idempotencyService.execute(userId, "key-1", request("pm_test"), RESPONSE_TYPE, this::placeOrder);
+
+        // Assert
+        assertThat(result).hasSize(1);
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("決済の結果が確定していない場合は記録を残し、同じキーで再送されても処理をやり直さないこと")
+    void execute_shouldNotRetry_whenPaymentIsPending() {
+        // Arrange: 請求された可能性がある状態で処理が終了する
+        PaymentPendingException first = assertThrows(PaymentPendingException.class, () ->
+                idempotencyService.execute(userId, "key-1", request("pm_test"), RESPONSE_TYPE, () -> {
+                    executions.incrementAndGet();
+                    throw new PaymentPendingException("決済の結果を確認できませんでした", 501L, null);
+                }));
+
+        // Act
+        PaymentPendingException retried = assertThrows(PaymentPendingException.class, () ->
+                idempotencyService.execute(userId, "key-1", request("pm_test"), RESPONSE_TYPE, this::placeOrder));
+
+        // Assert
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(retried.getOrderId()).isEqualTo(first.getOrderId()).isEqualTo(501L);
+    }
+
+    @Test
+    @DisplayName("同じキーのリクエストが同時に届いた場合、処理は1回だけ実行され全員が同じ結果を受け取ること")
+    void execute_shouldRunOnce_whenDuplicatesArriveConcurrently() throws Exception {
+        // Arrange
+        int duplicates = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(duplicates);
+
+        // Act
+        List<Future<List<OrderDetailDto>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < duplicates; i++) {
+                Callable<List<OrderDetailDto>> task = () -> {
+                    start.await();
+                    return idempotencyService.execute(userId, "key-1", request("pm_test"), RESPONSE_TYPE, () -> {
+                        sleep(Duration.ofMillis(200));
+                        return placeOrder();
+                    });
+                };
+                results.add(executor.submit(task));
+            }
+            start.countDown();
+
+            // Assert
+            List<OrderDetailDto> first = results.get(0).get();
+            for (Future<List<OrderDetailDto>> result : results) {
+                assertThat(result.get()).isEqualTo(first);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("処理中のまま一定時間経過した記録は、中断されたものとみなして処理をやり直すこと")
+    void execute_shouldTakeOver_whenRecordIsAbandoned() {
+        // Arrange: 10分前に登録されたまま完了していない記録
+        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(10);
+        jdbcTemplate.update("INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash, created_at, expires_at) " +
+                        "VALUES (?, 'key-1', ?, ?, ?)", userId, "0".repeat(64),
+                Timestamp.valueOf(createdAt), Timestamp.valueOf(createdAt.plusHours(24)));
+
+        // Act
+        var result = idempotencyService.execute(userId, "key-1", request("pm_test"), RESPONSE_TYPE, this::placeOrder);
+
+        // Assert
+        assertThat(result).hasSize(1);
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("空のキーを指定した場合、IllegalArgumentExceptionをスローすること")
+    void execute_shouldThrowIllegalArgumentException_whenKeyIsBlank() {
+        assertThrows(IllegalArgumentException.class, () ->
+                idempotencyService.execute(userId, " ", request("pm_test"), RESPONSE_TYPE, this::placeOrder));
+    }
+
+    // 注文確定の代わりに、実行回数を数えて注文明細を返す
+    private List<OrderDetailDto> placeOrder() {
+        int n = executions.incrementAndGet();
+        return List.of(new OrderDetailDto((long) n, 500L + n, 101L, "Tシャツ", "M", "Red", null, 1500, 2));
+    }
+
+    private static CreateOrderRequestDto request(String paymentMethodId) {
+        return new CreateOrderRequestDto("東京都", "100-0001", "テストユーザー", paymentMethodId);
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.CartItem;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryCartStoreTest {
+
+    @Test
+    @DisplayName("有効期限が切れたカートは破棄し、DBに未反映のカートは反映されるまで残すこと")
+    void evictExpired_shouldKeepDirtyCarts() {
+        // Arrange: 有効期限0で保存し、すぐに期限切れにする
+        InMemoryCartStore cartStore = new InMemoryCartStore(Duration.ZERO);
+        List<CartItem> items = List.of(new CartItem(1L, 1L, 10L, 2));
+        cartStore.put(1L, items);
+        cartStore.put(2L, items);
+        cartStore.markDirty(2L);
+
+        // Act
+        cartStore.evictExpired();
+
+        // Assert
+        assertTrue(cartStore.find(1L).isEmpty());
+        assertThat(cartStore.find(2L).orElseThrow()).usingRecursiveFieldByFieldElementComparator().isEqualTo(items);
+    }
+
+    @Test
+    @DisplayName("putIfAbsentは有効なカートの内容を上書きせず、pollDirtyは上限件数まで取り出すこと")
+    void putIfAbsentAndPollDirty() {
+        // Arrange
+        InMemoryCartStore cartStore = new InMemoryCartStore(Duration.ofMinutes(30));
+        List<CartItem> current = List.of(new CartItem(1L, 1L, 10L, 3));
+        cartStore.put(1L, current);
+        cartStore.markDirty(1L);
+        cartStore.markDirty(2L);
+        cartStore.markDirty(3L);
+
+        // Act
+        cartStore.putIfAbsent(1L, List.of());
+        List<Long> polled = cartStore.pollDirty(2);
+
+        // Assert
+        assertThat(cartStore.find(1L).orElseThrow()).usingRecursiveFieldByFieldElementComparator().isEqualTo(current);
+        assertThat(polled).hasSize(2);
+        assertThat(cartStore.pollDirty(2)).hasSize(1).doesNotContainAnyElementsOf(polled);
+    }
+
+    @Test
+    @DisplayName("数量の変更は指定したカートアイテムのみに反映し、返した内容を変更してもストアは変わらないこと")
+    void updateQuantity_shouldUpdateOnlyGivenItem() {
+        // Arrange
+        InMemoryCartStore cartStore = new InMemoryCartStore(Duration.ofMinutes(30));
+        cartStore.put(1L, List.of(new CartItem(1L, 1L, 10L, 2), new CartItem(2L, 1L, 11L, 1)));
+        cartStore.find(1L).orElseThrow().get(0).setQuantity(9);
+
+        // Act
+        boolean updated = cartStore.updateQuantity(1L, 2L, 4);
+        boolean missingItem = cartStore.updateQuantity(1L, 3L, 4);
+        boolean missingCart = cartStore.updateQuantity(2L, 1L, 4);
+
+        // Assert
+        assertTrue(updated);
+        assertFalse(missingItem);
+        assertFalse(missingCart);
+        assertThat(cartStore.find(1L).orElseThrow()).extracting(CartItem::getQuantity).containsExactly(2, 4);
+        assertTrue(cartStore.find(2L).isEmpty());
+    }
+}
@@ -0,0 +1,236 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.repository.InventoryDaoImpl;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 在庫台帳(InventoryLedger)による在庫の確保が、DBの条件付き減算(InventoryDaoImpl)と同じ結果になることを確認する
+ * <p>
+ * 同じ注文の列を複数スレッドから並行して処理し、売れた数量とDBに残る在庫数を比較する。
+ * 各処理が独立したトランザクションで実行されるよう、テストのトランザクションは無効にしている。
+ */
+@ActiveProfiles("h2")
+@JdbcTest
+@Import(InventoryDaoImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InventoryLedgerConsistencyTest {
+
+    private static final int INITIAL_STOCK = 100;
+
+    private static final int THREADS = 8;
+
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    @Autowired
+    private InventoryDaoImpl inventoryDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private InventoryLedger inventoryLedger;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        var productDetailCache = new ProductDetailCache(Caffeine.newBuilder().build(), Caffeine.newBuilder().build());
+        inventoryLedger = new InventoryLedger(inventoryDao, productDetailCache, transactionManager, true);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    @DisplayName("1点ずつの注文が在庫を超えて集中した場合、どちらの方式でも在庫数ちょうどだけ売れること")
+    void reserve_shouldSellExactlyTheStock_whenDemandExceedsSupply() throws Exception {
+        // Arrange: 在庫の2倍の注文
+        Long databaseSkuId = createSku();
+        Long ledgerSkuId = createSku();
+        List<Integer> orders = new ArrayList<>();
+        for (int i = 0; i < INITIAL_STOCK * 2; i++) {
+            orders.add(1);
+        }
+
+        // Act
+        int soldByDatabase = runConcurrently(orders, quantity -> reserveWithDatabase(databaseSkuId, quantity, false));
+        int soldByLedger = runWithFlusher(orders, quantity -> reserveWithLedger(ledgerSkuId, quantity, false));
+
+        // Assert
+        assertThat(soldByDatabase).isEqualTo(INITIAL_STOCK);
+        assertThat(soldByLedger).isEqualTo(soldByDatabase);
+        assertThat(stockOf(databaseSkuId)).isZero();
+        assertThat(stockOf(ledgerSkuId)).isZero();
+        assertThat(inventoryLedger.getAvailableQuantity(ledgerSkuId)).contains(0);
+    }
+
+    @Test
+    @DisplayName("数量の異なる注文と決済失敗による解放が混在しても、売れた数量とDBの在庫数が一致し、在庫を超えて売れないこと")
+    void reserve_shouldKeepStockConsistent_withMixedQuantitiesAndReleases() throws Exception {
+        // Arrange: 1〜3点の注文。10件に1件は決済に失敗して確保した在庫を戻す
+        Long databaseSkuId = createSku();
+        Long ledgerSkuId = createSku();
+        List<Integer> orders = new ArrayList<>();
+        for (int i = 0; i < INITIAL_STOCK; i++) {
+            orders.add(i % 10 == 0 ? -(i % 3 + 1) : i % 3 + 1);
+        }
+
+        // Act: 負の数量は「確保後に決済が失敗する注文」を表す
+        int soldByDatabase = runConcurrently(orders,
+                order -> reserveWithDatabase(databaseSkuId, Math.abs(order), order < 0));
+        int soldByLedger = runWithFlusher(orders,
+                order -> reserveWithLedger(ledgerSkuId, Math.abs(order), order < 0));
+
+        // Assert
+        assertThat(soldByDatabase).isBetween(1, INITIAL_STOCK);
+        assertThat(soldByLedger).isBetween(1, INITIAL_STOCK);
+        assertThat(stockOf(databaseSkuId)).isEqualTo(INITIAL_STOCK - soldByDatabase);
+        assertThat(stockOf(ledgerSkuId)).isEqualTo(INITIAL_STOCK - soldByLedger);
+        assertThat(inventoryLedger.getAvailableQuantity(ledgerSkuId)).contains(stockOf(ledgerSkuId));
+    }
+
+    @Test
+    @DisplayName("決済の結果がわからない注文は確保をDBに反映し、照合でキャンセルした場合はDBと台帳の在庫数が一致すること")
+    void reserve_shouldPersistReservation_whenPaymentOutcomeIsUnknown() {
+        // Arrange
+        Long skuId = createSku();
+        Map<Long, Integer> paidOrder = Map.of(skuId, 3);
+        Map<Long, Integer> canceledOrder = Map.of(skuId, 5);
+
+        // Act: 2件とも決済の結果がわからないまま確定し、DBに反映する
+        assertThat(inventoryLedger.reserve(paidOrder)).isEmpty();
+        inventoryLedger.confirm(paidOrder);
+        assertThat(inventoryLedger.reserve(canceledOrder)).isEmpty();
+        inventoryLedger.confirm(canceledOrder);
+        inventoryLedger.flush();
+
+        // Assert: 照合の前にプロセスが停止しても確保が失われない
+        assertThat(stockOf(skuId)).isEqualTo(INITIAL_STOCK - 8);
+
+        // Act: 1件は請求済み、もう1件は請求されていないと照合できたため、DBの在庫と台帳の販売可能数を戻す
+        transactionTemplate.executeWithoutResult(status -> {
+            inventoryDao.increaseQuantities(canceledOrder);
+            TransactionCallbacks.afterCommit(() -> inventoryLedger.release(canceledOrder));
+        });
+        inventoryLedger.flush();
+
+        // Assert
+        assertThat(stockOf(skuId)).isEqualTo(INITIAL_STOCK - 3);
+        assertThat(inventoryLedger.getAvailableQuantity(skuId)).contains(stockOf(skuId));
+    }
+
+    // 現在のチェックアウトと同じく、トランザクション内の条件付き減算で確保し、決済失敗時は加算で戻す
+    private boolean reserveWithDatabase(Long skuId, int quantity, boolean paymentFails) {
+        Map<Long, Integer> order = Map.of(skuId, quantity);
+        List<Long> insufficientSkuIds = transactionTemplate.execute(status -> inventoryDao.decreaseQuantities(order));
+        if (!insufficientSkuIds.isEmpty()) {
+            return false;
+        }
+        if (paymentFails) {
+            transactionTemplate.executeWithoutResult(status -> inventoryDao.increaseQuantities(order));
+            return false;
+        }
+        return true;
+    }
+
+    private boolean reserveWithLedger(Long skuId, int quantity, boolean paymentFails) {
+        Map<Long, Integer> order = Map.of(skuId, quantity);
+        if (!inventoryLedger.reserve(order).isEmpty()) {
+            return false;
+        }
+        if (paymentFails) {
+            inventoryLedger.release(order);
+            return false;
+        }
+        inventoryLedger.confirm(order);
+        return true;
+    }
+
+    // 台帳の減算を並行してDBに反映しながら注文を処理し、最後に残りを反映する
+    private int runWithFlusher(List<Integer> orders, IntPredicate checkout) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread flusher = new Thread(() -> {
+            while (running.get()) {
+                inventoryLedger.flush();
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        flusher.start();
+        try {
+            return runConcurrently(orders, checkout);
+        } finally {
+            running.set(false);
+            flusher.join();
+            inventoryLedger.flush();
+        }
+    }
+
+    // 注文を並行して処理し、売れた数量の合計を返す
+    private int runConcurrently(List<Integer> orders, IntPredicate checkout) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int order : orders) {
+                Callable<Integer> task = () -> checkout.test(order) ? Math.abs(order) : 0;
+                results.add(executor.submit(task));
+            }
+            int sold = 0;
+            for (Future<Integer> result : results) {
+                sold += result.get();
+            }
+            return sold;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Long createSku() {
+        int n = sequence.incrementAndGet();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO categories (name) VALUES (?)", "台帳テスト" + n);
+        Integer categoryId = jdbcTemplate.queryForObject("SELECT id FROM categories WHERE name = ?", Integer.class, "台帳テスト" + n);
+        jdbcTemplate.update("INSERT INTO products (name, price, description, image_url, category_id, created_at, updated_at) " +
+                "VALUES (?, 1000, '説明', 'url', ?, ?, ?)", "台帳商品" + n, categoryId, now, now);
+        Long productId = jdbcTemplate.queryForObject("SELECT id FROM products WHERE name = ?", Long.class, "台帳商品" + n);
+        jdbcTemplate.update("INSERT INTO skus (product_id, size, color, extra_price, created_at, updated_at) " +
+                "VALUES (?, 'M', 'Black', 0, ?, ?)", productId, now, now);
+        Long skuId = jdbcTemplate.queryForObject("SELECT id FROM skus WHERE product_id = ?", Long.class, productId);
+        jdbcTemplate.update("INSERT INTO inventories (sku_id, quantity, updated_at) VALUES (?, ?, ?)", skuId, INITIAL_STOCK, now);
+        return skuId;
+    }
+
+    private int stockOf(Long skuId) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM inventories WHERE sku_id = ?", Integer.class, skuId);
+    }
+}
@@ -0,0 +1,143 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.Inventory;
+import com.github.Atgsasakazh5.my_ec_site.repository.InventoryDao;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryLedgerTest {
+
+    @Mock
+    private InventoryDao inventoryDao;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private InventoryLedger inventoryLedger;
+
+    @BeforeEach
+    void setUp() {
+        var productDetailCache = new ProductDetailCache(Caffeine.newBuilder().build(), Caffeine.newBuilder().build());
+        inventoryLedger = new InventoryLedger(inventoryDao, productDetailCache, transactionManager, true);
+    }
+
+    @Test
+    @DisplayName("在庫数をDBから一度だけ読み込み、以降は台帳の販売可能数で確保すること")
+    void reserve_shouldLoadStockOnceAndReserveInMemory() {
+        // Arrange
+        when(inventoryDao.findBySkuIdIn(List.of(1L))).thenReturn(List.of(new Inventory(10L, 1L, 5, null)));
+
+        // Act
+        List<Long> first = inventoryLedger.reserve(Map.of(1L, 2));
+        List<Long> second = inventoryLedger.reserve(Map.of(1L, 3));
+        List<Long> third = inventoryLedger.reserve(Map.of(1L, 1));
+
+        // Assert
+        assertThat(first).isEmpty();
+        assertThat(second).isEmpty();
+        assertThat(third).containsExactly(1L);
+        assertThat(inventoryLedger.getAvailableQuantity(1L)).contains(0);
+        verify(inventoryDao, times(1)).findBySkuIdIn(anyList());
+    }
+
+    @Test
+    @DisplayName("カウンターはDBの在庫数から作成し、カートの確保数は差し引かないこと")
+    void getAvailableQuantity_shouldIgnoreCartReservations() {
+        // Arrange: 在庫5のうち3がカートで確保されている
+        when(inventoryDao.findBySkuIdIn(List.of(1L))).thenReturn(List.of(new Inventory(10L, 1L, 5, 3, null)));
+
+        // Act & Assert
+        assertThat(inventoryLedger.getAvailableQuantity(1L)).contains(5);
+        assertThat(inventoryLedger.reserve(Map.of(1L, 5))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("一部のSKUが不足している場合、どのSKUも確保しないこと")
+    void reserve_shouldReserveNothing_whenAnySkuIsInsufficient() {
+        // Arrange
+        when(inventoryDao.findBySkuIdIn(anyList())).thenReturn(List.of(
+                new Inventory(10L, 1L, 5, null),
+                new Inventory(20L, 2L, 1, null)));
+
+        // Act
+        List<Long> insufficientSkuIds = inventoryLedger.reserve(Map.of(1L, 2, 2L, 3, 3L, 1));
+
+        // Assert: 在庫情報のないSKU(3)も不足として返す
+        assertThat(insufficientSkuIds).containsExactly(2L, 3L);
+        assertThat(inventoryLedger.getAvailableQuantity(1L)).contains(5);
+        assertThat(inventoryLedger.getAvailableQuantity(2L)).contains(1);
+        assertThat(inventoryLedger.getAvailableQuantity(3L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("確定した数量だけをまとめてDBから差し引き、解放した数量は反映しないこと")
+    void flush_shouldApplyOnlyConfirmedQuantities() {
+        // Arrange
+        when(inventoryDao.findBySkuIdIn(List.of(1L))).thenReturn(List.of(new Inventory(10L, 1L, 10, null)));
+        inventoryLedger.reserve(Map.of(1L, 2));
+        inventoryLedger.confirm(Map.of(1L, 2));
+        inventoryLedger.reserve(Map.of(1L, 3));
+        inventoryLedger.release(Map.of(1L, 3));
+        inventoryLedger.reserve(Map.of(1L, 1));
+        inventoryLedger.confirm(Map.of(1L, 1));
+
+        // Act
+        inventoryLedger.flush();
+        inventoryLedger.flush();
+
+        // Assert
+        verify(inventoryDao, times(1)).increaseQuantities(Map.of(1L, -3));
+        assertThat(inventoryLedger.getAvailableQuantity(1L)).contains(7);
+    }
+
+    @Test
+    @DisplayName("DBへの反映に失敗した減算は、次回の反映で再度反映すること")
+    void flush_shouldRetryFailedDecrementsOnNextFlush() {
+        // Arrange
+        inventoryLedger.confirm(Map.of(1L, 2));
+        doThrow(new DataAccessResourceFailureException("connection refused"))
+                .doNothing()
+                .when(inventoryDao).increaseQuantities(anyMap());
+
+        // Act
+        inventoryLedger.flush();
+        inventoryLedger.confirm(Map.of(1L, 1));
+        inventoryLedger.flush();
+
+        // Assert
+        verify(inventoryDao, times(1)).increaseQuantities(Map.of(1L, -2));
+        verify(inventoryDao, times(1)).increaseQuantities(Map.of(1L, -3));
+    }
+
+    @Test
+    @DisplayName("台帳が無効な場合はDBに何も反映しないこと")
+    void flush_shouldDoNothing_whenDisabled() {
+        // Arrange
+        var productDetailCache = new ProductDetailCache(Caffeine.newBuilder().build(), Caffeine.newBuilder().build());
+        var disabledLedger = new InventoryLedger(inventoryDao, productDetailCache, transactionManager, false);
+        disabledLedger.confirm(Map.of(1L, 2));
+
+        // Act
+        disabledLedger.flush();
+
+        // Assert
+        assertThat(disabledLedger.isEnabled()).isFalse();
+        verifyNoInteractions(inventoryDao);
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LockRetryTemplateTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private LockRetryTemplate lockRetryTemplate;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lockRetryTemplate = new LockRetryTemplate(meterRegistry, 3, Duration.ofMillis(1), Duration.ofMillis(5));
+    }
+
+    @Test
+    @DisplayName("ロックの競合で失敗した処理を再試行し、成功した結果を返すこと")
+    void execute_shouldRetryAndReturnResult_whenLockFailureIsTransient() {
+        // Arrange
+        var attempts = new AtomicInteger();
+
+        // Act
+        String result = lockRetryTemplate.execute("test", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new PessimisticLockingFailureException("Deadlock found when trying to get lock");
+            }
+            return "ok";
+        });
+
+        // Assert
+        assertThat(result).isEqualTo("ok");
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(meterRegistry.counter("db.lock.retries", "operation", "test").count()).isEqualTo(2);
+        assertThat(meterRegistry.find("db.lock.retry.exhausted").counter()).isNull();
+    }
+
+    @Test
+    @DisplayName("最大回数まで失敗した場合は最後の例外をスローし、再試行の打ち切りを記録すること")
+    void execute_shouldRethrow_whenAttemptsAreExhausted() {
+        // Arrange
+        var attempts = new AtomicInteger();
+
+        // Act & Assert
+        assertThrows(CannotAcquireLockException.class, () -> lockRetryTemplate.run("test", () -> {
+            attempts.incrementAndGet();
+            throw new CannotAcquireLockException("Lock wait timeout exceeded");
+        }));
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(meterRegistry.counter("db.lock.retries", "operation", "test").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("db.lock.retry.exhausted", "operation", "test").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("ロックの競合以外の例外は再試行しないこと")
+    void execute_shouldNotRetry_whenExceptionIsNotLockFailure() {
+        // Arrange
+        var attempts = new AtomicInteger();
+
+        // Act & Assert
+        assertThrows(DataIntegrityViolationException.class, () -> lockRetryTemplate.run("test", () -> {
+            attempts.incrementAndGet();
+            throw new DataIntegrityViolationException("Duplicate entry");
+        }));
+        assertThat(attempts.get()).isEqualTo(1);
+        assertThat(meterRegistry.find("db.lock.retries").counter()).isNull();
+    }
+
+    @Test
+    @DisplayName("最大試行回数に1未満を指定した場合はIllegalArgumentExceptionをスローすること")
+    void constructor_shouldRejectNonPositiveMaxAttempts() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new LockRetryTemplate(meterRegistry, 0, Duration.ZERO, Duration.ZERO));
+    }
+}
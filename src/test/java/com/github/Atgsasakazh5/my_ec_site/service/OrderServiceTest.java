@@ -1,27 +1,40 @@
 package com.github.Atgsasakazh5.my_ec_site.service;
 
 import com.github.Atgsasakazh5.my_ec_site.dto.*;
-import com.github.Atgsasakazh5.my_ec_site.entity.Cart;
-import com.github.Atgsasakazh5.my_ec_site.entity.Inventory;
 import com.github.Atgsasakazh5.my_ec_site.entity.Order;
+import com.github.Atgsasakazh5.my_ec_site.entity.OrderDetail;
 import com.github.Atgsasakazh5.my_ec_site.entity.OrderStatus;
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEventType;
+import com.github.Atgsasakazh5.my_ec_site.exception.PaymentDeclinedException;
+import com.github.Atgsasakazh5.my_ec_site.exception.PaymentPendingException;
 import com.github.Atgsasakazh5.my_ec_site.exception.ResourceNotFoundException;
 import com.github.Atgsasakazh5.my_ec_site.repository.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,15 +46,9 @@ class OrderServiceTest {
     @Mock
     private OrderDao orderDao;
 
-    @Mock
-    private UserService userService;
-
     @Mock
     private PaymentService paymentService;
 
-    @Mock
-    private CartDao cartDao;
-
     @Mock
     private CartItemDao cartItemDao;
 
@@ -51,14 +58,45 @@ class OrderServiceTest {
     @Mock
     private OrderDetailDao orderDetailDao;
 
+    @Mock
+    private ProductDetailCache productDetailCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private InventoryLedger inventoryLedger;
+
+    @Mock
+    private StockReservationService stockReservationService;
+
+    @Mock
+    private OutboxEventPublisher outboxEventPublisher;
+
+    @Mock
+    private CartWriteBehind cartWriteBehind;
+
+    @Spy
+    private LockRetryTemplate lockRetryTemplate = new LockRetryTemplate(new SimpleMeterRegistry(), 3, Duration.ZERO, Duration.ZERO);
+
+    @BeforeEach
+    void setUp() {
+        // 注文明細の保存ではDBと同じく、渡した順にIDを採番して返す
+        lenient().when(orderDetailDao.save(anyList())).thenAnswer(invocation -> {
+            List<OrderDetail> details = invocation.getArgument(0);
+            for (int i = 0; i < details.size(); i++) {
+                details.get(i).setId(900L + i);
+            }
+            return details;
+        });
+    }
+
     @Test
     @DisplayName("User情報の一致するorderIdを渡された時、orderDetailsDtoの取得に成功すること-正常系")
     void getOrderDetails_Success() {
         // Arrange
-        String email = "test@email.com";
+        Long userId = 1L;
         Long orderId = 1L;
-
-        when(userService.findByEmail(email)).thenReturn(new UserDto(1L, email, "Test User", Set.of("3", "ROLE_TEST")));
         when(orderDao.findOrderById(orderId)).thenReturn(Optional.of(
                 new Order(
                         orderId,
@@ -82,7 +120,7 @@ class OrderServiceTest {
                         2)));
 
         // Act
-        var resultList = orderService.getOrderDetails(email, orderId);
+        var resultList = orderService.getOrderDetails(userId, orderId);
 
         // Assert
         assertThat(resultList).isNotNull();
@@ -100,13 +138,10 @@ class OrderServiceTest {
     @DisplayName("他人の注文IDを指定した場合にSecurityExceptionをスローすること")
     void getOrderDetails_shouldThrowSecurityException_whenOrderBelongsToOtherUser() {
         // Arrange
-        String email = "test@example.com";
         Long orderId = 1L;
         Long myUserId = 10L;
         Long otherUserId = 20L;
 
-        when(userService.findByEmail(email)).thenReturn(new UserDto(myUserId, "me", email, Set.of("3","ROLE_TEST")));
-
         when(orderDao.findOrderById(orderId)).thenReturn(Optional.of(
                 new Order(
                         orderId,
@@ -121,7 +156,7 @@ class OrderServiceTest {
 
         // Act & Assert
         assertThrows(SecurityException.class, () -> {
-            orderService.getOrderDetails(email, orderId);
+            orderService.getOrderDetails(myUserId, orderId);
         });
     }
 
@@ -129,15 +164,13 @@ class OrderServiceTest {
     @DisplayName("存在しない注文IDを指定した場合にResourceNotFoundExceptionをスローすること")
     void getOrderDetails_shouldThrowResourceNotFoundException_whenOrderDoesNotExist() {
         // Arrange
-        String email = "test@email.com";
+        Long userId = 1L;
         Long orderId = 999L;
-
-        when(userService.findByEmail(email)).thenReturn(new UserDto(1L, email, "Test User", Set.of("3", "ROLE_TEST")));
         when(orderDao.findOrderById(orderId)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(ResourceNotFoundException.class, () -> {
-            orderService.getOrderDetails(email, orderId);
+            orderService.getOrderDetails(userId, orderId);
         });
     }
 
@@ -145,50 +178,369 @@ class OrderServiceTest {
     @DisplayName("注文の発行が成功すること-正常系")
     void placeOrder_shouldSucceed() {
         // Arrange
-        String email = "test@example.com";
         Long userId = 1L;
         Long cartId = 10L;
         Long skuId = 101L;
         var request = new CreateOrderRequestDto("Tokyo", "100-0001", "Test User", "pm_test");
 
-        when(cartDao.findCartByEmail(email)).thenReturn(Optional.of(new Cart(cartId, userId)));
 
         var cartItems = List.of(new CartItemDto(201L, "T-Shirt", null, skuId, "M", "Red", 1500, 2, 10));
         when(cartItemDao.findDetailedItemsByCartId(cartId)).thenReturn(cartItems);
 
-        var lockedInventories = List.of(new Inventory(301L, skuId, 10, null));
-        when(inventoryDao.findBySkuIdsWithLock(List.of(skuId))).thenReturn(lockedInventories);
+        when(inventoryDao.decreaseQuantities(Map.of(skuId, 2))).thenReturn(List.of());
 
         var savedOrder = new Order(501L, userId, OrderStatus.PAID, 3000, "Tokyo", "100-0001", "Test User", LocalDateTime.now());
         when(orderDao.saveOrder(any(Order.class))).thenReturn(savedOrder);
 
-        // getOrderDetailsのモック
-        when(orderDao.findOrderById(savedOrder.getId())).thenReturn(Optional.of(savedOrder));
-        when(userService.findByEmail(email)).thenReturn(new UserDto(userId, "Test User", email, Set.of("3", "ROLE_TEST")));
-        when(orderDetailDao.findByOrderId(savedOrder.getId())).thenReturn(List.of());
-
         // 2. Act
-        orderService.placeOrder(email, request);
+        var result = orderService.placeOrder(userId, cartId, request);
 
         // Assert
         verify(paymentService, times(1)).processPayment(any(PaymentRequestDto.class));
-        verify(inventoryDao, times(1)).updateAll(anyList());
+        verify(inventoryDao, times(1)).decreaseQuantities(Map.of(skuId, 2));
+        // 在庫は条件付きの減算で引き当て、行ロックの取得や読み込んだ値での上書きはしない
+        verify(inventoryDao, never()).findBySkuIdsWithLock(anyList());
+        verify(inventoryDao, never()).updateAll(anyList());
         verify(orderDetailDao, times(1)).save(anyList());
         verify(cartItemDao, times(1)).deleteByCartId(cartId);
+        // カートストアの未反映の変更を反映してからカートを読み込み、注文確定後にストアから削除すること
+        var cartStoreOrder = inOrder(cartWriteBehind, cartItemDao);
+        cartStoreOrder.verify(cartWriteBehind).flush(cartId);
+        cartStoreOrder.verify(cartItemDao).findDetailedItemsByCartId(cartId);
+        verify(cartWriteBehind).save(cartId, List.of());
+        verify(productDetailCache, times(1)).evictStock(Set.of(skuId));
+        // 作成直後の注文・注文明細は再取得せず、カートの内容と採番されたIDからレスポンスを組み立てる
+        verify(orderDao, never()).findOrderById(anyLong());
+        verify(orderDetailDao, never()).findByOrderId(anyLong());
+        assertThat(result).containsExactly(
+                new OrderDetailDto(900L, 501L, skuId, "T-Shirt", "M", "Red", null, 1500, 2));
+        // 後続処理は注文確定のイベントとして書き込むだけで、リクエスト中には実行しない
+        verify(outboxEventPublisher, times(1)).publish(eq(OutboxEventType.ORDER_PLACED), eq(501L),
+                eq(new OrderPlacedEventDto(501L, userId, 3000, savedOrder.getOrderedAt(), result)));
+    }
+
+    @Test
+    @DisplayName("決済の間にカートへ追加された商品の在庫の確保も、カートを空にするトランザクションで解放すること-正常系")
+    void placeOrder_shouldReleaseReservationsAddedDuringPayment_whenCartIsCleared() {
+        // Arrange
+        Long userId = 1L;
+        Long cartId = 10L;
+        Long skuId = 101L;
+        var request = new CreateOrderRequestDto("Tokyo", "100-0001", "Test User", "pm_test");
+
+        var cartItems = List.of(new CartItemDto(201L, "T-Shirt", null, skuId, "M", "Red", 1500, 2, 10));
+        when(cartItemDao.findDetailedItemsByCartId(cartId)).thenReturn(cartItems);
+        when(inventoryDao.decreaseQuantities(Map.of(skuId, 2))).thenReturn(List.of());
+        var savedOrder = new Order(501L, userId, OrderStatus.PENDING, 3000, "Tokyo", "100-0001", "Test User", LocalDateTime.now());
+        when(orderDao.saveOrder(any(Order.class))).thenReturn(savedOrder);
+
+        // Act
+        orderService.placeOrder(userId, cartId, request);
+
+        // Assert: 在庫の確保時と、決済後にカートを空にする際の2回解放する
+        InOrder inOrder = inOrder(stockReservationService, paymentService, cartItemDao);
+        inOrder.verify(stockReservationService).releaseAll(cartId);
+        inOrder.verify(paymentService).processPayment(any(PaymentRequestDto.class));
+        inOrder.verify(stockReservationService).releaseAll(cartId);
+        inOrder.verify(cartItemDao).deleteByCartId(cartId);
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    @DisplayName("在庫を確保するトランザクションをコミットしてから決済を呼び出すこと-正常系")
+    void placeOrder_shouldCallPaymentAfterReservationIsCommitted() {
+        // Arrange
+        Long userId = 1L;
+        Long cartId = 10L;
+        Long skuId = 101L;
+        var request = new CreateOrderRequestDto("Tokyo", "100-0001", "Test User", "pm_test");
+
+        var cartItems = List.of(new CartItemDto(201L, "T-Shirt", null, skuId, "M", "Red", 1500, 2, 10));
+        when(cartItemDao.findDetailedItemsByCartId(cartId)).thenReturn(cartItems);
+        when(inventoryDao.decreaseQuantities(Map.of(skuId, 2))).thenReturn(List.of());
+        var savedOrder = new Order(501L, userId, OrderStatus.PENDING, 3000, "Tokyo", "100-0001", "Test User", LocalDateTime.now());
+        when(orderDao.saveOrder(any(Order.class))).thenReturn(savedOrder);
+
+        // Act
+        orderService.placeOrder(userId, cartId, request);
+
+        // Assert: カートでの確保の解放 → 在庫の引当 → コミット → 決済 → カートの削除・イベントの書き込み → コミット の順で実行される
+        InOrder inOrder = inOrder(stockReservationService, inventoryDao, transactionManager, paymentService, cartItemDao,
+                outboxEventPublisher);
+        inOrder.verify(stockReservationService).releaseAll(cartId);
+        inOrder.verify(inventoryDao).decreaseQuantities(Map.of(skuId, 2));
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(paymentService).processPayment(any(PaymentRequestDto.class));
+        inOrder.verify(cartItemDao).deleteByCartId(cartId);
+        inOrder.verify(outboxEventPublisher).publish(eq(OutboxEventType.ORDER_PLACED), eq(501L), any());
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    @DisplayName("決済に失敗した場合、確保した在庫を戻して注文をキャンセル済みにすること-異常系")
+    void placeOrder_shouldReleaseInventoryAndCancelOrder_whenPaymentFails() {
+        // Arrange
+        Long userId = 1L;
+        Long cartId = 10L;
+        Long skuId = 101L;
+        var request = new CreateOrderRequestDto("Tokyo", "100-0001", "Test User", "pm_card_declined");
+
+        var cartItems = List.of(new CartItemDto(201L, "T-Shirt", null, skuId, "M", "Red", 1500, 2, 10));
+        when(cartItemDao.findDetailedItemsByCartId(cartId)).thenReturn(cartItems);
+        when(inventoryDao.decreaseQuantities(Map.of(skuId, 2))).thenReturn(List.of());
+        var savedOrder = new Order(501L, userId, OrderStatus.PENDING, 3000, "Tokyo", "100-0001", "Test User", LocalDateTime.now());
+        when(orderDao.saveOrder(any(Order.class))).thenReturn(savedOrder);
+        doThrow(new PaymentDeclinedException("決済エラー: card declined"))
+                .when(paymentService).processPayment(any(PaymentRequestDto.class));
+
+        // Act
+        var exception = assertThrows(IllegalStateException.class,
+                () -> orderService.placeOrder(userId, cartId, request));
+
+        // Assert
+        assertThat(exception.getMessage()).contains("決済エラー");
+        verify(inventoryDao, times(1)).increaseQuantities(Map.of(skuId, 2));
+        verify(orderDao, times(1)).updateOrder(argThat(order -> order.getStatus() == OrderStatus.CANCELED));
+        // 在庫の引当時と解放時のそれぞれで在庫数のキャッシュを破棄する
+        verify(productDetailCache, times(2)).evictStock(Set.of(skuId));
+        // カートは残したままにし、注文確定のイベントも書き込まない
+        verify(cartItemDao, never()).deleteByCartId(anyLong());
+        verify(outboxEventPublisher, never()).publish(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("決済の結果がわからない場合、在庫を戻さずに注文を決済確認中にすること-異常系")
+    void placeOrder_shouldKeepInventoryAndMarkOrderForReview_whenPaymentOutcomeIsUnknown() {
+        // Arrange
+        Long userId = 1L;
+        Long cartId = 10L;
+        Long skuId = 101L;
+        var request = new CreateOrderRequestDto("Tokyo", "100-0001", "Test User", "pm_test");
+
+        var cartItems = List.of(new CartItemDto(201L, "T-Shirt", null, skuId, "M", "Red", 1500, 2, 10));
+        when(cartItemDao.findDetailedItemsByCartId(cartId)).thenReturn(cartItems);
+        when(inventoryDao.decreaseQuantities(Map.of(skuId, 2))).thenReturn(List.of());
+        var savedOrder = new Order(501L, userId, OrderStatus.PENDING, 3000, "Tokyo", "100-0001", "Test User", LocalDateTime.now());
+        when(orderDao.saveOrder(any(Order.class))).thenReturn(savedOrder);
+        doThrow(new RuntimeException("Read timed out"))
+                .when(paymentService).processPayment(any(PaymentRequestDto.class));
+
+        // Act
+        assertThrows(PaymentPendingException.class, () -> orderService.placeOrder(userId, cartId, request));
+
+        // Assert: 請求された可能性があるため、在庫は確保したままにする
+        verify(inventoryDao, never()).increaseQuantities(anyMap());
+        verify(orderDao, times(1)).updateOrder(argThat(order -> order.getStatus() == OrderStatus.PAYMENT_REVIEW));
+        verify(orderDao, never()).updateOrder(argThat(order -> order.getStatus() == OrderStatus.CANCELED));
+        verify(cartItemDao, never()).deleteByCartId(anyLong());
+        verify(outboxEventPublisher, never()).publish(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("在庫の確保がデッドロックで失敗した場合、トランザクションをやり直して注文できること-正常系")
+    void placeOrder_shouldRetryReservation_whenDeadlockOccurs() {
+        // Arrange
+        Long userId = 1L;
+        Long cartId = 10L;
+        Long skuId = 101L;
+        var request = new CreateOrderRequestDto("Tokyo", "100-0001", "Test User", "pm_test");
+
+        var cartItems = List.of(new CartItemDto(201L, "T-Shirt", null, skuId, "M", "Red", 1500, 2, 10));
+        when(cartItemDao.findDetailedItemsByCartId(cartId)).thenReturn(cartItems);
+        when(inventoryDao.decreaseQuantities(Map.of(skuId, 2)))
+                .thenThrow(new CannotAcquireLockException("Deadlock found when trying to get lock"))
+                .thenReturn(List.of());
+        var savedOrder = new Order(501L, userId, OrderStatus.PENDING, 3000, "Tokyo", "100-0001", "Test User", LocalDateTime.now());
+        when(orderDao.saveOrder(any(Order.class))).thenReturn(savedOrder);
+
+        // Act
+        orderService.placeOrder(userId, cartId, request);
+
+        // Assert: 失敗したトランザクションはロールバックされ、2回目で注文が作成される
+        verify(inventoryDao, times(2)).decreaseQuantities(Map.of(skuId, 2));
+        verify(transactionManager, times(1)).rollback(any());
+        verify(orderDao, times(1)).saveOrder(any(Order.class));
+        verify(paymentService, times(1)).processPayment(any(PaymentRequestDto.class));
+    }
+
+    @Test
+    @DisplayName("在庫の確保が再試行の上限までロックの競合で失敗した場合、決済せずに例外をスローすること-異常系")
+    void placeOrder_shouldGiveUp_whenLockContentionPersists() {
+        // Arrange
+        Long userId = 1L;
+        Long cartId = 10L;
+        Long skuId = 101L;
+        var request = new CreateOrderRequestDto("Tokyo", "100-0001", "Test User", "pm_test");
+
+        var cartItems = List.of(new CartItemDto(201L, "T-Shirt", null, skuId, "M", "Red", 1500, 2, 10));
+        when(cartItemDao.findDetailedItemsByCartId(cartId)).thenReturn(cartItems);
+        when(inventoryDao.decreaseQuantities(Map.of(skuId, 2)))
+                .thenThrow(new CannotAcquireLockException("Lock wait timeout exceeded"));
+
+        // Act & Assert
+        assertThrows(CannotAcquireLockException.class, () -> orderService.placeOrder(userId, cartId, request));
+        verify(inventoryDao, times(3)).decreaseQuantities(Map.of(skuId, 2));
+        verify(paymentService, never()).processPayment(any(PaymentRequestDto.class));
+    }
+
+    @Test
+    @DisplayName("在庫台帳が有効な場合、台帳で在庫を確保し決済の成功後に確定すること-正常系")
+    void placeOrder_shouldReserveAndConfirmWithLedger_whenLedgerIsEnabled() {
+        // Arrange
+        Long userId = 1L;
+        Long cartId = 10L;
+        Long skuId = 101L;
+        var request = new CreateOrderRequestDto("Tokyo", "100-0001", "Test User", "pm_test");
+
+        var cartItems = List.of(new CartItemDto(201L, "T-Shirt", null, skuId, "M", "Red", 1500, 2, 10));
+        when(cartItemDao.findDetailedItemsByCartId(cartId)).thenReturn(cartItems);
+        when(inventoryLedger.isEnabled()).thenReturn(true);
+        when(inventoryLedger.reserve(Map.of(skuId, 2))).thenReturn(List.of());
+        var savedOrder = new Order(501L, userId, OrderStatus.PENDING, 3000, "Tokyo", "100-0001", "Test User", LocalDateTime.now());
+        when(orderDao.saveOrder(any(Order.class))).thenReturn(savedOrder);
+
+        // Act
+        orderService.placeOrder(userId, cartId, request);
+
+        // Assert: カートの確保は解放し、DBの在庫は直接更新しない
+        InOrder inOrder = inOrder(stockReservationService, inventoryLedger, paymentService);
+        inOrder.verify(stockReservationService).releaseAll(cartId);
+        inOrder.verify(inventoryLedger).reserve(Map.of(skuId, 2));
+        inOrder.verify(paymentService).processPayment(any(PaymentRequestDto.class));
+        inOrder.verify(inventoryLedger).confirm(Map.of(skuId, 2));
+        verify(inventoryDao, never()).decreaseQuantities(anyMap());
+    }
+
+    @Test
+    @DisplayName("在庫台帳が有効な場合に決済の結果がわからないときは、照合まで在庫を確保し続けるよう台帳の確保を確定すること-異常系")
+    void placeOrder_shouldConfirmLedgerReservation_whenPaymentOutcomeIsUnknown() {
+        // Arrange
+        Long userId = 1L;
+        Long cartId = 10L;
+        Long skuId = 101L;
+        var request = new CreateOrderRequestDto("Tokyo", "100-0001", "Test User", "pm_test");
+
+        var cartItems = List.of(new CartItemDto(201L, "T-Shirt", null, skuId, "M", "Red", 1500, 2, 10));
+        when(cartItemDao.findDetailedItemsByCartId(cartId)).thenReturn(cartItems);
+        when(inventoryLedger.isEnabled()).thenReturn(true);
+        when(inventoryLedger.reserve(Map.of(skuId, 2))).thenReturn(List.of());
+        var savedOrder = new Order(501L, userId, OrderStatus.PENDING, 3000, "Tokyo", "100-0001", "Test User", LocalDateTime.now());
+        when(orderDao.saveOrder(any(Order.class))).thenReturn(savedOrder);
+        doThrow(new RuntimeException("Read timed out"))
+                .when(paymentService).processPayment(any(PaymentRequestDto.class));
+
+        // Act
+        assertThrows(PaymentPendingException.class, () -> orderService.placeOrder(userId, cartId, request));
+
+        // Assert: 確定した減算はDBに反映され、照合でキャンセルされるまで在庫を戻さない
+        verify(inventoryLedger, times(1)).confirm(Map.of(skuId, 2));
+        verify(inventoryLedger, never()).release(anyMap());
+        verify(orderDao, times(1)).updateOrder(argThat(order -> order.getStatus() == OrderStatus.PAYMENT_REVIEW));
+    }
+
+    @Test
+    @DisplayName("照合で請求済みと確認できた注文を支払い済みにし、注文確定のイベントを書き込むこと-正常系")
+    void settlePaidOrder_shouldMarkOrderPaidAndPublishEvent() {
+        // Arrange
+        var order = new Order(501L, 1L, OrderStatus.PAYMENT_REVIEW, 3000, "Tokyo", "100-0001", "Test User", LocalDateTime.now());
+        var orderDetails = List.of(new OrderDetailDto(900L, 501L, 101L, "T-Shirt", "M", "Red", null, 1500, 2));
+        when(orderDao.findOrderById(501L)).thenReturn(Optional.of(order));
+        when(orderDao.updateStatusIfIn(501L, List.of(OrderStatus.PENDING, OrderStatus.PAYMENT_REVIEW), OrderStatus.PAID))
+                .thenReturn(true);
+        when(orderDetailDao.findByOrderId(501L)).thenReturn(orderDetails);
+
+        // Act
+        boolean settled = orderService.settlePaidOrder(501L);
+
+        // Assert: 在庫は注文時に確保済みのため戻さない。カートは注文後に変更されている可能性があるため空にしない
+        assertTrue(settled);
+        verify(outboxEventPublisher, times(1)).publish(eq(OutboxEventType.ORDER_PLACED), eq(501L),
+                eq(new OrderPlacedEventDto(501L, 1L, 3000, order.getOrderedAt(), orderDetails)));
+        verify(inventoryDao, never()).increaseQuantities(anyMap());
+        verify(cartItemDao, never()).deleteByCartId(anyLong());
+    }
+
+    @Test
+    @DisplayName("照合の前に結果が確定していた注文は、支払い済みにせずイベントも書き込まないこと")
+    void settlePaidOrder_shouldDoNothing_whenOrderIsAlreadySettled() {
+        // Arrange
+        var order = new Order(501L, 1L, OrderStatus.CANCELED, 3000, "Tokyo", "100-0001", "Test User", LocalDateTime.now());
+        when(orderDao.findOrderById(501L)).thenReturn(Optional.of(order));
+        when(orderDao.updateStatusIfIn(eq(501L), anyList(), eq(OrderStatus.PAID))).thenReturn(false);
+
+        // Act
+        boolean settled = orderService.settlePaidOrder(501L);
+
+        // Assert
+        assertFalse(settled);
+        verify(outboxEventPublisher, never()).publish(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("照合で請求されていないと確認できた注文をキャンセル済みにし、確保した在庫を戻すこと-正常系")
+    void settleFailedOrder_shouldCancelOrderAndReleaseInventory() {
+        // Arrange
+        when(orderDao.updateStatusIfIn(501L, List.of(OrderStatus.PENDING, OrderStatus.PAYMENT_REVIEW), OrderStatus.CANCELED))
+                .thenReturn(true);
+        when(orderDetailDao.findByOrderId(501L)).thenReturn(List.of(
+                new OrderDetailDto(900L, 501L, 101L, "T-Shirt", "M", "Red", null, 1500, 2),
+                new OrderDetailDto(901L, 501L, 102L, "T-Shirt", "L", "Red", null, 1500, 1)));
+
+        // Act
+        boolean settled = orderService.settleFailedOrder(501L);
+
+        // Assert
+        assertTrue(settled);
+        verify(inventoryDao, times(1)).increaseQuantities(Map.of(101L, 2, 102L, 1));
+        verify(productDetailCache, times(1)).evictStock(Set.of(101L, 102L));
+    }
+
+    @Test
+    @DisplayName("在庫台帳が有効な場合、照合でキャンセルした注文の在庫をDBと台帳の両方に戻すこと-正常系")
+    void settleFailedOrder_shouldReleaseInventoryAndLedger_whenLedgerIsEnabled() {
+        // Arrange
+        when(inventoryLedger.isEnabled()).thenReturn(true);
+        when(orderDao.updateStatusIfIn(501L, List.of(OrderStatus.PENDING, OrderStatus.PAYMENT_REVIEW), OrderStatus.CANCELED))
+                .thenReturn(true);
+        when(orderDetailDao.findByOrderId(501L)).thenReturn(List.of(
+                new OrderDetailDto(900L, 501L, 101L, "T-Shirt", "M", "Red", null, 1500, 2)));
+
+        // Act
+        boolean settled = orderService.settleFailedOrder(501L);
+
+        // Assert: 決済の結果がわからなくなった時点で確定した減算を戻す
+        assertTrue(settled);
+        verify(inventoryDao, times(1)).increaseQuantities(Map.of(101L, 2));
+        verify(inventoryLedger, times(1)).release(Map.of(101L, 2));
+    }
+
+    @Test
+    @DisplayName("照合の前に結果が確定していた注文は、在庫を戻さないこと")
+    void settleFailedOrder_shouldNotReleaseInventory_whenOrderIsAlreadySettled() {
+        // Arrange
+        when(orderDao.updateStatusIfIn(eq(501L), anyList(), eq(OrderStatus.CANCELED))).thenReturn(false);
+
+        // Act
+        boolean settled = orderService.settleFailedOrder(501L);
+
+        // Assert
+        assertFalse(settled);
+        verify(inventoryDao, never()).increaseQuantities(anyMap());
+        verify(orderDetailDao, never()).findByOrderId(anyLong());
     }
 
     @Test
     @DisplayName("カートが空の場合にIllegalStateExceptionをスローすること")
     void placeOrder_shouldThrowIllegalStateException_whenCartIsEmpty() {
         // Arrange
-        String email = "test@email.com";
+        Long userId = 1L;
+        Long cartId = 10L;
 
-        when(cartDao.findCartByEmail(email)).thenReturn(Optional.of(new Cart(10L, 1L)));
-        when(cartItemDao.findDetailedItemsByCartId(10L)).thenReturn(List.of());
+        when(cartItemDao.findDetailedItemsByCartId(cartId)).thenReturn(List.of());
 
         // Act & Assert
         assertThrows(IllegalStateException.class, () -> {
-            orderService.placeOrder(email, new CreateOrderRequestDto("Tokyo", "100-0001", "Test User", "credit_card"));
+            orderService.placeOrder(userId, cartId, new CreateOrderRequestDto("Tokyo", "100-0001", "Test User", "credit_card"));
         });
     }
 
@@ -196,24 +548,24 @@ class OrderServiceTest {
     @DisplayName("在庫が不足している場合にIllegalStateExceptionをスローすること")
     void placeOrder_shouldThrowIllegalStateException_whenInventoryIsInsufficient() {
         // Arrange
-        String email = "test@email.com";
         Long userId = 1071L;
         Long cartId = 10L;
         Long skuId = 101L;
 
         var request = new CreateOrderRequestDto("Tokyo", "100-0001", "Test User", "credit_card");
 
-        when(cartDao.findCartByEmail(email)).thenReturn(Optional.of(new Cart(cartId, userId)));
         var cartItems = List.of(new CartItemDto(201L, "T-Shirt", null, skuId, "M", "Red", 1500, 2, 10));
         when(cartItemDao.findDetailedItemsByCartId(cartId)).thenReturn(cartItems);
-        var lockedInventories = List.of(new Inventory(301L, skuId, 1, null));
-        when(inventoryDao.findBySkuIdsWithLock(List.of(skuId))).thenReturn(lockedInventories);
+        // 条件付きの減算で在庫が足りなかったSKUとして返される
+        when(inventoryDao.decreaseQuantities(Map.of(skuId, 2))).thenReturn(List.of(skuId));
 
         // Act & Assert
-        assertThrows(IllegalStateException.class, () -> {
-            orderService.placeOrder(email, request);
+        var exception = assertThrows(IllegalStateException.class, () -> {
+            orderService.placeOrder(userId, cartId, request);
         });
-        verify(inventoryDao, never()).updateAll(anyList());
+        assertThat(exception.getMessage()).contains("SKU ID " + skuId);
+        verify(orderDao, never()).saveOrder(any(Order.class));
+        verify(paymentService, never()).processPayment(any(PaymentRequestDto.class));
 
     }
 
@@ -221,9 +573,7 @@ class OrderServiceTest {
     @DisplayName("自分のorder一覧を取得できること-正常系")
     void getOrderSummaries_shouldReturnOrderSummaries_whenUserHasOrders() {
         // Arrange
-        String email = "test@email.com";
         Long userId = 1L;
-        when(userService.findByEmail(email)).thenReturn(new UserDto(userId, "Test User", email, Set.of("3", "ROLE_TEST")));
 
         var now = LocalDateTime.now();
         var expectedSummaries = List.of(
@@ -233,7 +583,7 @@ class OrderServiceTest {
         when(orderDao.findOrderSummariesByUserId(userId)).thenReturn(expectedSummaries);
 
         // Act
-        List<OrderSummaryDto> actualSummaries = orderService.getOrderSummaries(email);
+        List<OrderSummaryDto> actualSummaries = orderService.getOrderSummaries(userId);
 
         // Assert
         assertThat(actualSummaries).isNotEmpty();
@@ -241,15 +591,56 @@ class OrderServiceTest {
         assertThat(actualSummaries).isEqualTo(expectedSummaries);
     }
 
+    @Test
+    @DisplayName("注文履歴をカーソル方式で取得し、続きがある場合は最後の注文の日時・IDから次のカーソルを返すこと-正常系")
+    void getOrderSummariesByCursor_shouldReturnPageAndNextCursor() {
+        // Arrange: 1件多く取得できた場合は続きがある
+        Long userId = 1L;
+        var orderedAt = LocalDateTime.of(2025, 8, 17, 12, 0);
+        var orders = new ArrayList<OrderSummaryDto>();
+        for (long id = 21; id >= 1; id--) {
+            orders.add(new OrderSummaryDto(id, orderedAt, 1000, OrderStatus.PAID));
+        }
+        when(orderDao.findOrderSummariesByCursor(userId, OrderStatus.PAID,
+                LocalDateTime.of(2025, 8, 1, 0, 0), LocalDateTime.of(2025, 9, 1, 0, 0), null, null, 21))
+                .thenReturn(orders);
+
+        // Act
+        var firstPage = orderService.getOrderSummariesByCursor(userId, OrderStatus.PAID,
+                LocalDate.of(2025, 8, 1), LocalDate.of(2025, 8, 31), null, 20);
+
+        // Assert
+        assertThat(firstPage.content()).hasSize(20);
+        assertThat(firstPage.nextCursor()).isNotNull();
+
+        // 次のカーソルを指定すると、最後の注文の日時・IDより後ろから取得する
+        when(orderDao.findOrderSummariesByCursor(userId, null, null, null, orderedAt, 2L, 21)).thenReturn(List.of(orders.get(20)));
+        var secondPage = orderService.getOrderSummariesByCursor(userId, null, null, null, firstPage.nextCursor(), 20);
+        assertThat(secondPage.content()).extracting(OrderSummaryDto::orderId).containsExactly(1L);
+        assertThat(secondPage.nextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("期間の開始日が終了日より後の場合、IllegalArgumentExceptionをスローすること-異常系")
+    void getOrderSummariesByCursor_shouldThrowIllegalArgumentException_whenPeriodIsReversed() {
+        assertThrows(IllegalArgumentException.class, () -> orderService.getOrderSummariesByCursor(1L, null,
+                LocalDate.of(2025, 9, 1), LocalDate.of(2025, 8, 1), null, 20));
+        verify(orderDao, never()).findOrderSummariesByCursor(any(), any(), any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("不正なカーソルを指定した場合、IllegalArgumentExceptionをスローすること-異常系")
+    void getOrderSummariesByCursor_shouldThrowIllegalArgumentException_whenCursorIsInvalid() {
+        assertThrows(IllegalArgumentException.class,
+                () -> orderService.getOrderSummariesByCursor(1L, null, null, null, "invalid!", 20));
+    }
+
     @Test
     @DisplayName("自分の注文詳細を正しく取得できること")
     void getOrderDetail_shouldSucceed_whenOrderBelongsToUser() {
         // Arrange
-        String email = "test@example.com";
         Long userId = 1L;
         Long orderId = 101L;
-
-        when(userService.findByEmail(email)).thenReturn(new UserDto(userId, "Test User", email, Set.of("3", "ROLE_TEST")));
         when(orderDao.findOrderById(orderId)).thenReturn(Optional.of(new Order(
                 orderId,
                 userId,
@@ -265,7 +656,7 @@ class OrderServiceTest {
         ));
 
         // Act
-        OrderDetailResponseDto result = orderService.getOrderDetail(email, orderId);
+        OrderDetailResponseDto result = orderService.getOrderDetail(userId, orderId);
 
         // Assert
         assertThat(result).isNotNull();
@@ -276,15 +667,13 @@ class OrderServiceTest {
     @DisplayName("存在しない注文IDで検索すると例外をスローすること")
     void getOrderDetail_shouldThrowException_whenOrderNotFound() {
         // Arrange
-        String email = "test@example.com";
+        Long userId = 1L;
         Long orderId = 999L;
-
-        when(userService.findByEmail(email)).thenReturn(new UserDto(1L, "Test User", email, Set.of("3", "ROLE_TEST")));
         when(orderDao.findOrderById(orderId)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(ResourceNotFoundException.class, () -> {
-            orderService.getOrderDetail(email, orderId);
+            orderService.getOrderDetail(userId, orderId);
         });
     }
 
@@ -292,13 +681,10 @@ class OrderServiceTest {
     @DisplayName("他人の注文IDで検索すると例外をスローすること")
     void getOrderDetail_shouldThrowException_whenOrderDoesNotBelongToUser() {
         // Arrange
-        String email = "test@example.com";
         Long myUserId = 1L;
         Long otherUserId = 2L; // 他人のユーザーID
         Long orderId = 101L;
 
-        when(userService.findByEmail(email)).thenReturn(new UserDto(myUserId, "Test User", email, Set.of("3", "ROLE_TEST")));
-
         when(orderDao.findOrderById(orderId)).thenReturn(Optional.of(new Order(
                 orderId,
                 otherUserId,
@@ -312,7 +698,17 @@ class OrderServiceTest {
 
         // Act & Assert
         assertThrows(SecurityException.class, () -> {
-            orderService.getOrderDetail(email, orderId);
+            orderService.getOrderDetail(myUserId, orderId);
+        });
+    }
+
+    @Test
+    @DisplayName("カートを持たないユーザーが注文するとResourceNotFoundExceptionをスローすること")
+    void placeOrder_shouldThrowResourceNotFoundException_whenCartIdIsNull() {
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> {
+            orderService.placeOrder(1L, null, new CreateOrderRequestDto("Tokyo", "100-0001", "Test User", "credit_card"));
         });
+        verifyNoInteractions(cartItemDao, orderDao);
     }
-}
\ No newline at end of file
+}
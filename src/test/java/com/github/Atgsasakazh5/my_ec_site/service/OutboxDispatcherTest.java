@@ -0,0 +1,208 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEvent;
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEventStatus;
+import com.github.Atgsasakazh5.my_ec_site.entity.OutboxEventType;
+import com.github.Atgsasakazh5.my_ec_site.repository.OutboxEventDao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxDispatcherTest {
+
+    private static final int BATCH_SIZE = 3;
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final Duration INITIAL_BACKOFF = Duration.ofSeconds(1);
+
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(3);
+
+    @Mock
+    private OutboxEventDao outboxEventDao;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // 処理したイベントIDを記録し、指定したIDのイベントでは失敗するハンドラー
+    private final List<Long> handledIds = Collections.synchronizedList(new ArrayList<>());
+
+    private final List<Long> failingIds = new ArrayList<>();
+
+    private OutboxDispatcher outboxDispatcher;
+
+    @BeforeEach
+    void setUp() {
+        OutboxEventHandler handler = new OutboxEventHandler() {
+            @Override
+            public OutboxEventType eventType() {
+                return OutboxEventType.ORDER_PLACED;
+            }
+
+            @Override
+            public void handle(OutboxEvent event) {
+                handledIds.add(event.getId());
+                if (failingIds.contains(event.getId())) {
+                    throw new IllegalStateException("メールサーバーに接続できません");
+                }
+            }
+        };
+        outboxDispatcher = newDispatcher(List.of(handler), 2);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        outboxDispatcher.shutdown();
+    }
+
+    @Test
+    @DisplayName("取得したイベントをハンドラーで処理し、まとめて配信済みにして遅延を記録すること")
+    void dispatch_shouldHandleEventsAndMarkProcessed() {
+        // Arrange
+        when(outboxEventDao.claimDispatchable(any(), any(), eq(BATCH_SIZE)))
+                .thenReturn(List.of(event(1L, 0), event(2L, 0)));
+
+        // Act
+        int dispatched = outboxDispatcher.dispatch();
+
+        // Assert
+        assertEquals(2, dispatched);
+        assertThat(handledIds).containsExactlyInAnyOrder(1L, 2L);
+        verify(outboxEventDao, times(1)).markProcessed(eq(List.of(1L, 2L)), any());
+        verify(outboxEventDao, never()).markFailed(any());
+        assertEquals(2.0, meterRegistry.get("outbox.events.dispatched").tag("event_type", "ORDER_PLACED").counter().count());
+        assertEquals(2, meterRegistry.get("outbox.lag").timer().count());
+    }
+
+    @Test
+    @DisplayName("取得件数が上限に達した場合、配信できるイベントがなくなるまで続けて取得すること")
+    void dispatch_shouldKeepPolling_whileBatchIsFull() {
+        // Arrange
+        when(outboxEventDao.claimDispatchable(any(), any(), eq(BATCH_SIZE)))
+                .thenReturn(List.of(event(1L, 0), event(2L, 0), event(3L, 0)))
+                .thenReturn(List.of(event(4L, 0)));
+        when(outboxEventDao.countPending()).thenReturn(0);
+
+        // Act
+        int dispatched = outboxDispatcher.dispatch();
+
+        // Assert
+        assertEquals(4, dispatched);
+        verify(outboxEventDao, times(2)).claimDispatchable(any(), any(), eq(BATCH_SIZE));
+        assertEquals(0.0, meterRegistry.get("outbox.pending").gauge().value());
+    }
+
+    @Test
+    @DisplayName("処理に失敗したイベントは、試行回数に応じて間隔を空けて再配信を予約すること")
+    void dispatch_shouldScheduleRetryWithBackoff_whenHandlerFails() {
+        // Arrange: 2回目の失敗。間隔は 1秒 → 2秒 と倍になる
+        failingIds.add(2L);
+        when(outboxEventDao.claimDispatchable(any(), any(), eq(BATCH_SIZE)))
+                .thenReturn(List.of(event(1L, 0), event(2L, 1)));
+
+        // Act
+        LocalDateTime before = LocalDateTime.now();
+        int dispatched = outboxDispatcher.dispatch();
+
+        // Assert
+        assertEquals(1, dispatched);
+        verify(outboxEventDao, times(1)).markProcessed(eq(List.of(1L)), any());
+        ArgumentCaptor<OutboxEvent> captor = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventDao, times(1)).markFailed(captor.capture());
+        OutboxEvent failed = captor.getValue();
+        assertEquals(OutboxEventStatus.PENDING, failed.getStatus());
+        assertEquals(2, failed.getAttempts());
+        assertThat(failed.getNextAttemptAt()).isBetween(before.plusSeconds(2), LocalDateTime.now().plusSeconds(2));
+        assertThat(failed.getLastError()).contains("メールサーバーに接続できません");
+    }
+
+    @Test
+    @DisplayName("最大回数まで失敗したイベントは配信失敗にし、再配信しないこと")
+    void dispatch_shouldMarkFailed_whenMaxAttemptsReached() {
+        // Arrange
+        failingIds.add(1L);
+        when(outboxEventDao.claimDispatchable(any(), any(), eq(BATCH_SIZE)))
+                .thenReturn(List.of(event(1L, MAX_ATTEMPTS - 1)));
+
+        // Act
+        outboxDispatcher.dispatch();
+
+        // Assert
+        verify(outboxEventDao, times(1)).markFailed(argThat(event ->
+                event.getStatus() == OutboxEventStatus.FAILED && event.getAttempts() == MAX_ATTEMPTS));
+        assertEquals(1.0, meterRegistry.get("outbox.events.failed").tag("event_type", "ORDER_PLACED").counter().count());
+    }
+
+    @Test
+    @DisplayName("イベントはポーリングのスレッドではなくワーカーで並行して処理されること")
+    void dispatch_shouldHandleEventsConcurrently() throws InterruptedException {
+        // Arrange: 2件のイベントが互いの開始を待つ。並行して処理されなければタイムアウトする
+        CountDownLatch started = new CountDownLatch(2);
+        List<Boolean> metEachOther = Collections.synchronizedList(new ArrayList<>());
+        outboxDispatcher.shutdown();
+        outboxDispatcher = newDispatcher(List.of(new OutboxEventHandler() {
+            @Override
+            public OutboxEventType eventType() {
+                return OutboxEventType.ORDER_PLACED;
+            }
+
+            @Override
+            public void handle(OutboxEvent event) {
+                started.countDown();
+                try {
+                    metEachOther.add(started.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }), 2);
+        when(outboxEventDao.claimDispatchable(any(), any(), eq(BATCH_SIZE)))
+                .thenReturn(List.of(event(1L, 0), event(2L, 0)));
+
+        // Act
+        outboxDispatcher.dispatch();
+
+        // Assert
+        assertThat(metEachOther).containsExactly(true, true);
+    }
+
+    @Test
+    @DisplayName("イベントの取得に失敗しても例外をスローしないこと")
+    void dispatch_shouldNotThrow_whenClaimFails() {
+        // Arrange
+        when(outboxEventDao.claimDispatchable(any(), any(), anyInt())).thenThrow(new IllegalStateException("DB停止"));
+
+        // Act & Assert
+        assertEquals(0, assertDoesNotThrow(() -> outboxDispatcher.dispatch()));
+    }
+
+    private OutboxDispatcher newDispatcher(List<OutboxEventHandler> handlers, int workerThreads) {
+        return new OutboxDispatcher(outboxEventDao, handlers, meterRegistry, workerThreads, BATCH_SIZE,
+                Duration.ofMinutes(1), MAX_ATTEMPTS, INITIAL_BACKOFF, MAX_BACKOFF, Duration.ofDays(7));
+    }
+
+    private static OutboxEvent event(Long id, int attempts) {
+        LocalDateTime createdAt = LocalDateTime.now().minusSeconds(1);
+        return new OutboxEvent(id, OutboxEventType.ORDER_PLACED, id, "{}", OutboxEventStatus.PENDING, attempts,
+                createdAt, null, createdAt, null);
+    }
+}
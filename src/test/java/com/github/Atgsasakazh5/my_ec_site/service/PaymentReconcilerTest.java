@@ -0,0 +1,116 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.Order;
+import com.github.Atgsasakazh5.my_ec_site.entity.OrderStatus;
+import com.github.Atgsasakazh5.my_ec_site.exception.PaymentPendingException;
+import com.github.Atgsasakazh5.my_ec_site.repository.OrderDao;
+import com.github.Atgsasakazh5.my_ec_site.service.PaymentService.PaymentOutcome;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentReconcilerTest {
+
+    @Mock
+    private OrderDao orderDao;
+
+    @Mock
+    private PaymentService paymentService;
+
+    @Mock
+    private OrderService orderService;
+
+    private PaymentReconciler paymentReconciler;
+
+    @BeforeEach
+    void setUp() {
+        paymentReconciler = new PaymentReconciler(orderDao, paymentService, orderService,
+                Duration.ofMinutes(10), Duration.ofHours(1), 100);
+    }
+
+    @Test
+    @DisplayName("請求済みの決済は注文を支払い済みにし、請求されていない決済は注文をキャンセルすること")
+    void reconcile_shouldSettleOrdersByPaymentOutcome() {
+        // Arrange
+        Order paid = order(501L, LocalDateTime.now().minusMinutes(20));
+        Order failed = order(502L, LocalDateTime.now().minusMinutes(20));
+        when(orderDao.findUnsettledOrders(any(LocalDateTime.class), eq(100))).thenReturn(List.of(paid, failed));
+        when(paymentService.retrievePaymentOutcome(paid)).thenReturn(PaymentOutcome.SUCCEEDED);
+        when(paymentService.retrievePaymentOutcome(failed)).thenReturn(PaymentOutcome.FAILED);
+
+        // Act
+        paymentReconciler.reconcile();
+
+        // Assert
+        verify(orderService, times(1)).settlePaidOrder(501L);
+        verify(orderService, times(1)).settleFailedOrder(502L);
+        verify(paymentService, never()).cancelPayment(any());
+    }
+
+    @Test
+    @DisplayName("確定していない決済は、一定時間経過するまで注文をそのままにすること")
+    void reconcile_shouldWait_whenPaymentIsPendingWithinTimeout() {
+        // Arrange
+        Order order = order(501L, LocalDateTime.now().minusMinutes(20));
+        when(orderDao.findUnsettledOrders(any(LocalDateTime.class), eq(100))).thenReturn(List.of(order));
+        when(paymentService.retrievePaymentOutcome(order)).thenReturn(PaymentOutcome.PENDING);
+
+        // Act
+        paymentReconciler.reconcile();
+
+        // Assert
+        verify(paymentService, never()).cancelPayment(any());
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    @DisplayName("一定時間経過しても確定しない決済は取り消し、注文をキャンセルすること")
+    void reconcile_shouldCancelPayment_whenPaymentIsPendingPastTimeout() {
+        // Arrange
+        Order order = order(501L, LocalDateTime.now().minusHours(2));
+        when(orderDao.findUnsettledOrders(any(LocalDateTime.class), eq(100))).thenReturn(List.of(order));
+        when(paymentService.retrievePaymentOutcome(order)).thenReturn(PaymentOutcome.PENDING);
+        when(paymentService.cancelPayment(order)).thenReturn(PaymentOutcome.FAILED);
+
+        // Act
+        paymentReconciler.reconcile();
+
+        // Assert
+        verify(orderService, times(1)).settleFailedOrder(501L);
+        verify(orderService, never()).settlePaidOrder(anyLong());
+    }
+
+    @Test
+    @DisplayName("1件の照合に失敗しても、残りの注文を照合すること")
+    void reconcile_shouldContinue_whenOneOrderFails() {
+        // Arrange
+        Order unreachable = order(501L, LocalDateTime.now().minusMinutes(20));
+        Order paid = order(502L, LocalDateTime.now().minusMinutes(20));
+        when(orderDao.findUnsettledOrders(any(LocalDateTime.class), eq(100))).thenReturn(List.of(unreachable, paid));
+        when(paymentService.retrievePaymentOutcome(unreachable))
+                .thenThrow(new PaymentPendingException("決済の状態を取得できませんでした", 501L, null));
+        when(paymentService.retrievePaymentOutcome(paid)).thenReturn(PaymentOutcome.SUCCEEDED);
+
+        // Act
+        paymentReconciler.reconcile();
+
+        // Assert
+        verify(orderService, never()).settleFailedOrder(501L);
+        verify(orderService, times(1)).settlePaidOrder(502L);
+    }
+
+    private static Order order(Long id, LocalDateTime orderedAt) {
+        return new Order(id, 1L, OrderStatus.PAYMENT_REVIEW, 3000, "Tokyo", "100-0001", "Test User", orderedAt);
+    }
+}
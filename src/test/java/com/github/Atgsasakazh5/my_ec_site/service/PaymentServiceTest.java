@@ -3,11 +3,17 @@ package com.github.Atgsasakazh5.my_ec_site.service;
 import com.github.Atgsasakazh5.my_ec_site.dto.PaymentRequestDto;
 import com.github.Atgsasakazh5.my_ec_site.entity.Order;
 import com.github.Atgsasakazh5.my_ec_site.entity.OrderStatus;
+import com.github.Atgsasakazh5.my_ec_site.exception.PaymentDeclinedException;
+import com.github.Atgsasakazh5.my_ec_site.exception.PaymentPendingException;
 import com.github.Atgsasakazh5.my_ec_site.exception.ResourceNotFoundException;
 import com.github.Atgsasakazh5.my_ec_site.repository.OrderDao;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.AuthenticationException;
 import com.stripe.exception.CardException;
 import com.stripe.model.PaymentIntent;
+import com.stripe.model.PaymentIntentSearchResult;
 import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.PaymentIntentSearchParams;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -18,9 +24,12 @@ import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
 
+import java.util.List;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -86,8 +95,210 @@ class PaymentServiceTest {
                 .thenThrow(new CardException("支払いに失敗しました。", null, null, null, null, null, null, null));
 
         // Act & Assert
-        assertThrows(IllegalStateException.class, () -> {
+        assertThrows(PaymentDeclinedException.class, () -> {
             paymentService.processPayment(request);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("StripeがAPIキーの誤りなどでリクエストを受け付けなかった場合、請求されていないため決済の拒否として例外をスローすること")
+    void processPayment_shouldThrowDeclinedException_whenStripeRejectsRequest() {
+        // Arrange
+        var request = new PaymentRequestDto(1L, "pm_test");
+        var order = new Order();
+        order.setStatus(OrderStatus.PENDING);
+        order.setTotalPrice(1000);
+
+        when(orderDao.findOrderById(request.orderId())).thenReturn(Optional.of(order));
+        mockedPaymentIntent.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
+                .thenThrow(new AuthenticationException("Invalid API Key provided", null, null, 401));
+
+        // Act & Assert
+        assertThrows(PaymentDeclinedException.class, () -> paymentService.processPayment(request));
+        verify(orderDao, never()).updateOrder(any());
+    }
+
+    @Test
+    @DisplayName("支払いが失敗して別の支払い方法が必要な状態で終了した場合、決済の拒否として例外をスローすること")
+    void processPayment_shouldThrowDeclinedException_whenPaymentIntentRequiresPaymentMethod() {
+        // Arrange
+        var request = new PaymentRequestDto(1L, "pm_test");
+        var order = new Order();
+        order.setStatus(OrderStatus.PENDING);
+        order.setTotalPrice(1000);
+
+        var paymentIntent = new PaymentIntent();
+        paymentIntent.setStatus("requires_payment_method");
+
+        when(orderDao.findOrderById(request.orderId())).thenReturn(Optional.of(order));
+        mockedPaymentIntent.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
+                .thenReturn(paymentIntent);
+
+        // Act & Assert
+        assertThrows(PaymentDeclinedException.class, () -> paymentService.processPayment(request));
+        verify(orderDao, never()).updateOrder(any());
+    }
+
+    @Test
+    @DisplayName("3Dセキュア認証待ちの場合、この後に請求される可能性があるため決済の拒否とは区別して例外をスローすること")
+    void processPayment_shouldThrowPendingException_whenPaymentIntentRequiresAction() {
+        // Arrange
+        var request = new PaymentRequestDto(1L, "pm_test");
+        var order = new Order();
+        order.setStatus(OrderStatus.PENDING);
+        order.setTotalPrice(1000);
+
+        var paymentIntent = new PaymentIntent();
+        paymentIntent.setStatus("requires_action");
+
+        when(orderDao.findOrderById(request.orderId())).thenReturn(Optional.of(order));
+        mockedPaymentIntent.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
+                .thenReturn(paymentIntent);
+
+        // Act & Assert
+        assertThrows(PaymentPendingException.class, () -> paymentService.processPayment(request));
+        verify(orderDao, never()).updateOrder(any());
+    }
+
+    @Test
+    @DisplayName("Stripeとの通信に失敗した場合、決済の拒否とは区別して例外をスローすること")
+    void processPayment_shouldThrowPendingException_whenStripeIsUnreachable() {
+        // Arrange
+        var request = new PaymentRequestDto(1L, "pm_test");
+        var order = new Order();
+        order.setStatus(OrderStatus.PENDING);
+        order.setTotalPrice(1000);
+
+        when(orderDao.findOrderById(request.orderId())).thenReturn(Optional.of(order));
+        mockedPaymentIntent.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
+                .thenThrow(new ApiConnectionException("Read timed out"));
+
+        // Act & Assert
+        assertThrows(PaymentPendingException.class, () -> paymentService.processPayment(request));
+        verify(orderDao, never()).updateOrder(any());
+    }
+
+    @Test
+    @DisplayName("支払いの完了後に注文を更新できなかった場合、決済の拒否とは区別して例外をスローすること")
+    void processPayment_shouldThrowPendingException_whenOrderUpdateFailsAfterCharge() {
+        // Arrange
+        var request = new PaymentRequestDto(1L, "pm_test");
+        var order = new Order();
+        order.setStatus(OrderStatus.PENDING);
+        order.setTotalPrice(1000);
+
+        var successfulPaymentIntent = new PaymentIntent();
+        successfulPaymentIntent.setStatus("succeeded");
+
+        when(orderDao.findOrderById(request.orderId())).thenReturn(Optional.of(order));
+        mockedPaymentIntent.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
+                .thenReturn(successfulPaymentIntent);
+        doThrow(new DataAccessResourceFailureException("connection refused")).when(orderDao).updateOrder(any());
+
+        // Act & Assert
+        assertThrows(PaymentPendingException.class, () -> paymentService.processPayment(request));
+    }
+
+    @Test
+    @DisplayName("保存した決済のIDで決済を取得し、その状態を返すこと")
+    void retrievePaymentOutcome_shouldRetrieveByStoredId() {
+        // Arrange
+        var order = new Order();
+        order.setId(1L);
+        order.setPaymentIntentId("pi_test");
+
+        var paymentIntent = new PaymentIntent();
+        paymentIntent.setStatus("succeeded");
+
+        mockedPaymentIntent.when(() -> PaymentIntent.retrieve("pi_test")).thenReturn(paymentIntent);
+
+        // Act
+        var outcome = paymentService.retrievePaymentOutcome(order);
+
+        // Assert
+        assertEquals(PaymentService.PaymentOutcome.SUCCEEDED, outcome);
+        mockedPaymentIntent.verify(() -> PaymentIntent.search(any(PaymentIntentSearchParams.class)), never());
+    }
+
+    @Test
+    @DisplayName("決済のIDを保存していない場合、メタデータの注文IDで検索し、見つかったIDを注文に保存すること")
+    void retrievePaymentOutcome_shouldSearchByOrderId_whenIdIsNotStored() {
+        // Arrange
+        var order = new Order();
+        order.setId(1L);
+
+        var paymentIntent = new PaymentIntent();
+        paymentIntent.setId("pi_test");
+        paymentIntent.setStatus("requires_action");
+        var searchResult = new PaymentIntentSearchResult();
+        searchResult.setData(List.of(paymentIntent));
+
+        mockedPaymentIntent.when(() -> PaymentIntent.search(any(PaymentIntentSearchParams.class)))
+                .thenReturn(searchResult);
+
+        // Act
+        var outcome = paymentService.retrievePaymentOutcome(order);
+
+        // Assert
+        assertEquals(PaymentService.PaymentOutcome.PENDING, outcome);
+        verify(orderDao, times(1)).updatePaymentIntentId(1L, "pi_test");
+    }
+
+    @Test
+    @DisplayName("決済が作成されていない場合、請求されていないため失敗として扱うこと")
+    void retrievePaymentOutcome_shouldReturnFailed_whenPaymentIntentIsNotFound() {
+        // Arrange
+        var order = new Order();
+        order.setId(1L);
+
+        var searchResult = new PaymentIntentSearchResult();
+        searchResult.setData(List.of());
+
+        mockedPaymentIntent.when(() -> PaymentIntent.search(any(PaymentIntentSearchParams.class)))
+                .thenReturn(searchResult);
+
+        // Act
+        var outcome = paymentService.retrievePaymentOutcome(order);
+
+        // Assert
+        assertEquals(PaymentService.PaymentOutcome.FAILED, outcome);
+        verify(orderDao, never()).updatePaymentIntentId(any(), any());
+    }
+
+    @Test
+    @DisplayName("Stripeとの通信に失敗した場合、状態を判断せずに例外をスローすること")
+    void retrievePaymentOutcome_shouldThrowPendingException_whenStripeIsUnreachable() {
+        // Arrange
+        var order = new Order();
+        order.setId(1L);
+        order.setPaymentIntentId("pi_test");
+
+        mockedPaymentIntent.when(() -> PaymentIntent.retrieve("pi_test"))
+                .thenThrow(new ApiConnectionException("Read timed out"));
+
+        // Act & Assert
+        assertThrows(PaymentPendingException.class, () -> paymentService.retrievePaymentOutcome(order));
+    }
+
+    @Test
+    @DisplayName("決済を取り消し、取り消し後の状態を返すこと")
+    void cancelPayment_shouldCancelPaymentIntent() throws Exception {
+        // Arrange
+        var order = new Order();
+        order.setId(1L);
+        order.setPaymentIntentId("pi_test");
+
+        var paymentIntent = mock(PaymentIntent.class);
+        var canceledPaymentIntent = new PaymentIntent();
+        canceledPaymentIntent.setStatus("canceled");
+
+        mockedPaymentIntent.when(() -> PaymentIntent.retrieve("pi_test")).thenReturn(paymentIntent);
+        when(paymentIntent.cancel()).thenReturn(canceledPaymentIntent);
+
+        // Act
+        var outcome = paymentService.cancelPayment(order);
+
+        // Assert
+        assertEquals(PaymentService.PaymentOutcome.FAILED, outcome);
+    }
+}
@@ -0,0 +1,134 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductCountCacheTest {
+
+    private ProductCountCache productCountCache;
+
+    @BeforeEach
+    void setUp() {
+        productCountCache = new ProductCountCache();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("読み込み済みの件数は登録・削除・カテゴリ変更に応じて増減すること")
+    void increment_decrement_move_shouldUpdateLoadedCounts() {
+        // Arrange
+        productCountCache.countAll(() -> 10);
+        productCountCache.countByCategoryId(1, () -> 4);
+        productCountCache.countByCategoryId(2, () -> 6);
+
+        // Act
+        productCountCache.increment(1);
+        productCountCache.increment(1);
+        productCountCache.decrement(2);
+        productCountCache.move(1, 2);
+
+        // Assert: loaderは呼ばれない
+        assertThat(productCountCache.countAll(() -> -100)).isEqualTo(11);
+        assertThat(productCountCache.countByCategoryId(1, () -> -100)).isEqualTo(5);
+        assertThat(productCountCache.countByCategoryId(2, () -> -100)).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("未読み込みの場合は増減せず、参照時にloaderで読み込むこと")
+    void increment_shouldBeIgnored_whenNotLoaded() {
+        // Act
+        productCountCache.increment(1);
+
+        // Assert
+        assertThat(productCountCache.countAll(() -> 3)).isEqualTo(3);
+        assertThat(productCountCache.countByCategoryId(1, () -> 3)).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("カテゴリの件数の読み込み中も、他のカテゴリの参照・増減を待たせないこと")
+    void countByCategoryId_shouldNotBlockOtherCategories_whileLoading() throws Exception {
+        // Arrange: カテゴリ2は読み込み済み、カテゴリ1の読み込みを止めておく
+        productCountCache.countByCategoryId(2, () -> 6);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> loaded = executor.submit(() -> productCountCache.countByCategoryId(1, () -> {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 4;
+            }));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Act
+            productCountCache.increment(2);
+            int otherCategory = productCountCache.countByCategoryId(2, () -> -100);
+            release.countDown();
+
+            // Assert
+            assertThat(otherCategory).isEqualTo(7);
+            assertThat(loaded.get(5, TimeUnit.SECONDS)).isEqualTo(4);
+            assertThat(productCountCache.countByCategoryId(1, () -> -100)).isEqualTo(4);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("トランザクション内での増減はコミットされるまで反映されないこと")
+    void increment_shouldBeDeferredUntilCommit_whenTransactionIsActive() {
+        // Arrange
+        productCountCache.countAll(() -> 10);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        productCountCache.increment(1);
+
+        // Assert
+        assertThat(productCountCache.countAll(() -> -100)).isEqualTo(10);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(productCountCache.countAll(() -> -100)).isEqualTo(11);
+    }
+
+    @Test
+    @DisplayName("再集計した件数でキャッシュが置き換えられること")
+    void reset_shouldReplaceCounts() {
+        // Arrange
+        productCountCache.countAll(() -> 10);
+        productCountCache.countByCategoryId(1, () -> 4);
+        productCountCache.countByCategoryId(3, () -> 2);
+
+        // Act: カテゴリ3の商品はすべて削除されていた
+        productCountCache.reset(8, Map.of(1, 5, 2, 3));
+
+        // Assert
+        assertThat(productCountCache.countAll(() -> -100)).isEqualTo(8);
+        assertThat(productCountCache.countByCategoryId(1, () -> -100)).isEqualTo(5);
+        assertThat(productCountCache.countByCategoryId(2, () -> -100)).isEqualTo(3);
+        assertThat(productCountCache.countByCategoryId(3, () -> 0)).isEqualTo(0);
+    }
+}
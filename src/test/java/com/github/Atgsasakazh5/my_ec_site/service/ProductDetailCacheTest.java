@@ -0,0 +1,100 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.dto.InventoryDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.ProductDetailDto;
+import com.github.Atgsasakazh5.my_ec_site.dto.SkuDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductDetailCacheTest {
+
+    private Cache<Long, ProductDetailDto> cache;
+
+    private Cache<Long, InventoryDto> stockCache;
+
+    private ProductDetailCache productDetailCache;
+
+    @BeforeEach
+    void setUp() {
+        cache = Caffeine.newBuilder().build();
+        stockCache = Caffeine.newBuilder().build();
+        productDetailCache = new ProductDetailCache(cache, stockCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private ProductDetailDto product(Long productId, Long... skuIds) {
+        List<SkuDto> skus = java.util.Arrays.stream(skuIds)
+                .map(skuId -> new SkuDto(skuId, "M", "Red", 0, null))
+                .toList();
+        return new ProductDetailDto(productId, "Tシャツ", 1000, "説明", "/img.jpg", null, skus, null, null);
+    }
+
+    @Test
+    @DisplayName("在庫数はキャッシュにないSKUのみloaderで読み込まれること")
+    void getStock_shouldLoadOnlyMissingSkus() {
+        // Arrange
+        stockCache.put(101L, new InventoryDto(3));
+        List<Set<? extends Long>> requested = new ArrayList<>();
+
+        // Act
+        Map<Long, InventoryDto> stock = productDetailCache.getStock(List.of(101L, 102L), missing -> {
+            requested.add(Set.copyOf(missing));
+            return Map.of(102L, new InventoryDto(8));
+        });
+
+        // Assert
+        assertThat(stock).containsEntry(101L, new InventoryDto(3)).containsEntry(102L, new InventoryDto(8));
+        assertThat(requested).containsExactly(Set.of(102L));
+    }
+
+    @Test
+    @DisplayName("在庫数のキャッシュを破棄しても商品情報のキャッシュは残ること")
+    void evictStock_shouldInvalidateOnlyStockSnapshot() {
+        // Arrange
+        cache.put(1L, product(1L, 101L));
+        stockCache.put(101L, new InventoryDto(10));
+        stockCache.put(201L, new InventoryDto(5));
+
+        // Act
+        productDetailCache.evictStock(List.of(101L));
+
+        // Assert
+        assertThat(stockCache.asMap()).doesNotContainKey(101L).containsKey(201L);
+        assertThat(cache.asMap()).containsKey(1L);
+    }
+
+    @Test
+    @DisplayName("トランザクション内で破棄した場合、コミットされるまでキャッシュが残ること")
+    void evict_shouldBeDeferredUntilCommit_whenInTransaction() {
+        // Arrange
+        cache.put(1L, product(1L, 101L));
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        productDetailCache.evict(1L);
+
+        // Assert
+        assertThat(cache.asMap()).containsKey(1L);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(cache.asMap()).doesNotContainKey(1L);
+    }
+}
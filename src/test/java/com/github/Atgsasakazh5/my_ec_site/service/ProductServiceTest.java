@@ -10,16 +10,19 @@ import com.github.Atgsasakazh5.my_ec_site.repository.CategoryDao;
 import com.github.Atgsasakazh5.my_ec_site.repository.InventoryDao;
 import com.github.Atgsasakazh5.my_ec_site.repository.ProductDao;
 import com.github.Atgsasakazh5.my_ec_site.repository.SkuDao;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -44,6 +47,15 @@ class ProductServiceTest {
     @Mock
     private InventoryDao inventoryDao;
 
+    @Spy
+    private ProductDetailCache productDetailCache = new ProductDetailCache(Caffeine.newBuilder().build(), Caffeine.newBuilder().build());
+
+    @Spy
+    private ProductCountCache productCountCache = new ProductCountCache();
+
+    @Mock
+    private InventoryLedger inventoryLedger;
+
     @Test
     @DisplayName("商品が登録され、dtoで返されること-正常系")
     void createProduct_shouldReturnProductDto_whenProductIsCreated() {
@@ -88,6 +100,7 @@ class ProductServiceTest {
         assertThat(resultDto.skus()).hasSize(1);
         assertThat(resultDto.skus().get(0).size()).isEqualTo("S");
         assertThat(resultDto.skus().get(0).inventory().quantity()).isEqualTo(10);
+        verify(productCountCache).increment(categoryId);
     }
 
     @Test
@@ -155,6 +168,7 @@ class ProductServiceTest {
         assertEquals(request.description(), resultDto.description());
         assertEquals(request.imageUrl(), resultDto.imageUrl());
         assertEquals(request.categoryId(), resultDto.category().id());
+        verify(productDetailCache).evict(productId);
     }
 
     @Test
@@ -213,6 +227,77 @@ class ProductServiceTest {
         assertEquals(mockInventory.getQuantity(), resultDto.skus().get(0).inventory().quantity());
     }
 
+    @Test
+    @DisplayName("同じ商品を2回検索した場合、2回目はキャッシュから返されること-正常系")
+    void getProductDetail_shouldUseCache_whenCalledTwice() {
+        // 1. Arrange
+        var productId = 1L;
+        var existingProduct = new Product(productId, "Tシャツ", 1000, "説明", "/img.jpg", 1, LocalDateTime.now(), LocalDateTime.now());
+
+        when(productDao.findById(productId)).thenReturn(Optional.of(existingProduct));
+        when(categoryDao.findById(existingProduct.getCategoryId())).thenReturn(Optional.of(new Category(1, "トップス")));
+        when(skuDao.findByProductId(productId)).thenReturn(List.of());
+
+        // 2. Act
+        var first = productService.getProductDetail(productId);
+        var second = productService.getProductDetail(productId);
+
+        // 3. Assert
+        assertEquals(first, second);
+        verify(productDao, times(1)).findById(productId);
+        verify(skuDao, times(1)).findByProductId(productId);
+    }
+
+    @Test
+    @DisplayName("在庫数のキャッシュのみ破棄された場合、商品情報は再取得せず在庫数のみ再取得すること-正常系")
+    void getProductDetail_shouldReloadOnlyStock_whenStockIsEvicted() {
+        // 1. Arrange
+        var productId = 1L;
+        var existingProduct = new Product(productId, "Tシャツ", 1000, "説明", "/img.jpg", 1, LocalDateTime.now(), LocalDateTime.now());
+        var mockSku = new Sku(101L, productId, "S", "Red", 0, LocalDateTime.now(), LocalDateTime.now());
+
+        when(productDao.findById(productId)).thenReturn(Optional.of(existingProduct));
+        when(categoryDao.findById(existingProduct.getCategoryId())).thenReturn(Optional.of(new Category(1, "トップス")));
+        when(skuDao.findByProductId(productId)).thenReturn(List.of(mockSku));
+        when(inventoryDao.findBySkuIdIn(List.of(101L)))
+                .thenReturn(List.of(new Inventory(1001L, 101L, 10, LocalDateTime.now())))
+                .thenReturn(List.of(new Inventory(1001L, 101L, 7, LocalDateTime.now())));
+
+        // 2. Act
+        var before = productService.getProductDetail(productId);
+        productDetailCache.evictStock(List.of(101L));
+        var after = productService.getProductDetail(productId);
+
+        // 3. Assert
+        assertEquals(10, before.skus().get(0).inventory().quantity());
+        assertEquals(7, after.skus().get(0).inventory().quantity());
+        verify(productDao, times(1)).findById(productId);
+        verify(inventoryDao, times(2)).findBySkuIdIn(List.of(101L));
+    }
+
+    @Test
+    @DisplayName("商品の在庫数をSKUごとに取得できること（在庫情報がないSKUは0）-正常系")
+    void getProductStock_shouldReturnStockPerSku() {
+        // 1. Arrange
+        var productId = 1L;
+        var existingProduct = new Product(productId, "Tシャツ", 1000, "説明", "/img.jpg", 1, LocalDateTime.now(), LocalDateTime.now());
+        var sku1 = new Sku(101L, productId, "S", "Red", 0, LocalDateTime.now(), LocalDateTime.now());
+        var sku2 = new Sku(102L, productId, "M", "Red", 0, LocalDateTime.now(), LocalDateTime.now());
+
+        when(productDao.findById(productId)).thenReturn(Optional.of(existingProduct));
+        when(categoryDao.findById(existingProduct.getCategoryId())).thenReturn(Optional.of(new Category(1, "トップス")));
+        when(skuDao.findByProductId(productId)).thenReturn(List.of(sku1, sku2));
+        when(inventoryDao.findBySkuIdIn(anyList()))
+                .thenReturn(List.of(new Inventory(1001L, 101L, 5, LocalDateTime.now())));
+
+        // 2. Act
+        var result = productService.getProductStock(productId);
+
+        // 3. Assert
+        assertEquals(productId, result.productId());
+        assertThat(result.skus()).containsExactly(new SkuStockDto(101L, 5), new SkuStockDto(102L, 0));
+    }
+
     @Test
     @DisplayName("存在しない商品IDで検索しようとするとResourceNotFoundExceptionが発生すること-異常系")
     void getProductDetail_shouldThrowResourceNotFoundException_whenProductDoesNotExist() {
@@ -240,7 +325,7 @@ class ProductServiceTest {
         when(categoryDao.findByIds(List.of(1, 2))).thenReturn(List.of(mockCategory));
 
         // 2. Act
-        var resultPage = productService.findAllPaginated(page, size);
+        var resultPage = productService.findAllPaginated(page, size, true);
 
         // 3. Assert
         assertThat(resultPage).isNotNull();
@@ -262,7 +347,7 @@ class ProductServiceTest {
         when(categoryDao.findByIds(List.of())).thenReturn(List.of());
 
         // 2. Act
-        var resultPage = productService.findAllPaginated(page, size);
+        var resultPage = productService.findAllPaginated(page, size, true);
 
         // 3. Assert
         assertThat(resultPage).isNotNull();
@@ -285,7 +370,7 @@ class ProductServiceTest {
         when(categoryDao.findByIds(List.of(3))).thenReturn(List.of(mockCategory));
 
         // 2. Act
-        var resultPage = productService.findAllPaginated(page, size);
+        var resultPage = productService.findAllPaginated(page, size, true);
 
         // 3. Assert
         assertThat(resultPage).isNotNull();
@@ -307,7 +392,7 @@ class ProductServiceTest {
         when(categoryDao.findByIds(List.of())).thenReturn(List.of());
 
         // 2. Act
-        var resultPage = productService.findAllPaginated(page, size);
+        var resultPage = productService.findAllPaginated(page, size, true);
 
         // 3. Assert
         assertThat(resultPage).isNotNull();
@@ -327,7 +412,7 @@ class ProductServiceTest {
         when(categoryDao.findByIds(List.of())).thenReturn(List.of());
 
         // 2. Act
-        var resultPage = productService.findAllPaginated(page, size);
+        var resultPage = productService.findAllPaginated(page, size, true);
 
         // 3. Assert
         assertThat(resultPage).isNotNull();
@@ -355,7 +440,7 @@ class ProductServiceTest {
         when(categoryDao.findByIds(List.of(1, 2))).thenReturn(List.of(mockCategory));
 
         // 2. Act
-        var resultPage = productService.findAllPaginated(page, size);
+        var resultPage = productService.findAllPaginated(page, size, true);
 
         // 3. Assert
         assertThat(resultPage).isNotNull();
@@ -386,6 +471,7 @@ class ProductServiceTest {
         verify(inventoryDao, times(1)).deleteBySkuIds(skuIds);
         verify(skuDao, times(1)).deleteByProductId(productId);
         verify(productDao, times(1)).delete(productId);
+        verify(productCountCache).decrement(mockProduct.getCategoryId());
     }
 
     @Test
@@ -532,6 +618,24 @@ class ProductServiceTest {
         assertEquals(mockInventory.getQuantity(), resultDto.inventory().quantity());
     }
 
+    @Test
+    @DisplayName("SKU情報の在庫数はカートで確保されている数量を差し引いた販売可能数であること")
+    void getSkuDetail_shouldReturnAvailableQuantity_whenStockIsReserved() {
+        // 1. Arrange
+        long skuId = 101L;
+        var mockSku = new Sku(skuId, 1L, "M", "Red", 0, LocalDateTime.now(), LocalDateTime.now());
+        var mockInventory = new Inventory(1001L, skuId, 20, 5, LocalDateTime.now());
+
+        when(skuDao.findById(skuId)).thenReturn(Optional.of(mockSku));
+        when(inventoryDao.findBySkuId(skuId)).thenReturn(Optional.of(mockInventory));
+
+        // 2. Act
+        var resultDto = productService.getSkuDetail(skuId);
+
+        // 3. Assert
+        assertEquals(15, resultDto.inventory().quantity());
+    }
+
     @Test
     @DisplayName("存在しないSKU IDで取得しようとするとResourceNotFoundExceptionが発生すること-異常系")
     void getSkuDetail_shouldThrowResourceNotFoundException_whenSkuDoesNotExist() {
@@ -619,6 +723,8 @@ class ProductServiceTest {
         // 3. Assert
         verify(inventoryDao, times(1)).deleteBySkuId(skuId);
         verify(skuDao, times(1)).delete(skuId);
+        verify(productDetailCache).evict(mockSku.getProductId());
+        verify(productDetailCache).evictStock(List.of(skuId));
     }
 
     @Test
@@ -649,7 +755,7 @@ class ProductServiceTest {
         when(productDao.countByCategoryId(categoryId)).thenReturn(2);
 
         // 2. Act
-        var resultPage = productService.searchProductsByCategory(categoryId, page, size);
+        var resultPage = productService.searchProductsByCategory(categoryId, page, size, true);
 
         // 3. Assert
         assertThat(resultPage).isNotNull();
@@ -675,7 +781,123 @@ class ProductServiceTest {
 
         // 3. Assert
         assertThrows(ResourceNotFoundException.class, () -> {
-            productService.searchProductsByCategory(categoryId, page, size);
+            productService.searchProductsByCategory(categoryId, page, size, true);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("カーソル方式で商品一覧を取得すると、次のページがある場合はnextCursorが返ること-正常系")
+    void findAllByCursor_shouldReturnNextCursor_whenMoreProductsExist() {
+        // 1. Arrange: ページサイズ+1件が返る＝次のページが存在する
+        int size = 20;
+        var mockCategory = new Category(1, "トップス");
+        List<Product> products = LongStream.rangeClosed(1, size + 1)
+                .map(i -> 100 - i)
+                .mapToObj(id -> new Product(id, "商品" + id, 1000, "説明", "/img.jpg", 1, LocalDateTime.now(), LocalDateTime.now()))
+                .toList();
+
+        when(productDao.findAllByCursor(null, size + 1)).thenReturn(products);
+        when(categoryDao.findByIds(List.of(1))).thenReturn(List.of(mockCategory));
+
+        // 2. Act
+        var result = productService.findAllByCursor(null, size);
+
+        // 3. Assert
+        assertThat(result.content()).hasSize(size);
+        assertThat(result.content().get(0).category().name()).isEqualTo("トップス");
+        // 最後に返した商品(ID 80)がカーソルになる
+        assertThat(result.nextCursor()).isEqualTo(PageCursor.encode(80L));
+        verify(productDao, never()).countAll();
+    }
+
+    @Test
+    @DisplayName("カーソル方式で最後のページを取得すると、nextCursorがnullであること-正常系")
+    void findAllByCursor_shouldReturnNullNextCursor_onLastPage() {
+        // 1. Arrange
+        var mockProduct = new Product(5L, "Tシャツ", 1000, "説明", "/img.jpg", 1, LocalDateTime.now(), LocalDateTime.now());
+        when(productDao.findAllByCursor(10L, 21)).thenReturn(List.of(mockProduct));
+        when(categoryDao.findByIds(List.of(1))).thenReturn(List.of(new Category(1, "トップス")));
+
+        // 2. Act
+        var result = productService.findAllByCursor(PageCursor.encode(10L), 20);
+
+        // 3. Assert
+        assertThat(result.content()).hasSize(1);
+        assertThat(result.nextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("不正なカーソルを指定するとIllegalArgumentExceptionが発生すること-異常系")
+    void findAllByCursor_shouldThrowException_whenCursorIsInvalid() {
+        // 1. Arrange & 2. Act & 3. Assert
+        assertThrows(IllegalArgumentException.class, () -> productService.findAllByCursor("not-a-cursor!", 20));
+        assertThrows(IllegalArgumentException.class, () -> productService.findAllByCursor(PageCursor.encode(-1L), 20));
+        verify(productDao, never()).findAllByCursor(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("存在しないカテゴリをカーソル方式で検索するとResourceNotFoundExceptionが発生すること-異常系")
+    void searchProductsByCategoryAndCursor_shouldThrowException_whenCategoryNotFound() {
+        // 1. Arrange
+        when(categoryDao.findById(999)).thenReturn(Optional.empty());
+
+        // 2. Act & 3. Assert
+        assertThrows(ResourceNotFoundException.class,
+                () -> productService.searchProductsByCategoryAndCursor(999, null, 20));
+        verify(productDao, never()).findByCategoryIdAndCursor(anyInt(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("総商品数はカウンターキャッシュから取得され、2回目以降はCOUNTクエリを発行しないこと-正常系")
+    void findAllPaginated_shouldCountOnlyOnce_whenCalledTwice() {
+        // 1. Arrange
+        when(productDao.findAll(0, 20)).thenReturn(List.of());
+        when(productDao.countAll()).thenReturn(42);
+        when(categoryDao.findByIds(List.of())).thenReturn(List.of());
+
+        // 2. Act
+        productService.findAllPaginated(0, 20, true);
+        var resultPage = productService.findAllPaginated(0, 20, true);
+
+        // 3. Assert
+        assertThat(resultPage.totalElements()).isEqualTo(42);
+        assertThat(resultPage.totalPages()).isEqualTo(3);
+        verify(productDao, times(1)).countAll();
+    }
+
+    @Test
+    @DisplayName("総件数を要求しない場合、COUNTクエリを発行せず総件数がnullであること-正常系")
+    void findAllPaginated_shouldNotCount_whenTotalIsNotRequested() {
+        // 1. Arrange
+        var mockProduct = new Product(1L, "Tシャツ", 1000, "説明", "/img.jpg", 1, LocalDateTime.now(), LocalDateTime.now());
+        when(productDao.findAll(0, 20)).thenReturn(List.of(mockProduct));
+        when(categoryDao.findByIds(List.of(1))).thenReturn(List.of(new Category(1, "トップス")));
+
+        // 2. Act
+        var resultPage = productService.findAllPaginated(0, 20, false);
+
+        // 3. Assert
+        assertThat(resultPage.content()).hasSize(1);
+        assertThat(resultPage.totalElements()).isNull();
+        assertThat(resultPage.totalPages()).isNull();
+        verify(productDao, never()).countAll();
+    }
+
+    @Test
+    @DisplayName("カテゴリの商品数はカウンターキャッシュから取得されること-正常系")
+    void searchProductsByCategory_shouldUseCountCache() {
+        // 1. Arrange
+        int categoryId = 1;
+        when(categoryDao.findById(categoryId)).thenReturn(Optional.of(new Category(categoryId, "トップス")));
+        when(productDao.findByCategoryId(categoryId, 0, 20)).thenReturn(List.of());
+        when(productDao.countByCategoryId(categoryId)).thenReturn(5);
+
+        // 2. Act
+        productService.searchProductsByCategory(categoryId, 0, 20, true);
+        var resultPage = productService.searchProductsByCategory(categoryId, 0, 20, true);
+
+        // 3. Assert
+        assertThat(resultPage.totalElements()).isEqualTo(5);
+        verify(productDao, times(1)).countByCategoryId(categoryId);
+    }
+}
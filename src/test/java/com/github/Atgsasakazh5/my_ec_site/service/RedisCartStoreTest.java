@@ -0,0 +1,187 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.Atgsasakazh5.my_ec_site.entity.CartItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ローカルのテスト用Redisサーバー({@link FakeRedisServer})に対して、カートの保存と未反映の印の管理を確認する
+ */
+class RedisCartStoreTest {
+
+    private static final Duration TTL = Duration.ofMinutes(30);
+
+    private FakeRedisServer redisServer;
+
+    private RedisCartStore cartStore;
+
+    @BeforeEach
+    void setUp() {
+        redisServer = new FakeRedisServer();
+        cartStore = newStore(redisServer.getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        cartStore.close();
+        redisServer.close();
+    }
+
+    @Test
+    @DisplayName("カートの内容を有効期限付きで保存し、同じ内容を読み込めること")
+    void putAndFind_shouldRoundTripItemsWithTtl() {
+        // Arrange
+        List<CartItem> items = List.of(new CartItem(1L, 1L, 10L, 2), new CartItem(2L, 1L, 11L, 1));
+
+        // Act
+        cartStore.put(1L, items);
+
+        // Assert
+        assertThat(cartStore.find(1L).orElseThrow()).usingRecursiveFieldByFieldElementComparator().isEqualTo(items);
+        assertEquals(TTL.toSeconds(), redisServer.getTtlSeconds("cart:items:1"));
+        assertTrue(cartStore.find(2L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("putIfAbsentは、既に保存されているカートの内容を上書きしないこと")
+    void putIfAbsent_shouldNotOverwriteExistingItems() {
+        // Arrange
+        List<CartItem> current = List.of(new CartItem(1L, 1L, 10L, 3));
+        cartStore.put(1L, current);
+
+        // Act
+        cartStore.putIfAbsent(1L, List.of(new CartItem(1L, 1L, 10L, 2)));
+        cartStore.putIfAbsent(2L, List.of());
+
+        // Assert
+        assertThat(cartStore.find(1L).orElseThrow()).usingRecursiveFieldByFieldElementComparator().isEqualTo(current);
+        assertEquals(List.of(), cartStore.find(2L).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("カートアイテム1件の数量のみを変更し、ストアにないカート・カートアイテムは変更しないこと")
+    void updateQuantity_shouldUpdateOnlyGivenItem() {
+        // Arrange
+        cartStore.put(1L, List.of(new CartItem(1L, 1L, 10L, 2), new CartItem(2L, 1L, 11L, 1)));
+
+        // Act
+        boolean updated = cartStore.updateQuantity(1L, 2L, 4);
+        boolean missingItem = cartStore.updateQuantity(1L, 3L, 4);
+        boolean missingCart = cartStore.updateQuantity(2L, 1L, 4);
+
+        // Assert
+        assertTrue(updated);
+        assertFalse(missingItem);
+        assertFalse(missingCart);
+        assertThat(cartStore.find(1L).orElseThrow()).extracting(CartItem::getQuantity).containsExactly(2, 4);
+        assertTrue(cartStore.find(2L).isEmpty());
+        assertEquals(TTL.toSeconds(), redisServer.getTtlSeconds("cart:items:1"));
+    }
+
+    @Test
+    @DisplayName("未反映の印を付けたカートIDを、外す・取り出すことができ、取り出したカートの印は外れること")
+    void dirtyMarks_shouldBeUnmarkedAndPolled() {
+        // Arrange
+        cartStore.markDirty(1L);
+        cartStore.markDirty(2L);
+        cartStore.markDirty(3L);
+
+        // Act & Assert
+        assertTrue(cartStore.unmarkDirty(1L));
+        assertFalse(cartStore.unmarkDirty(1L));
+        assertThat(cartStore.pollDirty(10)).containsExactlyInAnyOrder(2L, 3L);
+        assertThat(cartStore.pollDirty(10)).isEmpty();
+        assertThat(redisServer.members("cart:dirty")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("削除したカートは読み込めないこと")
+    void evict_shouldRemoveItems() {
+        // Arrange
+        cartStore.put(1L, List.of());
+
+        // Act
+        cartStore.evict(1L);
+
+        // Assert
+        assertTrue(cartStore.find(1L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("コマンドごとに接続せず、接続を再利用すること")
+    void commands_shouldReuseConnection() {
+        // Act
+        for (long cartId = 1; cartId <= 10; cartId++) {
+            cartStore.put(cartId, List.of());
+            cartStore.find(cartId);
+        }
+
+        // Assert
+        assertEquals(1, redisServer.getConnectionCount());
+    }
+
+    @Test
+    @DisplayName("Redisに接続できない場合、DataAccessResourceFailureExceptionをスローすること")
+    void find_shouldThrow_whenServerIsDown() throws Exception {
+        // Arrange
+        redisServer.close();
+
+        // Act & Assert
+        assertThrows(DataAccessResourceFailureException.class, () -> cartStore.find(1L));
+    }
+
+    @Test
+    @DisplayName("パスワードを設定した場合、接続時に認証してからコマンドを送信すること")
+    void commands_shouldAuthenticate_whenPasswordIsSet() throws Exception {
+        try (var securedServer = new FakeRedisServer("secret");
+             var securedStore = newStore(securedServer.getPort(), "secret", 1)) {
+            // Act
+            securedStore.put(1L, List.of(new CartItem(10L, 1L, 100L, 2)));
+
+            // Assert
+            assertThat(securedStore.find(1L)).isPresent();
+        }
+    }
+
+    @Test
+    @DisplayName("認証に失敗した場合、例外をスローして接続を閉じること")
+    void find_shouldThrowAndCloseConnection_whenAuthenticationFails() throws Exception {
+        try (var securedServer = new FakeRedisServer("secret");
+             var securedStore = newStore(securedServer.getPort(), "wrong", 0)) {
+            // Act & Assert
+            assertThrows(InvalidDataAccessApiUsageException.class, () -> securedStore.find(1L));
+            assertThrows(InvalidDataAccessApiUsageException.class, () -> securedStore.find(1L));
+
+            // 認証に失敗した接続は再利用せず、残さない
+            assertEquals(2, securedServer.getConnectionCount());
+            waitUntilClosed(securedServer);
+            assertEquals(0, securedServer.getOpenConnectionCount());
+        }
+    }
+
+    private static void waitUntilClosed(FakeRedisServer server) throws InterruptedException {
+        for (int i = 0; i < 100 && server.getOpenConnectionCount() > 0; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static RedisCartStore newStore(int port) {
+        return newStore(port, null, 0);
+    }
+
+    private static RedisCartStore newStore(int port, String password, int database) {
+        return new RedisCartStore("127.0.0.1", port, false, password, database, Duration.ofSeconds(2), 4, TTL,
+                new ObjectMapper());
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.entity.Inventory;
+import com.github.Atgsasakazh5.my_ec_site.entity.StockReservation;
+import com.github.Atgsasakazh5.my_ec_site.exception.ResourceNotFoundException;
+import com.github.Atgsasakazh5.my_ec_site.repository.InventoryDao;
+import com.github.Atgsasakazh5.my_ec_site.repository.StockReservationDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationServiceTest {
+
+    private static final Duration TTL = Duration.ofMinutes(15);
+
+    @Mock
+    private StockReservationDao stockReservationDao;
+
+    @Mock
+    private InventoryDao inventoryDao;
+
+    @Mock
+    private ProductDetailCache productDetailCache;
+
+    private StockReservationServiceImpl stockReservationService;
+
+    @BeforeEach
+    void setUp() {
+        stockReservationService = new StockReservationServiceImpl(stockReservationDao, inventoryDao, productDetailCache, TTL);
+    }
+
+    @Test
+    @DisplayName("新しく確保する場合、在庫の確保数を加算して有効期限付きで記録すること")
+    void hold_shouldReserveAndSave_whenNotYetReserved() {
+        // Arrange
+        when(stockReservationDao.findByCartIdAndSkuIdWithLock(1L, 101L)).thenReturn(Optional.empty());
+        when(inventoryDao.reserveQuantity(101L, 2)).thenReturn(true);
+
+        // Act
+        LocalDateTime before = LocalDateTime.now();
+        stockReservationService.hold(1L, 101L, 2);
+
+        // Assert
+        ArgumentCaptor<StockReservation> captor = ArgumentCaptor.forClass(StockReservation.class);
+        verify(stockReservationDao).save(captor.capture());
+        assertThat(captor.getValue().getQuantity()).isEqualTo(2);
+        assertThat(captor.getValue().getExpiresAt()).isAfterOrEqualTo(before.plus(TTL));
+        verify(productDetailCache).evictStock(Set.of(101L));
+    }
+
+    @Test
+    @DisplayName("既に確保している場合、差分だけ在庫の確保数を加算すること")
+    void hold_shouldReserveOnlyDifference_whenAlreadyReserved() {
+        // Arrange
+        var current = new StockReservation(10L, 1L, 101L, 3, LocalDateTime.now());
+        when(stockReservationDao.findByCartIdAndSkuIdWithLock(1L, 101L)).thenReturn(Optional.of(current));
+        when(inventoryDao.reserveQuantity(101L, 2)).thenReturn(true);
+
+        // Act
+        stockReservationService.hold(1L, 101L, 5);
+
+        // Assert
+        verify(stockReservationDao).update(current);
+        assertThat(current.getQuantity()).isEqualTo(5);
+        verify(stockReservationDao, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("数量を減らす場合、差分を在庫の確保数から差し引くこと")
+    void hold_shouldReleaseDifference_whenQuantityDecreases() {
+        // Arrange
+        var current = new StockReservation(10L, 1L, 101L, 5, LocalDateTime.now());
+        when(stockReservationDao.findByCartIdAndSkuIdWithLock(1L, 101L)).thenReturn(Optional.of(current));
+
+        // Act
+        stockReservationService.hold(1L, 101L, 2);
+
+        // Assert
+        verify(inventoryDao).releaseReservedQuantities(Map.of(101L, 3));
+        verify(inventoryDao, never()).reserveQuantity(anyLong(), anyInt());
+        assertThat(current.getQuantity()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("販売可能数が不足している場合、IllegalStateExceptionをスローし確保を記録しないこと")
+    void hold_shouldThrowIllegalStateException_whenStockIsInsufficient() {
+        // Arrange
+        when(stockReservationDao.findByCartIdAndSkuIdWithLock(1L, 101L)).thenReturn(Optional.empty());
+        when(inventoryDao.reserveQuantity(101L, 5)).thenReturn(false);
+        when(inventoryDao.findBySkuId(101L)).thenReturn(Optional.of(new Inventory(1L, 101L, 3, null)));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> stockReservationService.hold(1L, 101L, 5));
+        verify(stockReservationDao, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("在庫情報が存在しない場合、ResourceNotFoundExceptionをスローすること")
+    void hold_shouldThrowResourceNotFoundException_whenInventoryDoesNotExist() {
+        // Arrange
+        when(stockReservationDao.findByCartIdAndSkuIdWithLock(1L, 101L)).thenReturn(Optional.empty());
+        when(inventoryDao.reserveQuantity(101L, 1)).thenReturn(false);
+        when(inventoryDao.findBySkuId(101L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> stockReservationService.hold(1L, 101L, 1));
+    }
+
+    @Test
+    @DisplayName("カートの確保をすべて削除し、SKUごとに在庫の確保数から差し引くこと")
+    void releaseAll_shouldDeleteReservationsAndReleaseQuantities() {
+        // Arrange
+        var now = LocalDateTime.now();
+        when(stockReservationDao.findByCartIdWithLock(1L)).thenReturn(List.of(
+                new StockReservation(10L, 1L, 101L, 2, now),
+                new StockReservation(11L, 1L, 102L, 1, now)));
+
+        // Act
+        stockReservationService.releaseAll(1L);
+
+        // Assert
+        verify(stockReservationDao).deleteByIds(List.of(10L, 11L));
+        verify(inventoryDao).releaseReservedQuantities(Map.of(101L, 2, 102L, 1));
+    }
+
+    @Test
+    @DisplayName("期限切れの確保を解放し、解放した件数を返すこと")
+    void releaseExpired_shouldReleaseExpiredReservations() {
+        // Arrange
+        var now = LocalDateTime.now();
+        when(stockReservationDao.findExpiredWithLock(now, 500)).thenReturn(List.of(
+                new StockReservation(10L, 1L, 101L, 2, now.minusMinutes(1)),
+                new StockReservation(20L, 2L, 101L, 3, now.minusMinutes(1))));
+
+        // Act
+        int released = stockReservationService.releaseExpired(now, 500);
+
+        // Assert: 同じSKUの確保は合算して差し引く
+        assertThat(released).isEqualTo(2);
+        verify(inventoryDao).releaseReservedQuantities(Map.of(101L, 5));
+    }
+
+    @Test
+    @DisplayName("期限切れの確保がない場合、何も更新しないこと")
+    void releaseExpired_shouldDoNothing_whenNothingExpired() {
+        // Arrange
+        var now = LocalDateTime.now();
+        when(stockReservationDao.findExpiredWithLock(now, 500)).thenReturn(List.of());
+
+        // Act
+        int released = stockReservationService.releaseExpired(now, 500);
+
+        // Assert
+        assertThat(released).isZero();
+        verifyNoInteractions(inventoryDao);
+    }
+}
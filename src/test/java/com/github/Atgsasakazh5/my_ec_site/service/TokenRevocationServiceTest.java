@@ -0,0 +1,89 @@
+package com.github.Atgsasakazh5.my_ec_site.service;
+
+import com.github.Atgsasakazh5.my_ec_site.repository.UserDao;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceTest {
+
+    @Mock
+    private UserDao userDao;
+
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
+    private Cache<Long, Integer> tokenVersionCache;
+
+    private TokenRevocationServiceImpl tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        tokenVersionCache = Caffeine.newBuilder().build();
+        tokenRevocationService = new TokenRevocationServiceImpl(userDao, tokenVersionCache, userDetailsService);
+    }
+
+    @Test
+    @DisplayName("トークンのバージョンが現在のバージョンと一致する場合trueを返し、2回目以降はキャッシュを使うこと-正常系")
+    void isCurrentVersion_shouldReturnTrueAndUseCache_whenVersionMatches() {
+        // Arrange
+        when(userDao.findTokenVersionById(1L)).thenReturn(Optional.of(2));
+
+        // Act
+        boolean first = tokenRevocationService.isCurrentVersion(1L, 2);
+        boolean second = tokenRevocationService.isCurrentVersion(1L, 2);
+
+        // Assert
+        assertThat(first).isTrue();
+        assertThat(second).isTrue();
+        verify(userDao, times(1)).findTokenVersionById(1L);
+    }
+
+    @Test
+    @DisplayName("トークンのバージョンが古い場合falseを返すこと-異常系")
+    void isCurrentVersion_shouldReturnFalse_whenVersionIsOutdated() {
+        // Arrange
+        when(userDao.findTokenVersionById(1L)).thenReturn(Optional.of(3));
+
+        // Act & Assert
+        assertThat(tokenRevocationService.isCurrentVersion(1L, 2)).isFalse();
+    }
+
+    @Test
+    @DisplayName("存在しないユーザーの場合falseを返すこと-異常系")
+    void isCurrentVersion_shouldReturnFalse_whenUserDoesNotExist() {
+        // Arrange
+        when(userDao.findTokenVersionById(99L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThat(tokenRevocationService.isCurrentVersion(99L, 0)).isFalse();
+    }
+
+    @Test
+    @DisplayName("全トークンを失効させるとバージョンが更新され、キャッシュも破棄されること-正常系")
+    void revokeAll_shouldIncrementVersionAndInvalidateCache() {
+        // Arrange
+        tokenVersionCache.put(1L, 0);
+        when(userDao.findTokenVersionById(1L)).thenReturn(Optional.of(1));
+
+        // Act
+        tokenRevocationService.revokeAll(1L);
+
+        // Assert
+        verify(userDao).incrementTokenVersion(1L);
+        verify(userDetailsService).evictByUserId(1L);
+        assertThat(tokenRevocationService.isCurrentVersion(1L, 0)).isFalse();
+        assertThat(tokenRevocationService.isCurrentVersion(1L, 1)).isTrue();
+    }
+}
@@ -1,13 +1,19 @@
 package com.github.Atgsasakazh5.my_ec_site.service;
 
+import com.github.Atgsasakazh5.my_ec_site.entity.Cart;
 import com.github.Atgsasakazh5.my_ec_site.entity.User;
+import com.github.Atgsasakazh5.my_ec_site.repository.CartDao;
 import com.github.Atgsasakazh5.my_ec_site.repository.UserRepository;
+import com.github.Atgsasakazh5.my_ec_site.security.UserPrincipal;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.test.context.ActiveProfiles;
 
@@ -17,7 +23,7 @@ import java.util.Set;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @ActiveProfiles("test")
 @ExtendWith(MockitoExtension.class)
@@ -26,9 +32,30 @@ class UserDetailsServiceImplTest {
     @Mock
     UserRepository userRepository;
 
-    @InjectMocks
+    @Mock
+    CartDao cartDao;
+
+    Cache<String, UserDetails> userDetailsCache;
+
     UserDetailsServiceImpl userDetailsService;
 
+    @BeforeEach
+    void setUp() {
+        userDetailsCache = Caffeine.newBuilder().recordStats().build();
+        userDetailsService = new UserDetailsServiceImpl(userRepository, cartDao, userDetailsCache);
+    }
+
+    private User verifiedUser(Long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setName("Test User");
+        user.setEmail(email);
+        user.setPassword("password123");
+        user.setRoles(Set.of());
+        user.setEmailVerified(true);
+        return user;
+    }
+
     @Test
     @DisplayName("正しいメールアドレスでUserDetailsを返す")
     void loadUserByUsername_whenUserExists() {
@@ -43,12 +70,16 @@ class UserDetailsServiceImplTest {
         user.setEmailVerified(true);
 
         when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
+        when(cartDao.findCartByUserId(1L)).thenReturn(Optional.of(new Cart(5L, 1L)));
 
         // Act
         var userDetails = userDetailsService.loadUserByUsername(email);
 
         // Assert
         assertThat(userDetails).isNotNull();
+        assertThat(userDetails).isInstanceOf(UserPrincipal.class);
+        assertThat(((UserPrincipal) userDetails).getId()).isEqualTo(1L);
+        assertThat(((UserPrincipal) userDetails).getCartId()).isEqualTo(5L);
         assertThat(userDetails.getUsername()).isEqualTo(email);
         assertThat(userDetails.getPassword()).isEqualTo("password123");
         assertThat(userDetails.getAuthorities()).isEmpty(); // ロールが空なので権限も空
@@ -89,4 +120,76 @@ class UserDetailsServiceImplTest {
                 .isInstanceOf(UsernameNotFoundException.class)
                 .hasMessageContaining("メールアドレスが認証されていません: " + email);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("2回目以降の呼び出しではキャッシュからUserDetailsを返す")
+    void loadUserByUsername_shouldUseCache_whenCalledTwice() {
+        // Arrange
+        String email = "test@example.com";
+        when(userRepository.findByEmail(email)).thenReturn(Optional.of(verifiedUser(1L, email)));
+
+        // Act
+        var first = userDetailsService.loadUserByUsername(email);
+        var second = userDetailsService.loadUserByUsername(email);
+
+        // Assert
+        assertThat(second).isSameAs(first);
+        verify(userRepository, times(1)).findByEmail(email);
+        assertThat(userDetailsCache.stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("見つからなかった結果はキャッシュされない")
+    void loadUserByUsername_shouldNotCache_whenUserDoesNotExist() {
+        // Arrange
+        String email = "test@email.com";
+        when(userRepository.findByEmail(email)).thenReturn(Optional.empty());
+
+        // Act
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername(email))
+                .isInstanceOf(UsernameNotFoundException.class);
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername(email))
+                .isInstanceOf(UsernameNotFoundException.class);
+
+        // Assert
+        verify(userRepository, times(2)).findByEmail(email);
+        assertThat(userDetailsCache.asMap()).doesNotContainKey(email);
+    }
+
+    @Test
+    @DisplayName("メールアドレス指定でキャッシュを破棄すると再度DBから読み込む")
+    void evict_shouldReloadFromDatabase() {
+        // Arrange
+        String email = "test@example.com";
+        when(userRepository.findByEmail(email)).thenReturn(Optional.of(verifiedUser(1L, email)));
+        userDetailsService.loadUserByUsername(email);
+
+        // Act
+        userDetailsService.evict(email);
+        userDetailsService.loadUserByUsername(email);
+
+        // Assert
+        verify(userRepository, times(2)).findByEmail(email);
+    }
+
+    @Test
+    @DisplayName("ユーザーID指定で該当ユーザーのキャッシュのみ破棄する")
+    void evictByUserId_shouldInvalidateOnlyMatchingUser() {
+        // Arrange
+        when(userRepository.findByEmail("a@example.com")).thenReturn(Optional.of(verifiedUser(1L, "a@example.com")));
+        when(userRepository.findByEmail("b@example.com")).thenReturn(Optional.of(verifiedUser(2L, "b@example.com")));
+        userDetailsService.loadUserByUsername("a@example.com");
+        userDetailsService.loadUserByUsername("b@example.com");
+        when(userRepository.findEmailById(1L)).thenReturn(Optional.of("a@example.com"));
+
+        // Act
+        userDetailsService.evictByUserId(1L);
+
+        // Assert
+        assertThat(userDetailsCache.asMap()).doesNotContainKey("a@example.com");
+        assertThat(userDetailsCache.asMap().get("b@example.com"))
+                .isInstanceOf(UserPrincipal.class)
+                .extracting(userDetails -> ((UserPrincipal) userDetails).getId())
+                .isEqualTo(2L);
+    }
+}
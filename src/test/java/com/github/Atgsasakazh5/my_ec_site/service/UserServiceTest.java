@@ -52,6 +52,9 @@ class UserServiceTest {
     @Mock
     private EmailService emailService;
 
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
     @Test
     @DisplayName("ユーザー登録のテスト-正常系")
     void register_shouldSaveUserAndReturnUserDto_whenEmailIsUnique() {
@@ -143,6 +146,7 @@ class UserServiceTest {
         VerificationToken verificationToken = new VerificationToken(1L, token, 1L, java.time.LocalDateTime.now().plusHours(1));
         User user = new User();
         user.setId(1L);
+        user.setEmail("test@example.com");
         user.setEmailVerified(false);
 
         when(verificationTokenDao.findByToken(token)).thenReturn(Optional.of(verificationToken));
@@ -154,6 +158,7 @@ class UserServiceTest {
         // Assert
         assertThat(user.isEmailVerified()).isTrue();
         verify(userRepository).update(user);
+        verify(userDetailsService).evict("test@example.com");
         verify(verificationTokenDao).delete(verificationToken);
     }
 
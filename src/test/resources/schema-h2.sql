@@ -1,8 +1,12 @@
 -- 既存のテーブルがあれば削除
 DROP TABLE IF EXISTS user_roles;
 DROP TABLE IF EXISTS roles;
+DROP TABLE IF EXISTS email_messages;
+DROP TABLE IF EXISTS outbox_events;
+DROP TABLE IF EXISTS idempotency_keys;
 DROP TABLE IF EXISTS order_details;
 DROP TABLE IF EXISTS orders;
+DROP TABLE IF EXISTS stock_reservations;
 DROP TABLE IF EXISTS cart_items;
 DROP TABLE IF EXISTS carts;
 DROP TABLE IF EXISTS users;
@@ -27,6 +31,7 @@ CREATE TABLE users (
     address VARCHAR(255),
     email_verified BOOLEAN NOT NULL DEFAULT FALSE,
     subscribing_newsletter BOOLEAN NOT NULL DEFAULT FALSE,
+    token_version INT NOT NULL DEFAULT 0,
     created_at TIMESTAMP NOT NULL,
     updated_at TIMESTAMP NOT NULL
 );
@@ -89,14 +94,19 @@ CREATE TABLE inventories (
     id INT AUTO_INCREMENT PRIMARY KEY,
     sku_id INT NOT NULL UNIQUE,
     quantity INT NOT NULL,
+    reserved_quantity INT NOT NULL DEFAULT 0,
     updated_at TIMESTAMP NOT NULL,
     FOREIGN KEY (sku_id) REFERENCES skus(id)
 );
 
 -- cart テーブル
+-- ゲストカートはuser_idを持たず、トークンのハッシュ値と有効期限を持つ
 CREATE TABLE carts (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
-    user_id BIGINT NOT NULL UNIQUE,
+    user_id BIGINT UNIQUE,
+    revision BIGINT NOT NULL DEFAULT 0,
+    guest_token_hash CHAR(64) UNIQUE,
+    expires_at TIMESTAMP NULL,
     FOREIGN KEY (user_id) REFERENCES users(id)
 );
 
@@ -111,6 +121,18 @@ CREATE TABLE cart_items (
     UNIQUE (cart_id, sku_id)
 );
 
+-- stock_reservations テーブル（カートに追加した商品の在庫の一時確保）
+CREATE TABLE stock_reservations (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    cart_id BIGINT NOT NULL,
+    sku_id BIGINT NOT NULL,
+    quantity INT NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    UNIQUE (cart_id, sku_id),
+    FOREIGN KEY (cart_id) REFERENCES carts(id) ON DELETE CASCADE,
+    FOREIGN KEY (sku_id) REFERENCES skus(id) ON DELETE CASCADE
+);
+
 CREATE TABLE orders (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     user_id BIGINT NOT NULL,
@@ -120,6 +142,7 @@ CREATE TABLE orders (
     shipping_postal_code VARCHAR(10) NOT NULL,
     shipping_name VARCHAR(255) NOT NULL,
     ordered_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    payment_intent_id VARCHAR(255),
     FOREIGN KEY (user_id) REFERENCES users(id)
 );
 
@@ -131,4 +154,57 @@ CREATE TABLE order_details (
     price_at_order INT NOT NULL,
     FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE,
     FOREIGN KEY (sku_id) REFERENCES skus(id)
-);
\ No newline at end of file
+);
+
+-- idempotency_keys テーブル（注文確定APIのIdempotency-Keyごとの処理結果）
+CREATE TABLE idempotency_keys (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash CHAR(64) NOT NULL,
+    response_body TEXT,
+    pending_order_id BIGINT,
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    UNIQUE (user_id, idempotency_key),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- outbox_events テーブル（注文確定後の後続処理に渡すイベント）
+CREATE TABLE outbox_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(50) NOT NULL,
+    aggregate_id BIGINT NOT NULL,
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL,
+    processed_at TIMESTAMP NULL
+);
+
+-- email_messages テーブル（送信待ちのメール）
+CREATE TABLE email_messages (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    body TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL,
+    sent_at TIMESTAMP NULL
+);
+
+-- DAOの検索条件・並び順に合わせたインデックス（db/migration/V2〜V9のマイグレーションと同じ）
+CREATE INDEX idx_products_category_id_id ON products (category_id, id);
+CREATE INDEX idx_orders_user_id_ordered_at_id_covering ON orders (user_id, ordered_at, id, status, total_price);
+CREATE INDEX idx_orders_status_ordered_at ON orders (status, ordered_at);
+CREATE INDEX idx_order_details_order_id ON order_details (order_id);
+CREATE INDEX idx_stock_reservations_expires_at ON stock_reservations (expires_at);
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
+CREATE INDEX idx_outbox_events_status_next_attempt_at ON outbox_events (status, next_attempt_at);
+CREATE INDEX idx_email_messages_status_next_attempt_at ON email_messages (status, next_attempt_at);
+CREATE INDEX idx_carts_expires_at ON carts (expires_at);